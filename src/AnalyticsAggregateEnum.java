@@ -0,0 +1,12 @@
+/**
+ * Analytics aggregate Enum.
+ *
+ * Aggregate a query of {@link AnalyticsSnapshot} computes over the reservation prices of each group.
+ */
+public enum AnalyticsAggregateEnum {
+    COUNT,
+    SUM,
+    AVERAGE,
+    MIN,
+    MAX;
+}
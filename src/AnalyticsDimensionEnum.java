@@ -0,0 +1,11 @@
+/**
+ * Analytics dimension Enum.
+ *
+ * Flight column a query of {@link AnalyticsSnapshot} groups by.
+ */
+public enum AnalyticsDimensionEnum {
+    ORIGIN,
+    DESTINATION,
+    ROUTE,
+    FLIGHT;
+}
@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of an analytics query, one value per group.
+ */
+public class AnalyticsResult {
+    /**
+     * Group names.
+     */
+    private final String[] groupNames;
+
+    /**
+     * Group values, indexed like groupNames.
+     */
+    private final double[] values;
+
+    /**
+     * Constructor.
+     * @param groupNames group names.
+     * @param values group values.
+     */
+    AnalyticsResult(final String[] groupNames, final double[] values) {
+        this.groupNames = groupNames;
+        this.values = values;
+    }
+
+    /**
+     * Get number of groups.
+     * @return number of groups.
+     */
+    public int size() {
+        return groupNames.length;
+    }
+
+    /**
+     * Get value of a group.
+     * @param groupName group name, for example an airport code, "LAS-LAX" or a flight number.
+     * @return value, or NaN if the group is not in the result.
+     */
+    public double getValue(final String groupName) {
+        for (int i = 0; i < groupNames.length; i++) {
+            if (groupNames[i].equals(groupName)) {
+                return values[i];
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Get the groups with the highest values.
+     * @param k maximum number of groups.
+     * @return group names, highest value first.
+     */
+    public List<String> topK(final int k) {
+        Integer[] order = new Integer[groupNames.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer a, final Integer b) {
+                int byValue = Double.compare(values[b], values[a]);
+                return byValue != 0 ? byValue : groupNames[a].compareTo(groupNames[b]);
+            }
+        });
+        List<String> top = new ArrayList<>();
+        for (int i = 0; i < order.length && i < k; i++) {
+            top.add(groupNames[order[i]]);
+        }
+        return top;
+    }
+
+    /**
+     * Get all groups and values.
+     * @return group name to value map, in group order.
+     */
+    public Map<String, Double> toMap() {
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (int i = 0; i < groupNames.length; i++) {
+            map.put(groupNames[i], values[i]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+}
@@ -0,0 +1,625 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar snapshot of flights and reservations for analytics queries.
+ *
+ * <p>Each column is a primitive array, flight columns are indexed by flight row and reservation columns by
+ * reservation row. Airport codes and routes are dictionary encoded into int ids. Queries only read the
+ * snapshot, so they never take the route locks used by the transactions:</p>
+ * <ul>
+ * <li>{@link #aggregate} scans the reservation columns with fork-join tasks, each task aggregating a range
+ *     of rows into per group arrays</li>
+ * <li>{@link #loadFactor} scans the flight columns with a parallel stream</li>
+ * </ul>
+ */
+public class AnalyticsSnapshot {
+    /**
+     * Number of reservation rows below which a task aggregates its rows without splitting.
+     */
+    static final int SPLIT_THRESHOLD = 1 << 16;
+
+    /**
+     * Flight numbers.
+     */
+    private final String[] flightNumbers;
+
+    /**
+     * Airport id of the origin of each flight.
+     */
+    private final int[] flightOrigins;
+
+    /**
+     * Airport id of the destination of each flight.
+     */
+    private final int[] flightDestinations;
+
+    /**
+     * Route id of each flight.
+     */
+    private final int[] flightRoutes;
+
+    /**
+     * Number of seats of each flight.
+     */
+    private final int[] flightSeats;
+
+    /**
+     * Sold seats of each flight.
+     */
+    private final int[] flightSoldSeats;
+
+    /**
+     * Price per seat of each flight.
+     */
+    private final int[] flightPrices;
+
+    /**
+     * Number of flights.
+     */
+    private final int flightCount;
+
+    /**
+     * Airport codes, indexed by airport id.
+     */
+    private final String[] airportCodes;
+
+    /**
+     * Route names such as "LAS-LAX", indexed by route id.
+     */
+    private final String[] routeNames;
+
+    /**
+     * Flight row of each reservation.
+     */
+    private final int[] reservationFlights;
+
+    /**
+     * Price of each reservation.
+     */
+    private final int[] reservationPrices;
+
+    /**
+     * Seat number of each reservation.
+     */
+    private final int[] reservationSeats;
+
+    /**
+     * Number of reservations.
+     */
+    private final int reservationCount;
+
+    /**
+     * Constructor.
+     * @param builder SnapshotBuilder instance.
+     */
+    private AnalyticsSnapshot(final SnapshotBuilder builder) {
+        this.flightCount = builder.flightCount;
+        this.flightNumbers = Arrays.copyOf(builder.flightNumbers, flightCount);
+        this.flightOrigins = Arrays.copyOf(builder.flightOrigins, flightCount);
+        this.flightDestinations = Arrays.copyOf(builder.flightDestinations, flightCount);
+        this.flightRoutes = Arrays.copyOf(builder.flightRoutes, flightCount);
+        this.flightSeats = Arrays.copyOf(builder.flightSeats, flightCount);
+        this.flightSoldSeats = Arrays.copyOf(builder.flightSoldSeats, flightCount);
+        this.flightPrices = Arrays.copyOf(builder.flightPrices, flightCount);
+        this.airportCodes = new String[builder.airportIds.size()];
+        for (Map.Entry<String, Integer> entry : builder.airportIds.entrySet()) {
+            airportCodes[entry.getValue()] = entry.getKey();
+        }
+        this.routeNames = new String[builder.routeIds.size()];
+        for (Map.Entry<String, Integer> entry : builder.routeIds.entrySet()) {
+            routeNames[entry.getValue()] = entry.getKey();
+        }
+        this.reservationCount = builder.reservationCount;
+        this.reservationFlights = Arrays.copyOf(builder.reservationFlights, reservationCount);
+        this.reservationPrices = Arrays.copyOf(builder.reservationPrices, reservationCount);
+        this.reservationSeats = Arrays.copyOf(builder.reservationSeats, reservationCount);
+    }
+
+    /**
+     * Get number of flights.
+     * @return number of flights.
+     */
+    public int getFlightCount() {
+        return flightCount;
+    }
+
+    /**
+     * Get number of reservations.
+     * @return number of reservations.
+     */
+    public int getReservationCount() {
+        return reservationCount;
+    }
+
+    /**
+     * Get id of an airport code, used to build filters.
+     * @param airportCode airport code.
+     * @return airport id, or -1 if no flight uses the airport.
+     */
+    public int getAirportId(final String airportCode) {
+        for (int i = 0; i < airportCodes.length; i++) {
+            if (airportCodes[i].equals(airportCode)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get flight row of a reservation.
+     * @param row reservation row.
+     * @return flight row.
+     */
+    public int getReservationFlight(final int row) {
+        return reservationFlights[row];
+    }
+
+    /**
+     * Get price of a reservation.
+     * @param row reservation row.
+     * @return price.
+     */
+    public int getReservationPrice(final int row) {
+        return reservationPrices[row];
+    }
+
+    /**
+     * Get seat number of a reservation.
+     * @param row reservation row.
+     * @return seat number.
+     */
+    public int getReservationSeat(final int row) {
+        return reservationSeats[row];
+    }
+
+    /**
+     * Get airport id of the origin of a flight.
+     * @param flight flight row.
+     * @return airport id.
+     */
+    public int getFlightOrigin(final int flight) {
+        return flightOrigins[flight];
+    }
+
+    /**
+     * Get airport id of the destination of a flight.
+     * @param flight flight row.
+     * @return airport id.
+     */
+    public int getFlightDestination(final int flight) {
+        return flightDestinations[flight];
+    }
+
+    /**
+     * Get price per seat of a flight.
+     * @param flight flight row.
+     * @return price per seat.
+     */
+    public int getFlightPrice(final int flight) {
+        return flightPrices[flight];
+    }
+
+    /**
+     * Aggregate the prices of all reservations by group.
+     * @param groupBy group by dimension.
+     * @param aggregate aggregate.
+     * @return one value per group with at least one reservation.
+     */
+    public AnalyticsResult aggregate(final AnalyticsDimensionEnum groupBy, final AnalyticsAggregateEnum aggregate) {
+        return aggregate(groupBy, aggregate, null);
+    }
+
+    /**
+     * Aggregate the prices of the reservations matching a filter by group.
+     * @param groupBy group by dimension.
+     * @param aggregate aggregate.
+     * @param filter reservation row filter, null to keep all reservations. Called from several threads.
+     * @return one value per group with at least one matching reservation.
+     */
+    public AnalyticsResult aggregate(final AnalyticsDimensionEnum groupBy, final AnalyticsAggregateEnum aggregate,
+            final IntPredicate filter) {
+        int[] groupKeys = getGroupKeys(groupBy);
+        String[] groupNames = getGroupNames(groupBy);
+        long[] totals = ForkJoinPool.commonPool().invoke(
+                new AggregateTask(groupKeys, groupNames.length, filter, 0, reservationCount));
+        int groups = 0;
+        for (int group = 0; group < groupNames.length; group++) {
+            if (totals[group * AggregateTask.WIDTH + AggregateTask.COUNT] > 0) {
+                groups++;
+            }
+        }
+        String[] names = new String[groups];
+        double[] values = new double[groups];
+        int index = 0;
+        for (int group = 0; group < groupNames.length; group++) {
+            int base = group * AggregateTask.WIDTH;
+            long count = totals[base + AggregateTask.COUNT];
+            if (count == 0) {
+                continue;
+            }
+            names[index] = groupNames[group];
+            if (aggregate == AnalyticsAggregateEnum.COUNT) {
+                values[index] = count;
+            } else if (aggregate == AnalyticsAggregateEnum.SUM) {
+                values[index] = totals[base + AggregateTask.SUM];
+            } else if (aggregate == AnalyticsAggregateEnum.AVERAGE) {
+                values[index] = (double) totals[base + AggregateTask.SUM] / count;
+            } else if (aggregate == AnalyticsAggregateEnum.MIN) {
+                values[index] = totals[base + AggregateTask.MIN];
+            } else {
+                values[index] = totals[base + AggregateTask.MAX];
+            }
+            index++;
+        }
+        return new AnalyticsResult(names, values);
+    }
+
+    /**
+     * Get load factor, sold seats divided by number of seats, by group.
+     * @param groupBy group by dimension.
+     * @return one value per group with at least one seat.
+     */
+    public AnalyticsResult loadFactor(final AnalyticsDimensionEnum groupBy) {
+        final int[] groupKeys = getGroupKeys(groupBy);
+        String[] groupNames = getGroupNames(groupBy);
+        final int groupCount = groupNames.length;
+        // Sold seats at [2 * group], number of seats at [2 * group + 1].
+        long[] totals = IntStream.range(0, flightCount).parallel().collect(
+                new Supplier<long[]>() {
+                    @Override
+                    public long[] get() {
+                        return new long[2 * groupCount];
+                    }
+                },
+                new ObjIntConsumer<long[]>() {
+                    @Override
+                    public void accept(final long[] sums, final int flight) {
+                        int group = groupKeys[flight];
+                        sums[2 * group] += flightSoldSeats[flight];
+                        sums[2 * group + 1] += flightSeats[flight];
+                    }
+                },
+                new BiConsumer<long[], long[]>() {
+                    @Override
+                    public void accept(final long[] left, final long[] right) {
+                        for (int i = 0; i < left.length; i++) {
+                            left[i] += right[i];
+                        }
+                    }
+                });
+        int groups = 0;
+        for (int group = 0; group < groupCount; group++) {
+            if (totals[2 * group + 1] > 0) {
+                groups++;
+            }
+        }
+        String[] names = new String[groups];
+        double[] values = new double[groups];
+        int index = 0;
+        for (int group = 0; group < groupCount; group++) {
+            if (totals[2 * group + 1] > 0) {
+                names[index] = groupNames[group];
+                values[index] = (double) totals[2 * group] / totals[2 * group + 1];
+                index++;
+            }
+        }
+        return new AnalyticsResult(names, values);
+    }
+
+    /**
+     * Get the group key column of a dimension.
+     * @param groupBy group by dimension.
+     * @return group id of each flight row.
+     */
+    private int[] getGroupKeys(final AnalyticsDimensionEnum groupBy) {
+        if (groupBy == AnalyticsDimensionEnum.ORIGIN) {
+            return flightOrigins;
+        } else if (groupBy == AnalyticsDimensionEnum.DESTINATION) {
+            return flightDestinations;
+        } else if (groupBy == AnalyticsDimensionEnum.ROUTE) {
+            return flightRoutes;
+        }
+        int[] flights = new int[flightCount];
+        for (int i = 0; i < flightCount; i++) {
+            flights[i] = i;
+        }
+        return flights;
+    }
+
+    /**
+     * Get the group names of a dimension.
+     * @param groupBy group by dimension.
+     * @return group names indexed by group id.
+     */
+    private String[] getGroupNames(final AnalyticsDimensionEnum groupBy) {
+        if (groupBy == AnalyticsDimensionEnum.ORIGIN || groupBy == AnalyticsDimensionEnum.DESTINATION) {
+            return airportCodes;
+        } else if (groupBy == AnalyticsDimensionEnum.ROUTE) {
+            return routeNames;
+        }
+        return flightNumbers;
+    }
+
+    /**
+     * Fork-join task aggregating a range of reservation rows into count, sum, min and max per group.
+     */
+    private final class AggregateTask extends RecursiveTask<long[]> {
+        /**
+         * Serial version UID.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Offset of the count in a group's slice of the totals.
+         */
+        static final int COUNT = 0;
+
+        /**
+         * Offset of the sum in a group's slice of the totals.
+         */
+        static final int SUM = 1;
+
+        /**
+         * Offset of the minimum in a group's slice of the totals.
+         */
+        static final int MIN = 2;
+
+        /**
+         * Offset of the maximum in a group's slice of the totals.
+         */
+        static final int MAX = 3;
+
+        /**
+         * Size of a group's slice of the totals.
+         */
+        static final int WIDTH = 4;
+
+        /**
+         * Group id of each flight row.
+         */
+        private final int[] groupKeys;
+
+        /**
+         * Number of groups.
+         */
+        private final int groupCount;
+
+        /**
+         * Reservation row filter, null to keep all rows.
+         */
+        private final IntPredicate filter;
+
+        /**
+         * First row, inclusive.
+         */
+        private final int from;
+
+        /**
+         * Last row, exclusive.
+         */
+        private final int to;
+
+        /**
+         * Constructor.
+         */
+        AggregateTask(final int[] groupKeys, final int groupCount, final IntPredicate filter, final int from,
+                final int to) {
+            this.groupKeys = groupKeys;
+            this.groupCount = groupCount;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                AggregateTask left = new AggregateTask(groupKeys, groupCount, filter, from, middle);
+                AggregateTask right = new AggregateTask(groupKeys, groupCount, filter, middle, to);
+                left.fork();
+                long[] totals = right.compute();
+                merge(totals, left.join());
+                return totals;
+            }
+            long[] totals = new long[groupCount * WIDTH];
+            for (int group = 0; group < groupCount; group++) {
+                totals[group * WIDTH + MIN] = Long.MAX_VALUE;
+                totals[group * WIDTH + MAX] = Long.MIN_VALUE;
+            }
+            for (int row = from; row < to; row++) {
+                if (filter != null && !filter.test(row)) {
+                    continue;
+                }
+                int base = groupKeys[reservationFlights[row]] * WIDTH;
+                int price = reservationPrices[row];
+                totals[base + COUNT]++;
+                totals[base + SUM] += price;
+                if (price < totals[base + MIN]) {
+                    totals[base + MIN] = price;
+                }
+                if (price > totals[base + MAX]) {
+                    totals[base + MAX] = price;
+                }
+            }
+            return totals;
+        }
+
+        /**
+         * Merge the totals of another range into totals.
+         * @param totals totals to update.
+         * @param other totals of another range.
+         */
+        private void merge(final long[] totals, final long[] other) {
+            for (int base = 0; base < totals.length; base += WIDTH) {
+                totals[base + COUNT] += other[base + COUNT];
+                totals[base + SUM] += other[base + SUM];
+                totals[base + MIN] = Math.min(totals[base + MIN], other[base + MIN]);
+                totals[base + MAX] = Math.max(totals[base + MAX], other[base + MAX]);
+            }
+        }
+    }
+
+    /**
+     * Builder of AnalyticsSnapshot, appends flights with their reservations to growable columns.
+     * The caller holds the lock of each flight's route while adding it.
+     */
+    static class SnapshotBuilder {
+        /**
+         * Initial capacity of the columns.
+         */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Airport code to airport id map.
+         */
+        private final Map<String, Integer> airportIds = new HashMap<>();
+
+        /**
+         * Route name to route id map.
+         */
+        private final Map<String, Integer> routeIds = new HashMap<>();
+
+        /**
+         * Flight numbers.
+         */
+        private String[] flightNumbers = new String[INITIAL_CAPACITY];
+
+        /**
+         * Origin airport ids.
+         */
+        private int[] flightOrigins = new int[INITIAL_CAPACITY];
+
+        /**
+         * Destination airport ids.
+         */
+        private int[] flightDestinations = new int[INITIAL_CAPACITY];
+
+        /**
+         * Route ids.
+         */
+        private int[] flightRoutes = new int[INITIAL_CAPACITY];
+
+        /**
+         * Numbers of seats.
+         */
+        private int[] flightSeats = new int[INITIAL_CAPACITY];
+
+        /**
+         * Sold seats.
+         */
+        private int[] flightSoldSeats = new int[INITIAL_CAPACITY];
+
+        /**
+         * Prices per seat.
+         */
+        private int[] flightPrices = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of flights.
+         */
+        private int flightCount;
+
+        /**
+         * Flight rows of the reservations.
+         */
+        private int[] reservationFlights = new int[INITIAL_CAPACITY];
+
+        /**
+         * Prices of the reservations.
+         */
+        private int[] reservationPrices = new int[INITIAL_CAPACITY];
+
+        /**
+         * Seat numbers of the reservations.
+         */
+        private int[] reservationSeats = new int[INITIAL_CAPACITY];
+
+        /**
+         * Number of reservations.
+         */
+        private int reservationCount;
+
+        /**
+         * Add a flight and its reservations.
+         * @param flight flight.
+         * @return this builder.
+         */
+        SnapshotBuilder addFlight(final Flight flight) {
+            return addFlight(flight.getVersion(Long.MAX_VALUE));
+        }
+
+        /**
+         * Add a version of a flight and its reservations.
+         * @param flight flight version.
+         * @return this builder.
+         */
+        SnapshotBuilder addFlight(final FlightVersion flight) {
+            if (flightCount == flightNumbers.length) {
+                int capacity = flightCount * 2;
+                flightNumbers = Arrays.copyOf(flightNumbers, capacity);
+                flightOrigins = Arrays.copyOf(flightOrigins, capacity);
+                flightDestinations = Arrays.copyOf(flightDestinations, capacity);
+                flightRoutes = Arrays.copyOf(flightRoutes, capacity);
+                flightSeats = Arrays.copyOf(flightSeats, capacity);
+                flightSoldSeats = Arrays.copyOf(flightSoldSeats, capacity);
+                flightPrices = Arrays.copyOf(flightPrices, capacity);
+            }
+            int row = flightCount++;
+            flightNumbers[row] = flight.getFlightNumber();
+            flightOrigins[row] = idOf(airportIds, flight.getOriginCode());
+            flightDestinations[row] = idOf(airportIds, flight.getDestinationCode());
+            flightRoutes[row] = idOf(routeIds, flight.getOriginCode() + "-" + flight.getDestinationCode());
+            flightSeats[row] = flight.getNumberOfSeats();
+            flightPrices[row] = flight.getPricePerSeat();
+            int sold = 0;
+            for (ReservationItem item : flight.getReservations()) {
+                if (reservationCount == reservationFlights.length) {
+                    int capacity = reservationCount * 2;
+                    reservationFlights = Arrays.copyOf(reservationFlights, capacity);
+                    reservationPrices = Arrays.copyOf(reservationPrices, capacity);
+                    reservationSeats = Arrays.copyOf(reservationSeats, capacity);
+                }
+                reservationFlights[reservationCount] = row;
+                reservationPrices[reservationCount] = item.getPrice();
+                reservationSeats[reservationCount] = item.getSeatNumber();
+                reservationCount++;
+                sold++;
+            }
+            flightSoldSeats[row] = sold;
+            return this;
+        }
+
+        /**
+         * Get the id of a dictionary value, adding it if it is new.
+         * @param ids value to id map.
+         * @param value value.
+         * @return id.
+         */
+        private static int idOf(final Map<String, Integer> ids, final String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = ids.size();
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        /**
+         * Build the snapshot, trimming the columns.
+         * @return analytics snapshot.
+         */
+        AnalyticsSnapshot build() {
+            return new AnalyticsSnapshot(this);
+        }
+    }
+}
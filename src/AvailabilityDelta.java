@@ -0,0 +1,127 @@
+/**
+ * Availability delta.
+ *
+ * <p>A compact change record published by the {@link AvailabilityFeed}. Each delta contains:</p>
+ * <ul>
+ * <li>Sequence number, increasing by one per published delta</li>
+ * <li>Delta type</li>
+ * <li>Flight number</li>
+ * <li>Origin code</li>
+ * <li>Destination code</li>
+ * <li>Available seats after the change</li>
+ * <li>Price per seat after the change</li>
+ * </ul>
+ */
+public class AvailabilityDelta {
+    /**
+     * Sequence number.
+     */
+    private final long sequence;
+
+    /**
+     * Delta type.
+     */
+    private final AvailabilityDeltaTypeEnum type;
+
+    /**
+     * Flight number.
+     */
+    private final String flightNumber;
+
+    /**
+     * Origin code.
+     */
+    private final String originCode;
+
+    /**
+     * Destination code.
+     */
+    private final String destinationCode;
+
+    /**
+     * Available seats.
+     */
+    private final int availableSeats;
+
+    /**
+     * Price per seat.
+     */
+    private final int pricePerSeat;
+
+    /**
+     * Constructor.
+     */
+    public AvailabilityDelta(final long sequence, final AvailabilityDeltaTypeEnum type, final String flightNumber,
+            final String originCode, final String destinationCode, final int availableSeats,
+            final int pricePerSeat) {
+        this.sequence = sequence;
+        this.type = type;
+        this.flightNumber = flightNumber;
+        this.originCode = originCode;
+        this.destinationCode = destinationCode;
+        this.availableSeats = availableSeats;
+        this.pricePerSeat = pricePerSeat;
+    }
+
+    /**
+     * Get sequence number.
+     * @return sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get delta type.
+     * @return delta type.
+     */
+    public AvailabilityDeltaTypeEnum getType() {
+        return type;
+    }
+
+    /**
+     * Get flight number.
+     * @return flight number.
+     */
+    public String getFlightNumber() {
+        return flightNumber;
+    }
+
+    /**
+     * Get origin code.
+     * @return origin code.
+     */
+    public String getOriginCode() {
+        return originCode;
+    }
+
+    /**
+     * Get destination code.
+     * @return destination code.
+     */
+    public String getDestinationCode() {
+        return destinationCode;
+    }
+
+    /**
+     * Get available seats.
+     * @return available seats.
+     */
+    public int getAvailableSeats() {
+        return availableSeats;
+    }
+
+    /**
+     * Get price per seat.
+     * @return price per seat.
+     */
+    public int getPricePerSeat() {
+        return pricePerSeat;
+    }
+
+    @Override
+    public String toString() {
+        return sequence + "," + type.getDeltaType() + "," + flightNumber + "," + originCode + ","
+                + destinationCode + "," + availableSeats + "," + pricePerSeat;
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Availability delta type Enum.
+ *
+ * Delta type:
+ * <ul>
+ * <li>SeatSold</li>
+ * <li>SeatReleased</li>
+ * <li>PriceChanged</li>
+ * </ul>
+ */
+public enum AvailabilityDeltaTypeEnum {
+    SEAT_SOLD("SeatSold"),
+    SEAT_RELEASED("SeatReleased"),
+    PRICE_CHANGED("PriceChanged");
+
+    /**
+     * Delta type.
+     */
+    private final String deltaType;
+
+    /**
+     * Constructor.
+     * @param deltaType Delta type.
+     */
+    private AvailabilityDeltaTypeEnum(final String deltaType) {
+        this.deltaType = deltaType;
+    }
+
+    /**
+     * Get delta type.
+     * @return delta type.
+     */
+    public String getDeltaType() {
+        return deltaType;
+    }
+}
@@ -0,0 +1,401 @@
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Availability change feed.
+ *
+ * <p>Publishes an {@link AvailabilityDelta} each time a seat is sold, a seat is released or a price changes.
+ * The feed follows the reactive streams contract of java.util.concurrent.Flow, which is not available on
+ * JAVA 8:</p>
+ * <ul>
+ * <li>Each subscriber gets a {@link Subscription} and receives at most as many deltas as it requested</li>
+ * <li>Deltas are delivered on the feed's executor, one task at a time per subscriber</li>
+ * <li>Each subscriber has its own bounded buffer, and a {@link FeedOverflowStrategyEnum} deciding what
+ *     happens when a slow subscriber lets it fill up</li>
+ * </ul>
+ *
+ * <p>Publishing only appends to lock free buffers and never waits for a subscriber, so it never blocks the
+ * thread applying the transactions.</p>
+ */
+public class AvailabilityFeed implements ReservationListener {
+    /**
+     * Default buffer capacity per subscriber.
+     */
+    static final int DEFAULT_BUFFER_CAPACITY = 1024;
+
+    /**
+     * Executor delivering deltas to subscribers.
+     */
+    private final Executor executor;
+
+    /**
+     * Sequence of published deltas.
+     */
+    private final AtomicLong sequence;
+
+    /**
+     * Active subscriptions.
+     */
+    private final List<FeedSubscription> subscriptions;
+
+    /**
+     * Constructor.
+     * @param executor executor delivering deltas to subscribers.
+     */
+    public AvailabilityFeed(final Executor executor) {
+        this.executor = executor;
+        this.sequence = new AtomicLong();
+        this.subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Subscribe with the default buffer, dropping the oldest deltas when the buffer is full.
+     * @param subscriber subscriber.
+     */
+    public void subscribe(final Subscriber subscriber) {
+        subscribe(subscriber, FeedOverflowStrategyEnum.DROP_OLDEST, DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * Subscribe.
+     * @param subscriber subscriber.
+     * @param overflowStrategy what to do with deltas published while the buffer is full.
+     * @param bufferCapacity maximum number of buffered deltas, not used when conflating.
+     */
+    public void subscribe(final Subscriber subscriber, final FeedOverflowStrategyEnum overflowStrategy,
+            final int bufferCapacity) {
+        if (bufferCapacity <= 0) {
+            throw new IllegalArgumentException("Buffer capacity should be positive.");
+        }
+        FeedSubscription subscription = new FeedSubscription(subscriber, overflowStrategy, bufferCapacity);
+        subscriber.onSubscribe(subscription);
+        if (!subscription.cancelled) {
+            subscriptions.add(subscription);
+        }
+    }
+
+    /**
+     * Complete all subscriptions once their buffered deltas are delivered.
+     */
+    public void close() {
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * Get sequence number of the last published delta.
+     * @return last sequence number, 0 if nothing was published.
+     */
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    /**
+     * Get number of active subscriptions.
+     * @return number of subscriptions.
+     */
+    public int getSubscriptionCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void seatSold(final Flight flight, final ReservationItem item) {
+        publish(AvailabilityDeltaTypeEnum.SEAT_SOLD, flight);
+    }
+
+    @Override
+    public void seatReleased(final Flight flight, final ReservationItem item) {
+        publish(AvailabilityDeltaTypeEnum.SEAT_RELEASED, flight);
+    }
+
+    @Override
+    public void priceChanged(final Flight flight, final int oldPrice) {
+        publish(AvailabilityDeltaTypeEnum.PRICE_CHANGED, flight);
+    }
+
+    /**
+     * Publish a delta to all subscribers.
+     * @param type delta type.
+     * @param flight changed flight.
+     */
+    private void publish(final AvailabilityDeltaTypeEnum type, final Flight flight) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        AvailabilityDelta delta = new AvailabilityDelta(sequence.incrementAndGet(), type, flight.getFlightNumber(),
+                flight.getOriginCode(), flight.getDestinationCode(), flight.getAvailableSeats(),
+                flight.getPricePerSeat());
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.offer(delta);
+        }
+    }
+
+    /**
+     * Receiver of availability deltas, mirrors java.util.concurrent.Flow.Subscriber.
+     */
+    public interface Subscriber {
+        /**
+         * Called once before any other method.
+         * @param subscription subscription used to request deltas.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called for each delivered delta.
+         * @param delta availability delta.
+         */
+        void onNext(AvailabilityDelta delta);
+
+        /**
+         * Called when the subscription failed, no other method is called afterwards.
+         * @param throwable failure.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when the feed is closed and all buffered deltas were delivered.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Link between the feed and one subscriber, mirrors java.util.concurrent.Flow.Subscription.
+     */
+    public interface Subscription {
+        /**
+         * Request more deltas.
+         * @param n number of additional deltas, should be positive.
+         */
+        void request(long n);
+
+        /**
+         * Stop receiving deltas.
+         */
+        void cancel();
+
+        /**
+         * Get number of deltas dropped or conflated because the subscriber was too slow.
+         * @return number of dropped deltas.
+         */
+        long getDroppedCount();
+    }
+
+    /**
+     * Subscription with its own buffer and drain task.
+     */
+    private final class FeedSubscription implements Subscription, Runnable {
+        /**
+         * Subscriber.
+         */
+        private final Subscriber subscriber;
+
+        /**
+         * Overflow strategy.
+         */
+        private final FeedOverflowStrategyEnum overflowStrategy;
+
+        /**
+         * Buffer capacity.
+         */
+        private final int bufferCapacity;
+
+        /**
+         * Buffered deltas, used when not conflating.
+         */
+        private final ConcurrentLinkedQueue<AvailabilityDelta> buffer;
+
+        /**
+         * Number of buffered deltas.
+         */
+        private final AtomicInteger buffered;
+
+        /**
+         * Latest delta per flight number, used when conflating.
+         */
+        private final ConcurrentHashMap<String, AvailabilityDelta> latestDeltas;
+
+        /**
+         * Flight numbers with a pending delta in latestDeltas, in publishing order.
+         */
+        private final ConcurrentLinkedQueue<String> pendingFlightNumbers;
+
+        /**
+         * Outstanding demand.
+         */
+        private final AtomicLong demand;
+
+        /**
+         * Number of drain requests, the drain task runs while it is not 0.
+         */
+        private final AtomicInteger drainRequests;
+
+        /**
+         * Number of dropped deltas.
+         */
+        private final AtomicLong dropped;
+
+        /**
+         * Whether the subscription is cancelled or terminated.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Whether the feed was closed.
+         */
+        private volatile boolean completed;
+
+        /**
+         * Constructor.
+         */
+        FeedSubscription(final Subscriber subscriber, final FeedOverflowStrategyEnum overflowStrategy,
+                final int bufferCapacity) {
+            this.subscriber = subscriber;
+            this.overflowStrategy = overflowStrategy;
+            this.bufferCapacity = bufferCapacity;
+            this.buffer = new ConcurrentLinkedQueue<>();
+            this.buffered = new AtomicInteger();
+            this.latestDeltas = new ConcurrentHashMap<>();
+            this.pendingFlightNumbers = new ConcurrentLinkedQueue<>();
+            this.demand = new AtomicLong();
+            this.drainRequests = new AtomicInteger();
+            this.dropped = new AtomicLong();
+        }
+
+        /**
+         * Buffer a delta and schedule delivery.
+         * @param delta availability delta.
+         */
+        void offer(final AvailabilityDelta delta) {
+            if (cancelled) {
+                return;
+            }
+            if (overflowStrategy == FeedOverflowStrategyEnum.CONFLATE) {
+                if (latestDeltas.put(delta.getFlightNumber(), delta) == null) {
+                    pendingFlightNumbers.offer(delta.getFlightNumber());
+                } else {
+                    dropped.incrementAndGet();
+                }
+            } else if (overflowStrategy == FeedOverflowStrategyEnum.DROP_NEWEST) {
+                if (buffered.get() >= bufferCapacity) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                buffered.incrementAndGet();
+                buffer.offer(delta);
+            } else {
+                buffered.incrementAndGet();
+                buffer.offer(delta);
+                if (buffered.get() > bufferCapacity && buffer.poll() != null) {
+                    buffered.decrementAndGet();
+                    dropped.incrementAndGet();
+                }
+            }
+            drain();
+        }
+
+        /**
+         * Mark the subscription completed and schedule delivery of the remaining deltas.
+         */
+        void complete() {
+            completed = true;
+            drain();
+        }
+
+        /**
+         * Take the next buffered delta.
+         * @return next delta, or null if the buffer is empty.
+         */
+        private AvailabilityDelta poll() {
+            if (overflowStrategy == FeedOverflowStrategyEnum.CONFLATE) {
+                String flightNumber = pendingFlightNumbers.poll();
+                return flightNumber == null ? null : latestDeltas.remove(flightNumber);
+            }
+            AvailabilityDelta delta = buffer.poll();
+            if (delta != null) {
+                buffered.decrementAndGet();
+            }
+            return delta;
+        }
+
+        /**
+         * Schedule the drain task unless it is already running.
+         */
+        private void drain() {
+            if (drainRequests.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                while (!cancelled && demand.get() > 0) {
+                    AvailabilityDelta delta = poll();
+                    if (delta == null) {
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(delta);
+                    } catch (RuntimeException e) {
+                        terminate();
+                        subscriber.onError(e);
+                    }
+                }
+                if (!cancelled && completed && buffer.isEmpty() && pendingFlightNumbers.isEmpty()) {
+                    terminate();
+                    subscriber.onComplete();
+                }
+                missed = drainRequests.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                terminate();
+                subscriber.onError(new IllegalArgumentException("Requested number of deltas should be positive."));
+                return;
+            }
+            long current;
+            long next;
+            do {
+                current = demand.get();
+                next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!demand.compareAndSet(current, next));
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            terminate();
+        }
+
+        @Override
+        public long getDroppedCount() {
+            return dropped.get();
+        }
+
+        /**
+         * Stop delivery and release the buffers.
+         */
+        private void terminate() {
+            cancelled = true;
+            subscriptions.remove(this);
+            buffer.clear();
+            latestDeltas.clear();
+            pendingFlightNumbers.clear();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+/**
+ * Cabin zone Enum.
+ *
+ * Cabin zone of a row of a {@link SeatMap}, from the front of the aircraft to the back.
+ */
+public enum CabinZoneEnum {
+    FIRST,
+    BUSINESS,
+    PREMIUM_ECONOMY,
+    ECONOMY;
+}
@@ -0,0 +1,127 @@
+/**
+ * Count-min sketch.
+ *
+ * <p>Estimates the count of a key with {@value #DEPTH} rows of counters, each row indexed by a different
+ * hash of the key. The estimate is the minimum of the key's counters, so it is never below the real count,
+ * and it is above it by at most 2 * total / width with high probability. Updates are conservative: only
+ * the counters equal to the minimum are raised, which lowers the over-estimation of rare keys.</p>
+ *
+ * <p>Memory is fixed when the sketch is created, and adding a key does not allocate. The sketch is not
+ * thread safe.</p>
+ */
+public class CountMinSketch {
+    /**
+     * Number of rows.
+     */
+    static final int DEPTH = 4;
+
+    /**
+     * Seeds of the row hashes.
+     */
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    /**
+     * Counters, row after row.
+     */
+    private final long[] counters;
+
+    /**
+     * Mask of a column index.
+     */
+    private final int mask;
+
+    /**
+     * Width of a row.
+     */
+    private final int width;
+
+    /**
+     * Sum of all added counts.
+     */
+    private long total;
+
+    /**
+     * Constructor.
+     * @param width number of counters per row, rounded up to a power of two.
+     */
+    public CountMinSketch(final int width) {
+        if (width <= 0 || width > (1 << 26)) {
+            throw new IllegalArgumentException("Width should be between 1 and 2^26.");
+        }
+        int rounded = 1;
+        while (rounded < width) {
+            rounded <<= 1;
+        }
+        this.width = rounded;
+        this.mask = this.width - 1;
+        this.counters = new long[DEPTH * this.width];
+    }
+
+    /**
+     * Add a count to a key.
+     * @param keyHash hash code of the key.
+     * @param count count to add, should be positive.
+     * @return estimated count of the key after the update.
+     */
+    public long add(final int keyHash, final long count) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[index(row, keyHash)]);
+        }
+        long updated = estimate + count;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(row, keyHash);
+            if (counters[index] < updated) {
+                counters[index] = updated;
+            }
+        }
+        total += count;
+        return updated;
+    }
+
+    /**
+     * Estimate the count of a key.
+     * @param keyHash hash code of the key.
+     * @return estimated count, never below the real count.
+     */
+    public long estimate(final int keyHash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[index(row, keyHash)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Get sum of all added counts.
+     * @return total count.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Get width of a row.
+     * @return number of counters per row.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get index of a key's counter in a row.
+     * @param row row.
+     * @param keyHash hash code of the key.
+     * @return index in counters.
+     */
+    private int index(final int row, final int keyHash) {
+        // SplitMix64 finalizer, spreads the 32 bits hash differently for each row.
+        long h = keyHash * SEEDS[row];
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        h ^= h >>> 31;
+        return row * width + ((int) h & mask);
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracer of the phases of the reservation engine, see {@link TraceEventTypeEnum}.
+ *
+ * <p>A traced phase calls {@link #begin(TraceEventTypeEnum)} and
+ * {@link #end(TraceEventTypeEnum, long, String, String, String, String, int, int, long)}, which costs two
+ * {@link System#nanoTime()} calls when the phase is fast. Per event type:</p>
+ * <ul>
+ * <li>Only phases slower than the threshold are considered</li>
+ * <li>Of those, one in sampleEvery is emitted to the {@link TraceSink}, the first one always</li>
+ * <li>A disabled type is not even timed</li>
+ * </ul>
+ *
+ * <p>The {@link TraceEvent} is only created for emitted phases, so tracing can stay on in production.
+ * Configure the tracer before installing it with {@link FlightReservationSystem#setEngineTracer(EngineTracer)}.
+ * </p>
+ */
+public class EngineTracer {
+    /**
+     * Prefix of the tracer properties, see {@link #fromProperties(Properties, TraceSink)}.
+     */
+    static final String PROPERTY_PREFIX = "trace.";
+
+    /**
+     * Receiver of the emitted events.
+     */
+    private final TraceSink sink;
+
+    /**
+     * Enabled flag of each type.
+     */
+    private final boolean[] enabled;
+
+    /**
+     * Threshold of each type in nanoseconds.
+     */
+    private final long[] thresholdNanos;
+
+    /**
+     * Sampling of each type, one in sampleEvery phases over the threshold is emitted.
+     */
+    private final int[] sampleEvery;
+
+    /**
+     * Number of phases over the threshold of each type.
+     */
+    private final AtomicLongArray overThreshold;
+
+    /**
+     * Number of emitted events of each type.
+     */
+    private final AtomicLongArray emitted;
+
+    /**
+     * Constructor, every type enabled with its default threshold and no sampling.
+     * @param sink receiver of the emitted events.
+     */
+    public EngineTracer(final TraceSink sink) {
+        int types = TraceEventTypeEnum.values().length;
+        this.sink = sink;
+        this.enabled = new boolean[types];
+        this.thresholdNanos = new long[types];
+        this.sampleEvery = new int[types];
+        this.overThreshold = new AtomicLongArray(types);
+        this.emitted = new AtomicLongArray(types);
+        for (TraceEventTypeEnum type : TraceEventTypeEnum.values()) {
+            enabled[type.ordinal()] = true;
+            thresholdNanos[type.ordinal()] = type.getDefaultThresholdNanos();
+            sampleEvery[type.ordinal()] = 1;
+        }
+    }
+
+    /**
+     * Create a tracer configured by properties, such as trace.TransactionApply.thresholdMicros=500,
+     * trace.TransactionApply.sampleEvery=10 or trace.FileIO.enabled=false. Missing properties keep the defaults.
+     * @param properties properties, for example the system properties.
+     * @param sink receiver of the emitted events.
+     * @return engine tracer.
+     */
+    public static EngineTracer fromProperties(final Properties properties, final TraceSink sink) {
+        EngineTracer tracer = new EngineTracer(sink);
+        for (TraceEventTypeEnum type : TraceEventTypeEnum.values()) {
+            String prefix = PROPERTY_PREFIX + type.getTraceEventType() + ".";
+            String enabled = properties.getProperty(prefix + "enabled");
+            if (enabled != null) {
+                tracer.setEnabled(type, Boolean.parseBoolean(enabled));
+            }
+            String thresholdMicros = properties.getProperty(prefix + "thresholdMicros");
+            if (thresholdMicros != null) {
+                tracer.setThresholdNanos(type, Long.parseLong(thresholdMicros) * 1000);
+            }
+            String sampleEvery = properties.getProperty(prefix + "sampleEvery");
+            if (sampleEvery != null) {
+                tracer.setSampleEvery(type, Integer.parseInt(sampleEvery));
+            }
+        }
+        return tracer;
+    }
+
+    /**
+     * Enable or disable a type.
+     * @param type trace event type.
+     * @param enabled false to stop timing the type.
+     */
+    public void setEnabled(final TraceEventTypeEnum type, final boolean enabled) {
+        this.enabled[type.ordinal()] = enabled;
+    }
+
+    /**
+     * Check if a type is enabled.
+     * @param type trace event type.
+     * @return true if the type is timed.
+     */
+    public boolean isEnabled(final TraceEventTypeEnum type) {
+        return enabled[type.ordinal()];
+    }
+
+    /**
+     * Set threshold of a type.
+     * @param type trace event type.
+     * @param thresholdNanos threshold in nanoseconds, 0 to consider every phase.
+     */
+    public void setThresholdNanos(final TraceEventTypeEnum type, final long thresholdNanos) {
+        this.thresholdNanos[type.ordinal()] = thresholdNanos;
+    }
+
+    /**
+     * Get threshold of a type.
+     * @param type trace event type.
+     * @return threshold in nanoseconds.
+     */
+    public long getThresholdNanos(final TraceEventTypeEnum type) {
+        return thresholdNanos[type.ordinal()];
+    }
+
+    /**
+     * Set sampling of a type.
+     * @param type trace event type.
+     * @param sampleEvery one in sampleEvery phases over the threshold is emitted, 1 to emit them all.
+     */
+    public void setSampleEvery(final TraceEventTypeEnum type, final int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new IllegalArgumentException("sampleEvery must be at least 1: " + sampleEvery);
+        }
+        this.sampleEvery[type.ordinal()] = sampleEvery;
+    }
+
+    /**
+     * Get sampling of a type.
+     * @param type trace event type.
+     * @return one in sampleEvery phases over the threshold is emitted.
+     */
+    public int getSampleEvery(final TraceEventTypeEnum type) {
+        return sampleEvery[type.ordinal()];
+    }
+
+    /**
+     * Get number of phases over the threshold of a type.
+     * @param type trace event type.
+     * @return phases over the threshold.
+     */
+    public long getOverThreshold(final TraceEventTypeEnum type) {
+        return overThreshold.get(type.ordinal());
+    }
+
+    /**
+     * Get number of emitted events of a type.
+     * @param type trace event type.
+     * @return emitted events.
+     */
+    public long getEmitted(final TraceEventTypeEnum type) {
+        return emitted.get(type.ordinal());
+    }
+
+    /**
+     * Start timing a phase.
+     * @param type trace event type.
+     * @return start time to pass to end, 0 if the type is disabled.
+     */
+    public long begin(final TraceEventTypeEnum type) {
+        if (!enabled[type.ordinal()]) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        return now == 0 ? 1 : now;
+    }
+
+    /**
+     * End timing a phase, emitting it if it is over the threshold and sampled.
+     * The route is only built for emitted phases.
+     * @param type trace event type.
+     * @param startNanos start time returned by begin, 0 if the type was disabled.
+     * @param detail detail of the phase.
+     * @param originCode origin code of the route, null if none.
+     * @param destinationCode destination code of the route.
+     * @param flightNumber flight number, null if none.
+     * @param flightsScanned number of flights scanned, -1 if not counted.
+     * @param seats seat number or number of seats, -1 if none.
+     * @param records number of records read or written, -1 if not counted.
+     */
+    public void end(final TraceEventTypeEnum type, final long startNanos, final String detail,
+            final String originCode, final String destinationCode, final String flightNumber,
+            final int flightsScanned, final int seats, final long records) {
+        if (startNanos == 0) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        int index = type.ordinal();
+        if (durationNanos < thresholdNanos[index]) {
+            return;
+        }
+        if (overThreshold.getAndIncrement(index) % sampleEvery[index] != 0) {
+            return;
+        }
+        emitted.incrementAndGet(index);
+        sink.emit(new TraceEvent(type, durationNanos, detail,
+                originCode == null ? null : originCode + "-" + destinationCode, flightNumber, flightsScanned,
+                seats, records));
+    }
+}
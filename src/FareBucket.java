@@ -0,0 +1,96 @@
+/**
+ * Fare bucket of a flight.
+ *
+ * <p>Each fare bucket contains:</p>
+ * <ul>
+ * <li>Fare class code, such as Y, B or M</li>
+ * <li>Fare per seat</li>
+ * <li>Booking limit, the number of seats which can be sold in this bucket and all the buckets after it</li>
+ * <li>Number of seats sold in this bucket</li>
+ * </ul>
+ *
+ * <p>Buckets of a flight are nested: they are listed from the highest class, whose booking limit is the
+ * number of seats of the flight, down to the lowest class, and a seat sold in a bucket counts against the
+ * booking limits of all the buckets before it. See {@link Flight#getCheapestOpenFareBucket()}.</p>
+ */
+public class FareBucket {
+    /**
+     * Fare class code.
+     */
+    private final String fareClass;
+
+    /**
+     * Fare per seat.
+     */
+    private int fare;
+
+    /**
+     * Booking limit.
+     */
+    private final int bookingLimit;
+
+    /**
+     * Number of seats sold in this bucket.
+     */
+    private int sold;
+
+    /**
+     * Constructor.
+     * @param fareClass fare class code.
+     * @param fare fare per seat.
+     * @param bookingLimit booking limit.
+     */
+    public FareBucket(final String fareClass, final int fare, final int bookingLimit) {
+        this.fareClass = fareClass;
+        this.fare = fare;
+        this.bookingLimit = bookingLimit;
+    }
+
+    /**
+     * Get fare class code.
+     * @return fare class code.
+     */
+    public String getFareClass() {
+        return fareClass;
+    }
+
+    /**
+     * Get fare per seat.
+     * @return fare.
+     */
+    public int getFare() {
+        return fare;
+    }
+
+    /**
+     * Set fare per seat.
+     * @param fare fare.
+     */
+    void setFare(final int fare) {
+        this.fare = fare;
+    }
+
+    /**
+     * Get booking limit.
+     * @return booking limit.
+     */
+    public int getBookingLimit() {
+        return bookingLimit;
+    }
+
+    /**
+     * Get number of seats sold in this bucket.
+     * @return sold seats.
+     */
+    public int getSold() {
+        return sold;
+    }
+
+    /**
+     * Set number of seats sold in this bucket.
+     * @param sold sold seats.
+     */
+    void setSold(final int sold) {
+        this.sold = sold;
+    }
+}
@@ -0,0 +1,101 @@
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Fare index of the flights of one route.
+ *
+ * <p>Keeps the flights of a route with an open fare in a TreeSet ordered by their cheapest open fare, see
+ * {@link Flight#getCheapestOpenFare()}, then by flight number. The fare of each flight is cached, so a
+ * flight is moved in O(log flights) when a sale, a cancel or a price change changes its cheapest open fare,
+ * and full flights are not in the set, so the cheapest open fare of the route is found without a scan.</p>
+ *
+ * <p>Flights update their index after every change. The index is not thread safe, the route lock guards
+ * it.</p>
+ */
+public class FareIndex {
+    /**
+     * Cached cheapest open fare of each flight in openFlights.
+     */
+    private final Map<Flight, Integer> fares;
+
+    /**
+     * Flights with an open fare, cheapest first.
+     */
+    private final TreeSet<Flight> openFlights;
+
+    /**
+     * Constructor.
+     */
+    public FareIndex() {
+        this.fares = new HashMap<>();
+        this.openFlights = new TreeSet<>(new Comparator<Flight>() {
+            @Override
+            public int compare(final Flight a, final Flight b) {
+                int result = Integer.compare(fares.get(a), fares.get(b));
+                if (result == 0) {
+                    result = a.getFlightNumber().compareTo(b.getFlightNumber());
+                }
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Add a flight.
+     * @param flight flight.
+     */
+    public void add(final Flight flight) {
+        flight.setFareIndex(this);
+        update(flight);
+    }
+
+    /**
+     * Remove a flight.
+     * @param flight flight.
+     */
+    public void remove(final Flight flight) {
+        if (fares.containsKey(flight)) {
+            openFlights.remove(flight);
+            fares.remove(flight);
+        }
+        flight.setFareIndex(null);
+    }
+
+    /**
+     * Move a flight after its cheapest open fare may have changed.
+     * @param flight flight.
+     */
+    void update(final Flight flight) {
+        int fare = flight.getCheapestOpenFare();
+        Integer cachedFare = fares.get(flight);
+        if (cachedFare != null && cachedFare == fare) {
+            return;
+        }
+        if (cachedFare != null) {
+            openFlights.remove(flight);
+            fares.remove(flight);
+        }
+        if (fare >= 0) {
+            fares.put(flight, fare);
+            openFlights.add(flight);
+        }
+    }
+
+    /**
+     * Get the flight with the cheapest open fare.
+     * @return flight, or null if all flights are closed.
+     */
+    public Flight getCheapestFlight() {
+        return openFlights.isEmpty() ? null : openFlights.first();
+    }
+
+    /**
+     * Get number of flights with an open fare.
+     * @return number of open flights.
+     */
+    public int size() {
+        return openFlights.size();
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * Feed overflow strategy Enum.
+ * Decides what happens to a delta published while a subscriber's buffer is full.
+ *
+ * Overflow strategy:
+ * <ul>
+ * <li>DropOldest: drop the oldest buffered delta to make room</li>
+ * <li>DropNewest: drop the new delta</li>
+ * <li>Conflate: keep only the latest delta per flight, the buffer never overflows</li>
+ * </ul>
+ */
+public enum FeedOverflowStrategyEnum {
+    DROP_OLDEST("DropOldest"),
+    DROP_NEWEST("DropNewest"),
+    CONFLATE("Conflate");
+
+    /**
+     * Overflow strategy.
+     */
+    private final String overflowStrategy;
+
+    /**
+     * Constructor.
+     * @param overflowStrategy Overflow strategy.
+     */
+    private FeedOverflowStrategyEnum(final String overflowStrategy) {
+        this.overflowStrategy = overflowStrategy;
+    }
+
+    /**
+     * Get overflow strategy.
+     * @return overflow strategy.
+     */
+    public String getOverflowStrategy() {
+        return overflowStrategy;
+    }
+}
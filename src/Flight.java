@@ -1,7 +1,12 @@
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
 
 
 /**
@@ -14,6 +19,7 @@ import java.util.Map;
  * <li>Price per seat.</li>
  * <li>Origin code</li>
  * <li>Destination code</li>
+ * <li>Departure time, optional.</li>
  * <li>Flight reservation list.</li>
  * </ul>
  */
@@ -26,7 +32,7 @@ public class Flight implements Comparable<Flight> {
     /**
      * Number of seats.
      */
-    private final int numberOfSeats;
+    private int numberOfSeats;
 
     /**
      * Price per seat.
@@ -44,15 +50,78 @@ public class Flight implements Comparable<Flight> {
     private final String destinationCode;
 
     /**
-     * Reservation map for this flight.
+     * Reservations of this flight by passenger, shared with the published versions of the flight.
      */
-    private Map<Passenger, ReservationItem> reservationMap;
+    private PersistentHashMap<Passenger, ReservationItem> reservations;
 
     /**
-     * Seats that have been picked.
+     * Seats that have not been picked, null until the flight is materialized.
      */
     List<Integer> seatsPool;
 
+    /**
+     * Number of seats taken out of the seat pool by holds.
+     */
+    private int heldSeats;
+
+    /**
+     * Seat numbers taken out of the seat pool by holds, null until the first hold.
+     */
+    private Set<Integer> heldSeatNumbers;
+
+    /**
+     * Departure time, null if the flight is not dated.
+     */
+    private final LocalDateTime departureTime;
+
+    /**
+     * Schedule index of the route holding this flight, null if the flight is not dated or archived.
+     */
+    private ScheduleIndex scheduleIndex;
+
+    /**
+     * Fare buckets, highest class first, null if the flight only sells at its price per seat.
+     */
+    private FareBucket[] fareBuckets;
+
+    /**
+     * Fare index of the route holding this flight, null if the route has no fare index.
+     */
+    private FareIndex fareIndex;
+
+    /**
+     * Seat map, null if seats are only picked at random from the seat pool.
+     */
+    private SeatMap seatMap;
+
+    /**
+     * Price history, null until the first price change.
+     */
+    private PriceHistory priceHistory;
+
+    /**
+     * Lock of the fields read by availability and price queries. Changes are already serialized by the route
+     * lock, they only take the write lock while they change those fields, so queries read them optimistically
+     * and only wait when they raced with a change.
+     */
+    private final StampedLock stampedLock = new StampedLock();
+
+    /**
+     * Listener notified when a reservation or the price changes, null if nobody listens.
+     */
+    private ReservationListener reservationListener;
+
+    /**
+     * Registry numbering the versions of this flight, null if the flight publishes no versions.
+     */
+    private SnapshotRegistry snapshotRegistry;
+
+    /**
+     * Last published version, null until the first change of a versioned flight. Changes publish it while they
+     * hold the write lock.
+     */
+    private FlightVersion latestVersion;
+
     /**
      * Private constructor.
      * Initiate flight instance with FlightBuilder.
@@ -64,13 +133,33 @@ public class Flight implements Comparable<Flight> {
         this.pricePerSeat = builder.pricePerSeat;
         this.originCode = builder.originCode;
         this.destinationCode = builder.destinationCode;
-        this.reservationMap = new HashMap<>();
-        seatsPool = new LinkedList<>();
+        this.departureTime = builder.departureTime;
+        //Most flights never see a transaction, their seat pool is built on first use.
+        this.reservations = PersistentHashMap.empty();
+    }
+
+    /**
+     * Build the seat pool, if the flight is not materialized yet.
+     * A flight is materialized the first time one of its seats is taken or returned.
+     */
+    private void materialize() {
+        if (seatsPool != null) {
+            return;
+        }
+        seatsPool = new ArrayList<>(numberOfSeats);
         for (int i = 1; i <= numberOfSeats; i++) {
             seatsPool.add(i);
         }
     }
 
+    /**
+     * Check if the reservation state of the flight was built.
+     * @return true if the flight is materialized.
+     */
+    public boolean isMaterialized() {
+        return seatsPool != null;
+    }
+
     /**
      * Get flight number.
      * @return flight number.
@@ -92,7 +181,18 @@ public class Flight implements Comparable<Flight> {
      * @return pricePerSeat.
      */
     public int getPricePerSeat() {
-        return pricePerSeat;
+        //A single int read is atomic, the stamp orders it after the last completed write.
+        long stamp = stampedLock.tryOptimisticRead();
+        int price = pricePerSeat;
+        if (!stampedLock.validate(stamp)) {
+            stamp = stampedLock.readLock();
+            try {
+                price = pricePerSeat;
+            } finally {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+        return price;
     }
 
     /**
@@ -116,11 +216,40 @@ public class Flight implements Comparable<Flight> {
      * @param item reservation item.
      */
     public void bookPassenger(final ReservationItem item) {
+        bookPassenger(item, false, null);
+    }
+
+    /**
+     * Book a passenger on a flight.
+     * @param item reservation item.
+     * @param held true if the seat was held, the hold is then turned into the reservation.
+     * @param heldFareBucket fare bucket the seat was held in, null if none.
+     */
+    private void bookPassenger(final ReservationItem item, final boolean held, final FareBucket heldFareBucket) {
         //A passenger can only book a same ticket once.
-        if (reservationMap.containsKey(item.getPassenger())) {
+        if (reservations.containsKey(item.getPassenger())) {
             return;
         }
-        this.reservationMap.put(item.getPassenger(), item);
+        materialize();
+        FareBucket fareBucket = getFareBucket(item.getFareClass());
+        long stamp = beginChange();
+        try {
+            if (held) {
+                heldSeatNumbers.remove(item.getSeatNumber());
+                heldSeats--;
+                releaseHeldFareBucket(heldFareBucket);
+            }
+            this.reservations = reservations.plus(item.getPassenger(), item);
+            if (fareBucket != null) {
+                fareBucket.setSold(fareBucket.getSold() + 1);
+            }
+        } finally {
+            endChange(stamp);
+        }
+        inventoryChanged();
+        if (reservationListener != null) {
+            reservationListener.seatSold(this, item);
+        }
     }
 
     /**
@@ -128,7 +257,7 @@ public class Flight implements Comparable<Flight> {
      * @return true if flight is full.
      */
     public boolean isFull() {
-        return reservationMap.size() == numberOfSeats;
+        return getAvailableSeats() <= 0;
     }
 
     /**
@@ -136,7 +265,7 @@ public class Flight implements Comparable<Flight> {
      * @return passenger's reservation item.
      */
     public ReservationItem getReservationByPassenger(Passenger passenger) {
-        return reservationMap.get(passenger);
+        return reservations.get(passenger);
     }
 
     /**
@@ -144,18 +273,297 @@ public class Flight implements Comparable<Flight> {
      * @return random picked seat number.
      */
     public int generateRandomSeatNumber() {
+        materialize();
         int randomIndex = generateRandomNumber(0, seatsPool.size() - 1);
-        int res = seatsPool.remove(randomIndex);
+        //The pool is not ordered, move the last seat into the picked slot instead of shifting.
+        int lastIndex = seatsPool.size() - 1;
+        int res = seatsPool.get(randomIndex);
+        seatsPool.set(randomIndex, seatsPool.get(lastIndex));
+        seatsPool.remove(lastIndex);
+        if (isOnSeatMap(res)) {
+            seatMap.take(res);
+        }
         return res;
     }
 
+    /**
+     * Take a given seat out of the seat pool.
+     * @param seatNumber seat number.
+     * @return false if the seat is not in the seat pool.
+     */
+    public boolean takeSeat(final int seatNumber) {
+        materialize();
+        if (!seatsPool.remove(Integer.valueOf(seatNumber))) {
+            return false;
+        }
+        if (isOnSeatMap(seatNumber)) {
+            seatMap.take(seatNumber);
+        }
+        return true;
+    }
+
     /**
      * Recover seat for flight.
      * If a passenger cancel a flight, we should add this seat number to existSeats.
      * @param seatNumber canceled flight's seat number.
      */
     public void recoverSeat(final int seatNumber) {
+        materialize();
         seatsPool.add(seatNumber);
+        if (isOnSeatMap(seatNumber)) {
+            seatMap.release(seatNumber);
+        }
+    }
+
+    /**
+     * Install a seat map, the seats which are not in the seat pool are taken on it.
+     * @param layout seat map layout.
+     */
+    public void installSeatMap(final SeatMap.SeatMapBuilder layout) {
+        materialize();
+        SeatMap newSeatMap = layout.build(numberOfSeats);
+        boolean[] free = new boolean[numberOfSeats + 1];
+        for (int seatNumber : seatsPool) {
+            if (seatNumber <= numberOfSeats) {
+                free[seatNumber] = true;
+            }
+        }
+        for (int seatNumber = 1; seatNumber <= numberOfSeats; seatNumber++) {
+            if (!free[seatNumber]) {
+                newSeatMap.take(seatNumber);
+            }
+        }
+        seatMap = newSeatMap;
+    }
+
+    /**
+     * Get seat map.
+     * @return seat map, or null if no seat map is installed.
+     */
+    public SeatMap getSeatMap() {
+        return seatMap;
+    }
+
+    /**
+     * Take a block of adjacent free seats in a row out of the seat pool.
+     * @param k number of seats.
+     * @param zone cabin zone of the block, null for any zone.
+     * @return seat numbers of the block, or null if there is no seat map or no row has k adjacent free seats.
+     */
+    public int[] takeAdjacentSeats(final int k, final CabinZoneEnum zone) {
+        if (seatMap == null) {
+            return null;
+        }
+        int[] block = zone == null ? seatMap.findBlock(k) : seatMap.findBlock(k, zone);
+        if (block == null) {
+            return null;
+        }
+        for (int seatNumber : block) {
+            seatMap.take(seatNumber);
+            seatsPool.remove(Integer.valueOf(seatNumber));
+        }
+        return block;
+    }
+
+    /**
+     * Tell the indexes of the route that seats were taken or returned.
+     */
+    private void inventoryChanged() {
+        //A sale may close a fare bucket and change the cheapest open fare without filling the flight.
+        if (scheduleIndex != null) {
+            scheduleIndex.update(this);
+        }
+        if (fareIndex != null) {
+            fareIndex.update(this);
+        }
+    }
+
+    /**
+     * Install fare buckets, replacing the current ones.
+     * Seats already sold in a fare class of the new buckets count as sold in that bucket.
+     * @param buckets fare buckets, highest class first, the first booking limit should be the number of seats.
+     */
+    public void installFareBuckets(final List<FareBucket> buckets) {
+        FareBucket[] newFareBuckets = buckets.toArray(new FareBucket[buckets.size()]);
+        for (FareBucket fareBucket : newFareBuckets) {
+            fareBucket.setSold(0);
+            for (ReservationItem item : reservations.values()) {
+                if (fareBucket.getFareClass().equals(item.getFareClass())) {
+                    fareBucket.setSold(fareBucket.getSold() + 1);
+                }
+            }
+        }
+        long stamp = stampedLock.writeLock();
+        fareBuckets = newFareBuckets;
+        stampedLock.unlockWrite(stamp);
+        if (scheduleIndex != null) {
+            scheduleIndex.update(this);
+        }
+        if (fareIndex != null) {
+            fareIndex.update(this);
+        }
+    }
+
+    /**
+     * Get fare buckets.
+     * @return fare buckets, highest class first, empty if the flight has no fare buckets.
+     */
+    public List<FareBucket> getFareBuckets() {
+        return fareBuckets == null ? Collections.<FareBucket>emptyList()
+                : Collections.unmodifiableList(Arrays.asList(fareBuckets));
+    }
+
+    /**
+     * Get fare bucket of a fare class.
+     * @param fareClass fare class code, may be null.
+     * @return fare bucket, or null if the flight has no bucket for the fare class.
+     */
+    public FareBucket getFareBucket(final String fareClass) {
+        if (fareBuckets == null || fareClass == null) {
+            return null;
+        }
+        for (FareBucket fareBucket : fareBuckets) {
+            if (fareBucket.getFareClass().equals(fareClass)) {
+                return fareBucket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the cheapest open fare bucket.
+     * Bucket k is open while, for every bucket j up to k, the seats sold in buckets j and after are below the
+     * booking limit of bucket j, and the flight is not full. Buckets are few, so they are scanned.
+     * @return cheapest open fare bucket, or null if the flight is full or has no fare buckets.
+     */
+    public FareBucket getCheapestOpenFareBucket() {
+        if (fareBuckets == null || isFull()) {
+            return null;
+        }
+        return cheapestOpenFareBucket(fareBuckets);
+    }
+
+    /**
+     * Find the cheapest open fare bucket of a flight which is not full.
+     * @param buckets fare buckets, highest class first.
+     * @return cheapest open fare bucket, or null if all are closed.
+     */
+    private static FareBucket cheapestOpenFareBucket(final FareBucket[] buckets) {
+        int soldFrom = 0;
+        for (FareBucket fareBucket : buckets) {
+            soldFrom += fareBucket.getSold();
+        }
+        FareBucket cheapest = null;
+        for (FareBucket fareBucket : buckets) {
+            //A closed bucket closes all the buckets after it.
+            if (soldFrom >= fareBucket.getBookingLimit()) {
+                break;
+            }
+            if (cheapest == null || fareBucket.getFare() < cheapest.getFare()) {
+                cheapest = fareBucket;
+            }
+            soldFrom -= fareBucket.getSold();
+        }
+        return cheapest;
+    }
+
+    /**
+     * Get the cheapest fare a seat can be sold at.
+     * @return fare of the cheapest open fare bucket, or the price per seat if the flight has no fare buckets,
+     *         or -1 if no seat can be sold.
+     */
+    public int getCheapestOpenFare() {
+        long stamp = stampedLock.tryOptimisticRead();
+        int fare = cheapestOpenFare();
+        if (!stampedLock.validate(stamp)) {
+            stamp = stampedLock.readLock();
+            try {
+                fare = cheapestOpenFare();
+            } finally {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+        return fare;
+    }
+
+    /**
+     * Compute the cheapest fare a seat can be sold at, without any lock.
+     * @return cheapest open fare, or -1 if no seat can be sold.
+     */
+    private int cheapestOpenFare() {
+        FareBucket[] buckets = fareBuckets;
+        if (numberOfSeats - reservations.size() - heldSeats <= 0) {
+            return -1;
+        } else if (buckets == null) {
+            return pricePerSeat;
+        }
+        FareBucket fareBucket = cheapestOpenFareBucket(buckets);
+        return fareBucket == null ? -1 : fareBucket.getFare();
+    }
+
+    /**
+     * Change the fare of a fare bucket.
+     * @param fareClass fare class code.
+     * @param newFare new fare.
+     * @return false if the flight has no bucket for the fare class.
+     */
+    public boolean changeFare(final String fareClass, final int newFare) {
+        FareBucket fareBucket = getFareBucket(fareClass);
+        if (fareBucket == null) {
+            return false;
+        }
+        long stamp = stampedLock.writeLock();
+        fareBucket.setFare(newFare);
+        stampedLock.unlockWrite(stamp);
+        if (scheduleIndex != null) {
+            scheduleIndex.update(this);
+        }
+        if (fareIndex != null) {
+            fareIndex.update(this);
+        }
+        return true;
+    }
+
+    /**
+     * Set fare index holding this flight.
+     * @param fareIndex fare index, null when the flight leaves it.
+     */
+    void setFareIndex(final FareIndex fareIndex) {
+        this.fareIndex = fareIndex;
+    }
+
+    /**
+     * Get departure time.
+     * @return departure time, or null if the flight is not dated.
+     */
+    public LocalDateTime getDepartureTime() {
+        return departureTime;
+    }
+
+    /**
+     * Get schedule index holding this flight.
+     * @return schedule index, or null if the flight is not in the hot index of its route.
+     */
+    ScheduleIndex getScheduleIndex() {
+        return scheduleIndex;
+    }
+
+    /**
+     * Set schedule index holding this flight.
+     * @param scheduleIndex schedule index, null when the flight leaves it.
+     */
+    void setScheduleIndex(final ScheduleIndex scheduleIndex) {
+        this.scheduleIndex = scheduleIndex;
+    }
+
+    /**
+     * Check if a seat number is on the seat map.
+     * Seats above the number of seats only exist while their booking lasts after the flight shrank.
+     * @param seatNumber seat number.
+     * @return true if a seat map is installed and contains the seat.
+     */
+    private boolean isOnSeatMap(final int seatNumber) {
+        return seatMap != null && seatNumber <= seatMap.getNumberOfSeats();
     }
 
     /**
@@ -163,7 +571,219 @@ public class Flight implements Comparable<Flight> {
      * @return number of seats available.
      */
     public int getAvailableSeats() {
-        return numberOfSeats - reservationMap.size();
+        long stamp = stampedLock.tryOptimisticRead();
+        int availableSeats = numberOfSeats - reservations.size() - heldSeats;
+        if (!stampedLock.validate(stamp)) {
+            stamp = stampedLock.readLock();
+            try {
+                availableSeats = numberOfSeats - reservations.size() - heldSeats;
+            } finally {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+        return availableSeats;
+    }
+
+    /**
+     * Get number of seats which can still be sold within the booking limits of the fare buckets.
+     * The highest class bucket is open while the seats sold in all buckets are below its booking limit.
+     * @return sellable seats, the available seats if the flight has no fare buckets.
+     */
+    public int getSellableSeats() {
+        int sellableSeats = getAvailableSeats();
+        FareBucket[] buckets = fareBuckets;
+        if (buckets != null && buckets.length > 0) {
+            int sold = 0;
+            for (FareBucket fareBucket : buckets) {
+                sold += fareBucket.getSold();
+            }
+            sellableSeats = Math.min(sellableSeats, buckets[0].getBookingLimit() - sold);
+        }
+        return Math.max(sellableSeats, 0);
+    }
+
+    /**
+     * Get number of held seats.
+     * @return number of seats taken by holds.
+     */
+    public int getHeldSeats() {
+        return heldSeats;
+    }
+
+    /**
+     * Get reservations of this flight.
+     * @return read only collection of the reservations at the time of the call.
+     */
+    public Collection<ReservationItem> getReservations() {
+        return reservations.values();
+    }
+
+    /**
+     * Get price history.
+     * @return price history, or null if the price never changed.
+     */
+    public PriceHistory getPriceHistory() {
+        return priceHistory;
+    }
+
+    /**
+     * Get price per seat at a transaction sequence.
+     * @param sequence transaction sequence.
+     * @return price per seat in effect after the transaction.
+     */
+    public int getPriceAt(final long sequence) {
+        if (priceHistory == null) {
+            return pricePerSeat;
+        }
+        return priceHistory.getPriceAt(sequence);
+    }
+
+    /**
+     * Hold a random seat.
+     * The seat is taken out of the seat pool and counts as unavailable until the hold is confirmed or released.
+     * A seat held in a fare bucket counts against the booking limits like a seat sold in the bucket.
+     * @param fareBucket fare bucket of the seat, null if the flight has no fare buckets.
+     * @return held seat number.
+     */
+    public int holdSeat(final FareBucket fareBucket) {
+        int seatNumber = generateRandomSeatNumber();
+        if (heldSeatNumbers == null) {
+            heldSeatNumbers = new HashSet<>();
+        }
+        heldSeatNumbers.add(seatNumber);
+        long stamp = beginChange();
+        heldSeats++;
+        if (fareBucket != null) {
+            fareBucket.setSold(fareBucket.getSold() + 1);
+        }
+        endChange(stamp);
+        inventoryChanged();
+        return seatNumber;
+    }
+
+    /**
+     * Release a held seat back to the seat pool.
+     * @param seatNumber held seat number.
+     * @param fareBucket fare bucket the seat was held in, null if none.
+     */
+    public void releaseHold(final int seatNumber, final FareBucket fareBucket) {
+        heldSeatNumbers.remove(seatNumber);
+        long stamp = beginChange();
+        heldSeats--;
+        releaseHeldFareBucket(fareBucket);
+        endChange(stamp);
+        recoverSeat(seatNumber);
+        inventoryChanged();
+    }
+
+    /**
+     * Turn a held seat into a reservation.
+     * If the passenger has booked this flight in the meantime, the held seat goes back to the seat pool.
+     * @param item reservation item on the held seat, in the fare class of the hold.
+     * @param fareBucket fare bucket the seat was held in, null if none.
+     * @return true if the reservation was made.
+     */
+    public boolean confirmHold(final ReservationItem item, final FareBucket fareBucket) {
+        if (reservations.containsKey(item.getPassenger())) {
+            releaseHold(item.getSeatNumber(), fareBucket);
+            return false;
+        }
+        bookPassenger(item, true, fareBucket);
+        return true;
+    }
+
+    /**
+     * Take a held seat back out of the fare bucket it was held in, unless the buckets were replaced since, which
+     * recounted the sold seats without the held ones. Called while changing the flight.
+     * @param fareBucket fare bucket the seat was held in, null if none.
+     */
+    private void releaseHeldFareBucket(final FareBucket fareBucket) {
+        if (fareBucket != null && getFareBucket(fareBucket.getFareClass()) == fareBucket) {
+            fareBucket.setSold(fareBucket.getSold() - 1);
+        }
+    }
+
+    /**
+     * Change number of seats, used when the inventory is reloaded.
+     * New seats are added to the seat pool. When shrinking, free seats with the highest seat numbers
+     * are removed first, booked and held seats are never taken away. When growing, the seat numbers missing from
+     * the seat pool are added back from the lowest, skipping booked and held seats, which may be numbered above
+     * the seat count after a shrink.
+     * @param newNumberOfSeats new number of seats.
+     * @return false if more seats are booked or held than the new number of seats.
+     */
+    public boolean changeNumberOfSeats(final int newNumberOfSeats) {
+        int takenSeats = reservations.size() + heldSeats;
+        if (newNumberOfSeats < takenSeats) {
+            return false;
+        }
+        if (!isMaterialized() && seatMap == null) {
+            setNumberOfSeats(newNumberOfSeats);
+            inventoryChanged();
+            return true;
+        }
+        if (newNumberOfSeats > numberOfSeats) {
+            addFreeSeats(newNumberOfSeats - takenSeats, newNumberOfSeats);
+        }
+        int excessSeats = seatsPool.size() - (newNumberOfSeats - takenSeats);
+        if (excessSeats > 0) {
+            List<Integer> sortedPool = new ArrayList<>(seatsPool);
+            Collections.sort(sortedPool);
+            seatsPool = new ArrayList<>(sortedPool.subList(0, sortedPool.size() - excessSeats));
+        }
+        setNumberOfSeats(newNumberOfSeats);
+        if (seatMap != null) {
+            installSeatMap(seatMap.getLayout());
+        }
+        inventoryChanged();
+        return true;
+    }
+
+    /**
+     * Add the free seat numbers missing from the seat pool, from the lowest, until it holds the given number of
+     * seats. Seats booked or held are not free, whatever their number.
+     * @param freeSeats number of free seats of the seat pool.
+     * @param newNumberOfSeats new number of seats, the highest seat number added.
+     */
+    private void addFreeSeats(final int freeSeats, final int newNumberOfSeats) {
+        boolean[] taken = new boolean[newNumberOfSeats + 1];
+        for (int seatNumber : seatsPool) {
+            markSeat(taken, seatNumber);
+        }
+        for (ReservationItem item : reservations.values()) {
+            markSeat(taken, item.getSeatNumber());
+        }
+        if (heldSeatNumbers != null) {
+            for (int seatNumber : heldSeatNumbers) {
+                markSeat(taken, seatNumber);
+            }
+        }
+        for (int seatNumber = 1; seatNumber <= newNumberOfSeats && seatsPool.size() < freeSeats; seatNumber++) {
+            if (!taken[seatNumber]) {
+                seatsPool.add(seatNumber);
+            }
+        }
+    }
+
+    /**
+     * Mark a seat number as not to be added, if it is in range.
+     * @param taken taken flag of each seat number.
+     * @param seatNumber seat number.
+     */
+    private static void markSeat(final boolean[] taken, final int seatNumber) {
+        if (seatNumber < taken.length) {
+            taken[seatNumber] = true;
+        }
+    }
+
+    /**
+     * Set number of seats, seen at once by optimistic readers.
+     * @param newNumberOfSeats new number of seats.
+     */
+    private void setNumberOfSeats(final int newNumberOfSeats) {
+        long stamp = beginChange();
+        numberOfSeats = newNumberOfSeats;
+        endChange(stamp);
     }
 
     /**
@@ -178,10 +798,70 @@ public class Flight implements Comparable<Flight> {
 
     /**
      * Change price per seat.
+     * The change is recorded in the price history with the next sequence of the history and the current time.
      * @param newPrice new price per seat.
      */
     public void changePrice(final int newPrice) {
+        long sequence = priceHistory == null ? 1 : priceHistory.getLastSequence() + 1;
+        changePrice(newPrice, sequence, System.currentTimeMillis());
+    }
+
+    /**
+     * Change price per seat and record the change in the price history.
+     * The history is created on the first change, with the loaded price recorded at sequence 0.
+     * @param newPrice new price per seat.
+     * @param sequence transaction sequence of the change, greater than 0 and than the previous change.
+     * @param timeMillis time of the change in milliseconds.
+     */
+    public void changePrice(final int newPrice, final long sequence, final long timeMillis) {
+        recordPrice(newPrice, sequence, timeMillis);
+        int oldPrice = this.pricePerSeat;
+        long stamp = beginChange();
         this.pricePerSeat = newPrice;
+        endChange(stamp);
+        if (scheduleIndex != null) {
+            scheduleIndex.update(this);
+        }
+        if (fareIndex != null) {
+            fareIndex.update(this);
+        }
+        if (reservationListener != null) {
+            reservationListener.priceChanged(this, oldPrice);
+        }
+    }
+
+    /**
+     * Record a price change superseded before anyone saw it in the price history, without changing the price per
+     * seat, see {@link TransactionCoalescer}.
+     * @param price superseded price per seat.
+     * @param sequence transaction sequence of the change, greater than 0 and than the previous change.
+     * @param timeMillis time of the change in milliseconds.
+     */
+    public void recordSupersededPrice(final int price, final long sequence, final long timeMillis) {
+        recordPrice(price, sequence, timeMillis);
+    }
+
+    /**
+     * Record a price in the price history.
+     * The history is created on the first change, with the loaded price recorded at sequence 0.
+     * @param price price per seat.
+     * @param sequence transaction sequence of the change.
+     * @param timeMillis time of the change in milliseconds.
+     */
+    private void recordPrice(final int price, final long sequence, final long timeMillis) {
+        if (priceHistory == null) {
+            priceHistory = new PriceHistory();
+            priceHistory.record(0, 0, pricePerSeat);
+        }
+        priceHistory.record(sequence, timeMillis, price);
+    }
+
+    /**
+     * Set listener notified when a reservation or the price changes.
+     * @param reservationListener reservation listener, null to stop notifications.
+     */
+    public void setReservationListener(final ReservationListener reservationListener) {
+        this.reservationListener = reservationListener;
     }
 
     /**
@@ -190,40 +870,98 @@ public class Flight implements Comparable<Flight> {
      */
     public void cancelPassenger(final ReservationItem item) {
         Passenger passenger = item.getPassenger();
-        if (reservationMap.get(passenger) != null) {
-            reservationMap.remove(passenger);
+        ReservationItem removed = reservations.get(passenger);
+        if (removed == null) {
+            return;
+        }
+        FareBucket fareBucket = getFareBucket(removed.getFareClass());
+        long stamp = beginChange();
+        try {
+            reservations = reservations.minus(passenger);
+            if (fareBucket != null) {
+                fareBucket.setSold(fareBucket.getSold() - 1);
+            }
+        } finally {
+            endChange(stamp);
+        }
+        inventoryChanged();
+        if (removed != null && reservationListener != null) {
+            reservationListener.seatReleased(this, removed);
         }
     }
 
+    /**
+     * Summary of the flight as of now.
+     * @return flight summary.
+     */
     public FlightSummary summaryFlight() {
-        StringBuffer summaryBuffer = new StringBuffer();
-        summaryBuffer.append("Flight# ")
-               .append(flightNumber)
-               .append(" Number of seats available: ")
-               .append(getAvailableSeats())
-               .append("\n")
-               .append("Total seats sold: ")
-               .append(reservationMap.size())
-               .append("\n");
-        StringBuffer passengerInfoBuffer = new StringBuffer();
-        String format = "%-50s %-10s %-10s";
-        passengerInfoBuffer.append(String.format(format, "Passenger Name", "Seat#", "Price"))
-                           .append("\n");
-        int totalAvenue = 0;
-        for (Map.Entry<Passenger, ReservationItem> entry : reservationMap.entrySet()) {
-            Passenger passenger = entry.getKey();
-            ReservationItem reservationItem = entry.getValue();
-            passengerInfoBuffer.append(String.format(format, passenger.getName(),
-                                                             reservationItem.getSeatNumber(),
-                                                             "$" + reservationItem.getPrice()))
-                               .append("\n");
-            totalAvenue += reservationItem.getPrice();
-        }
-        summaryBuffer.append("Total revenue on this flight: $" + totalAvenue)
-                     .append("\n\n")
-                     .append(passengerInfoBuffer);
-        return new FlightSummary(flightNumber, getAvailableSeats(), reservationMap.size(),
-                                totalAvenue, summaryBuffer.toString());
+        return getVersion(Long.MAX_VALUE).summaryFlight();
+    }
+
+    /**
+     * Set registry numbering the versions of this flight, before the flight is changed.
+     * @param snapshotRegistry snapshot registry.
+     */
+    void setSnapshotRegistry(final SnapshotRegistry snapshotRegistry) {
+        this.snapshotRegistry = snapshotRegistry;
+    }
+
+    /**
+     * Get the version of this flight at a version of its snapshot registry.
+     * A change holding the write lock is waited for, so every change up to the version is seen once the
+     * version was read from the registry. The version of a flight without registry is its current state.
+     * @param snapshotVersion version of the reader, Long.MAX_VALUE for the current state.
+     * @return flight version.
+     */
+    FlightVersion getVersion(final long snapshotVersion) {
+        long stamp = stampedLock.tryOptimisticRead();
+        FlightVersion version = latestVersion;
+        if (version == null) {
+            version = new FlightVersion(this, 0, numberOfSeats, pricePerSeat, heldSeats, reservations, null);
+        }
+        if (!stampedLock.validate(stamp)) {
+            stamp = stampedLock.readLock();
+            try {
+                version = latestVersion;
+                if (version == null) {
+                    version = new FlightVersion(this, 0, numberOfSeats, pricePerSeat, heldSeats, reservations, null);
+                }
+            } finally {
+                stampedLock.unlockRead(stamp);
+            }
+        }
+        return version.getVersionAt(snapshotVersion);
+    }
+
+    /**
+     * Start a change of the versioned fields: take the write lock and, on the first change of a versioned
+     * flight, publish the state before it as version 0.
+     * @return write lock stamp.
+     */
+    private long beginChange() {
+        long stamp = stampedLock.writeLock();
+        if (snapshotRegistry != null && latestVersion == null) {
+            latestVersion = new FlightVersion(this, 0, numberOfSeats, pricePerSeat, heldSeats, reservations, null);
+        }
+        return stamp;
+    }
+
+    /**
+     * End a change of the versioned fields: publish the new version, unlink the versions no open reader
+     * needs any more, and release the write lock.
+     * @param stamp write lock stamp.
+     */
+    private void endChange(final long stamp) {
+        try {
+            if (snapshotRegistry != null) {
+                FlightVersion version = new FlightVersion(this, snapshotRegistry.nextVersion(), numberOfSeats,
+                        pricePerSeat, heldSeats, reservations, latestVersion);
+                version.trim(snapshotRegistry.getOldestOpenVersion());
+                latestVersion = version;
+            }
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
     }
 
     /**
@@ -256,6 +994,11 @@ public class Flight implements Comparable<Flight> {
          */
         private String destinationCode;
 
+        /**
+         * Departure time, optional.
+         */
+        private LocalDateTime departureTime;
+
         /**
          * Initiate flight number.
          * @param flightNumber flight number.
@@ -306,6 +1049,16 @@ public class Flight implements Comparable<Flight> {
             return this;
         }
 
+        /**
+         * Initiate departure time.
+         * @param departureTime departure time.
+         * @return FightBuiler instance.
+         */
+        public FlightBuilder withDepartureTime(final LocalDateTime departureTime) {
+            this.departureTime = departureTime;
+            return this;
+        }
+
         /**
          * Create flight instance.
          * @return flight instance.
@@ -315,8 +1068,15 @@ public class Flight implements Comparable<Flight> {
         }
     }
 
+    /**
+     * Compare by price, then by flight number.
+     * Flights with the same price on a route are different elements of the route's TreeSet.
+     */
     @Override
     public int compareTo(Flight o) {
-        return this.pricePerSeat - o.pricePerSeat;
+        if (this.pricePerSeat != o.pricePerSeat) {
+            return this.pricePerSeat < o.pricePerSeat ? -1 : 1;
+        }
+        return this.flightNumber.compareTo(o.flightNumber);
     }
 }
@@ -8,6 +8,7 @@
  * <li>Price per seat: index 2</li>
  * <li>Origin code: index 3</li>
  * <li>Destination code: index 4</li>
+ * <li>Departure time, optional, such as 2026-10-20T08:30: index 5</li>
  * </ul>
  */
 public enum FlightInfoCSVIndexEnum {
@@ -15,7 +16,8 @@ public enum FlightInfoCSVIndexEnum {
     NUMBER_OF_SEATS(1),
     PRICE_PER_SEAT(2),
     ORIGIN(3),
-    DESTINATION(4);
+    DESTINATION(4),
+    DEPARTURE_TIME(5);
 
     /**
      * Index in CSV column.
@@ -1,13 +1,26 @@
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class for handling all the transactions.
@@ -18,6 +31,10 @@ import java.util.TreeSet;
  * <li>Change the price of a seat on a flight</li>
  * <li>Cancel a booking on a flight</li>
  * </ul>
+ *
+ * <p>Transactions are applied by one thread, while the inventory can be reloaded by another thread with
+ * {@link #applyInventoryDiff(String)}. Every change to the flights of a route is done while holding the
+ * lock of the route's TreeSet, so a reload only stops the bookings on the routes it changes.</p>
  */
 public class FlightReservationSystem {
     /**
@@ -31,6 +48,145 @@ public class FlightReservationSystem {
      */
     Map<String, Flight> flightNumberToFlightMap;
 
+    /**
+     * Read buffer size of binary transaction files.
+     */
+    private static final int BINARY_READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Maximum number of consecutive ChangePrice transactions of a transaction file applied as one batch.
+     */
+    static final int MAX_PRICE_BATCH_SIZE = 4096;
+
+    /**
+     * Outstanding seat holds.
+     */
+    SeatHoldManager seatHoldManager;
+
+    /**
+     * Waitlist map, map of <OriginDestinationPair, waitlist>.
+     * Passengers who find all flights of a route full wait here until a seat is freed.
+     */
+    Map<OriginDestinationPair, Waitlist> waitlistMap;
+
+    /**
+     * Schedule index map, map of <OriginDestinationPair, schedule index of the route's dated flights>.
+     */
+    Map<OriginDestinationPair, ScheduleIndex> scheduleIndexMap;
+
+    /**
+     * Fare index map, map of <OriginDestinationPair, fare index>.
+     * A route has a fare index once one of its flights has fare buckets, its bookings then use the index.
+     */
+    Map<OriginDestinationPair, FareIndex> fareIndexMap;
+
+    /**
+     * Flights of each route, read without the route lock.
+     * Adding or retiring a flight drops the snapshot of its route, the next read republishes it, so a bulk
+     * of changes costs one copy of the route.
+     */
+    private final Map<OriginDestinationPair, Flight[]> routeFlightsSnapshot = new ConcurrentHashMap<>();
+
+    /**
+     * Flat combiners of the routes in flat combining mode.
+     */
+    private final Map<OriginDestinationPair, RouteCombiner> routeCombinerMap = new ConcurrentHashMap<>();
+
+    /**
+     * Sequence of processed transactions, recorded with each price change.
+     */
+    private final AtomicLong transactionSequence = new AtomicLong();
+
+    /**
+     * Version clock and open readers of the flight versions read by snapshots.
+     */
+    private final SnapshotRegistry snapshotRegistry = new SnapshotRegistry();
+
+    /**
+     * Heavy hitter tracker of the transactions, null when tracking is off.
+     */
+    private volatile HeavyHitterTracker heavyHitterTracker;
+
+    /**
+     * Log of transaction outcomes, null when logging is off.
+     */
+    private volatile OutcomeLog outcomeLog;
+
+    /**
+     * Tracer of the engine phases, null when tracing is off.
+     */
+    private volatile EngineTracer engineTracer;
+
+    /**
+     * Coalescer of the transaction file windows, null when coalescing is off.
+     */
+    private volatile TransactionCoalescer transactionCoalescer;
+
+    /**
+     * Whether consecutive ChangePrice transactions of a transaction file are applied as one batch.
+     */
+    private volatile boolean priceBatching;
+
+    /**
+     * Outcome of the transaction being applied by each thread, reused for every transaction of the thread.
+     */
+    private final ThreadLocal<TransactionOutcome> outcomes = new ThreadLocal<TransactionOutcome>() {
+        @Override
+        protected TransactionOutcome initialValue() {
+            return new TransactionOutcome();
+        }
+    };
+
+    /**
+     * Clock used to time price changes.
+     */
+    Clock clock = Clock.systemUTC();
+
+    /**
+     * Sequence of waitlist requests.
+     */
+    private final AtomicLong waitlistSequence = new AtomicLong();
+
+    /**
+     * Listeners of reservation and price changes on all flights.
+     */
+    private final List<ReservationListener> reservationListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Listener set on every flight, tells the route's waitlist of the seats its passengers take and release, and
+     * forwards changes to all registered listeners.
+     */
+    private final ReservationListener reservationDispatcher = new ReservationListener() {
+        @Override
+        public void seatSold(final Flight flight, final ReservationItem item) {
+            Waitlist waitlist = getWaitlist(flight);
+            if (waitlist != null) {
+                waitlist.seatTaken(flight, item.getPassenger());
+            }
+            for (ReservationListener listener : reservationListeners) {
+                listener.seatSold(flight, item);
+            }
+        }
+
+        @Override
+        public void seatReleased(final Flight flight, final ReservationItem item) {
+            Waitlist waitlist = getWaitlist(flight);
+            if (waitlist != null) {
+                waitlist.seatReleased(flight, item.getPassenger());
+            }
+            for (ReservationListener listener : reservationListeners) {
+                listener.seatReleased(flight, item);
+            }
+        }
+
+        @Override
+        public void priceChanged(final Flight flight, final int oldPrice) {
+            for (ReservationListener listener : reservationListeners) {
+                listener.priceChanged(flight, oldPrice);
+            }
+        }
+    };
+
     /**
      * Constructor.
      * @param flightInputFilePath flight input file path, in this example
@@ -41,11 +197,14 @@ public class FlightReservationSystem {
      *              Throws when an attempt to open the file denoted by a specified pathname has failed.
      */
     public FlightReservationSystem(final String flightInputFilePath) throws FileNotFoundException, IOException {
+        seatHoldManager = new SeatHoldManager(Clock.systemUTC(), SeatHoldManager.DEFAULT_TICK_MILLIS);
+        waitlistMap = new ConcurrentHashMap<>();
         initiateFlights(flightInputFilePath);
     }
 
     /**
      * Initiate flight information.
+     * The file may be gzip compressed, see {@link InputFiles}.
      * @param flightInputFilePath flight input file path, in this example
      *                            we should pass the path of inputfile1.txt.
      * @throws IOException
@@ -54,204 +213,2129 @@ public class FlightReservationSystem {
      *              Throws when an attempt to open the file denoted by a specified pathname has failed.
      */
     void initiateFlights(final String flightInputFilePath) throws FileNotFoundException, IOException {
-        flightsMap = new HashMap<>();
-        flightNumberToFlightMap = new HashMap<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(flightInputFilePath))) {
+        flightsMap = new ConcurrentHashMap<>();
+        flightNumberToFlightMap = new ConcurrentHashMap<>();
+        scheduleIndexMap = new ConcurrentHashMap<>();
+        fareIndexMap = new ConcurrentHashMap<>();
+        try (BufferedReader br = InputFiles.openReader(flightInputFilePath)) {
             String line = br.readLine();
             while (line != null) {
                 addFlight(line.replaceAll("\\s", "").split(","));
                 line = br.readLine();
             }
         }
+        for (Map.Entry<OriginDestinationPair, TreeSet<Flight>> entry : flightsMap.entrySet()) {
+            routeFlightsSnapshot.put(entry.getKey(), entry.getValue().toArray(new Flight[entry.getValue().size()]));
+        }
     }
 
     /**
      * Add one flight item to flightsMap.
      * Add flightNumber to flight relation to flightNumberToFlightMap.
      * @param flightInfoArr String[] which contains flight information.
+     * @return the new flight.
      */
-    private void addFlight(final String[] flightInfoArr) {
+    private Flight addFlight(final String[] flightInfoArr) {
         String flightNumber = flightInfoArr[FlightInfoCSVIndexEnum.FLIGHT_NUMBER.getIndex()];
         String originCode = flightInfoArr[FlightInfoCSVIndexEnum.ORIGIN.getIndex()];
         String destinationCode = flightInfoArr[FlightInfoCSVIndexEnum.DESTINATION.getIndex()];
         int numberOfSeats = Integer.parseInt(flightInfoArr[FlightInfoCSVIndexEnum.NUMBER_OF_SEATS.getIndex()]);
         int pricePerSeat = Integer.parseInt(flightInfoArr[FlightInfoCSVIndexEnum.PRICE_PER_SEAT.getIndex()]);
-        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
-        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
-
-        if (flights == null) {
-            flights = new TreeSet<>();
+        LocalDateTime departureTime = null;
+        if (flightInfoArr.length > FlightInfoCSVIndexEnum.DEPARTURE_TIME.getIndex()) {
+            departureTime = LocalDateTime.parse(flightInfoArr[FlightInfoCSVIndexEnum.DEPARTURE_TIME.getIndex()]);
         }
+        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
         Flight flight = new Flight.FlightBuilder()
                                 .withFlightNumber(flightNumber)
                                 .withNumberOfSeats(numberOfSeats)
                                 .withPricePerSeat(pricePerSeat)
                                 .withOriginCode(originCode)
                                 .withDestinationCode(destinationCode)
+                                .withDepartureTime(departureTime)
                                 .build();
-        flights.add(flight);
-        flightsMap.put(originDestinationPair, flights);
+        flight.setReservationListener(reservationDispatcher);
+        flight.setSnapshotRegistry(snapshotRegistry);
+        TreeSet<Flight> flights = getOrCreateFlights(originDestinationPair);
+        synchronized (flights) {
+            flights.add(flight);
+            Flight temp = flightNumberToFlightMap.get(flightNumber);
+            if (temp == null) {
+                flightNumberToFlightMap.put(flightNumber, flight);
+            }
+            if (departureTime != null) {
+                ScheduleIndex scheduleIndex = scheduleIndexMap.get(originDestinationPair);
+                if (scheduleIndex == null) {
+                    scheduleIndex = new ScheduleIndex(LocalDate.now(clock));
+                    scheduleIndexMap.put(originDestinationPair, scheduleIndex);
+                }
+                scheduleIndex.add(flight);
+            }
+            FareIndex fareIndex = fareIndexMap.get(originDestinationPair);
+            if (fareIndex != null) {
+                fareIndex.add(flight);
+            }
+            routeFlightsSnapshot.remove(originDestinationPair);
+        }
+        return flight;
+    }
 
-        Flight temp = flightNumberToFlightMap.get(flightNumber);
-        if (temp == null) {
-            flightNumberToFlightMap.put(flightNumber, flight);
+    /**
+     * Get flights TreeSet of a route, create it if the route is new.
+     * @param originDestinationPair route.
+     * @return flights with given origin and destination.
+     */
+    private TreeSet<Flight> getOrCreateFlights(final OriginDestinationPair originDestinationPair) {
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            TreeSet<Flight> newFlights = new TreeSet<>();
+            flights = flightsMap.putIfAbsent(originDestinationPair, newFlights);
+            if (flights == null) {
+                flights = newFlights;
+            }
         }
+        return flights;
     }
 
     /**
-     * Handle transactions in inputfile2.txt.
+     * Apply an inventory diff while the system is running.
+     * Each line of the diff file is one change, see {@link InventoryChangeTypeEnum}, for example:
+     * <ul>
+     * <li>AddFlight,B353,50,180,LAS,LAX</li>
+     * <li>RetireFlight,B352</li>
+     * <li>ChangeSeats,A124,60</li>
+     * <li>SetFareBuckets,A124,Y:300:54,B:200:30,M:150:10</li>
+     * </ul>
+     * Each change only locks the route of the changed flight, and the reservations of the other flights
+     * are kept. Lines with an unknown change type are ignored.
+     * @param diffFilePath inventory diff file path, may be gzip compressed.
+     * @return number of applied changes.
      * @throws IOException
      *              Throws when failed or interrupted I/O operations happens.
      * @throws FileNotFoundException
      *              Throws when an attempt to open the file denoted by a specified pathname has failed.
      */
-    public void handleTransactions(final String transactionFilePath) throws FileNotFoundException, IOException {
-        try (BufferedReader br = new BufferedReader(new FileReader(transactionFilePath))) {
+    public int applyInventoryDiff(final String diffFilePath) throws FileNotFoundException, IOException {
+        EngineTracer tracer = engineTracer;
+        long traceStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.FILE_IO);
+        int applied = 0;
+        try (BufferedReader br = InputFiles.openReader(diffFilePath)) {
             String line = br.readLine();
             while (line != null) {
-                processTransaction(line.replaceAll("\\s", "").split(","));
+                if (applyInventoryChange(line.replaceAll("\\s", "").split(","))) {
+                    applied++;
+                }
                 line = br.readLine();
             }
         }
+        if (traceStart != 0) {
+            tracer.end(TraceEventTypeEnum.FILE_IO, traceStart, diffFilePath, null, null, null, -1, -1, applied);
+        }
+        return applied;
     }
 
     /**
-     * Create Output.
-     * The output should contains:
-     * <ul>
-     * <li>Summary information of a flight</li>
-     * <li>EOD summary</li>
-     * </ul>
-     *
-     * @throws IOException
-     *              Throws when failed or interrupted I/O operations happens.
+     * Apply one inventory change.
+     * @param changeInfoArr String[] inventory change information.
+     * @return true if the change was applied.
      */
-    public void createOutput(final String outputFilePath) throws IOException {
-        StringBuffer sBuffer = new StringBuffer();
-        int totalSeatsSold = 0;
-        long totalRevenue = 0;
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilePath))) {
-            for (Map.Entry<String, Flight>  entry : flightNumberToFlightMap.entrySet()) {
-                Flight flight = entry.getValue();
-                FlightSummary summary = flight.summaryFlight();
-                sBuffer.append(summary.getSummary())
-                       .append("\n");
-                totalSeatsSold += summary.getSoldSeats();
-                totalRevenue += summary.getTotalAvenue();
+    boolean applyInventoryChange(final String[] changeInfoArr) {
+        String changeType = changeInfoArr[0];
+        if (InventoryChangeTypeEnum.ADD_FLIGHT.getChangeType().equals(changeType)) {
+            String[] flightInfoArr = Arrays.copyOfRange(changeInfoArr, 1, changeInfoArr.length);
+            String flightNumber = flightInfoArr[FlightInfoCSVIndexEnum.FLIGHT_NUMBER.getIndex()];
+            if (flightNumberToFlightMap.containsKey(flightNumber)) {
+                return false;
             }
-            sBuffer.append("\n")
-                   .append("System's summary")
-                   .append("\n")
-                   .append("Total seats sold: ")
-                   .append(totalSeatsSold)
-                   .append("\n")
-                   .append("Total revenue: $")
-                   .append(String.valueOf(totalRevenue));
-            bw.write(sBuffer.toString());
+            Flight flight = addFlight(flightInfoArr);
+            fillFromWaitlist(flight);
+            return true;
+        } else if (InventoryChangeTypeEnum.RETIRE_FLIGHT.getChangeType().equals(changeType)) {
+            return retireFlight(changeInfoArr[1]);
+        } else if (InventoryChangeTypeEnum.CHANGE_SEATS.getChangeType().equals(changeType)) {
+            return changeNumberOfSeats(changeInfoArr[1], Integer.parseInt(changeInfoArr[2]));
+        } else if (InventoryChangeTypeEnum.SET_FARE_BUCKETS.getChangeType().equals(changeType)) {
+            List<FareBucket> buckets = new ArrayList<>();
+            for (int i = 2; i < changeInfoArr.length; i++) {
+                String[] bucketInfoArr = changeInfoArr[i].split(":");
+                buckets.add(new FareBucket(bucketInfoArr[0], Integer.parseInt(bucketInfoArr[1]),
+                        Integer.parseInt(bucketInfoArr[2])));
+            }
+            return installFareBuckets(changeInfoArr[1], buckets);
         }
+        return false;
     }
 
     /**
-     * Process Transaction.
-     * @param transactionInfoArr String[] transaction information.
+     * Retire a flight, its reservations are dropped.
+     * @param flightNumber flight number.
+     * @return true if the flight existed.
      */
-    void processTransaction(final String[] transactionInfoArr) {
-        String operation = transactionInfoArr[0];
-        if (TransactionTypeEnum.BOOK_PASSENGER.getTransactionType().equals(operation)) {
-            processBookPassenger(transactionInfoArr);
-        } else if (TransactionTypeEnum.CHANGE_PRICE.getTransactionType().equals(operation)) {
-            processChangePrice(transactionInfoArr);
-        } else if (TransactionTypeEnum.CANCEL_PASSENGER.getTransactionType().equals(operation)) {
-            processCancelPassenger(transactionInfoArr);
+    private boolean retireFlight(final String flightNumber) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return false;
+        }
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        synchronized (flights) {
+            if (!flightNumberToFlightMap.remove(flightNumber, flight)) {
+                return false;
+            }
+            flights.remove(flight);
+            if (flight.getDepartureTime() != null) {
+                scheduleIndexMap.get(getOriginDestinationPair(flight)).remove(flight);
+            }
+            FareIndex fareIndex = fareIndexMap.get(getOriginDestinationPair(flight));
+            if (fareIndex != null) {
+                fareIndex.remove(flight);
+            }
+            routeFlightsSnapshot.remove(getOriginDestinationPair(flight));
+            flight.setReservationListener(null);
+            Waitlist waitlist = getWaitlist(flight);
+            if (waitlist != null) {
+                waitlist.removeFlight(flight);
+            }
         }
+        return true;
     }
 
     /**
-     * Get flights TreeSet by OriginDestinationPair.
-     * @param transactionInfoArr String[] transaction information.
-     * @return flights with given origin and destination.
+     * Change number of seats of a flight.
+     * @param flightNumber flight number.
+     * @param numberOfSeats new number of seats.
+     * @return false if the flight does not exist or has more seats taken than the new number of seats.
      */
-    private TreeSet<Flight> getFlightsByOriginDestinationPair(final String[] transactionInfoArr) {
-        String originCode = transactionInfoArr[2];
-        String destinationCode = transactionInfoArr[3];
-        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
-        return flightsMap.get(originDestinationPair);
+    private boolean changeNumberOfSeats(final String flightNumber, final int numberOfSeats) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return false;
+        }
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        synchronized (flights) {
+            if (!isActive(flight) || !flight.changeNumberOfSeats(numberOfSeats)) {
+                return false;
+            }
+        }
+        fillFromWaitlist(flight);
+        return true;
     }
 
     /**
-     * Process cancel passenger transaction.
-     * @param transactionInfoArr String[] transaction information.
+     * Promote waiting passengers of the flight's route onto the free seats of the flight.
+     * @param flight flight.
      */
-    void processCancelPassenger(final String[] transactionInfoArr) {
-        Passenger passenger = new Passenger(transactionInfoArr[1]);
-        TreeSet<Flight> flights = getFlightsByOriginDestinationPair(transactionInfoArr);
-        if (flights == null) {
-            return;
-        }
-        Iterator<Flight> iterator = flights.iterator();
-        TreeSet<Flight> reservedFlights = new TreeSet<>();
-        while (iterator.hasNext()) {
-            Flight flight = iterator.next();
-            ReservationItem reservation = flight.getReservationByPassenger(passenger);
-            if (reservation == null) {
+    private void fillFromWaitlist(final Flight flight) {
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        synchronized (flights) {
+            while (isActive(flight) && promoteWaitlist(flight)) {
                 continue;
-            } else {
-                reservedFlights.add(flight);
             }
         }
-        if (reservedFlights.size() == 0) {
-            return;
-        } else {
-            Flight mostExpensiveFlight = reservedFlights.last();
-            ReservationItem mostExpensiveReservation = mostExpensiveFlight.getReservationByPassenger(passenger);
-            mostExpensiveFlight.cancelPassenger(mostExpensiveReservation);
-            mostExpensiveFlight.recoverSeat(mostExpensiveReservation.getSeatNumber());
-        }
     }
 
     /**
-     * Process change price transaction.
-     * @param transactionInfoArr String[] transaction information.
+     * Check if a flight is still in the inventory.
+     * @param flight flight.
+     * @return false if the flight was retired.
      */
-    void processChangePrice(final String[] transactionInfoArr) {
-        String flightNumber = transactionInfoArr[1];
-        int newPrice = Integer.parseInt(transactionInfoArr[2]);
-        Flight flight = flightNumberToFlightMap.get(flightNumber);
-        if (flight == null) {
-            return;
+    private boolean isActive(final Flight flight) {
+        return flightNumberToFlightMap.get(flight.getFlightNumber()) == flight;
+    }
+
+    /**
+     * Set heavy hitter tracker counting the routes, flights and passengers of the transactions.
+     * Book and cancel count the route and passenger of every request, and the flight that was booked or
+     * cancelled. Change price counts the flight.
+     * @param heavyHitterTracker heavy hitter tracker, null to stop tracking.
+     */
+    public void setHeavyHitterTracker(final HeavyHitterTracker heavyHitterTracker) {
+        this.heavyHitterTracker = heavyHitterTracker;
+    }
+
+    /**
+     * Get heavy hitter tracker.
+     * @return heavy hitter tracker, or null if tracking is off.
+     */
+    public HeavyHitterTracker getHeavyHitterTracker() {
+        return heavyHitterTracker;
+    }
+
+    /**
+     * Set log receiving the outcome of every transaction applied from now on.
+     * @param outcomeLog outcome log, null to stop logging.
+     */
+    public void setOutcomeLog(final OutcomeLog outcomeLog) {
+        this.outcomeLog = outcomeLog;
+    }
+
+    /**
+     * Get outcome log.
+     * @return outcome log, or null if logging is off.
+     */
+    public OutcomeLog getOutcomeLog() {
+        return outcomeLog;
+    }
+
+    /**
+     * Set tracer timing transaction apply, cancel lookup, reprice reordering, report generation and file phases.
+     * @param engineTracer engine tracer, null to stop tracing.
+     */
+    public void setEngineTracer(final EngineTracer engineTracer) {
+        this.engineTracer = engineTracer;
+    }
+
+    /**
+     * Get engine tracer.
+     * @return engine tracer, or null if tracing is off.
+     */
+    public EngineTracer getEngineTracer() {
+        return engineTracer;
+    }
+
+    /**
+     * Coalesce the transactions of transaction files before they are applied, see {@link TransactionCoalescer}.
+     * Meant for streams with churn, while handleTransactions is the only writer of the routes it changes.
+     * A dropped transaction still takes its transaction sequence and leaves a superseded outcome, and a dropped
+     * price change its price history entry, so sequences and price histories are the same as without coalescing.
+     * @param windowSize number of transactions coalesced together, 0 to stop coalescing.
+     */
+    public void enableTransactionCoalescing(final int windowSize) {
+        transactionCoalescer = windowSize > 0 ? new TransactionCoalescer(this, windowSize) : null;
+    }
+
+    /**
+     * Get transaction coalescer.
+     * @return transaction coalescer, or null if coalescing is off.
+     */
+    public TransactionCoalescer getTransactionCoalescer() {
+        return transactionCoalescer;
+    }
+
+    /**
+     * Apply consecutive ChangePrice transactions of transaction files as one {@link PriceBatch}.
+     * Meant for streams with bursts of price changes, while handleTransactions is the only writer of the prices
+     * it changes.
+     * @param priceBatching true to batch price changes, false to apply them one by one.
+     */
+    public void enablePriceBatching(final boolean priceBatching) {
+        this.priceBatching = priceBatching;
+    }
+
+    /**
+     * Check if price changes of transaction files are batched.
+     * @return true if price batching is on.
+     */
+    public boolean isPriceBatching() {
+        return priceBatching;
+    }
+
+    /**
+     * Check if a number of bookings on a route would only ever book its cheapest flight: the route is known,
+     * every flight keeps a free seat after that many bookings, nobody is waitlisted, and no flight sells
+     * through fare buckets.
+     * @param originDestinationPair route.
+     * @param bookings number of bookings.
+     * @return true if every flight of the route has more available seats than bookings.
+     */
+    boolean hasRoomForBookings(final OriginDestinationPair originDestinationPair, final int bookings) {
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null || fareIndexMap.get(originDestinationPair) != null) {
+            return false;
+        }
+        synchronized (flights) {
+            if (flights.isEmpty()) {
+                return false;
+            }
+            Waitlist waitlist = waitlistMap.get(originDestinationPair);
+            if (waitlist != null && !waitlist.isEmpty()) {
+                return false;
+            }
+            for (Flight flight : flights) {
+                if (flight.getAvailableSeats() <= bookings || !flight.getFareBuckets().isEmpty()) {
+                    return false;
+                }
+            }
         }
-        OriginDestinationPair originDestinationPair = new OriginDestinationPair(flight.getOriginCode(),
-                flight.getDestinationCode());
+        return true;
+    }
+
+    /**
+     * Check if a passenger has a reservation on a route.
+     * @param passenger passenger.
+     * @param originDestinationPair route.
+     * @return true if the passenger has a reservation on a flight of the route.
+     */
+    boolean hasReservation(final Passenger passenger, final OriginDestinationPair originDestinationPair) {
         TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            return false;
+        }
+        synchronized (flights) {
+            for (Flight flight : flights) {
+                if (flight.getReservationByPassenger(passenger) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
 
-        //update flight order in flights TreeSet.
-        flights.remove(flight);
-        flight.changePrice(newPrice);
-        flights.add(flight);
+    /**
+     * Get route of a flight.
+     * @param flightNumber flight number.
+     * @return route, or null if the flight does not exist.
+     */
+    OriginDestinationPair getRoute(final String flightNumber) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        return flight == null ? null : getOriginDestinationPair(flight);
     }
 
     /**
-     * Process BookPassenger Transaction.
-     * @param transactionInfoArr String[] transaction information.
+     * Get sequence of the last processed transaction.
+     * @return transaction sequence, 0 before the first transaction.
      */
-    void processBookPassenger(final String[] transactionInfoArr) {
-        Passenger passenger = new Passenger(transactionInfoArr[1]);
-        TreeSet<Flight> flights = getFlightsByOriginDestinationPair(transactionInfoArr);
-        if (flights == null) {
+    public long getTransactionSequence() {
+        return transactionSequence.get();
+    }
+
+    /**
+     * Raise the transaction sequence to the sequence of a replicated change, see {@link ReplicationReceiver}.
+     * @param sequence transaction sequence of the primary.
+     */
+    void advanceTransactionSequence(final long sequence) {
+        long current = transactionSequence.get();
+        while (current < sequence && !transactionSequence.compareAndSet(current, sequence)) {
+            current = transactionSequence.get();
+        }
+    }
+
+    /**
+     * Apply a seat sold on the primary, on the same seat.
+     * @param flightNumber flight number.
+     * @param item reservation item of the primary.
+     */
+    void applyReplicatedSale(final String flightNumber, final ReservationItem item) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
             return;
         }
-        Iterator<Flight> iterator = flights.iterator();
-        while (iterator.hasNext()) {
-            Flight flight = iterator.next();
-            if (flight.isFull()) {
-                continue;
-            } else {
-                ReservationItem reservationItem = new ReservationItem(passenger,
-                        flight.getPricePerSeat(), flight.generateRandomSeatNumber());
-                flight.bookPassenger(reservationItem);
-                break;
+        synchronized (flightsMap.get(getOriginDestinationPair(flight))) {
+            if (flight.getReservationByPassenger(item.getPassenger()) == null
+                    && flight.takeSeat(item.getSeatNumber())) {
+                flight.bookPassenger(item);
             }
         }
     }
 
+    /**
+     * Apply a seat released on the primary.
+     * @param flightNumber flight number.
+     * @param passenger passenger.
+     */
+    void applyReplicatedRelease(final String flightNumber, final Passenger passenger) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return;
+        }
+        synchronized (flightsMap.get(getOriginDestinationPair(flight))) {
+            ReservationItem reservation = flight.getReservationByPassenger(passenger);
+            if (reservation != null) {
+                flight.cancelPassenger(reservation);
+                flight.recoverSeat(reservation.getSeatNumber());
+            }
+        }
+    }
+
+    /**
+     * Apply a price change of the primary, with the price history sequence and time of the primary.
+     * @param flightNumber flight number.
+     * @param newPrice new price per seat.
+     * @param sequence price history sequence.
+     * @param timeMillis time of the change in milliseconds.
+     */
+    void applyReplicatedPriceChange(final String flightNumber, final int newPrice, final long sequence,
+            final long timeMillis) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return;
+        }
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        synchronized (flights) {
+            flights.remove(flight);
+            flight.changePrice(newPrice, sequence, timeMillis);
+            flights.add(flight);
+        }
+    }
+
+    /**
+     * Capture the state changed by transactions, to be written by {@link #writeState(StateSnapshot, Writer)}.
+     * Reservations are taken by a {@link ReservationSnapshot} without locking any route, bucket fares and
+     * waitlists are copied under the lock of their route, price histories are left to the writer. The cost grows
+     * with the number of flights and waiting passengers, not with the reservations or price changes. The caller
+     * applies no transaction meanwhile so the state matches one point of its transaction stream.
+     * @return state snapshot.
+     */
+    StateSnapshot captureState() {
+        long sequence = transactionSequence.get();
+        ReservationSnapshot reservationSnapshot = takeReservationSnapshot();
+        List<String> routeRecords = new ArrayList<>();
+        for (Map.Entry<OriginDestinationPair, TreeSet<Flight>> entry : flightsMap.entrySet()) {
+            TreeSet<Flight> flights = entry.getValue();
+            synchronized (flights) {
+                for (Flight flight : flights) {
+                    for (FareBucket fareBucket : flight.getFareBuckets()) {
+                        routeRecords.add(StateRecordTypeEnum.FARE.getRecordType() + "," + flight.getFlightNumber()
+                                + "," + fareBucket.getFareClass() + "," + fareBucket.getFare());
+                    }
+                }
+                Waitlist waitlist = waitlistMap.get(entry.getKey());
+                for (int i = 0; waitlist != null && i < waitlist.size(); i++) {
+                    WaitlistEntry waitlistEntry = waitlist.get(i);
+                    routeRecords.add(StateRecordTypeEnum.WAITLIST.getRecordType() + ","
+                            + entry.getKey().getOriginCode() + "," + entry.getKey().getDestinationCode() + ","
+                            + waitlistEntry.getPassenger().getName() + "," + waitlistEntry.getFare() + ","
+                            + waitlistEntry.getRequestSequence());
+                }
+            }
+        }
+        return new StateSnapshot(sequence, reservationSnapshot, routeRecords);
+    }
+
+    /**
+     * Write a captured state, one {@link StateRecordTypeEnum} record per line: the transaction sequence, price
+     * histories, reservations, bucket fares and waitlists. May run on any thread while transactions go on, the
+     * price history of each flight is read under the lock of its route up to the snapshot's sequence.
+     * Seat holds are not written, they would have expired by the time the state is restored.
+     * @param stateSnapshot captured state.
+     * @param writer state writer.
+     * @throws IOException
+     *              Throws when the state cannot be written.
+     */
+    void writeState(final StateSnapshot stateSnapshot, final Writer writer) throws IOException {
+        writer.write(StateRecordTypeEnum.SEQUENCE.getRecordType() + "," + stateSnapshot.getSequence() + "\n");
+        for (FlightVersion flightVersion : stateSnapshot.getReservationSnapshot().getFlightVersions()) {
+            String flightNumber = flightVersion.getFlightNumber();
+            for (PriceChange priceChange : getPriceChanges(flightVersion.getFlight(), stateSnapshot.getSequence())) {
+                writer.write(StateRecordTypeEnum.PRICE_CHANGE.getRecordType() + "," + flightNumber + ","
+                        + priceChange.getSequence() + "," + priceChange.getTimeMillis() + ","
+                        + priceChange.getPrice() + "\n");
+            }
+            for (ReservationItem item : flightVersion.getReservations()) {
+                writer.write(StateRecordTypeEnum.SEAT.getRecordType() + "," + flightNumber + ","
+                        + item.getPassenger().getName() + "," + item.getSeatNumber() + "," + item.getPrice() + ","
+                        + (item.getFareClass() == null ? "" : item.getFareClass()) + "\n");
+            }
+        }
+        for (String routeRecord : stateSnapshot.getRouteRecords()) {
+            writer.write(routeRecord + "\n");
+        }
+    }
+
+    /**
+     * Get the price changes of a flight made by transactions, up to a transaction sequence.
+     * @param flight flight.
+     * @param sequence last transaction sequence.
+     * @return price changes ordered by sequence, without the loaded price.
+     */
+    private List<PriceChange> getPriceChanges(final Flight flight, final long sequence) {
+        List<PriceChange> priceChanges = new ArrayList<>();
+        synchronized (flightsMap.get(getOriginDestinationPair(flight))) {
+            PriceHistory priceHistory = flight.getPriceHistory();
+            if (priceHistory == null) {
+                return priceChanges;
+            }
+            for (PriceChange priceChange : priceHistory.getChanges(0, Long.MAX_VALUE)) {
+                //The loaded price at sequence 0 comes with the flight.
+                if (priceChange.getSequence() > 0 && priceChange.getSequence() <= sequence) {
+                    priceChanges.add(priceChange);
+                }
+            }
+        }
+        return priceChanges;
+    }
+
+    /**
+     * Restore one record of a state written by {@link #writeState(StateSnapshot, Writer)}, in a system loaded from
+     * the same flight input file. Records of unknown flights or routes are skipped, and so are price changes the
+     * flight already has.
+     * @param stateInfoArr String[] state record.
+     */
+    void restoreState(final String[] stateInfoArr) {
+        String recordType = stateInfoArr[0];
+        if (StateRecordTypeEnum.SEQUENCE.getRecordType().equals(recordType)) {
+            advanceTransactionSequence(Long.parseLong(stateInfoArr[1]));
+        } else if (StateRecordTypeEnum.PRICE_CHANGE.getRecordType().equals(recordType)) {
+            Flight flight = flightNumberToFlightMap.get(stateInfoArr[1]);
+            long sequence = Long.parseLong(stateInfoArr[2]);
+            if (flight != null && (flight.getPriceHistory() == null
+                    || sequence > flight.getPriceHistory().getLastSequence())) {
+                applyReplicatedPriceChange(stateInfoArr[1], Integer.parseInt(stateInfoArr[4]), sequence,
+                        Long.parseLong(stateInfoArr[3]));
+            }
+        } else if (StateRecordTypeEnum.FARE.getRecordType().equals(recordType)) {
+            Flight flight = flightNumberToFlightMap.get(stateInfoArr[1]);
+            if (flight != null) {
+                synchronized (flightsMap.get(getOriginDestinationPair(flight))) {
+                    flight.changeFare(stateInfoArr[2], Integer.parseInt(stateInfoArr[3]));
+                }
+            }
+        } else if (StateRecordTypeEnum.SEAT.getRecordType().equals(recordType)) {
+            String fareClass = stateInfoArr.length > 5 && !stateInfoArr[5].isEmpty() ? stateInfoArr[5] : null;
+            applyReplicatedSale(stateInfoArr[1], new ReservationItem(new Passenger(stateInfoArr[2]),
+                    Integer.parseInt(stateInfoArr[4]), Integer.parseInt(stateInfoArr[3]), fareClass));
+        } else if (StateRecordTypeEnum.WAITLIST.getRecordType().equals(recordType)) {
+            OriginDestinationPair originDestinationPair = new OriginDestinationPair(stateInfoArr[1], stateInfoArr[2]);
+            TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+            if (flights == null) {
+                return;
+            }
+            long requestSequence = Long.parseLong(stateInfoArr[5]);
+            synchronized (flights) {
+                addWaitlistEntry(originDestinationPair, new WaitlistEntry(new Passenger(stateInfoArr[3]),
+                        Integer.parseInt(stateInfoArr[4]), requestSequence));
+            }
+            //Passengers joining later queue after the restored ones.
+            long current = waitlistSequence.get();
+            while (current <= requestSequence && !waitlistSequence.compareAndSet(current, requestSequence + 1)) {
+                current = waitlistSequence.get();
+            }
+        }
+    }
+
+    /**
+     * Add listener of reservation and price changes on all flights.
+     * For example an {@link AvailabilityFeed} publishing the changes to downstream caches.
+     * @param listener reservation listener.
+     */
+    public void addReservationListener(final ReservationListener listener) {
+        reservationListeners.add(listener);
+    }
+
+    /**
+     * Remove listener of reservation and price changes.
+     * @param listener reservation listener.
+     */
+    public void removeReservationListener(final ReservationListener listener) {
+        reservationListeners.remove(listener);
+    }
+
+    /**
+     * Handle transactions in inputfile2.txt.
+     * The file may be gzip compressed, it is then inflated on a read ahead thread while transactions are applied.
+     * With price batching on, consecutive ChangePrice transactions are applied as one {@link PriceBatch}, see
+     * {@link #enablePriceBatching(boolean)}. With coalescing on, each window of transactions is coalesced before
+     * it is applied, see {@link #enableTransactionCoalescing(int)}.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     * @throws FileNotFoundException
+     *              Throws when an attempt to open the file denoted by a specified pathname has failed.
+     */
+    public void handleTransactions(final String transactionFilePath) throws FileNotFoundException, IOException {
+        EngineTracer tracer = engineTracer;
+        long traceStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.FILE_IO);
+        long lines = 0;
+        TransactionCoalescer coalescer = transactionCoalescer;
+        try (BufferedReader br = InputFiles.openReader(transactionFilePath)) {
+            PriceBatch priceBatch = new PriceBatch();
+            List<String[]> window = new ArrayList<>();
+            String line = br.readLine();
+            while (line != null) {
+                lines++;
+                if (coalescer == null) {
+                    handleTransactionLine(line, priceBatch);
+                } else {
+                    window.add(line.replaceAll("\\s", "").split(","));
+                    if (window.size() >= coalescer.getWindowSize()) {
+                        handleTransactionWindow(coalescer, window, priceBatch);
+                    }
+                }
+                line = br.readLine();
+            }
+            if (coalescer != null) {
+                handleTransactionWindow(coalescer, window, priceBatch);
+            }
+            applyPriceBatch(priceBatch);
+        }
+        if (traceStart != 0) {
+            tracer.end(TraceEventTypeEnum.FILE_IO, traceStart, transactionFilePath, null, null, null, -1, -1, lines);
+        }
+    }
+
+    /**
+     * Handle one line of a transaction file.
+     * With price batching on, a ChangePrice is added to the price batch, any other transaction first applies
+     * the batch. The caller applies the batch left at the end of its lines.
+     * @param line transaction line.
+     * @param priceBatch pending price batch.
+     */
+    void handleTransactionLine(final String line, final PriceBatch priceBatch) {
+        handleTransaction(line.replaceAll("\\s", "").split(","), priceBatch);
+    }
+
+    /**
+     * Coalesce a window of transactions and handle them in order, the dropped ones only taking their sequence and
+     * outcome, then clear the window. With price batching on, a dropped transaction joins the pending price batch
+     * instead of applying it.
+     * @param coalescer transaction coalescer.
+     * @param window transactions of a transaction file, in file order.
+     * @param priceBatch pending price batch.
+     */
+    private void handleTransactionWindow(final TransactionCoalescer coalescer, final List<String[]> window,
+            final PriceBatch priceBatch) {
+        boolean[] dropped = coalescer.coalesce(window);
+        for (int i = 0; i < window.size(); i++) {
+            if (dropped[i] && priceBatching) {
+                addCoalescedTransaction(window.get(i), priceBatch);
+            } else if (dropped[i]) {
+                processCoalescedTransaction(window.get(i));
+            } else {
+                handleTransaction(window.get(i), priceBatch);
+            }
+        }
+        window.clear();
+    }
+
+    /**
+     * Add a transaction dropped by coalescing to the pending price batch, so it takes its sequence in file order
+     * when the batch is applied, see {@link #applyPriceBatch(PriceBatch)}.
+     * @param transactionInfoArr String[] transaction information of a booking, cancel or price change.
+     * @param priceBatch pending price batch.
+     */
+    private void addCoalescedTransaction(final String[] transactionInfoArr, final PriceBatch priceBatch) {
+        TransactionTypeEnum type = TransactionTypeEnum.fromTransactionType(transactionInfoArr[0]);
+        if (type == TransactionTypeEnum.CHANGE_PRICE) {
+            priceBatch.addCoalesced(type, transactionInfoArr[1], Integer.parseInt(transactionInfoArr[2]));
+        } else {
+            priceBatch.addCoalesced(type, null, -1);
+        }
+        if (priceBatch.size() >= MAX_PRICE_BATCH_SIZE) {
+            applyPriceBatch(priceBatch);
+        }
+    }
+
+    /**
+     * Process a transaction dropped by coalescing: it takes its sequence and leaves a superseded outcome without
+     * changing any reservation, a price change records its price in the price history without changing the
+     * price per seat, as the change superseding it follows before any booking or cancel of its route.
+     * @param transactionInfoArr String[] transaction information of a booking, cancel or price change.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processCoalescedTransaction(final String[] transactionInfoArr) {
+        TransactionTypeEnum type = TransactionTypeEnum.fromTransactionType(transactionInfoArr[0]);
+        TransactionOutcome outcome = beginOutcome(transactionSequence.incrementAndGet(), type);
+        if (type != TransactionTypeEnum.CHANGE_PRICE) {
+            outcome.set(TransactionStatusEnum.SUPERSEDED, null, -1, -1);
+            return endOutcome(outcome);
+        }
+        String flightNumber = transactionInfoArr[1];
+        int price = Integer.parseInt(transactionInfoArr[2]);
+        outcome.set(TransactionStatusEnum.UNKNOWN_FLIGHT, flightNumber, -1, price);
+        //The flight may have been retired since the window was coalesced.
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return endOutcome(outcome);
+        }
+        synchronized (flightsMap.get(getOriginDestinationPair(flight))) {
+            PriceHistory priceHistory = flight.getPriceHistory();
+            boolean superseded = priceHistory != null && outcome.getSequence() <= priceHistory.getLastSequence();
+            if (isActive(flight) && !superseded) {
+                flight.recordSupersededPrice(price, outcome.getSequence(), clock.millis());
+            }
+            if (isActive(flight)) {
+                outcome.set(TransactionStatusEnum.PRICE_SUPERSEDED, flightNumber, -1, -1);
+            }
+        }
+        return endOutcome(outcome);
+    }
+
+    /**
+     * Handle one transaction of a transaction file.
+     * With price batching on, a ChangePrice is added to the price batch, any other transaction first applies
+     * the batch.
+     * @param transactionInfoArr String[] transaction information.
+     * @param priceBatch pending price batch.
+     */
+    private void handleTransaction(final String[] transactionInfoArr, final PriceBatch priceBatch) {
+        if (priceBatching && transactionInfoArr.length == 3
+                && TransactionTypeEnum.CHANGE_PRICE.getTransactionType().equals(transactionInfoArr[0])) {
+            priceBatch.add(transactionInfoArr[1], Integer.parseInt(transactionInfoArr[2]));
+            if (priceBatch.size() >= MAX_PRICE_BATCH_SIZE) {
+                applyPriceBatch(priceBatch);
+            }
+        } else {
+            applyPriceBatch(priceBatch);
+            processTransaction(transactionInfoArr);
+        }
+    }
+
+    /**
+     * Handle transactions in binary transaction format, see {@link TransactionCodec}.
+     * Records are decoded straight from the file buffer into one reusable {@link TransactionRecord}.
+     * With price batching on, consecutive ChangePrice records without fare class are applied as one
+     * {@link PriceBatch}. The file may be gzip compressed.
+     * @param transactionFilePath binary transaction file path.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens, or the file ends with
+     *              a truncated record.
+     */
+    public void handleBinaryTransactions(final String transactionFilePath) throws IOException {
+        EngineTracer tracer = engineTracer;
+        long traceStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.FILE_IO);
+        long records = 0;
+        try (ReadableByteChannel channel = InputFiles.openChannel(transactionFilePath)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BINARY_READ_BUFFER_SIZE);
+            TransactionRecord record = new TransactionRecord();
+            PriceBatch priceBatch = new PriceBatch();
+            boolean batching = priceBatching;
+            while (true) {
+                int read = channel.read(buffer);
+                buffer.flip();
+                while (TransactionCodec.decode(buffer, record)) {
+                    records++;
+                    if (batching && record.getType() == TransactionTypeEnum.CHANGE_PRICE && !record.isExtended()) {
+                        priceBatch.add(record.getFlightNumber(), record.getPrice());
+                        if (priceBatch.size() >= MAX_PRICE_BATCH_SIZE) {
+                            applyPriceBatch(priceBatch);
+                        }
+                    } else {
+                        applyPriceBatch(priceBatch);
+                        processTransaction(record);
+                    }
+                }
+                buffer.compact();
+                if (read == -1) {
+                    applyPriceBatch(priceBatch);
+                    if (buffer.position() > 0) {
+                        throw new IOException("Truncated transaction record at the end of " + transactionFilePath);
+                    }
+                    break;
+                }
+            }
+        }
+        if (traceStart != 0) {
+            tracer.end(TraceEventTypeEnum.FILE_IO, traceStart, transactionFilePath, null, null, null, -1, -1,
+                    records);
+        }
+    }
+
+    /**
+     * Create Output.
+     * The output should contains:
+     * <ul>
+     * <li>Summary information of a flight</li>
+     * <li>EOD summary</li>
+     * </ul>
+     * The output is written from a {@link ReservationSnapshot}, so it is consistent while transactions go on.
+     *
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     */
+    public void createOutput(final String outputFilePath) throws IOException {
+        EngineTracer tracer = engineTracer;
+        long traceStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.REPORT_GENERATION);
+        StringBuffer sBuffer = new StringBuffer();
+        int totalSeatsSold = 0;
+        long totalRevenue = 0;
+        ReservationSnapshot snapshot = takeReservationSnapshot();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilePath))) {
+            for (FlightVersion flight : snapshot.getFlightVersions()) {
+                long summaryStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.REPORT_GENERATION);
+                FlightSummary summary = flight.summaryFlight();
+                if (summaryStart != 0) {
+                    tracer.end(TraceEventTypeEnum.REPORT_GENERATION, summaryStart, "summaryFlight",
+                            flight.getOriginCode(), flight.getDestinationCode(), flight.getFlightNumber(), -1,
+                            summary.getSoldSeats(), summary.getSoldSeats());
+                }
+                sBuffer.append(summary.getSummary())
+                       .append("\n");
+                totalSeatsSold += summary.getSoldSeats();
+                totalRevenue += summary.getTotalAvenue();
+            }
+            sBuffer.append("\n")
+                   .append("System's summary")
+                   .append("\n")
+                   .append("Total seats sold: ")
+                   .append(totalSeatsSold)
+                   .append("\n")
+                   .append("Total revenue: $")
+                   .append(String.valueOf(totalRevenue));
+            if (traceStart != 0) {
+                tracer.end(TraceEventTypeEnum.REPORT_GENERATION, traceStart, "createOutput", null, null, null, -1,
+                        totalSeatsSold, snapshot.getFlightVersions().size());
+            }
+            long writeStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.FILE_IO);
+            bw.write(sBuffer.toString());
+            bw.flush();
+            if (writeStart != 0) {
+                tracer.end(TraceEventTypeEnum.FILE_IO, writeStart, outputFilePath, null, null, null, -1, -1,
+                        sBuffer.length());
+            }
+        }
+    }
+
+    /**
+     * Take a columnar snapshot of all flights and reservations for analytics queries.
+     * The columns are copied from a {@link ReservationSnapshot}, so transactions do not wait for the copy,
+     * and queries run on the snapshot without any lock.
+     * @return analytics snapshot.
+     */
+    public AnalyticsSnapshot takeAnalyticsSnapshot() {
+        AnalyticsSnapshot.SnapshotBuilder builder = new AnalyticsSnapshot.SnapshotBuilder();
+        for (FlightVersion flight : takeReservationSnapshot().getFlightVersions()) {
+            builder.addFlight(flight);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Take a consistent snapshot of all flights and reservations, without locking any route.
+     * Every change with a version up to the snapshot version is seen, none after it: a change in progress on
+     * a flight is waited for, later ones keep the version the snapshot needs until it has been read.
+     * @return reservation snapshot.
+     */
+    public ReservationSnapshot takeReservationSnapshot() {
+        long openVersion = snapshotRegistry.open();
+        try {
+            long version = snapshotRegistry.getCurrentVersion();
+            List<FlightVersion> flightVersions = new ArrayList<>(flightNumberToFlightMap.size());
+            for (Flight flight : flightNumberToFlightMap.values()) {
+                flightVersions.add(flight.getVersion(version));
+            }
+            return new ReservationSnapshot(version, flightVersions);
+        } finally {
+            snapshotRegistry.close(openVersion);
+        }
+    }
+
+    /**
+     * Process Transaction.
+     * @param transactionInfoArr String[] transaction information.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processTransaction(final String[] transactionInfoArr) {
+        EngineTracer tracer = engineTracer;
+        if (tracer == null) {
+            return applyTransaction(transactionInfoArr);
+        }
+        long traceStart = tracer.begin(TraceEventTypeEnum.TRANSACTION_APPLY);
+        TransactionStatusEnum status = applyTransaction(transactionInfoArr);
+        if (traceStart != 0) {
+            boolean routed = transactionInfoArr.length > 3
+                    && !TransactionTypeEnum.CHANGE_PRICE.getTransactionType().equals(transactionInfoArr[0]);
+            endTransactionTrace(tracer, traceStart, routed ? transactionInfoArr[2] : null,
+                    routed ? transactionInfoArr[3] : null);
+        }
+        return status;
+    }
+
+    /**
+     * Apply Transaction.
+     * @param transactionInfoArr String[] transaction information.
+     * @return transaction status.
+     */
+    private TransactionStatusEnum applyTransaction(final String[] transactionInfoArr) {
+        //Return seats of expired holds before they can be booked again.
+        expireHolds();
+        String operation = transactionInfoArr[0];
+        if (TransactionTypeEnum.BOOK_PASSENGER.getTransactionType().equals(operation)) {
+            return processBookPassenger(transactionInfoArr);
+        } else if (TransactionTypeEnum.CHANGE_PRICE.getTransactionType().equals(operation)) {
+            return processChangePrice(transactionInfoArr);
+        } else if (TransactionTypeEnum.CANCEL_PASSENGER.getTransactionType().equals(operation)) {
+            return processCancelPassenger(transactionInfoArr);
+        }
+        return processUnknownTransaction();
+    }
+
+    /**
+     * Process Transaction decoded from binary transaction format.
+     * @param record transaction record.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processTransaction(final TransactionRecord record) {
+        EngineTracer tracer = engineTracer;
+        if (tracer == null) {
+            return applyTransaction(record);
+        }
+        long traceStart = tracer.begin(TraceEventTypeEnum.TRANSACTION_APPLY);
+        TransactionStatusEnum status = applyTransaction(record);
+        if (traceStart != 0) {
+            OriginDestinationPair originDestinationPair = record.getType() == TransactionTypeEnum.CHANGE_PRICE
+                    ? null : record.getOriginDestinationPair();
+            endTransactionTrace(tracer, traceStart,
+                    originDestinationPair == null ? null : originDestinationPair.getOriginCode(),
+                    originDestinationPair == null ? null : originDestinationPair.getDestinationCode());
+        }
+        return status;
+    }
+
+    /**
+     * Apply Transaction decoded from binary transaction format.
+     * @param record transaction record.
+     * @return transaction status.
+     */
+    private TransactionStatusEnum applyTransaction(final TransactionRecord record) {
+        //Return seats of expired holds before they can be booked again.
+        expireHolds();
+        TransactionTypeEnum type = record.getType();
+        if (type == TransactionTypeEnum.BOOK_PASSENGER) {
+            if (record.getDepartureDate() != null) {
+                return processBookPassenger(new Passenger(record.getPassengerName()),
+                        record.getOriginDestinationPair(), record.getDepartureDate());
+            }
+            processBookPassenger(new Passenger(record.getPassengerName()), record.getOriginDestinationPair());
+            return outcomes.get().getStatus();
+        } else if (type == TransactionTypeEnum.CHANGE_PRICE) {
+            if (record.getFareClass() != null) {
+                return processChangeFare(record.getFlightNumber(), record.getFareClass(), record.getPrice());
+            }
+            return processChangePrice(record.getFlightNumber(), record.getPrice());
+        } else if (type == TransactionTypeEnum.CANCEL_PASSENGER) {
+            processCancelPassenger(new Passenger(record.getPassengerName()), record.getOriginDestinationPair());
+            return outcomes.get().getStatus();
+        }
+        return processUnknownTransaction();
+    }
+
+    /**
+     * End the trace of a transaction, from the outcome the transaction left.
+     * @param tracer engine tracer.
+     * @param traceStart start time of the transaction.
+     * @param originCode origin code of the transaction, null if none.
+     * @param destinationCode destination code of the transaction.
+     */
+    private void endTransactionTrace(final EngineTracer tracer, final long traceStart, final String originCode,
+            final String destinationCode) {
+        TransactionOutcome outcome = outcomes.get();
+        tracer.end(TraceEventTypeEnum.TRANSACTION_APPLY, traceStart,
+                outcome.getType() == null ? null : outcome.getType().getTransactionType(), originCode,
+                destinationCode, outcome.getFlightNumber(), outcome.getFlightsScanned(), outcome.getSeatNumber(),
+                -1);
+    }
+
+    /**
+     * Process a transaction of unknown type, it only takes its sequence and leaves its outcome.
+     * @return unknown transaction status.
+     */
+    private TransactionStatusEnum processUnknownTransaction() {
+        TransactionOutcome outcome = beginOutcome(transactionSequence.incrementAndGet(), null);
+        outcome.set(TransactionStatusEnum.UNKNOWN_TRANSACTION, null, -1, -1);
+        return endOutcome(outcome);
+    }
+
+    /**
+     * Get OriginDestinationPair from transaction information.
+     * @param transactionInfoArr String[] transaction information.
+     * @return origin destination pair of the transaction.
+     */
+    private OriginDestinationPair getOriginDestinationPair(final String[] transactionInfoArr) {
+        String originCode = transactionInfoArr[2];
+        String destinationCode = transactionInfoArr[3];
+        return new OriginDestinationPair(originCode, destinationCode);
+    }
+
+    /**
+     * Process cancel passenger transaction.
+     * If the passenger has no reservation but is on the waitlist, the passenger leaves the waitlist.
+     * @param transactionInfoArr String[] transaction information.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processCancelPassenger(final String[] transactionInfoArr) {
+        processCancelPassenger(new Passenger(transactionInfoArr[1]), getOriginDestinationPair(transactionInfoArr));
+        return outcomes.get().getStatus();
+    }
+
+    /**
+     * Process cancel passenger transaction.
+     * On a route in flat combining mode, the cancel is applied by the route's combiner.
+     * @param passenger passenger.
+     * @param originDestinationPair route.
+     * @return canceled reservation, or null if the passenger had no reservation on the route.
+     */
+    ReservationItem processCancelPassenger(final Passenger passenger,
+            final OriginDestinationPair originDestinationPair) {
+        TransactionOutcome outcome = beginOutcome(transactionSequence.incrementAndGet(),
+                TransactionTypeEnum.CANCEL_PASSENGER);
+        recordTraffic(TransactionTypeEnum.CANCEL_PASSENGER, originDestinationPair, passenger);
+        ReservationItem canceled;
+        RouteCombiner routeCombiner = routeCombinerMap.get(originDestinationPair);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (routeCombiner != null) {
+            canceled = routeCombiner.submit(TransactionTypeEnum.CANCEL_PASSENGER, passenger, outcome);
+        } else if (flights == null) {
+            outcome.set(TransactionStatusEnum.UNKNOWN_ROUTE, null, -1, -1);
+            canceled = null;
+        } else {
+            synchronized (flights) {
+                canceled = cancelPassenger(passenger, originDestinationPair, flights, outcome);
+            }
+        }
+        endOutcome(outcome);
+        return canceled;
+    }
+
+    /**
+     * Cancel the most expensive booking of a passenger on a route.
+     * The caller holds the lock of the route.
+     * @param passenger passenger.
+     * @param originDestinationPair route.
+     * @param flights flights of the route.
+     * @param outcome outcome filled with the result.
+     * @return canceled reservation, or null if the passenger had no reservation on the route.
+     */
+    private ReservationItem cancelPassenger(final Passenger passenger,
+            final OriginDestinationPair originDestinationPair, final TreeSet<Flight> flights,
+            final TransactionOutcome outcome) {
+        EngineTracer tracer = engineTracer;
+        long traceStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.CANCEL_LOOKUP);
+        Iterator<Flight> iterator = flights.iterator();
+        TreeSet<Flight> reservedFlights = new TreeSet<>();
+        while (iterator.hasNext()) {
+            Flight flight = iterator.next();
+            ReservationItem reservation = flight.getReservationByPassenger(passenger);
+            if (reservation == null) {
+                continue;
+            } else {
+                reservedFlights.add(flight);
+            }
+        }
+        outcome.setFlightsScanned(flights.size());
+        if (traceStart != 0) {
+            tracer.end(TraceEventTypeEnum.CANCEL_LOOKUP, traceStart, passenger.getName(),
+                    originDestinationPair.getOriginCode(), originDestinationPair.getDestinationCode(),
+                    reservedFlights.isEmpty() ? null : reservedFlights.last().getFlightNumber(), flights.size(), -1,
+                    reservedFlights.size());
+        }
+        if (reservedFlights.size() == 0) {
+            Waitlist waitlist = waitlistMap.get(originDestinationPair);
+            boolean leftWaitlist = waitlist != null && waitlist.remove(passenger);
+            outcome.set(leftWaitlist ? TransactionStatusEnum.LEFT_WAITLIST : TransactionStatusEnum.NO_RESERVATION,
+                    null, -1, -1);
+            return null;
+        } else {
+            Flight mostExpensiveFlight = reservedFlights.last();
+            ReservationItem mostExpensiveReservation = mostExpensiveFlight.getReservationByPassenger(passenger);
+            mostExpensiveFlight.cancelPassenger(mostExpensiveReservation);
+            mostExpensiveFlight.recoverSeat(mostExpensiveReservation.getSeatNumber());
+            recordFlightTraffic(TransactionTypeEnum.CANCEL_PASSENGER, mostExpensiveFlight.getFlightNumber());
+            outcome.set(TransactionStatusEnum.CANCELLED, mostExpensiveFlight.getFlightNumber(),
+                    mostExpensiveReservation.getSeatNumber(), mostExpensiveReservation.getPrice());
+            promoteWaitlist(mostExpensiveFlight);
+            return mostExpensiveReservation;
+        }
+    }
+
+    /**
+     * Book the head of the flight's route waitlist on a freed seat.
+     * The promoted passenger pays the fare of the waitlist entry, whatever the price of the flight is now. On a
+     * flight with fare buckets, the seat is sold in the cheapest open bucket, and nobody is promoted if all
+     * buckets are closed. The caller holds the lock of the route.
+     * @param flight flight with a free seat.
+     * @return true if a passenger was promoted.
+     */
+    private boolean promoteWaitlist(final Flight flight) {
+        Waitlist waitlist = getWaitlist(flight);
+        if (waitlist == null || waitlist.isEmpty() || flight.getSellableSeats() == 0) {
+            return false;
+        }
+        WaitlistEntry entry = waitlist.pollFor(flight);
+        if (entry == null) {
+            return false;
+        }
+        FareBucket fareBucket = flight.getCheapestOpenFareBucket();
+        ReservationItem reservationItem = new ReservationItem(entry.getPassenger(), entry.getFare(),
+                flight.generateRandomSeatNumber(), fareBucket == null ? null : fareBucket.getFareClass());
+        flight.bookPassenger(reservationItem);
+        return true;
+    }
+
+    /**
+     * Get OriginDestinationPair of a flight.
+     * @param flight flight.
+     * @return origin destination pair of the flight.
+     */
+    private OriginDestinationPair getOriginDestinationPair(final Flight flight) {
+        return new OriginDestinationPair(flight.getOriginCode(), flight.getDestinationCode());
+    }
+
+    /**
+     * Get waitlist of the route of a flight.
+     * @param flight flight.
+     * @return waitlist, or null if nobody ever waited on the route.
+     */
+    private Waitlist getWaitlist(final Flight flight) {
+        return waitlistMap.isEmpty() ? null : waitlistMap.get(getOriginDestinationPair(flight));
+    }
+
+    /**
+     * Process change price transaction.
+     * An optional fourth field changes the fare of a fare bucket instead, for example ChangePrice,A124,180,B.
+     * @param transactionInfoArr String[] transaction information.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processChangePrice(final String[] transactionInfoArr) {
+        if (transactionInfoArr.length > 3) {
+            return processChangeFare(transactionInfoArr[1], transactionInfoArr[3],
+                    Integer.parseInt(transactionInfoArr[2]));
+        }
+        return processChangePrice(transactionInfoArr[1], Integer.parseInt(transactionInfoArr[2]));
+    }
+
+    /**
+     * Process change price transaction of a fare bucket.
+     * @param flightNumber flight number.
+     * @param fareClass fare class of the bucket.
+     * @param newFare new fare of the bucket.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processChangeFare(final String flightNumber, final String fareClass, final int newFare) {
+        TransactionOutcome outcome = beginOutcome(transactionSequence.incrementAndGet(),
+                TransactionTypeEnum.CHANGE_PRICE);
+        outcome.set(TransactionStatusEnum.UNKNOWN_FLIGHT, flightNumber, -1, newFare);
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return endOutcome(outcome);
+        }
+        recordFlightTraffic(TransactionTypeEnum.CHANGE_PRICE, flightNumber);
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        synchronized (flights) {
+            if (isActive(flight)) {
+                outcome.set(flight.changeFare(fareClass, newFare) ? TransactionStatusEnum.FARE_CHANGED
+                        : TransactionStatusEnum.UNKNOWN_FARE_CLASS, flightNumber, -1, newFare);
+            }
+        }
+        return endOutcome(outcome);
+    }
+
+    /**
+     * Process change price transaction.
+     * The sequence is taken before the route lock, so a change of the same flight by another thread may take a
+     * later sequence and be applied first, this change is then superseded.
+     * @param flightNumber flight number.
+     * @param newPrice new price per seat.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processChangePrice(final String flightNumber, final int newPrice) {
+        TransactionOutcome outcome = beginOutcome(transactionSequence.incrementAndGet(),
+                TransactionTypeEnum.CHANGE_PRICE);
+        outcome.set(TransactionStatusEnum.UNKNOWN_FLIGHT, flightNumber, -1, newPrice);
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return endOutcome(outcome);
+        }
+        recordFlightTraffic(TransactionTypeEnum.CHANGE_PRICE, flightNumber);
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        EngineTracer tracer = engineTracer;
+        long traceStart = 0;
+        int routeSize = 0;
+        synchronized (flights) {
+            PriceHistory priceHistory = flight.getPriceHistory();
+            boolean superseded = priceHistory != null && outcome.getSequence() <= priceHistory.getLastSequence();
+            if (isActive(flight) && superseded) {
+                outcome.set(TransactionStatusEnum.PRICE_SUPERSEDED, flightNumber, -1, -1);
+            } else if (isActive(flight)) {
+                traceStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.REPRICE_REORDER);
+                //update flight order in flights TreeSet.
+                flights.remove(flight);
+                flight.changePrice(newPrice, outcome.getSequence(), clock.millis());
+                flights.add(flight);
+                routeSize = flights.size();
+                outcome.set(TransactionStatusEnum.PRICE_CHANGED, flightNumber, -1, newPrice);
+            }
+        }
+        if (traceStart != 0) {
+            tracer.end(TraceEventTypeEnum.REPRICE_REORDER, traceStart, "ChangePrice", flight.getOriginCode(),
+                    flight.getDestinationCode(), flightNumber, routeSize, -1, 1);
+        }
+        return endOutcome(outcome);
+    }
+
+    /**
+     * Apply a batch of price updates.
+     * Updates are grouped by route, and each route is locked and reordered once per batch instead of once per
+     * update, so bookings before or after the batch see a consistently ordered route.
+     * A route mostly repriced is rebuilt from its sorted flights, otherwise only its repriced flights are
+     * taken out and put back. Updates take their transaction sequences in batch order, each update of a known
+     * flight is recorded in the price history of its flight and leaves its outcome in batch order, as if applied one
+     * by one. An update older than a change made meanwhile by another thread is superseded. A transaction dropped by
+     * coalescing only takes its sequence and outcome, a dropped price change is recorded in the price history of its
+     * flight without changing its price.
+     * @param priceBatch price updates, cleared once applied.
+     * @return number of repriced flights.
+     */
+    public int applyPriceBatch(final PriceBatch priceBatch) {
+        if (priceBatch.isEmpty()) {
+            return 0;
+        }
+        //Return seats of expired holds before they can be booked again.
+        expireHolds();
+        int size = priceBatch.size();
+        long[] sequences = new long[size];
+        TransactionStatusEnum[] statuses = new TransactionStatusEnum[size];
+        Map<OriginDestinationPair, Map<Flight, List<Integer>>> routeUpdatesMap = new HashMap<>();
+        //Sequences are reserved before the routes are locked, so a change of another thread may come in between.
+        long firstSequence = transactionSequence.getAndAdd(size);
+        for (int i = 0; i < size; i++) {
+            sequences[i] = firstSequence + i + 1;
+            TransactionTypeEnum coalescedType = priceBatch.getCoalescedType(i);
+            if (coalescedType != null && coalescedType != TransactionTypeEnum.CHANGE_PRICE) {
+                statuses[i] = TransactionStatusEnum.SUPERSEDED;
+                continue;
+            }
+            Flight flight = flightNumberToFlightMap.get(priceBatch.getFlightNumber(i));
+            if (flight == null) {
+                statuses[i] = TransactionStatusEnum.UNKNOWN_FLIGHT;
+                continue;
+            }
+            if (coalescedType == null) {
+                recordFlightTraffic(TransactionTypeEnum.CHANGE_PRICE, flight.getFlightNumber());
+            }
+            OriginDestinationPair originDestinationPair = getOriginDestinationPair(flight);
+            Map<Flight, List<Integer>> flightUpdatesMap = routeUpdatesMap.get(originDestinationPair);
+            if (flightUpdatesMap == null) {
+                flightUpdatesMap = new LinkedHashMap<>();
+                routeUpdatesMap.put(originDestinationPair, flightUpdatesMap);
+            }
+            List<Integer> updates = flightUpdatesMap.get(flight);
+            if (updates == null) {
+                updates = new ArrayList<>(1);
+                flightUpdatesMap.put(flight, updates);
+            }
+            updates.add(i);
+        }
+        int repriced = 0;
+        EngineTracer tracer = engineTracer;
+        for (Map.Entry<OriginDestinationPair, Map<Flight, List<Integer>>> entry : routeUpdatesMap.entrySet()) {
+            TreeSet<Flight> flights = flightsMap.get(entry.getKey());
+            List<Flight> changed = new ArrayList<>(entry.getValue().size());
+            List<Flight> recorded = new ArrayList<>();
+            long traceStart;
+            boolean rebuild;
+            int routeSize;
+            synchronized (flights) {
+                traceStart = tracer == null ? 0 : tracer.begin(TraceEventTypeEnum.REPRICE_REORDER);
+                for (Map.Entry<Flight, List<Integer>> flightUpdates : entry.getValue().entrySet()) {
+                    if (!isActive(flightUpdates.getKey())) {
+                        for (int index : flightUpdates.getValue()) {
+                            statuses[index] = TransactionStatusEnum.UNKNOWN_FLIGHT;
+                        }
+                    } else if (hasPriceUpdate(priceBatch, flightUpdates.getValue())) {
+                        changed.add(flightUpdates.getKey());
+                    } else {
+                        //Only dropped price changes, the price and the flight order stay.
+                        recorded.add(flightUpdates.getKey());
+                    }
+                }
+                rebuild = changed.size() * 4 >= flights.size();
+                //Flights leave the TreeSet before their price, which orders it, changes.
+                List<Flight> routeFlights = null;
+                if (rebuild) {
+                    routeFlights = new ArrayList<>(flights);
+                    flights.clear();
+                } else {
+                    for (Flight flight : changed) {
+                        flights.remove(flight);
+                    }
+                }
+                long timeMillis = clock.millis();
+                for (Flight flight : changed) {
+                    applyPriceUpdates(flight, entry.getValue().get(flight), priceBatch, sequences, statuses,
+                            timeMillis);
+                }
+                for (Flight flight : recorded) {
+                    applyPriceUpdates(flight, entry.getValue().get(flight), priceBatch, sequences, statuses,
+                            timeMillis);
+                }
+                if (rebuild) {
+                    routeFlights.sort(flights.comparator());
+                    flights.addAll(new SortedListSet<>(routeFlights, flights.comparator()));
+                } else {
+                    flights.addAll(changed);
+                }
+                repriced += changed.size();
+                routeSize = flights.size();
+            }
+            if (traceStart != 0) {
+                tracer.end(TraceEventTypeEnum.REPRICE_REORDER, traceStart, rebuild ? "RebuildRoute" : "ReorderFlights",
+                        entry.getKey().getOriginCode(), entry.getKey().getDestinationCode(), null, routeSize, -1,
+                        changed.size());
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            TransactionTypeEnum coalescedType = priceBatch.getCoalescedType(i);
+            TransactionOutcome outcome = beginOutcome(sequences[i],
+                    coalescedType == null ? TransactionTypeEnum.CHANGE_PRICE : coalescedType);
+            outcome.set(statuses[i], priceBatch.getFlightNumber(i), -1,
+                    statuses[i] == TransactionStatusEnum.PRICE_SUPERSEDED ? -1 : priceBatch.getPrice(i));
+            endOutcome(outcome);
+        }
+        priceBatch.clear();
+        return repriced;
+    }
+
+    /**
+     * Check if updates of a price batch hold a price update, not only dropped price changes.
+     * @param priceBatch price batch.
+     * @param indices indices of the updates in the batch.
+     * @return true if one of the updates changes the price.
+     */
+    private static boolean hasPriceUpdate(final PriceBatch priceBatch, final List<Integer> indices) {
+        for (int index : indices) {
+            if (priceBatch.getCoalescedType(index) == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Apply the updates of a flight of a price batch in batch order, a dropped price change is only recorded in
+     * the price history. The caller holds the lock of the route, with the flight out of the route if its price
+     * changes.
+     * @param flight active flight.
+     * @param indices indices of the updates of the flight in the batch.
+     * @param priceBatch price batch.
+     * @param sequences transaction sequence of each update.
+     * @param statuses status of each update, set for the updates of the flight.
+     * @param timeMillis time of the updates in milliseconds.
+     */
+    private static void applyPriceUpdates(final Flight flight, final List<Integer> indices,
+            final PriceBatch priceBatch, final long[] sequences, final TransactionStatusEnum[] statuses,
+            final long timeMillis) {
+        for (int index : indices) {
+            PriceHistory priceHistory = flight.getPriceHistory();
+            if (priceHistory != null && sequences[index] <= priceHistory.getLastSequence()) {
+                statuses[index] = TransactionStatusEnum.PRICE_SUPERSEDED;
+            } else if (priceBatch.getCoalescedType(index) != null) {
+                flight.recordSupersededPrice(priceBatch.getPrice(index), sequences[index], timeMillis);
+                statuses[index] = TransactionStatusEnum.PRICE_SUPERSEDED;
+            } else {
+                flight.changePrice(priceBatch.getPrice(index), sequences[index], timeMillis);
+                statuses[index] = TransactionStatusEnum.PRICE_CHANGED;
+            }
+        }
+    }
+
+    /**
+     * Process BookPassenger Transaction.
+     * If all flights are full, the passenger joins the waitlist at the lowest fare of the route.
+     * An optional fifth field books on a departure date, for example BookPassenger,Alice,LAS,LAX,2026-10-20.
+     * @param transactionInfoArr String[] transaction information.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processBookPassenger(final String[] transactionInfoArr) {
+        if (transactionInfoArr.length > 4) {
+            return processBookPassenger(new Passenger(transactionInfoArr[1]),
+                    getOriginDestinationPair(transactionInfoArr), LocalDate.parse(transactionInfoArr[4]));
+        }
+        processBookPassenger(new Passenger(transactionInfoArr[1]), getOriginDestinationPair(transactionInfoArr));
+        return outcomes.get().getStatus();
+    }
+
+    /**
+     * Process BookPassenger Transaction.
+     * On a route in flat combining mode, the booking is applied by the route's combiner.
+     * @param passenger passenger.
+     * @param originDestinationPair route.
+     * @return new reservation, or null if the passenger was waitlisted or already booked.
+     */
+    ReservationItem processBookPassenger(final Passenger passenger,
+            final OriginDestinationPair originDestinationPair) {
+        TransactionOutcome outcome = beginOutcome(transactionSequence.incrementAndGet(),
+                TransactionTypeEnum.BOOK_PASSENGER);
+        recordTraffic(TransactionTypeEnum.BOOK_PASSENGER, originDestinationPair, passenger);
+        ReservationItem booked;
+        RouteCombiner routeCombiner = routeCombinerMap.get(originDestinationPair);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (routeCombiner != null) {
+            booked = routeCombiner.submit(TransactionTypeEnum.BOOK_PASSENGER, passenger, outcome);
+        } else if (flights == null) {
+            outcome.set(TransactionStatusEnum.UNKNOWN_ROUTE, null, -1, -1);
+            booked = null;
+        } else {
+            synchronized (flights) {
+                booked = bookPassenger(passenger, originDestinationPair, flights, outcome);
+            }
+        }
+        endOutcome(outcome);
+        return booked;
+    }
+
+    /**
+     * Switch a route to flat combining mode.
+     * Concurrent bookings and cancels of the route are then posted to a {@link RouteCombiner}, which applies
+     * them in batches under one acquisition of the route lock. Meant for the few hot routes of a flash sale.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @return false if the route does not exist.
+     */
+    public boolean enableFlatCombining(final String originCode, final String destinationCode) {
+        final OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
+        final TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            return false;
+        }
+        routeCombinerMap.putIfAbsent(originDestinationPair, new RouteCombiner(flights) {
+            @Override
+            protected ReservationItem apply(final TransactionTypeEnum type, final Passenger passenger,
+                    final TransactionOutcome outcome) {
+                if (type == TransactionTypeEnum.BOOK_PASSENGER) {
+                    return bookPassenger(passenger, originDestinationPair, flights, outcome);
+                }
+                return cancelPassenger(passenger, originDestinationPair, flights, outcome);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Get flat combiner of a route.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @return route combiner, or null if the route is not in flat combining mode.
+     */
+    public RouteCombiner getRouteCombiner(final String originCode, final String destinationCode) {
+        return routeCombinerMap.get(new OriginDestinationPair(originCode, destinationCode));
+    }
+
+    /**
+     * Process BookPassenger Transaction on a departure date.
+     * The passenger is booked on the cheapest available flight of the route departing that day. Nothing is
+     * booked if there is none, the waitlist is kept per route.
+     * @param passenger passenger.
+     * @param originDestinationPair route.
+     * @param date departure date.
+     * @return transaction status.
+     */
+    TransactionStatusEnum processBookPassenger(final Passenger passenger,
+            final OriginDestinationPair originDestinationPair, final LocalDate date) {
+        TransactionOutcome outcome = beginOutcome(transactionSequence.incrementAndGet(),
+                TransactionTypeEnum.BOOK_PASSENGER);
+        outcome.set(TransactionStatusEnum.UNKNOWN_ROUTE, null, -1, -1);
+        recordTraffic(TransactionTypeEnum.BOOK_PASSENGER, originDestinationPair, passenger);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            return endOutcome(outcome);
+        }
+        synchronized (flights) {
+            Flight flight = getCheapestFlight(originDestinationPair, date, date);
+            ReservationItem reservation = flight == null ? null : flight.getReservationByPassenger(passenger);
+            if (flight == null) {
+                outcome.set(TransactionStatusEnum.NO_FLIGHT_ON_DATE, null, -1, -1);
+            } else if (reservation != null) {
+                outcome.set(TransactionStatusEnum.ALREADY_BOOKED, flight.getFlightNumber(),
+                        reservation.getSeatNumber(), reservation.getPrice());
+            } else {
+                reservation = newReservationItem(passenger, flight);
+                flight.bookPassenger(reservation);
+                recordFlightTraffic(TransactionTypeEnum.BOOK_PASSENGER, flight.getFlightNumber());
+                outcome.set(TransactionStatusEnum.BOOKED, flight.getFlightNumber(), reservation.getSeatNumber(),
+                        reservation.getPrice());
+            }
+        }
+        return endOutcome(outcome);
+    }
+
+    /**
+     * Get number of available seats of a flight, without taking the route lock.
+     * @param flightNumber flight number.
+     * @return available seats, or -1 if the flight does not exist.
+     */
+    public int getAvailableSeats(final String flightNumber) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        return flight == null ? -1 : flight.getAvailableSeats();
+    }
+
+    /**
+     * Get current price per seat of a flight, without taking the route lock.
+     * @param flightNumber flight number.
+     * @return price per seat, or -1 if the flight does not exist.
+     */
+    public int getPricePerSeat(final String flightNumber) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        return flight == null ? -1 : flight.getPricePerSeat();
+    }
+
+    /**
+     * Get the cheapest fare a seat of a route can be booked at, without taking the route lock.
+     * Each flight is read optimistically, so bookings and price changes going on are never blocked.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @return cheapest open fare, or -1 if the route does not exist or is sold out.
+     */
+    public int getCheapestFare(final String originCode, final String destinationCode) {
+        Flight[] flights = getRouteFlightsSnapshot(new OriginDestinationPair(originCode, destinationCode));
+        int cheapestFare = -1;
+        if (flights == null) {
+            return cheapestFare;
+        }
+        for (Flight flight : flights) {
+            int fare = flight.getCheapestOpenFare();
+            if (fare >= 0 && (cheapestFare < 0 || fare < cheapestFare)) {
+                cheapestFare = fare;
+            }
+        }
+        return cheapestFare;
+    }
+
+    /**
+     * Get the flights snapshot of a route, republished under the route lock if a change dropped it.
+     * @param originDestinationPair route.
+     * @return flights of the route, or null if the route does not exist.
+     */
+    private Flight[] getRouteFlightsSnapshot(final OriginDestinationPair originDestinationPair) {
+        Flight[] snapshot = routeFlightsSnapshot.get(originDestinationPair);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            return null;
+        }
+        synchronized (flights) {
+            snapshot = flights.toArray(new Flight[flights.size()]);
+            routeFlightsSnapshot.put(originDestinationPair, snapshot);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Check if all flights of a route are sold out, without taking the route lock.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @return true if no seat of the route can be booked.
+     */
+    public boolean isSoldOut(final String originCode, final String destinationCode) {
+        return getCheapestFare(originCode, destinationCode) < 0;
+    }
+
+    /**
+     * Get the cheapest available flight of a route departing on a date.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @param date departure date.
+     * @return cheapest available flight, or null if none.
+     */
+    public Flight getCheapestFlight(final String originCode, final String destinationCode, final LocalDate date) {
+        return getCheapestFlight(originCode, destinationCode, date, date);
+    }
+
+    /**
+     * Get the cheapest available flight of a route departing in a range of dates.
+     * Days before today are archived first, so they are never returned.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @param from first departure date.
+     * @param to last departure date, inclusive.
+     * @return cheapest available flight, or null if none.
+     */
+    public Flight getCheapestFlight(final String originCode, final String destinationCode, final LocalDate from,
+            final LocalDate to) {
+        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            return null;
+        }
+        synchronized (flights) {
+            return getCheapestFlight(originDestinationPair, from, to);
+        }
+    }
+
+    /**
+     * Get the cheapest available flight of a route departing in a range of dates.
+     * The caller holds the lock of the route.
+     * @param originDestinationPair route.
+     * @param from first departure date.
+     * @param to last departure date, inclusive.
+     * @return cheapest available flight, or null if none.
+     */
+    private Flight getCheapestFlight(final OriginDestinationPair originDestinationPair, final LocalDate from,
+            final LocalDate to) {
+        ScheduleIndex scheduleIndex = scheduleIndexMap.get(originDestinationPair);
+        if (scheduleIndex == null) {
+            return null;
+        }
+        scheduleIndex.archiveBefore(LocalDate.now(clock));
+        return scheduleIndex.getCheapestFlight(from, to);
+    }
+
+    /**
+     * Book a passenger on the cheapest available flight of a route.
+     * The caller holds the lock of the route.
+     * @param passenger passenger.
+     * @param originDestinationPair route.
+     * @param flights flights of the route.
+     * @param outcome outcome filled with the result.
+     * @return new reservation, or null if the passenger was waitlisted or already booked.
+     */
+    private ReservationItem bookPassenger(final Passenger passenger,
+            final OriginDestinationPair originDestinationPair, final TreeSet<Flight> flights,
+            final TransactionOutcome outcome) {
+        if (flights.isEmpty()) {
+            outcome.set(TransactionStatusEnum.UNKNOWN_ROUTE, null, -1, -1);
+            return null;
+        }
+        FareIndex fareIndex = fareIndexMap.get(originDestinationPair);
+        Flight flight = fareIndex == null ? getCheapestAvailableFlight(flights, outcome)
+                : fareIndex.getCheapestFlight();
+        if (flight == null) {
+            int fare = flights.first().getPricePerSeat();
+            joinWaitlist(passenger, originDestinationPair, fare);
+            outcome.set(TransactionStatusEnum.WAITLISTED, null, -1, fare);
+            return null;
+        }
+        //A passenger can only book a same flight once, do not take a seat for a repeated booking.
+        ReservationItem reservation = flight.getReservationByPassenger(passenger);
+        if (reservation != null) {
+            outcome.set(TransactionStatusEnum.ALREADY_BOOKED, flight.getFlightNumber(), reservation.getSeatNumber(),
+                    reservation.getPrice());
+            return null;
+        }
+        ReservationItem reservationItem = newReservationItem(passenger, flight);
+        flight.bookPassenger(reservationItem);
+        recordFlightTraffic(TransactionTypeEnum.BOOK_PASSENGER, flight.getFlightNumber());
+        outcome.set(TransactionStatusEnum.BOOKED, flight.getFlightNumber(), reservationItem.getSeatNumber(),
+                reservationItem.getPrice());
+        return reservationItem;
+    }
+
+    /**
+     * Create the reservation of a passenger on a random seat of a flight, at the cheapest open fare.
+     * @param passenger passenger.
+     * @param flight flight with an available seat.
+     * @return reservation item, in the cheapest open fare bucket if the flight has fare buckets.
+     */
+    private ReservationItem newReservationItem(final Passenger passenger, final Flight flight) {
+        return newReservationItem(passenger, flight, flight.generateRandomSeatNumber());
+    }
+
+    /**
+     * Create the reservation of a passenger on a seat taken out of the seat pool, at the cheapest open fare.
+     * @param passenger passenger.
+     * @param flight flight with a sellable seat.
+     * @param seatNumber seat number.
+     * @return reservation item, in the cheapest open fare bucket if the flight has fare buckets.
+     */
+    private ReservationItem newReservationItem(final Passenger passenger, final Flight flight, final int seatNumber) {
+        FareBucket fareBucket = flight.getCheapestOpenFareBucket();
+        if (fareBucket == null) {
+            return new ReservationItem(passenger, flight.getPricePerSeat(), seatNumber);
+        }
+        return new ReservationItem(passenger, fareBucket.getFare(), seatNumber, fareBucket.getFareClass());
+    }
+
+    /**
+     * Count the route and passenger of a transaction in the heavy hitter tracker, if tracking is on.
+     * @param type transaction type.
+     * @param originDestinationPair route.
+     * @param passenger passenger.
+     */
+    private void recordTraffic(final TransactionTypeEnum type, final OriginDestinationPair originDestinationPair,
+            final Passenger passenger) {
+        HeavyHitterTracker tracker = heavyHitterTracker;
+        if (tracker != null) {
+            tracker.recordRoute(type, originDestinationPair);
+            tracker.recordPassenger(type, passenger);
+        }
+    }
+
+    /**
+     * Count the flight of a transaction in the heavy hitter tracker, if tracking is on.
+     * @param type transaction type.
+     * @param flightNumber flight number.
+     */
+    private void recordFlightTraffic(final TransactionTypeEnum type, final String flightNumber) {
+        HeavyHitterTracker tracker = heavyHitterTracker;
+        if (tracker != null) {
+            tracker.recordFlight(type, flightNumber);
+        }
+    }
+
+    /**
+     * Start the outcome of a transaction, in the outcome reused by the current thread.
+     * @param sequence transaction sequence.
+     * @param type transaction type, null if unknown.
+     * @return outcome of the current thread.
+     */
+    private TransactionOutcome beginOutcome(final long sequence, final TransactionTypeEnum type) {
+        TransactionOutcome outcome = outcomes.get();
+        outcome.begin(sequence, type);
+        return outcome;
+    }
+
+    /**
+     * End the outcome of a transaction, logging it if logging is on. Called without any route lock.
+     * @param outcome outcome of the current thread.
+     * @return transaction status.
+     */
+    private TransactionStatusEnum endOutcome(final TransactionOutcome outcome) {
+        OutcomeLog log = outcomeLog;
+        if (log != null) {
+            log.append(outcome);
+        }
+        return outcome.getStatus();
+    }
+
+    /**
+     * Add a passenger to the waitlist of a route.
+     * The caller holds the lock of the route.
+     * @param passenger passenger.
+     * @param originDestinationPair route.
+     * @param fare fare the passenger pays.
+     * @return entry of the passenger in the waitlist.
+     */
+    private WaitlistEntry joinWaitlist(final Passenger passenger, final OriginDestinationPair originDestinationPair,
+            final int fare) {
+        return addWaitlistEntry(originDestinationPair,
+                new WaitlistEntry(passenger, fare, waitlistSequence.getAndIncrement()));
+    }
+
+    /**
+     * Add an entry to the waitlist of a route, creating the waitlist if the route has none.
+     * The caller holds the lock of the route.
+     * @param originDestinationPair route.
+     * @param entry waitlist entry.
+     * @return entry of the passenger in the waitlist, the existing one if the passenger was already waiting.
+     */
+    private WaitlistEntry addWaitlistEntry(final OriginDestinationPair originDestinationPair,
+            final WaitlistEntry entry) {
+        Waitlist waitlist = waitlistMap.get(originDestinationPair);
+        if (waitlist == null) {
+            Waitlist newWaitlist = new Waitlist();
+            waitlist = waitlistMap.putIfAbsent(originDestinationPair, newWaitlist);
+            if (waitlist == null) {
+                waitlist = newWaitlist;
+            }
+        }
+        WaitlistEntry joined = waitlist.add(entry);
+        if (joined != entry) {
+            return joined;
+        }
+        //Seats taken before joining, later ones are told by the reservation dispatcher.
+        for (Flight flight : flightsMap.get(originDestinationPair)) {
+            if (flight.getReservationByPassenger(entry.getPassenger()) != null) {
+                waitlist.seatTaken(flight, entry.getPassenger());
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Add a passenger to the waitlist of a route.
+     * Passengers paying a higher fare are promoted first, then passengers who joined earlier.
+     * @param passengerName passenger name.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @param fare fare the passenger pays.
+     * @return 1 based position in the waitlist, or -1 if the route does not exist.
+     */
+    public int joinWaitlist(final String passengerName, final String originCode, final String destinationCode,
+            final int fare) {
+        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            return -1;
+        }
+        Passenger passenger = new Passenger(passengerName);
+        synchronized (flights) {
+            joinWaitlist(passenger, originDestinationPair, fare);
+            return waitlistMap.get(originDestinationPair).getPosition(passenger);
+        }
+    }
+
+    /**
+     * Get position of a passenger in the waitlist of a route.
+     * @param passengerName passenger name.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @return 1 based position in the waitlist, or -1 if the passenger is not waiting.
+     */
+    public int getWaitlistPosition(final String passengerName, final String originCode,
+            final String destinationCode) {
+        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        Waitlist waitlist = waitlistMap.get(originDestinationPair);
+        if (flights == null || waitlist == null) {
+            return -1;
+        }
+        synchronized (flights) {
+            return waitlist.getPosition(new Passenger(passengerName));
+        }
+    }
+
+    /**
+     * Remove a passenger from the waitlist of a route.
+     * @param passengerName passenger name.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @return true if the passenger was waiting.
+     */
+    public boolean leaveWaitlist(final String passengerName, final String originCode,
+            final String destinationCode) {
+        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        Waitlist waitlist = waitlistMap.get(originDestinationPair);
+        if (flights == null || waitlist == null) {
+            return false;
+        }
+        synchronized (flights) {
+            return waitlist.remove(new Passenger(passengerName));
+        }
+    }
+
+    /**
+     * Get the cheapest flight which is not full.
+     * @param flights flights with the same origin and destination.
+     * @param outcome outcome counting the scanned flights, null if not counted.
+     * @return cheapest available flight, or null if all flights are full.
+     */
+    private Flight getCheapestAvailableFlight(final TreeSet<Flight> flights, final TransactionOutcome outcome) {
+        Iterator<Flight> iterator = flights.iterator();
+        int scanned = 0;
+        Flight available = null;
+        while (available == null && iterator.hasNext()) {
+            Flight flight = iterator.next();
+            scanned++;
+            if (!flight.isFull()) {
+                available = flight;
+            }
+        }
+        if (outcome != null) {
+            outcome.setFlightsScanned(scanned);
+        }
+        return available;
+    }
+
+    /**
+     * Install a seat map on a flight, so parties can be seated together.
+     * @param flightNumber flight number.
+     * @param layout seat map layout.
+     * @return false if the flight does not exist.
+     */
+    public boolean installSeatMap(final String flightNumber, final SeatMap.SeatMapBuilder layout) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return false;
+        }
+        synchronized (flightsMap.get(getOriginDestinationPair(flight))) {
+            flight.installSeatMap(layout);
+        }
+        return true;
+    }
+
+    /**
+     * Install fare buckets on a flight, replacing its current ones.
+     * The first time a flight of a route gets fare buckets, the route gets a fare index and its bookings are
+     * sold at the cheapest open fare of the route from then on.
+     * @param flightNumber flight number.
+     * @param buckets fare buckets, highest class first.
+     * @return false if the flight does not exist.
+     */
+    public boolean installFareBuckets(final String flightNumber, final List<FareBucket> buckets) {
+        Flight flight = flightNumberToFlightMap.get(flightNumber);
+        if (flight == null) {
+            return false;
+        }
+        OriginDestinationPair originDestinationPair = getOriginDestinationPair(flight);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        synchronized (flights) {
+            if (!isActive(flight)) {
+                return false;
+            }
+            flight.installFareBuckets(buckets);
+            if (!fareIndexMap.containsKey(originDestinationPair)) {
+                FareIndex fareIndex = new FareIndex();
+                for (Flight routeFlight : flights) {
+                    fareIndex.add(routeFlight);
+                }
+                fareIndexMap.put(originDestinationPair, fareIndex);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Book a party on the cheapest flight of a route where they can sit together.
+     * The party is booked on the cheapest flight with a block of adjacent free seats in a row of the zone.
+     * If no flight has such a block, the party is booked on the cheapest flight with enough available seats,
+     * on seats picked at random. Flights on which one of the passengers already booked are skipped.
+     * On a flight with fare buckets, the flight must have enough seats left within the booking limits, and each
+     * seat is sold in the cheapest open bucket, like a single booking. A party with a repeated name is rejected.
+     * @param passengerNames passenger names.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @param zone cabin zone of the block, null for any zone.
+     * @return reservation items in the order of the names, or null if no flight can take the whole party.
+     */
+    public List<ReservationItem> bookParty(final List<String> passengerNames, final String originCode,
+            final String destinationCode, final CabinZoneEnum zone) {
+        expireHolds();
+        TreeSet<Flight> flights = flightsMap.get(new OriginDestinationPair(originCode, destinationCode));
+        int size = passengerNames.size();
+        if (flights == null || size == 0) {
+            return null;
+        }
+        List<Passenger> passengers = new ArrayList<>(size);
+        for (String passengerName : passengerNames) {
+            passengers.add(new Passenger(passengerName));
+        }
+        //A passenger can only book a same flight once.
+        if (new HashSet<>(passengers).size() != size) {
+            return null;
+        }
+        synchronized (flights) {
+            Flight fallback = null;
+            for (Flight flight : flights) {
+                if (flight.getSellableSeats() < size || isAnyBooked(flight, passengers)) {
+                    continue;
+                }
+                int[] block = flight.takeAdjacentSeats(size, zone);
+                if (block != null) {
+                    return bookParty(flight, passengers, block);
+                }
+                if (fallback == null) {
+                    fallback = flight;
+                }
+            }
+            if (fallback == null) {
+                return null;
+            }
+            int[] seats = new int[size];
+            for (int i = 0; i < size; i++) {
+                seats[i] = fallback.generateRandomSeatNumber();
+            }
+            return bookParty(fallback, passengers, seats);
+        }
+    }
+
+    /**
+     * Book a party on taken seats of a flight, each at the cheapest open fare when it is booked.
+     * @param flight flight.
+     * @param passengers passengers.
+     * @param seats seat number of each passenger, already out of the seat pool.
+     * @return reservation items.
+     */
+    private List<ReservationItem> bookParty(final Flight flight, final List<Passenger> passengers,
+            final int[] seats) {
+        List<ReservationItem> items = new ArrayList<>(seats.length);
+        for (int i = 0; i < seats.length; i++) {
+            ReservationItem item = newReservationItem(passengers.get(i), flight, seats[i]);
+            flight.bookPassenger(item);
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Check if one of the passengers booked a flight.
+     * @param flight flight.
+     * @param passengers passengers.
+     * @return true if at least one passenger booked the flight.
+     */
+    private boolean isAnyBooked(final Flight flight, final List<Passenger> passengers) {
+        for (Passenger passenger : passengers) {
+            if (flight.getReservationByPassenger(passenger) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Hold a seat on the cheapest available flight for a passenger.
+     * The hold takes the seat out of the flight's seat pool until it is confirmed, released or expired. On a
+     * route with fare buckets, the seat is held in the cheapest open bucket of the route.
+     * @param passengerName passenger name.
+     * @param originCode origin code.
+     * @param destinationCode destination code.
+     * @param ttlMillis time to live of the hold in milliseconds.
+     * @return seat hold, or null if there is no available flight or the passenger already booked it.
+     */
+    public SeatHold holdSeat(final String passengerName, final String originCode, final String destinationCode,
+            final long ttlMillis) {
+        expireHolds();
+        Passenger passenger = new Passenger(passengerName);
+        OriginDestinationPair originDestinationPair = new OriginDestinationPair(originCode, destinationCode);
+        TreeSet<Flight> flights = flightsMap.get(originDestinationPair);
+        if (flights == null) {
+            return null;
+        }
+        synchronized (flights) {
+            FareIndex fareIndex = fareIndexMap.get(originDestinationPair);
+            Flight flight = fareIndex == null ? getCheapestAvailableFlight(flights, null)
+                    : fareIndex.getCheapestFlight();
+            if (flight == null || flight.getReservationByPassenger(passenger) != null) {
+                return null;
+            }
+            return seatHoldManager.hold(flight, passenger, ttlMillis);
+        }
+    }
+
+    /**
+     * Confirm a seat hold and book the passenger at the held price, in the fare class of the hold.
+     * @param holdId hold id.
+     * @return reservation item, or null if the hold does not exist or has expired, the flight was retired,
+     *         or the passenger already booked the flight.
+     */
+    public ReservationItem confirmHold(final long holdId) {
+        expireHolds();
+        SeatHold hold = seatHoldManager.take(holdId);
+        if (hold == null) {
+            return null;
+        }
+        Flight flight = hold.getFlight();
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        synchronized (flights) {
+            if (!isActive(flight)) {
+                return null;
+            }
+            FareBucket fareBucket = hold.getFareBucket();
+            ReservationItem item = new ReservationItem(hold.getPassenger(), hold.getPrice(), hold.getSeatNumber(),
+                    fareBucket == null ? null : fareBucket.getFareClass());
+            if (flight.confirmHold(item, fareBucket)) {
+                return item;
+            }
+            promoteWaitlist(flight);
+            return null;
+        }
+    }
+
+    /**
+     * Release a seat hold and return the seat to the flight.
+     * @param holdId hold id.
+     * @return true if the hold existed.
+     */
+    public boolean releaseHold(final long holdId) {
+        SeatHold hold = seatHoldManager.take(holdId);
+        if (hold == null) {
+            return false;
+        }
+        releaseHeldSeat(hold);
+        return true;
+    }
+
+    /**
+     * Return the seats of expired holds to their flights.
+     */
+    void expireHolds() {
+        for (SeatHold hold : seatHoldManager.expireHolds()) {
+            releaseHeldSeat(hold);
+        }
+    }
+
+    /**
+     * Return a held seat to its flight and promote the waitlist of the route onto it.
+     * @param hold seat hold taken out of the seat hold manager.
+     */
+    private void releaseHeldSeat(final SeatHold hold) {
+        Flight flight = hold.getFlight();
+        TreeSet<Flight> flights = flightsMap.get(getOriginDestinationPair(flight));
+        synchronized (flights) {
+            if (!isActive(flight)) {
+                return;
+            }
+            flight.releaseHold(hold.getSeatNumber(), hold.getFareBucket());
+            promoteWaitlist(flight);
+        }
+    }
 }
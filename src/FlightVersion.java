@@ -0,0 +1,222 @@
+import java.util.Collection;
+
+/**
+ * Immutable version of the reservation state of a flight: number of seats, price per seat, held seats and
+ * reservations, as of a version of the {@link SnapshotRegistry} clock.
+ *
+ * <p>Each change of a flight publishes a new version linked to the previous one. The reservations are a
+ * {@link PersistentHashMap}, so a version shares all reservations it did not change with its previous
+ * version. The versions an open reader may need stay linked, older ones are unlinked by the next change and
+ * reclaimed once no snapshot holds them.</p>
+ */
+public class FlightVersion {
+    /**
+     * Flight, for its fixed information.
+     */
+    private final Flight flight;
+
+    /**
+     * Version of the change that published this version, 0 for the state before the first change.
+     */
+    private final long version;
+
+    /**
+     * Number of seats.
+     */
+    private final int numberOfSeats;
+
+    /**
+     * Price per seat.
+     */
+    private final int pricePerSeat;
+
+    /**
+     * Number of held seats.
+     */
+    private final int heldSeats;
+
+    /**
+     * Reservations by passenger.
+     */
+    private final PersistentHashMap<Passenger, ReservationItem> reservations;
+
+    /**
+     * Previous version, null if no open reader may need it.
+     */
+    private volatile FlightVersion previous;
+
+    /**
+     * Constructor.
+     * @param flight flight.
+     * @param version version of the change.
+     * @param numberOfSeats number of seats.
+     * @param pricePerSeat price per seat.
+     * @param heldSeats number of held seats.
+     * @param reservations reservations by passenger.
+     * @param previous previous version, null if none.
+     */
+    FlightVersion(final Flight flight, final long version, final int numberOfSeats, final int pricePerSeat,
+            final int heldSeats, final PersistentHashMap<Passenger, ReservationItem> reservations,
+            final FlightVersion previous) {
+        this.flight = flight;
+        this.version = version;
+        this.numberOfSeats = numberOfSeats;
+        this.pricePerSeat = pricePerSeat;
+        this.heldSeats = heldSeats;
+        this.reservations = reservations;
+        this.previous = previous;
+    }
+
+    /**
+     * Get the newest version at or before a version, following the previous versions.
+     * @param snapshotVersion version of the reader.
+     * @return flight version, the oldest one kept if all are newer.
+     */
+    FlightVersion getVersionAt(final long snapshotVersion) {
+        FlightVersion flightVersion = this;
+        FlightVersion older = flightVersion.previous;
+        while (flightVersion.version > snapshotVersion && older != null) {
+            flightVersion = older;
+            older = flightVersion.previous;
+        }
+        return flightVersion;
+    }
+
+    /**
+     * Unlink the versions no open reader needs: a reader needs the newest version at or before its version.
+     * @param oldestOpenVersion oldest version of an open reader, Long.MAX_VALUE if none.
+     */
+    void trim(final long oldestOpenVersion) {
+        getVersionAt(oldestOpenVersion).previous = null;
+    }
+
+    /**
+     * Get flight.
+     * @return flight.
+     */
+    public Flight getFlight() {
+        return flight;
+    }
+
+    /**
+     * Get flight number.
+     * @return flight number.
+     */
+    public String getFlightNumber() {
+        return flight.getFlightNumber();
+    }
+
+    /**
+     * Get origin code.
+     * @return origin code.
+     */
+    public String getOriginCode() {
+        return flight.getOriginCode();
+    }
+
+    /**
+     * Get destination code.
+     * @return destination code.
+     */
+    public String getDestinationCode() {
+        return flight.getDestinationCode();
+    }
+
+    /**
+     * Get version.
+     * @return version of the change that published this version, 0 before the first change.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get number of seats.
+     * @return number of seats.
+     */
+    public int getNumberOfSeats() {
+        return numberOfSeats;
+    }
+
+    /**
+     * Get price per seat.
+     * @return price per seat.
+     */
+    public int getPricePerSeat() {
+        return pricePerSeat;
+    }
+
+    /**
+     * Get number of held seats.
+     * @return held seats.
+     */
+    public int getHeldSeats() {
+        return heldSeats;
+    }
+
+    /**
+     * Get number of available seats.
+     * @return available seats.
+     */
+    public int getAvailableSeats() {
+        return numberOfSeats - reservations.size() - heldSeats;
+    }
+
+    /**
+     * Get number of sold seats.
+     * @return sold seats.
+     */
+    public int getSoldSeats() {
+        return reservations.size();
+    }
+
+    /**
+     * Get reservation of a passenger.
+     * @param passenger passenger.
+     * @return reservation item, or null if the passenger has no reservation.
+     */
+    public ReservationItem getReservationByPassenger(final Passenger passenger) {
+        return reservations.get(passenger);
+    }
+
+    /**
+     * Get reservations.
+     * @return read only collection of the reservations.
+     */
+    public Collection<ReservationItem> getReservations() {
+        return reservations.values();
+    }
+
+    /**
+     * Summary of this version of the flight.
+     * @return flight summary.
+     */
+    public FlightSummary summaryFlight() {
+        StringBuffer summaryBuffer = new StringBuffer();
+        summaryBuffer.append("Flight# ")
+               .append(getFlightNumber())
+               .append(" Number of seats available: ")
+               .append(getAvailableSeats())
+               .append("\n")
+               .append("Total seats sold: ")
+               .append(reservations.size())
+               .append("\n");
+        StringBuffer passengerInfoBuffer = new StringBuffer();
+        String format = "%-50s %-10s %-10s";
+        passengerInfoBuffer.append(String.format(format, "Passenger Name", "Seat#", "Price"))
+                           .append("\n");
+        int totalAvenue = 0;
+        for (ReservationItem reservationItem : reservations.values()) {
+            passengerInfoBuffer.append(String.format(format, reservationItem.getPassenger().getName(),
+                                                             reservationItem.getSeatNumber(),
+                                                             "$" + reservationItem.getPrice()))
+                               .append("\n");
+            totalAvenue += reservationItem.getPrice();
+        }
+        summaryBuffer.append("Total revenue on this flight: $" + totalAvenue)
+                     .append("\n\n")
+                     .append(passengerInfoBuffer);
+        return new FlightSummary(getFlightNumber(), getAvailableSeats(), reservations.size(),
+                                totalAvenue, summaryBuffer.toString());
+    }
+}
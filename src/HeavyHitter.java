@@ -0,0 +1,38 @@
+/**
+ * Heavy hitter, a key counted by a {@link HeavyHitterHeap} with its estimated count.
+ */
+public class HeavyHitter {
+    /**
+     * Key, an OriginDestinationPair, a flight number or a Passenger.
+     */
+    private final Object key;
+
+    /**
+     * Estimated count, never below the real count.
+     */
+    private final long estimatedCount;
+
+    /**
+     * Constructor.
+     */
+    public HeavyHitter(final Object key, final long estimatedCount) {
+        this.key = key;
+        this.estimatedCount = estimatedCount;
+    }
+
+    /**
+     * Get key.
+     * @return key.
+     */
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * Get estimated count.
+     * @return estimated count.
+     */
+    public long getEstimatedCount() {
+        return estimatedCount;
+    }
+}
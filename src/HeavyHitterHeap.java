@@ -0,0 +1,240 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Top-K heavy hitters of a stream, counted by a {@link CountMinSketch}.
+ *
+ * <p>The K keys with the highest estimates are kept in a min-heap of preallocated arrays, with an open
+ * addressing index from key to heap position. A key seen again moves down the heap in place, and a new
+ * key replaces the heap minimum when its estimate is higher, so {@link #add(Object)} does not allocate.
+ * Keys are kept by reference, they should not change after being added.</p>
+ *
+ * <p>The heap is not thread safe.</p>
+ */
+public class HeavyHitterHeap {
+    /**
+     * Empty slot of the index.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * Sketch counting all keys.
+     */
+    private final CountMinSketch sketch;
+
+    /**
+     * Heap keys, the root holds the lowest estimate.
+     */
+    private final Object[] keys;
+
+    /**
+     * Heap estimates, indexed like keys.
+     */
+    private final long[] estimates;
+
+    /**
+     * Index slots, holding a heap position or EMPTY.
+     */
+    private final int[] index;
+
+    /**
+     * Mask of an index slot.
+     */
+    private final int indexMask;
+
+    /**
+     * Number of keys in the heap.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param k number of heavy hitters to keep.
+     * @param sketchWidth width of the count-min sketch.
+     */
+    public HeavyHitterHeap(final int k, final int sketchWidth) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("K should be positive.");
+        }
+        this.sketch = new CountMinSketch(sketchWidth);
+        this.keys = new Object[k];
+        this.estimates = new long[k];
+        int indexSize = 2;
+        while (indexSize < 2 * k) {
+            indexSize <<= 1;
+        }
+        this.index = new int[indexSize];
+        this.indexMask = indexSize - 1;
+        for (int i = 0; i < indexSize; i++) {
+            index[i] = EMPTY;
+        }
+    }
+
+    /**
+     * Count one occurrence of a key.
+     * @param key key, with consistent hashCode and equals.
+     * @return estimated count of the key.
+     */
+    public long add(final Object key) {
+        int hash = key.hashCode();
+        long estimate = sketch.add(hash, 1);
+        int slot = findSlot(key, hash);
+        if (index[slot] != EMPTY) {
+            int position = index[slot];
+            estimates[position] = estimate;
+            siftDown(position);
+        } else if (size < keys.length) {
+            int position = size++;
+            keys[position] = key;
+            estimates[position] = estimate;
+            index[slot] = position;
+            siftUp(position);
+        } else if (estimate > estimates[0]) {
+            removeFromIndex(keys[0]);
+            keys[0] = key;
+            estimates[0] = estimate;
+            index[findSlot(key, hash)] = 0;
+            siftDown(0);
+        }
+        return estimate;
+    }
+
+    /**
+     * Estimate the count of a key.
+     * @param key key.
+     * @return estimated count, never below the real count.
+     */
+    public long estimate(final Object key) {
+        return sketch.estimate(key.hashCode());
+    }
+
+    /**
+     * Get number of counted occurrences.
+     * @return total count.
+     */
+    public long getTotal() {
+        return sketch.getTotal();
+    }
+
+    /**
+     * Get the heavy hitters.
+     * @return heavy hitters, highest estimate first.
+     */
+    public List<HeavyHitter> getHeavyHitters() {
+        List<HeavyHitter> heavyHitters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            heavyHitters.add(new HeavyHitter(keys[i], estimates[i]));
+        }
+        Collections.sort(heavyHitters, new Comparator<HeavyHitter>() {
+            @Override
+            public int compare(final HeavyHitter a, final HeavyHitter b) {
+                return Long.compare(b.getEstimatedCount(), a.getEstimatedCount());
+            }
+        });
+        return heavyHitters;
+    }
+
+    /**
+     * Find the index slot of a key, or the empty slot where it would go.
+     * @param key key.
+     * @param hash hash code of the key.
+     * @return index slot.
+     */
+    private int findSlot(final Object key, final int hash) {
+        int slot = spread(hash) & indexMask;
+        while (index[slot] != EMPTY && !keys[index[slot]].equals(key)) {
+            slot = (slot + 1) & indexMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Remove a key from the index, shifting back the following slots of its probe run.
+     * @param key key in the index.
+     */
+    private void removeFromIndex(final Object key) {
+        int slot = findSlot(key, key.hashCode());
+        index[slot] = EMPTY;
+        int next = (slot + 1) & indexMask;
+        while (index[next] != EMPTY) {
+            int home = spread(keys[index[next]].hashCode()) & indexMask;
+            // Move the entry back if its home slot is not between the hole and its current slot.
+            if (((next - home) & indexMask) >= ((next - slot) & indexMask)) {
+                index[slot] = index[next];
+                index[next] = EMPTY;
+                slot = next;
+            }
+            next = (next + 1) & indexMask;
+        }
+    }
+
+    /**
+     * Spread the bits of a hash code.
+     * @param hash hash code.
+     * @return spread hash.
+     */
+    private static int spread(final int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Move a heap entry up while it is lower than its parent.
+     * @param position heap position.
+     */
+    private void siftUp(final int position) {
+        int child = position;
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (estimates[parent] <= estimates[child]) {
+                break;
+            }
+            swap(parent, child);
+            child = parent;
+        }
+    }
+
+    /**
+     * Move a heap entry down while it is higher than one of its children.
+     * @param position heap position.
+     */
+    private void siftDown(final int position) {
+        int parent = position;
+        while (true) {
+            int lowest = parent;
+            int left = 2 * parent + 1;
+            int right = left + 1;
+            if (left < size && estimates[left] < estimates[lowest]) {
+                lowest = left;
+            }
+            if (right < size && estimates[right] < estimates[lowest]) {
+                lowest = right;
+            }
+            if (lowest == parent) {
+                return;
+            }
+            swap(parent, lowest);
+            parent = lowest;
+        }
+    }
+
+    /**
+     * Swap two heap entries and update their index slots.
+     * @param i heap position.
+     * @param j heap position.
+     */
+    private void swap(final int i, final int j) {
+        int slotI = findSlot(keys[i], keys[i].hashCode());
+        int slotJ = findSlot(keys[j], keys[j].hashCode());
+        index[slotI] = j;
+        index[slotJ] = i;
+        Object key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        long estimate = estimates[i];
+        estimates[i] = estimates[j];
+        estimates[j] = estimate;
+    }
+}
@@ -0,0 +1,108 @@
+import java.util.List;
+
+/**
+ * Heavy hitter tracker of the transaction stream.
+ *
+ * <p>Keeps one {@link HeavyHitterHeap} per transaction type and {@link TrafficKeyTypeEnum}, so hot routes,
+ * flights and passengers can be read while transactions are applied, for example to decide where to place
+ * shards and caches. Memory is fixed when the tracker is created and recording does not allocate.</p>
+ *
+ * <p>All methods are thread safe.</p>
+ */
+public class HeavyHitterTracker {
+    /**
+     * Default number of heavy hitters per key type.
+     */
+    static final int DEFAULT_K = 20;
+
+    /**
+     * Default width of the count-min sketches.
+     */
+    static final int DEFAULT_SKETCH_WIDTH = 4096;
+
+    /**
+     * Heaps indexed by [transaction type][key type].
+     */
+    private final HeavyHitterHeap[][] heaps;
+
+    /**
+     * Constructor with default sizes.
+     */
+    public HeavyHitterTracker() {
+        this(DEFAULT_K, DEFAULT_SKETCH_WIDTH);
+    }
+
+    /**
+     * Constructor.
+     * @param k number of heavy hitters kept per transaction type and key type.
+     * @param sketchWidth width of the count-min sketches.
+     */
+    public HeavyHitterTracker(final int k, final int sketchWidth) {
+        heaps = new HeavyHitterHeap[TransactionTypeEnum.values().length][TrafficKeyTypeEnum.values().length];
+        for (int type = 0; type < heaps.length; type++) {
+            for (int keyType = 0; keyType < heaps[type].length; keyType++) {
+                heaps[type][keyType] = new HeavyHitterHeap(k, sketchWidth);
+            }
+        }
+    }
+
+    /**
+     * Count a route of a transaction.
+     * @param type transaction type.
+     * @param route origin destination pair.
+     */
+    public synchronized void recordRoute(final TransactionTypeEnum type, final OriginDestinationPair route) {
+        heaps[type.ordinal()][TrafficKeyTypeEnum.ROUTE.ordinal()].add(route);
+    }
+
+    /**
+     * Count a flight of a transaction.
+     * @param type transaction type.
+     * @param flightNumber flight number.
+     */
+    public synchronized void recordFlight(final TransactionTypeEnum type, final String flightNumber) {
+        heaps[type.ordinal()][TrafficKeyTypeEnum.FLIGHT.ordinal()].add(flightNumber);
+    }
+
+    /**
+     * Count a passenger of a transaction.
+     * @param type transaction type.
+     * @param passenger passenger.
+     */
+    public synchronized void recordPassenger(final TransactionTypeEnum type, final Passenger passenger) {
+        heaps[type.ordinal()][TrafficKeyTypeEnum.PASSENGER.ordinal()].add(passenger);
+    }
+
+    /**
+     * Get the heavy hitters of a transaction type and key type.
+     * @param type transaction type.
+     * @param keyType key type.
+     * @return heavy hitters, highest estimate first.
+     */
+    public synchronized List<HeavyHitter> getHeavyHitters(final TransactionTypeEnum type,
+            final TrafficKeyTypeEnum keyType) {
+        return heaps[type.ordinal()][keyType.ordinal()].getHeavyHitters();
+    }
+
+    /**
+     * Estimate the count of a key.
+     * @param type transaction type.
+     * @param keyType key type.
+     * @param key OriginDestinationPair, flight number or Passenger.
+     * @return estimated count, never below the real count.
+     */
+    public synchronized long estimate(final TransactionTypeEnum type, final TrafficKeyTypeEnum keyType,
+            final Object key) {
+        return heaps[type.ordinal()][keyType.ordinal()].estimate(key);
+    }
+
+    /**
+     * Get number of counted keys of a transaction type and key type.
+     * @param type transaction type.
+     * @param keyType key type.
+     * @return total count.
+     */
+    public synchronized long getTotal(final TransactionTypeEnum type, final TrafficKeyTypeEnum keyType) {
+        return heaps[type.ordinal()][keyType.ordinal()].getTotal();
+    }
+}
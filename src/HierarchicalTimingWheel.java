@@ -0,0 +1,348 @@
+/**
+ * Hierarchical timing wheel.
+ *
+ * <p>Timeouts are kept in intrusive doubly linked lists hanging off the wheel slots, so scheduling and
+ * cancelling a timeout is O(1) and does not allocate. The wheel is not backed by any thread, it is
+ * driven by calling {@link #advanceTo(long, ExpiryHandler)} with the current time.</p>
+ *
+ * <p>The wheel contains:</p>
+ * <ul>
+ * <li>{@value #LEVELS} levels of {@value #SLOTS} slots, level n slot covers 256^n ticks</li>
+ * <li>An overflow list for timeouts beyond the range of the top level</li>
+ * <li>A due list for timeouts scheduled in the past</li>
+ * </ul>
+ *
+ * <p>The wheel is not thread safe.</p>
+ *
+ * @param <T> type of the timeout entry.
+ */
+public class HierarchicalTimingWheel<T extends HierarchicalTimingWheel.Timeout> {
+    /**
+     * Bits per level.
+     */
+    private static final int BITS_PER_LEVEL = 8;
+
+    /**
+     * Slots per level.
+     */
+    static final int SLOTS = 1 << BITS_PER_LEVEL;
+
+    /**
+     * Mask of slot index.
+     */
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * Number of levels.
+     */
+    static final int LEVELS = 4;
+
+    /**
+     * Level index used by the due list.
+     */
+    private static final int DUE_LEVEL = -1;
+
+    /**
+     * Level index used by the overflow list.
+     */
+    private static final int OVERFLOW_LEVEL = LEVELS;
+
+    /**
+     * Duration of one tick in milliseconds.
+     */
+    private final long tickMillis;
+
+    /**
+     * Heads of the slot lists, indexed by [level][slot].
+     */
+    private final Timeout[][] slots;
+
+    /**
+     * Timeouts beyond the range of the top level.
+     */
+    private Timeout overflow;
+
+    /**
+     * Timeouts that were already due when scheduled.
+     */
+    private Timeout due;
+
+    /**
+     * Current tick.
+     */
+    private long currentTick;
+
+    /**
+     * Number of scheduled timeouts.
+     */
+    private int size;
+
+    /**
+     * Constructor.
+     * @param tickMillis duration of one tick in milliseconds.
+     * @param startMillis start time in milliseconds.
+     */
+    public HierarchicalTimingWheel(final long tickMillis, final long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick duration should be positive.");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new Timeout[LEVELS][SLOTS];
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedule a timeout.
+     * @param timeout timeout entry, must not be scheduled already.
+     * @param deadlineMillis deadline in milliseconds.
+     */
+    public void schedule(final T timeout, final long deadlineMillis) {
+        if (timeout.isScheduled()) {
+            throw new IllegalStateException("Timeout is already scheduled.");
+        }
+        Timeout entry = timeout;
+        // Round up, a timeout never fires before its deadline.
+        entry.deadlineTick = (deadlineMillis + tickMillis - 1) / tickMillis;
+        if (entry.deadlineTick <= currentTick) {
+            link(entry, DUE_LEVEL, 0);
+        } else {
+            place(entry);
+        }
+        size++;
+    }
+
+    /**
+     * Cancel a scheduled timeout.
+     * @param timeout timeout entry.
+     * @return true if the timeout was scheduled.
+     */
+    public boolean cancel(final T timeout) {
+        if (!timeout.isScheduled()) {
+            return false;
+        }
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advance the wheel to the given time and expire all timeouts whose deadline has passed.
+     * @param nowMillis current time in milliseconds.
+     * @param handler handler invoked for each expired timeout.
+     * @return number of expired timeouts.
+     */
+    public int advanceTo(final long nowMillis, final ExpiryHandler<T> handler) {
+        long targetTick = nowMillis / tickMillis;
+        int expired = expireList(DUE_LEVEL, 0, handler);
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                // Nothing to cascade or expire, jump straight to the target.
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            cascade();
+            expired += expireList(0, (int) (currentTick & SLOT_MASK), handler);
+        }
+        return expired;
+    }
+
+    /**
+     * Get number of scheduled timeouts.
+     * @return number of scheduled timeouts.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Move the timeouts of the higher level slots that start at the current tick down the wheel.
+     */
+    private void cascade() {
+        for (int level = LEVELS; level >= 1; level--) {
+            long lowerBitsMask = (1L << (BITS_PER_LEVEL * level)) - 1;
+            if ((currentTick & lowerBitsMask) != 0) {
+                continue;
+            }
+            Timeout head;
+            if (level == OVERFLOW_LEVEL) {
+                head = overflow;
+                overflow = null;
+            } else {
+                int slot = (int) ((currentTick >>> (BITS_PER_LEVEL * level)) & SLOT_MASK);
+                head = slots[level][slot];
+                slots[level][slot] = null;
+            }
+            while (head != null) {
+                Timeout next = head.next;
+                head.prev = null;
+                head.next = null;
+                place(head);
+                head = next;
+            }
+        }
+    }
+
+    /**
+     * Place a timeout in the list matching its deadline.
+     * A timeout goes to the lowest level whose slot will be visited before the deadline block changes.
+     * A timeout cascaded down at its deadline tick lands in the level 0 slot which is expired next.
+     * @param timeout timeout entry, with a deadline not before the current tick.
+     */
+    private void place(final Timeout timeout) {
+        long deadline = timeout.deadlineTick;
+        long diff = deadline ^ currentTick;
+        for (int level = 0; level < LEVELS; level++) {
+            if ((diff >>> (BITS_PER_LEVEL * (level + 1))) == 0) {
+                link(timeout, level, (int) ((deadline >>> (BITS_PER_LEVEL * level)) & SLOT_MASK));
+                return;
+            }
+        }
+        link(timeout, OVERFLOW_LEVEL, 0);
+    }
+
+    /**
+     * Expire all timeouts of one list.
+     * @param level list level.
+     * @param slot list slot.
+     * @param handler expiry handler.
+     * @return number of expired timeouts.
+     */
+    @SuppressWarnings("unchecked")
+    private int expireList(final int level, final int slot, final ExpiryHandler<T> handler) {
+        int expired = 0;
+        Timeout head = headOf(level, slot);
+        while (head != null) {
+            unlink(head);
+            size--;
+            expired++;
+            handler.expire((T) head);
+            head = headOf(level, slot);
+        }
+        return expired;
+    }
+
+    /**
+     * Get head of a list.
+     * @param level list level.
+     * @param slot list slot.
+     * @return head timeout, or null if the list is empty.
+     */
+    private Timeout headOf(final int level, final int slot) {
+        if (level == DUE_LEVEL) {
+            return due;
+        } else if (level == OVERFLOW_LEVEL) {
+            return overflow;
+        }
+        return slots[level][slot];
+    }
+
+    /**
+     * Set head of a list.
+     * @param level list level.
+     * @param slot list slot.
+     * @param head new head.
+     */
+    private void setHead(final int level, final int slot, final Timeout head) {
+        if (level == DUE_LEVEL) {
+            due = head;
+        } else if (level == OVERFLOW_LEVEL) {
+            overflow = head;
+        } else {
+            slots[level][slot] = head;
+        }
+    }
+
+    /**
+     * Push a timeout to the front of a list.
+     * @param timeout timeout entry.
+     * @param level list level.
+     * @param slot list slot.
+     */
+    private void link(final Timeout timeout, final int level, final int slot) {
+        Timeout head = headOf(level, slot);
+        timeout.level = level;
+        timeout.slot = slot;
+        timeout.prev = null;
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        setHead(level, slot, timeout);
+        timeout.scheduled = true;
+    }
+
+    /**
+     * Remove a timeout from its list.
+     * @param timeout timeout entry.
+     */
+    private void unlink(final Timeout timeout) {
+        if (timeout.prev == null) {
+            setHead(timeout.level, timeout.slot, timeout.next);
+        } else {
+            timeout.prev.next = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.scheduled = false;
+    }
+
+    /**
+     * Timeout entry.
+     * Entries carry their own list links, so the wheel never allocates.
+     */
+    public abstract static class Timeout {
+        /**
+         * Previous entry in the slot list.
+         */
+        private Timeout prev;
+
+        /**
+         * Next entry in the slot list.
+         */
+        private Timeout next;
+
+        /**
+         * Deadline in ticks.
+         */
+        private long deadlineTick;
+
+        /**
+         * Level of the list holding this entry.
+         */
+        private int level;
+
+        /**
+         * Slot of the list holding this entry.
+         */
+        private int slot;
+
+        /**
+         * Whether this entry is scheduled.
+         */
+        private boolean scheduled;
+
+        /**
+         * Check if this entry is scheduled.
+         * @return true if the entry is waiting to expire.
+         */
+        public boolean isScheduled() {
+            return scheduled;
+        }
+    }
+
+    /**
+     * Handler for expired timeouts.
+     * @param <T> type of the timeout entry.
+     */
+    public interface ExpiryHandler<T> {
+        /**
+         * Called once for each expired timeout.
+         * @param timeout expired timeout.
+         */
+        void expire(T timeout);
+    }
+}
@@ -0,0 +1,119 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Open input files, plain or gzip compressed.
+ *
+ * <p>A file is compressed if its name ends with ".gz" or it starts with the gzip magic bytes.
+ * A compressed file is inflated on a dedicated {@link ReadAheadInputStream} thread, so inflating overlaps
+ * with processing the content.</p>
+ */
+public final class InputFiles {
+    /**
+     * Extension of gzip compressed files.
+     */
+    static final String GZIP_EXTENSION = ".gz";
+
+    /**
+     * Inflater input buffer size.
+     */
+    private static final int INFLATER_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Private constructor.
+     */
+    private InputFiles() {
+    }
+
+    /**
+     * Open a file as a stream.
+     * @param filePath file path.
+     * @return stream of the file content, decompressed if the file is compressed.
+     * @throws FileNotFoundException
+     *              Throws when an attempt to open the file denoted by a specified pathname has failed.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     */
+    public static InputStream open(final String filePath) throws FileNotFoundException, IOException {
+        BufferedInputStream in = new BufferedInputStream(new FileInputStream(filePath), INFLATER_BUFFER_SIZE);
+        try {
+            if (filePath.endsWith(GZIP_EXTENSION) || startsWithGzipMagic(in)) {
+                return new ReadAheadInputStream(new GZIPInputStream(in, INFLATER_BUFFER_SIZE));
+            }
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+        return in;
+    }
+
+    /**
+     * Open a text file as a reader.
+     * @param filePath file path.
+     * @return reader of the file content, decompressed if the file is compressed.
+     * @throws FileNotFoundException
+     *              Throws when an attempt to open the file denoted by a specified pathname has failed.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     */
+    public static BufferedReader openReader(final String filePath) throws FileNotFoundException, IOException {
+        return new BufferedReader(new InputStreamReader(open(filePath)));
+    }
+
+    /**
+     * Open a file as a channel.
+     * Plain files are read through a FileChannel, compressed files through the read ahead stream.
+     * @param filePath file path.
+     * @return channel of the file content, decompressed if the file is compressed.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     */
+    public static ReadableByteChannel openChannel(final String filePath) throws IOException {
+        if (isCompressed(filePath)) {
+            return Channels.newChannel(open(filePath));
+        }
+        return FileChannel.open(Paths.get(filePath), StandardOpenOption.READ);
+    }
+
+    /**
+     * Check if a file is gzip compressed.
+     * @param filePath file path.
+     * @return true if the file name ends with ".gz" or the file starts with the gzip magic bytes.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     */
+    public static boolean isCompressed(final String filePath) throws IOException {
+        if (filePath.endsWith(GZIP_EXTENSION)) {
+            return true;
+        }
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(filePath), 2)) {
+            return startsWithGzipMagic(in);
+        }
+    }
+
+    /**
+     * Peek at the first two bytes of a stream.
+     * @param in stream supporting mark and reset.
+     * @return true if the stream starts with the gzip magic bytes.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     */
+    private static boolean startsWithGzipMagic(final InputStream in) throws IOException {
+        in.mark(2);
+        int first = in.read();
+        int second = in.read();
+        in.reset();
+        return first == (GZIPInputStream.GZIP_MAGIC & 0xFF) && second == (GZIPInputStream.GZIP_MAGIC >>> 8);
+    }
+}
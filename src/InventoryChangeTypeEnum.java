@@ -0,0 +1,39 @@
+/**
+ * Inventory change type Enum.
+ *
+ * Inventory change type, the first column of a line in an inventory diff file:
+ * <ul>
+ * <li>AddFlight, followed by the flight columns of inputfile1.txt</li>
+ * <li>RetireFlight, followed by the flight number</li>
+ * <li>ChangeSeats, followed by the flight number and the new number of seats</li>
+ * <li>SetFareBuckets, followed by the flight number and one fareClass:fare:bookingLimit column per fare
+ *     bucket, highest class first</li>
+ * </ul>
+ */
+public enum InventoryChangeTypeEnum {
+    ADD_FLIGHT("AddFlight"),
+    RETIRE_FLIGHT("RetireFlight"),
+    CHANGE_SEATS("ChangeSeats"),
+    SET_FARE_BUCKETS("SetFareBuckets");
+
+    /**
+     * Inventory change type.
+     */
+    private final String changeType;
+
+    /**
+     * Constructor.
+     * @param changeType Inventory change type.
+     */
+    private InventoryChangeTypeEnum(final String changeType) {
+        this.changeType = changeType;
+    }
+
+    /**
+     * Get inventory change type.
+     * @return inventory change type.
+     */
+    public String getChangeType() {
+        return changeType;
+    }
+}
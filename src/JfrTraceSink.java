@@ -0,0 +1,127 @@
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Trace sink committing each trace event as a JDK Flight Recorder event.
+ *
+ * <p>The engine is built for JAVA 8, where jdk.jfr is not part of the platform API, so the event types are
+ * registered at runtime through jdk.jfr.EventFactory, one per {@link TraceEventTypeEnum}, named
+ * flightreservation.&lt;type&gt; in the "Flight Reservation" category. Each event carries the fields of
+ * {@link TraceEvent}, the measured duration in its durationNanos field.</p>
+ *
+ * <p>Only phases emitted by the {@link EngineTracer} reach the sink, so the reflective calls are paid for
+ * slow or sampled phases only. Events are recorded while a recording is running, for example with
+ * -XX:StartFlightRecording.</p>
+ */
+public class JfrTraceSink implements TraceSink {
+    /**
+     * Prefix of the JFR event names.
+     */
+    static final String EVENT_NAME_PREFIX = "flightreservation.";
+
+    /**
+     * JFR event factory of each trace event type.
+     */
+    private final Object[] eventFactories;
+
+    /**
+     * EventFactory.newEvent.
+     */
+    private final Method newEvent;
+
+    /**
+     * Event.set.
+     */
+    private final Method set;
+
+    /**
+     * Event.commit.
+     */
+    private final Method commit;
+
+    /**
+     * Constructor, registers the JFR event types.
+     * @throws IllegalStateException
+     *              Throws when the JVM has no JDK Flight Recorder.
+     */
+    public JfrTraceSink() {
+        try {
+            Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Constructor<?> annotationElement = annotationElementClass.getConstructor(Class.class, Object.class);
+            Constructor<?> valueDescriptor = valueDescriptorClass.getConstructor(Class.class, String.class);
+            Constructor<?> annotatedValueDescriptor =
+                    valueDescriptorClass.getConstructor(Class.class, String.class, List.class);
+            Method create = eventFactoryClass.getMethod("create", List.class, List.class);
+            this.newEvent = eventFactoryClass.getMethod("newEvent");
+            this.set = eventClass.getMethod("set", int.class, Object.class);
+            this.commit = eventClass.getMethod("commit");
+
+            //Field order matches emit.
+            List<Object> fields = new ArrayList<>();
+            fields.add(valueDescriptor.newInstance(String.class, "detail"));
+            fields.add(valueDescriptor.newInstance(String.class, "route"));
+            fields.add(valueDescriptor.newInstance(String.class, "flightNumber"));
+            fields.add(valueDescriptor.newInstance(int.class, "flightsScanned"));
+            fields.add(valueDescriptor.newInstance(int.class, "seats"));
+            fields.add(valueDescriptor.newInstance(long.class, "records"));
+            fields.add(annotatedValueDescriptor.newInstance(long.class, "durationNanos", Collections.singletonList(
+                    annotationElement.newInstance(Class.forName("jdk.jfr.Timespan"), "NANOSECONDS"))));
+            Object category = Array.newInstance(String.class, 1);
+            Array.set(category, 0, "Flight Reservation");
+
+            TraceEventTypeEnum[] types = TraceEventTypeEnum.values();
+            this.eventFactories = new Object[types.length];
+            for (TraceEventTypeEnum type : types) {
+                List<Object> annotations = Arrays.asList(
+                        annotationElement.newInstance(Class.forName("jdk.jfr.Name"),
+                                EVENT_NAME_PREFIX + type.getTraceEventType()),
+                        annotationElement.newInstance(Class.forName("jdk.jfr.Label"), type.getTraceEventType()),
+                        annotationElement.newInstance(Class.forName("jdk.jfr.Category"), category));
+                eventFactories[type.ordinal()] = create.invoke(null, annotations, fields);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("JDK Flight Recorder is not available", e);
+        }
+    }
+
+    /**
+     * Check if the JVM has a JDK Flight Recorder with custom events.
+     * @return true if a JfrTraceSink can be created.
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.EventFactory");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void emit(final TraceEvent event) {
+        try {
+            Object jfrEvent = newEvent.invoke(eventFactories[event.getType().ordinal()]);
+            set.invoke(jfrEvent, 0, event.getDetail());
+            set.invoke(jfrEvent, 1, event.getRoute());
+            set.invoke(jfrEvent, 2, event.getFlightNumber());
+            set.invoke(jfrEvent, 3, event.getFlightsScanned());
+            set.invoke(jfrEvent, 4, event.getSeats());
+            set.invoke(jfrEvent, 5, event.getRecords());
+            set.invoke(jfrEvent, 6, event.getDurationNanos());
+            commit.invoke(jfrEvent);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Sorted set indexed by position.
+ *
+ * <p>The set is a treap whose nodes count the elements of their subtree, so adding and removing an element,
+ * the position of an element and the element at a position are all O(log n) expected. Elements are ordered
+ * by their natural order, and must not change order while in the set.</p>
+ *
+ * <p>Not thread safe, the caller locks.</p>
+ * @param <E> element type.
+ */
+class OrderStatisticTree<E extends Comparable<? super E>> {
+    /**
+     * Root node, null when empty.
+     */
+    private Node<E> root;
+
+    /**
+     * State of the xorshift generator of node priorities.
+     */
+    private int seed = 0x2545F491;
+
+    /**
+     * Add an element.
+     * @param element element.
+     * @return false if the element was already in the set.
+     */
+    boolean add(final E element) {
+        if (contains(element)) {
+            return false;
+        }
+        root = insert(root, new Node<>(element, nextPriority()));
+        return true;
+    }
+
+    /**
+     * Remove an element.
+     * @param element element.
+     * @return true if the element was in the set.
+     */
+    boolean remove(final E element) {
+        if (!contains(element)) {
+            return false;
+        }
+        root = delete(root, element);
+        return true;
+    }
+
+    /**
+     * Check if an element is in the set.
+     * @param element element.
+     * @return true if the element is in the set.
+     */
+    boolean contains(final E element) {
+        Node<E> node = root;
+        while (node != null) {
+            int cmp = element.compareTo(node.element);
+            if (cmp == 0) {
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    /**
+     * Get position of an element, the number of elements before it.
+     * @param element element, in the set or not.
+     * @return 0 based position.
+     */
+    int indexOf(final E element) {
+        int index = 0;
+        Node<E> node = root;
+        while (node != null) {
+            if (element.compareTo(node.element) <= 0) {
+                node = node.left;
+            } else {
+                index += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get element at a position.
+     * @param index 0 based position.
+     * @return element, or null if the position is out of the set.
+     */
+    E get(final int index) {
+        if (index < 0 || index >= size()) {
+            return null;
+        }
+        int remaining = index;
+        Node<E> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (remaining < leftSize) {
+                node = node.left;
+            } else if (remaining == leftSize) {
+                return node.element;
+            } else {
+                remaining -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * Get number of elements.
+     * @return size.
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Check if the set is empty.
+     * @return true if the set has no element.
+     */
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Get next node priority.
+     * @return pseudo random priority.
+     */
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    /**
+     * Insert a node in a subtree, rotating it up while its priority is higher than its parent's.
+     * @param node root of the subtree.
+     * @param inserted node to insert.
+     * @param <E> element type.
+     * @return new root of the subtree.
+     */
+    private static <E extends Comparable<? super E>> Node<E> insert(final Node<E> node, final Node<E> inserted) {
+        if (node == null) {
+            return inserted;
+        }
+        Node<E> top = node;
+        if (inserted.element.compareTo(node.element) < 0) {
+            node.left = insert(node.left, inserted);
+            if (node.left.priority > node.priority) {
+                top = node.left;
+                node.left = top.right;
+                top.right = node;
+                update(node);
+            }
+        } else {
+            node.right = insert(node.right, inserted);
+            if (node.right.priority > node.priority) {
+                top = node.right;
+                node.right = top.left;
+                top.left = node;
+                update(node);
+            }
+        }
+        update(top);
+        return top;
+    }
+
+    /**
+     * Delete an element from a subtree, its children are merged in its place.
+     * @param node root of the subtree, which holds the element.
+     * @param element element.
+     * @param <E> element type.
+     * @return new root of the subtree.
+     */
+    private static <E extends Comparable<? super E>> Node<E> delete(final Node<E> node, final E element) {
+        int cmp = element.compareTo(node.element);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = delete(node.left, element);
+        } else {
+            node.right = delete(node.right, element);
+        }
+        update(node);
+        return node;
+    }
+
+    /**
+     * Merge two subtrees, every element of the first before every element of the second.
+     * @param left first subtree.
+     * @param right second subtree.
+     * @param <E> element type.
+     * @return root of the merged subtree.
+     */
+    private static <E extends Comparable<? super E>> Node<E> merge(final Node<E> left, final Node<E> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    /**
+     * Recount the elements of a subtree from its children.
+     * @param node root of the subtree.
+     */
+    private static void update(final Node<?> node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    /**
+     * Get number of elements of a subtree.
+     * @param node root of the subtree, null if empty.
+     * @return size.
+     */
+    private static int size(final Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Node of the treap.
+     * @param <E> element type.
+     */
+    private static final class Node<E> {
+        /**
+         * Element.
+         */
+        final E element;
+
+        /**
+         * Heap priority, a node's priority is higher than its children's.
+         */
+        final int priority;
+
+        /**
+         * Number of elements of the subtree.
+         */
+        int size = 1;
+
+        /**
+         * Left child, elements before this one.
+         */
+        Node<E> left;
+
+        /**
+         * Right child, elements after this one.
+         */
+        Node<E> right;
+
+        /**
+         * Constructor.
+         * @param element element.
+         * @param priority heap priority.
+         */
+        Node(final E element, final int priority) {
+            this.element = element;
+            this.priority = priority;
+        }
+    }
+}
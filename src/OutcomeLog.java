@@ -0,0 +1,351 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Log of the outcome of every transaction, see {@link FlightReservationSystem#setOutcomeLog(OutcomeLog)}.
+ *
+ * <p>Outcomes are copied into a ring buffer preallocated as one array per field, and written to the log file
+ * in {@link OutcomeLogFormatEnum} format by a writer thread:</p>
+ * <ul>
+ * <li>A thread applying a transaction claims the next slot with one atomic increment, copies the outcome
+ *     into it and publishes it, without allocating or waiting for any I/O</li>
+ * <li>The writer thread writes the published slots in sequence order and flushes when it catches up</li>
+ * <li>If the writer falls a whole ring behind, the applying threads wait for it, outcomes are never
+ *     dropped</li>
+ * </ul>
+ *
+ * <p>If the log file fails, outcomes are discarded so transactions never wait for a dead writer, and
+ * {@link #close()} throws the failure.</p>
+ */
+public class OutcomeLog implements Closeable {
+    /**
+     * Default number of slots of the ring buffer.
+     */
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Time the writer parks when it caught up.
+     */
+    private static final long IDLE_PARK_NANOS = 100000;
+
+    /**
+     * Number of spins of a thread waiting for a slot before yielding.
+     */
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    /**
+     * Log format.
+     */
+    private final OutcomeLogFormatEnum format;
+
+    /**
+     * Slot index mask, capacity is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Transaction sequence of each slot.
+     */
+    private final long[] sequences;
+
+    /**
+     * Transaction type of each slot.
+     */
+    private final TransactionTypeEnum[] types;
+
+    /**
+     * Transaction status of each slot.
+     */
+    private final TransactionStatusEnum[] statuses;
+
+    /**
+     * Flight number of each slot.
+     */
+    private final String[] flightNumbers;
+
+    /**
+     * Seat number of each slot.
+     */
+    private final int[] seatNumbers;
+
+    /**
+     * Price of each slot.
+     */
+    private final int[] prices;
+
+    /**
+     * Position plus one of the outcome published in each slot.
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * Next position to claim.
+     */
+    private final AtomicLong claimed;
+
+    /**
+     * Next position to write, slots before it can be reused.
+     */
+    private volatile long consumed;
+
+    /**
+     * Number of outcomes written.
+     */
+    private volatile long writtenRecords;
+
+    /**
+     * True once closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Failure of the log file.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Binary log file.
+     */
+    private final DataOutputStream binaryOut;
+
+    /**
+     * CSV log file.
+     */
+    private final Writer csvOut;
+
+    /**
+     * Line being formatted, reused by the writer.
+     */
+    private final StringBuilder line;
+
+    /**
+     * Characters of the line being written, reused by the writer.
+     */
+    private char[] lineChars;
+
+    /**
+     * Thread writing the log file.
+     */
+    private final Thread writer;
+
+    /**
+     * Constructor with the default capacity.
+     * @param outcomeLogPath log file path.
+     * @param format log format.
+     * @throws IOException
+     *              Throws when the log file cannot be created.
+     */
+    public OutcomeLog(final String outcomeLogPath, final OutcomeLogFormatEnum format) throws IOException {
+        this(outcomeLogPath, format, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor, starts the writer thread.
+     * @param outcomeLogPath log file path.
+     * @param format log format.
+     * @param capacity number of slots of the ring buffer, rounded up to a power of two.
+     * @throws IOException
+     *              Throws when the log file cannot be created.
+     */
+    public OutcomeLog(final String outcomeLogPath, final OutcomeLogFormatEnum format, final int capacity)
+            throws IOException {
+        int slots = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.format = format;
+        this.mask = slots - 1;
+        this.sequences = new long[slots];
+        this.types = new TransactionTypeEnum[slots];
+        this.statuses = new TransactionStatusEnum[slots];
+        this.flightNumbers = new String[slots];
+        this.seatNumbers = new int[slots];
+        this.prices = new int[slots];
+        this.published = new AtomicLongArray(slots);
+        this.claimed = new AtomicLong();
+        this.line = new StringBuilder(64);
+        this.lineChars = new char[64];
+        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(outcomeLogPath), 64 * 1024);
+        if (format == OutcomeLogFormatEnum.BINARY) {
+            this.binaryOut = new DataOutputStream(out);
+            this.csvOut = null;
+        } else {
+            this.binaryOut = null;
+            this.csvOut = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        }
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "outcome-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Copy an outcome into the ring buffer, waits only if the writer is a whole ring behind.
+     * @param outcome transaction outcome.
+     */
+    public void append(final TransactionOutcome outcome) {
+        if (closed) {
+            throw new IllegalStateException("Outcome log is closed");
+        }
+        long position = claimed.getAndIncrement();
+        int spins = 0;
+        while (position - consumed > mask) {
+            if (++spins % SPINS_BEFORE_YIELD == 0) {
+                Thread.yield();
+            }
+        }
+        int slot = (int) position & mask;
+        sequences[slot] = outcome.getSequence();
+        types[slot] = outcome.getType();
+        statuses[slot] = outcome.getStatus();
+        flightNumbers[slot] = outcome.getFlightNumber();
+        seatNumbers[slot] = outcome.getSeatNumber();
+        prices[slot] = outcome.getPrice();
+        //Release the slot fields to the writer.
+        published.lazySet(slot, position + 1);
+    }
+
+    /**
+     * Get number of outcomes written to the log file.
+     * @return written records.
+     */
+    public long getWrittenRecords() {
+        return writtenRecords;
+    }
+
+    /**
+     * Get log format.
+     * @return log format.
+     */
+    public OutcomeLogFormatEnum getFormat() {
+        return format;
+    }
+
+    /**
+     * Write the outcomes appended so far and close the log file.
+     * @throws IOException
+     *              Throws when the log file failed.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (binaryOut != null) {
+                binaryOut.close();
+            } else {
+                csvOut.close();
+            }
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Write published outcomes in order until closed and caught up.
+     */
+    private void write() {
+        long position = 0;
+        boolean dirty = false;
+        while (true) {
+            int slot = (int) position & mask;
+            if (published.get(slot) == position + 1) {
+                if (failure == null) {
+                    try {
+                        writeSlot(slot);
+                        dirty = true;
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                flightNumbers[slot] = null;
+                position++;
+                consumed = position;
+                writtenRecords = position;
+            } else if (dirty) {
+                //Caught up, flush before waiting for more.
+                flush();
+                dirty = false;
+            } else if (closed && claimed.get() == position) {
+                return;
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Flush the log file.
+     */
+    private void flush() {
+        if (failure != null) {
+            return;
+        }
+        try {
+            if (binaryOut != null) {
+                binaryOut.flush();
+            } else {
+                csvOut.flush();
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Write one slot to the log file.
+     * @param slot slot index.
+     * @throws IOException
+     *              Throws when the log file fails.
+     */
+    private void writeSlot(final int slot) throws IOException {
+        TransactionTypeEnum type = types[slot];
+        String flightNumber = flightNumbers[slot];
+        if (binaryOut != null) {
+            binaryOut.writeLong(sequences[slot]);
+            binaryOut.writeByte(type == null ? 0 : type.getTag());
+            binaryOut.writeByte(statuses[slot].getCode());
+            binaryOut.writeUTF(flightNumber == null ? "" : flightNumber);
+            binaryOut.writeInt(seatNumbers[slot]);
+            binaryOut.writeInt(prices[slot]);
+            return;
+        }
+        line.setLength(0);
+        line.append(sequences[slot])
+            .append(',')
+            .append(type == null ? "" : type.getTransactionType())
+            .append(',')
+            .append(statuses[slot].getStatus())
+            .append(',')
+            .append(flightNumber == null ? "" : flightNumber)
+            .append(',')
+            .append(seatNumbers[slot])
+            .append(',')
+            .append(prices[slot])
+            .append('\n');
+        if (lineChars.length < line.length()) {
+            lineChars = new char[line.length()];
+        }
+        line.getChars(0, line.length(), lineChars, 0);
+        csvOut.write(lineChars, 0, line.length());
+    }
+}
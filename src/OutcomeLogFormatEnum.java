@@ -0,0 +1,35 @@
+/**
+ * Outcome log format Enum.
+ *
+ * Outcome log format:
+ * <ul>
+ * <li>CSV: one line per transaction, sequence,type,status,flight,seat,price</li>
+ * <li>Binary: one record per transaction, sequence (8 bytes), type tag, status code, flight number (UTF),
+ *     seat (4 bytes) and price (4 bytes)</li>
+ * </ul>
+ */
+public enum OutcomeLogFormatEnum {
+    CSV("CSV"),
+    BINARY("Binary");
+
+    /**
+     * Outcome log format.
+     */
+    private final String outcomeLogFormat;
+
+    /**
+     * Constructor.
+     * @param outcomeLogFormat Outcome log format.
+     */
+    private OutcomeLogFormatEnum(final String outcomeLogFormat) {
+        this.outcomeLogFormat = outcomeLogFormat;
+    }
+
+    /**
+     * Get outcome log format.
+     * @return outcome log format.
+     */
+    public String getOutcomeLogFormat() {
+        return outcomeLogFormat;
+    }
+}
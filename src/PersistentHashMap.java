@@ -0,0 +1,523 @@
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash map sharing its structure between versions.
+ *
+ * <p>The map is a hash array mapped trie: each node consumes {@value #BITS} bits of the key hash and keeps
+ * only its present children, packed in an array indexed by a 32 bits bitmap. {@link #plus(Object, Object)}
+ * and {@link #minus(Object)} copy the nodes on the path to the key, at most 7 small arrays, and share every
+ * other node with the previous map, so keeping an old version costs only the nodes changed since.
+ * Keys with the same full hash share a collision node.</p>
+ *
+ * <p>Instances never change, any thread may read a map it was handed.</p>
+ * @param <K> key type.
+ * @param <V> value type.
+ */
+public final class PersistentHashMap<K, V> {
+    /**
+     * Number of hash bits consumed by each level.
+     */
+    private static final int BITS = 5;
+
+    /**
+     * Mask of the hash bits of a level.
+     */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Empty map.
+     */
+    private static final PersistentHashMap<Object, Object> EMPTY =
+            new PersistentHashMap<>(new Node(0, new Object[0]), 0);
+
+    /**
+     * Root node.
+     */
+    private final Node root;
+
+    /**
+     * Number of entries.
+     */
+    private final int size;
+
+    /**
+     * Private constructor.
+     * @param root root node.
+     * @param size number of entries.
+     */
+    private PersistentHashMap(final Node root, final int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Get the empty map.
+     * @param <K> key type.
+     * @param <V> value type.
+     * @return empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Get number of entries.
+     * @return number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the map is empty.
+     * @return true if the map has no entry.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Check if the map contains a key.
+     * @param key key.
+     * @return true if the map contains the key.
+     */
+    public boolean containsKey(final Object key) {
+        return findLeaf(key) != null;
+    }
+
+    /**
+     * Get the value of a key.
+     * @param key key.
+     * @return value, or null if the map does not contain the key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final Object key) {
+        Leaf leaf = findLeaf(key);
+        return leaf == null ? null : (V) leaf.value;
+    }
+
+    /**
+     * Get a map with a key set to a value, this map is unchanged.
+     * @param key key, not null.
+     * @param value value.
+     * @return new map.
+     */
+    public PersistentHashMap<K, V> plus(final K key, final V value) {
+        int newSize = containsKey(key) ? size : size + 1;
+        return new PersistentHashMap<>(put(root, new Leaf(hash(key), key, value), 0), newSize);
+    }
+
+    /**
+     * Get a map without a key, this map is unchanged.
+     * @param key key.
+     * @return new map, or this map if it does not contain the key.
+     */
+    public PersistentHashMap<K, V> minus(final Object key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        if (size == 1) {
+            return empty();
+        }
+        Object removed = remove(root, key, hash(key), 0);
+        Node newRoot;
+        if (removed instanceof Node) {
+            newRoot = (Node) removed;
+        } else {
+            //A single leaf or collision left, the root stays a node.
+            newRoot = new Node(1 << (hashOf(removed) & MASK), new Object[] {removed});
+        }
+        return new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    /**
+     * Get the values of this map.
+     * @return read only collection of the values.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Find the leaf of a key.
+     * @param key key.
+     * @return leaf, or null if the map does not contain the key.
+     */
+    private Leaf findLeaf(final Object key) {
+        int hash = hash(key);
+        Object slot = root;
+        int shift = 0;
+        while (slot instanceof Node) {
+            Node node = (Node) slot;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            shift += BITS;
+        }
+        if (slot instanceof Leaf) {
+            Leaf leaf = (Leaf) slot;
+            return leaf.hash == hash && leaf.key.equals(key) ? leaf : null;
+        }
+        Collision collision = (Collision) slot;
+        if (collision.hash != hash) {
+            return null;
+        }
+        for (Leaf leaf : collision.leaves) {
+            if (leaf.key.equals(key)) {
+                return leaf;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Put a leaf under a node.
+     * @param node node.
+     * @param leaf new leaf.
+     * @param shift hash shift of the node level.
+     * @return new node.
+     */
+    private static Node put(final Node node, final Leaf leaf, final int shift) {
+        int bit = 1 << ((leaf.hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        if ((node.bitmap & bit) == 0) {
+            Object[] slots = new Object[node.slots.length + 1];
+            System.arraycopy(node.slots, 0, slots, 0, index);
+            slots[index] = leaf;
+            System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+            return new Node(node.bitmap | bit, slots);
+        }
+        Object slot = node.slots[index];
+        Object newSlot;
+        if (slot instanceof Node) {
+            newSlot = put((Node) slot, leaf, shift + BITS);
+        } else if (slot instanceof Leaf && ((Leaf) slot).hash == leaf.hash && ((Leaf) slot).key.equals(leaf.key)) {
+            newSlot = leaf;
+        } else if (slot instanceof Collision && ((Collision) slot).hash == leaf.hash) {
+            newSlot = ((Collision) slot).put(leaf);
+        } else {
+            newSlot = merge(slot, leaf, shift + BITS);
+        }
+        Object[] slots = node.slots.clone();
+        slots[index] = newSlot;
+        return new Node(node.bitmap, slots);
+    }
+
+    /**
+     * Merge an existing leaf or collision with a new leaf of another key.
+     * @param slot existing leaf or collision.
+     * @param leaf new leaf.
+     * @param shift hash shift of the new level.
+     * @return collision if both have the same hash, else node holding both.
+     */
+    private static Object merge(final Object slot, final Leaf leaf, final int shift) {
+        int slotHash = hashOf(slot);
+        if (slotHash == leaf.hash) {
+            return new Collision(leaf.hash, new Leaf[] {(Leaf) slot, leaf});
+        }
+        int slotIndex = (slotHash >>> shift) & MASK;
+        int leafIndex = (leaf.hash >>> shift) & MASK;
+        if (slotIndex == leafIndex) {
+            return new Node(1 << slotIndex, new Object[] {merge(slot, leaf, shift + BITS)});
+        }
+        Object[] slots = slotIndex < leafIndex ? new Object[] {slot, leaf} : new Object[] {leaf, slot};
+        return new Node((1 << slotIndex) | (1 << leafIndex), slots);
+    }
+
+    /**
+     * Remove a key present under a node.
+     * @param node node.
+     * @param key key.
+     * @param hash hash of the key.
+     * @param shift hash shift of the node level.
+     * @return new node, or its only leaf or collision left, or null if the node is left empty.
+     */
+    private static Object remove(final Node node, final Object key, final int hash, final int shift) {
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = Integer.bitCount(node.bitmap & (bit - 1));
+        Object slot = node.slots[index];
+        Object newSlot;
+        if (slot instanceof Node) {
+            newSlot = remove((Node) slot, key, hash, shift + BITS);
+        } else if (slot instanceof Collision) {
+            newSlot = ((Collision) slot).remove(key);
+        } else {
+            newSlot = null;
+        }
+        if (newSlot != null) {
+            if (node.slots.length == 1 && !(newSlot instanceof Node)) {
+                return newSlot;
+            }
+            Object[] slots = node.slots.clone();
+            slots[index] = newSlot;
+            return new Node(node.bitmap, slots);
+        }
+        if (node.slots.length == 1) {
+            return null;
+        }
+        if (node.slots.length == 2 && !(node.slots[1 - index] instanceof Node)) {
+            //Pull the last leaf or collision up to the parent.
+            return node.slots[1 - index];
+        }
+        Object[] slots = new Object[node.slots.length - 1];
+        System.arraycopy(node.slots, 0, slots, 0, index);
+        System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+        return new Node(node.bitmap & ~bit, slots);
+    }
+
+    /**
+     * Get the spread hash of a key.
+     * @param key key.
+     * @return hash.
+     */
+    private static int hash(final Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Get the hash of a leaf or collision.
+     * @param slot leaf or collision.
+     * @return hash.
+     */
+    private static int hashOf(final Object slot) {
+        return slot instanceof Leaf ? ((Leaf) slot).hash : ((Collision) slot).hash;
+    }
+
+    /**
+     * Trie node, children packed in bitmap order.
+     */
+    private static final class Node {
+        /**
+         * Bit of each present child.
+         */
+        final int bitmap;
+
+        /**
+         * Children: nodes, leaves or collisions.
+         */
+        final Object[] slots;
+
+        /**
+         * Constructor.
+         * @param bitmap bit of each present child.
+         * @param slots children.
+         */
+        Node(final int bitmap, final Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * One entry.
+     */
+    private static final class Leaf {
+        /**
+         * Hash of the key.
+         */
+        final int hash;
+
+        /**
+         * Key.
+         */
+        final Object key;
+
+        /**
+         * Value.
+         */
+        final Object value;
+
+        /**
+         * Constructor.
+         * @param hash hash of the key.
+         * @param key key.
+         * @param value value.
+         */
+        Leaf(final int hash, final Object key, final Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Entries of different keys with the same hash.
+     */
+    private static final class Collision {
+        /**
+         * Hash of the keys.
+         */
+        final int hash;
+
+        /**
+         * Entries, at least two.
+         */
+        final Leaf[] leaves;
+
+        /**
+         * Constructor.
+         * @param hash hash of the keys.
+         * @param leaves entries.
+         */
+        Collision(final int hash, final Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        /**
+         * Put a leaf of the same hash.
+         * @param leaf new leaf.
+         * @return new collision.
+         */
+        Collision put(final Leaf leaf) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    Leaf[] newLeaves = leaves.clone();
+                    newLeaves[i] = leaf;
+                    return new Collision(hash, newLeaves);
+                }
+            }
+            Leaf[] newLeaves = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, leaves.length);
+            newLeaves[leaves.length] = leaf;
+            return new Collision(hash, newLeaves);
+        }
+
+        /**
+         * Remove a present key.
+         * @param key key.
+         * @return new collision, or the last leaf left.
+         */
+        Object remove(final Object key) {
+            int index = 0;
+            while (!leaves[index].key.equals(key)) {
+                index++;
+            }
+            if (leaves.length == 2) {
+                return leaves[1 - index];
+            }
+            Leaf[] newLeaves = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, index);
+            System.arraycopy(leaves, index + 1, newLeaves, index, newLeaves.length - index);
+            return new Collision(hash, newLeaves);
+        }
+    }
+
+    /**
+     * Depth first iterator over the values.
+     * @param <V> value type.
+     */
+    private static final class ValueIterator<V> implements Iterator<V> {
+        /**
+         * Maximum depth of the trie: 32 hash bits, {@value #BITS} per level.
+         */
+        private static final int MAX_DEPTH = (32 + BITS - 1) / BITS + 1;
+
+        /**
+         * Children of the nodes on the current path.
+         */
+        private final Object[][] slotsStack = new Object[MAX_DEPTH][];
+
+        /**
+         * Next child index of the nodes on the current path.
+         */
+        private final int[] indexStack = new int[MAX_DEPTH];
+
+        /**
+         * Depth of the current path, -1 once done.
+         */
+        private int depth;
+
+        /**
+         * Collision being iterated, null if none.
+         */
+        private Leaf[] collisionLeaves;
+
+        /**
+         * Next leaf index of the collision.
+         */
+        private int collisionIndex;
+
+        /**
+         * Next leaf, null once done.
+         */
+        private Leaf next;
+
+        /**
+         * Constructor.
+         * @param root root node.
+         */
+        ValueIterator(final Node root) {
+            slotsStack[0] = root.slots;
+            advance();
+        }
+
+        /**
+         * Move to the next leaf.
+         */
+        private void advance() {
+            if (collisionLeaves != null) {
+                if (collisionIndex < collisionLeaves.length) {
+                    next = collisionLeaves[collisionIndex++];
+                    return;
+                }
+                collisionLeaves = null;
+            }
+            while (depth >= 0) {
+                Object[] slots = slotsStack[depth];
+                if (indexStack[depth] == slots.length) {
+                    depth--;
+                    continue;
+                }
+                Object slot = slots[indexStack[depth]++];
+                if (slot instanceof Node) {
+                    depth++;
+                    slotsStack[depth] = ((Node) slot).slots;
+                    indexStack[depth] = 0;
+                } else if (slot instanceof Leaf) {
+                    next = (Leaf) slot;
+                    return;
+                } else {
+                    collisionLeaves = ((Collision) slot).leaves;
+                    collisionIndex = 1;
+                    next = collisionLeaves[0];
+                    return;
+                }
+            }
+            next = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            V value = (V) next.value;
+            advance();
+            return value;
+        }
+    }
+}
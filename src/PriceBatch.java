@@ -0,0 +1,135 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Batch of price updates, applied by {@link FlightReservationSystem#applyPriceBatch(PriceBatch)}.
+ *
+ * <p>Updates are kept in the order they were added, so each one takes the transaction sequence and leaves
+ * the price history entry and outcome it would have taken if applied one by one.</p>
+ *
+ * <p>A transaction dropped by a {@link TransactionCoalescer} while the batch is pending is added too, so it takes
+ * its transaction sequence in file order without applying the batch early.</p>
+ */
+public class PriceBatch {
+    /**
+     * Initial capacity of the prices array.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Flight number of each update, in order.
+     */
+    private final List<String> flightNumbers;
+
+    /**
+     * Price of each update, in order.
+     */
+    private int[] prices;
+
+    /**
+     * Type of each dropped transaction, null for a price update.
+     */
+    private TransactionTypeEnum[] coalescedTypes;
+
+    /**
+     * Constructor.
+     */
+    public PriceBatch() {
+        this.flightNumbers = new ArrayList<>();
+        this.prices = new int[INITIAL_CAPACITY];
+        this.coalescedTypes = new TransactionTypeEnum[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add a price update.
+     * @param flightNumber flight number.
+     * @param price new price per seat.
+     */
+    public void add(final String flightNumber, final int price) {
+        add(null, flightNumber, price);
+    }
+
+    /**
+     * Add a transaction dropped by coalescing.
+     * @param type transaction type.
+     * @param flightNumber flight number of a price change, null for a booking or cancel.
+     * @param price superseded price per seat of a price change, -1 for a booking or cancel.
+     */
+    public void addCoalesced(final TransactionTypeEnum type, final String flightNumber, final int price) {
+        add(type, flightNumber, price);
+    }
+
+    /**
+     * Add an entry.
+     * @param coalescedType type of a dropped transaction, null for a price update.
+     * @param flightNumber flight number, null if none.
+     * @param price price per seat.
+     */
+    private void add(final TransactionTypeEnum coalescedType, final String flightNumber, final int price) {
+        int index = flightNumbers.size();
+        if (index == prices.length) {
+            prices = Arrays.copyOf(prices, index * 2);
+            coalescedTypes = Arrays.copyOf(coalescedTypes, index * 2);
+        }
+        flightNumbers.add(flightNumber);
+        prices[index] = price;
+        coalescedTypes[index] = coalescedType;
+    }
+
+    /**
+     * Get flight number of an update.
+     * @param index 0 based index of the update.
+     * @return flight number.
+     */
+    public String getFlightNumber(final int index) {
+        return flightNumbers.get(index);
+    }
+
+    /**
+     * Get price of an update.
+     * @param index 0 based index of the update.
+     * @return new price per seat.
+     */
+    public int getPrice(final int index) {
+        if (index >= flightNumbers.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + flightNumbers.size());
+        }
+        return prices[index];
+    }
+
+    /**
+     * Get type of a dropped transaction.
+     * @param index 0 based index of the entry.
+     * @return transaction type, null if the entry is a price update.
+     */
+    public TransactionTypeEnum getCoalescedType(final int index) {
+        if (index >= flightNumbers.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + flightNumbers.size());
+        }
+        return coalescedTypes[index];
+    }
+
+    /**
+     * Get number of updates added.
+     * @return number of updates.
+     */
+    public int size() {
+        return flightNumbers.size();
+    }
+
+    /**
+     * Check if the batch is empty.
+     * @return true if no update was added.
+     */
+    public boolean isEmpty() {
+        return flightNumbers.isEmpty();
+    }
+
+    /**
+     * Remove all updates.
+     */
+    public void clear() {
+        flightNumbers.clear();
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Price change of a flight, read from its {@link PriceHistory}.
+ *
+ * <p>Each price change contains:</p>
+ * <ul>
+ * <li>Transaction sequence of the change</li>
+ * <li>Time of the change</li>
+ * <li>New price per seat</li>
+ * </ul>
+ */
+public class PriceChange {
+    /**
+     * Transaction sequence.
+     */
+    private final long sequence;
+
+    /**
+     * Time in milliseconds.
+     */
+    private final long timeMillis;
+
+    /**
+     * Price per seat.
+     */
+    private final int price;
+
+    /**
+     * Constructor.
+     */
+    public PriceChange(final long sequence, final long timeMillis, final int price) {
+        this.sequence = sequence;
+        this.timeMillis = timeMillis;
+        this.price = price;
+    }
+
+    /**
+     * Get sequence.
+     * @return sequence.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get time in milliseconds.
+     * @return time in milliseconds.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Get price.
+     * @return price.
+     */
+    public int getPrice() {
+        return price;
+    }
+}
@@ -0,0 +1,419 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Price history of a flight.
+ *
+ * <p>Each price change is kept as a (sequence, time, price) entry. Entries are stored in chunks of at most
+ * {@value #CHUNK_BYTES} bytes:</p>
+ * <ul>
+ * <li>The first entry of a chunk is kept in primitive header arrays (first sequence, first time, first
+ *     price), which are binary searched to find the chunk of a sequence or time</li>
+ * <li>The following entries are the deltas to the previous entry, written as varints: sequence and time
+ *     deltas are never negative, price deltas are zigzag encoded</li>
+ * </ul>
+ *
+ * <p>A typical change takes 3 to 5 bytes. The last chunk starts small and doubles up to
+ * {@value #CHUNK_BYTES} bytes, so a flight with a few changes only keeps a few bytes. Sequences must
+ * increase, times going backwards are recorded as the previous time.</p>
+ *
+ * <p>The history is not thread safe, the flight's route lock guards it.</p>
+ */
+public class PriceHistory {
+    /**
+     * Maximum size of a chunk in bytes.
+     */
+    static final int CHUNK_BYTES = 256;
+
+    /**
+     * Size of a new chunk in bytes.
+     */
+    private static final int INITIAL_CHUNK_BYTES = 16;
+
+    /**
+     * Maximum size of an encoded entry: two 64 bits varints and one 33 bits varint.
+     */
+    private static final int MAX_ENTRY_BYTES = 10 + 10 + 5;
+
+    /**
+     * Initial number of chunk headers.
+     */
+    private static final int INITIAL_CHUNKS = 2;
+
+    /**
+     * Encoded entries of each chunk, without the first entry.
+     */
+    private byte[][] chunks;
+
+    /**
+     * Sequence of the first entry of each chunk.
+     */
+    private long[] firstSequences;
+
+    /**
+     * Time of the first entry of each chunk.
+     */
+    private long[] firstTimes;
+
+    /**
+     * Price of the first entry of each chunk.
+     */
+    private int[] firstPrices;
+
+    /**
+     * Number of encoded bytes of each chunk.
+     */
+    private int[] chunkLengths;
+
+    /**
+     * Number of entries of each chunk, including the first entry.
+     */
+    private int[] chunkSizes;
+
+    /**
+     * Number of chunks.
+     */
+    private int chunkCount;
+
+    /**
+     * Number of entries.
+     */
+    private int size;
+
+    /**
+     * Sequence of the last entry.
+     */
+    private long lastSequence;
+
+    /**
+     * Time of the last entry.
+     */
+    private long lastTime;
+
+    /**
+     * Price of the last entry.
+     */
+    private int lastPrice;
+
+    /**
+     * Constructor.
+     */
+    public PriceHistory() {
+        this.chunks = new byte[INITIAL_CHUNKS][];
+        this.firstSequences = new long[INITIAL_CHUNKS];
+        this.firstTimes = new long[INITIAL_CHUNKS];
+        this.firstPrices = new int[INITIAL_CHUNKS];
+        this.chunkLengths = new int[INITIAL_CHUNKS];
+        this.chunkSizes = new int[INITIAL_CHUNKS];
+    }
+
+    /**
+     * Record a price.
+     * @param sequence sequence of the change, greater than the sequence of the last entry.
+     * @param timeMillis time of the change in milliseconds.
+     * @param price price per seat.
+     */
+    public void record(final long sequence, final long timeMillis, final int price) {
+        if (size > 0 && sequence <= lastSequence) {
+            throw new IllegalArgumentException("Sequence should increase.");
+        }
+        long time = size > 0 ? Math.max(timeMillis, lastTime) : timeMillis;
+        int last = chunkCount - 1;
+        if (chunkCount == 0 || chunkLengths[last] + MAX_ENTRY_BYTES > CHUNK_BYTES) {
+            addChunk(sequence, time, price);
+        } else {
+            byte[] chunk = chunks[last];
+            int position = chunkLengths[last];
+            if (position + MAX_ENTRY_BYTES > chunk.length) {
+                int newLength = chunk.length;
+                while (position + MAX_ENTRY_BYTES > newLength) {
+                    newLength *= 2;
+                }
+                chunk = Arrays.copyOf(chunk, Math.min(newLength, CHUNK_BYTES));
+                chunks[last] = chunk;
+            }
+            position = writeVarint(chunk, position, sequence - lastSequence);
+            position = writeVarint(chunk, position, time - lastTime);
+            position = writeVarint(chunk, position, zigzag((long) price - lastPrice));
+            chunkLengths[last] = position;
+            chunkSizes[last]++;
+        }
+        lastSequence = sequence;
+        lastTime = time;
+        lastPrice = price;
+        size++;
+    }
+
+    /**
+     * Get the price in effect at a sequence.
+     * @param sequence sequence.
+     * @return price of the last entry not after the sequence, or -1 if the sequence is before the first entry.
+     */
+    public int getPriceAt(final long sequence) {
+        int chunk = floorChunk(firstSequences, sequence);
+        if (chunk < 0) {
+            return -1;
+        }
+        Cursor cursor = new Cursor(chunk);
+        int price = cursor.price;
+        while (cursor.next() && cursor.sequence <= sequence) {
+            price = cursor.price;
+        }
+        return price;
+    }
+
+    /**
+     * Get the price in effect at a time.
+     * @param timeMillis time in milliseconds.
+     * @return price of the last entry not after the time, or -1 if the time is before the first entry.
+     */
+    public int getPriceAtTime(final long timeMillis) {
+        int chunk = floorChunk(firstTimes, timeMillis);
+        if (chunk < 0) {
+            return -1;
+        }
+        Cursor cursor = new Cursor(chunk);
+        int price = cursor.price;
+        while (cursor.next() && cursor.time <= timeMillis) {
+            price = cursor.price;
+        }
+        return price;
+    }
+
+    /**
+     * Get all changes in a time window.
+     * @param fromMillis start of the window in milliseconds, inclusive.
+     * @param toMillis end of the window in milliseconds, exclusive.
+     * @return changes ordered by sequence.
+     */
+    public List<PriceChange> getChanges(final long fromMillis, final long toMillis) {
+        List<PriceChange> changes = new ArrayList<>();
+        if (size == 0 || fromMillis >= toMillis) {
+            return changes;
+        }
+        // Entries at fromMillis may end the chunk before the first chunk starting at fromMillis.
+        int chunk = Math.max(0, floorChunk(firstTimes, fromMillis - 1));
+        Cursor cursor = new Cursor(chunk);
+        do {
+            if (cursor.time >= toMillis) {
+                break;
+            }
+            if (cursor.time >= fromMillis) {
+                changes.add(new PriceChange(cursor.sequence, cursor.time, cursor.price));
+            }
+        } while (cursor.next());
+        return changes;
+    }
+
+    /**
+     * Get number of entries.
+     * @return number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get sequence of the last entry.
+     * @return last sequence, 0 if the history is empty.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Get time of the last entry.
+     * @return last time in milliseconds, 0 if the history is empty.
+     */
+    public long getLastTime() {
+        return lastTime;
+    }
+
+    /**
+     * Get number of bytes allocated for the chunks and their headers.
+     * @return allocated bytes, without object headers.
+     */
+    public long getAllocatedBytes() {
+        long bytes = (long) firstSequences.length * (8 + 8 + 4 + 4 + 4);
+        for (int i = 0; i < chunkCount; i++) {
+            bytes += chunks[i].length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Start a new chunk with the given entry.
+     * @param sequence sequence.
+     * @param time time in milliseconds.
+     * @param price price.
+     */
+    private void addChunk(final long sequence, final long time, final int price) {
+        if (chunkCount == chunks.length) {
+            int capacity = chunkCount * 2;
+            chunks = Arrays.copyOf(chunks, capacity);
+            firstSequences = Arrays.copyOf(firstSequences, capacity);
+            firstTimes = Arrays.copyOf(firstTimes, capacity);
+            firstPrices = Arrays.copyOf(firstPrices, capacity);
+            chunkLengths = Arrays.copyOf(chunkLengths, capacity);
+            chunkSizes = Arrays.copyOf(chunkSizes, capacity);
+        }
+        chunks[chunkCount] = new byte[INITIAL_CHUNK_BYTES];
+        firstSequences[chunkCount] = sequence;
+        firstTimes[chunkCount] = time;
+        firstPrices[chunkCount] = price;
+        chunkLengths[chunkCount] = 0;
+        chunkSizes[chunkCount] = 1;
+        chunkCount++;
+    }
+
+    /**
+     * Find the last chunk whose first entry is not after the key.
+     * @param firsts first sequences or first times of the chunks, not decreasing.
+     * @param key sequence or time.
+     * @return chunk index, or -1 if the key is before the first chunk.
+     */
+    private int floorChunk(final long[] firsts, final long key) {
+        int low = 0;
+        int high = chunkCount - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (firsts[mid] <= key) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Write an unsigned varint.
+     * @param buffer target buffer.
+     * @param position write position.
+     * @param value value, treated as unsigned.
+     * @return position after the varint.
+     */
+    private static int writeVarint(final byte[] buffer, final int position, final long value) {
+        int p = position;
+        long v = value;
+        while ((v & ~0x7FL) != 0) {
+            buffer[p++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        buffer[p++] = (byte) v;
+        return p;
+    }
+
+    /**
+     * Zigzag encode a signed value, so small negative values have short varints.
+     * @param value signed value.
+     * @return zigzag encoded value.
+     */
+    private static long zigzag(final long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Zigzag decode a value.
+     * @param value zigzag encoded value.
+     * @return signed value.
+     */
+    private static long unzigzag(final long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Forward reader over the entries, starting at the first entry of a chunk.
+     */
+    private final class Cursor {
+        /**
+         * Current chunk.
+         */
+        private int chunk;
+
+        /**
+         * Read position in the current chunk.
+         */
+        private int position;
+
+        /**
+         * Entries left in the current chunk after the current entry.
+         */
+        private int remaining;
+
+        /**
+         * Sequence of the current entry.
+         */
+        private long sequence;
+
+        /**
+         * Time of the current entry.
+         */
+        private long time;
+
+        /**
+         * Price of the current entry.
+         */
+        private int price;
+
+        /**
+         * Constructor.
+         * @param chunk chunk index.
+         */
+        Cursor(final int chunk) {
+            startChunk(chunk);
+        }
+
+        /**
+         * Move to the next entry.
+         * @return false if there is no next entry.
+         */
+        boolean next() {
+            if (remaining == 0) {
+                if (chunk + 1 >= chunkCount) {
+                    return false;
+                }
+                startChunk(chunk + 1);
+                return true;
+            }
+            sequence += readVarint();
+            time += readVarint();
+            price += (int) unzigzag(readVarint());
+            remaining--;
+            return true;
+        }
+
+        /**
+         * Move to the first entry of a chunk.
+         * @param index chunk index.
+         */
+        private void startChunk(final int index) {
+            chunk = index;
+            position = 0;
+            remaining = chunkSizes[index] - 1;
+            sequence = firstSequences[index];
+            time = firstTimes[index];
+            price = firstPrices[index];
+        }
+
+        /**
+         * Read an unsigned varint from the current chunk.
+         * @return value.
+         */
+        private long readVarint() {
+            byte[] buffer = chunks[chunk];
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
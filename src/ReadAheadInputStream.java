@@ -0,0 +1,240 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Read ahead input stream.
+ *
+ * <p>A dedicated thread reads the source stream, for example a GZIPInputStream, into a fixed set of
+ * reusable buffers while the caller consumes the buffers filled before, so inflating overlaps with
+ * applying transactions.</p>
+ *
+ * <p>The stream contains:</p>
+ * <ul>
+ * <li>A queue of free buffers, waiting to be filled by the read ahead thread</li>
+ * <li>A queue of filled buffers, waiting to be consumed by the caller</li>
+ * </ul>
+ *
+ * <p>No buffer is allocated after construction. The stream is meant for one consuming thread.</p>
+ */
+public class ReadAheadInputStream extends InputStream {
+    /**
+     * Default buffer size.
+     */
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default number of buffers.
+     */
+    static final int DEFAULT_BUFFER_COUNT = 4;
+
+    /**
+     * Source stream, only read by the read ahead thread.
+     */
+    private final InputStream source;
+
+    /**
+     * Buffers waiting to be filled.
+     */
+    private final BlockingQueue<Chunk> freeChunks;
+
+    /**
+     * Buffers waiting to be consumed.
+     */
+    private final BlockingQueue<Chunk> filledChunks;
+
+    /**
+     * Read ahead thread.
+     */
+    private final Thread readAheadThread;
+
+    /**
+     * Buffer being consumed.
+     */
+    private Chunk current;
+
+    /**
+     * Read position in the buffer being consumed.
+     */
+    private int position;
+
+    /**
+     * Whether the end of the source was consumed.
+     */
+    private boolean endOfStream;
+
+    /**
+     * Whether the stream is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Constructor with default buffers.
+     * @param source source stream.
+     */
+    public ReadAheadInputStream(final InputStream source) {
+        this(source, DEFAULT_BUFFER_SIZE, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Constructor.
+     * @param source source stream.
+     * @param bufferSize size of each buffer.
+     * @param bufferCount number of buffers, at least 2 so reading and consuming overlap.
+     */
+    public ReadAheadInputStream(final InputStream source, final int bufferSize, final int bufferCount) {
+        if (bufferSize <= 0 || bufferCount < 2) {
+            throw new IllegalArgumentException("Read ahead needs at least 2 buffers of positive size.");
+        }
+        this.source = source;
+        this.freeChunks = new ArrayBlockingQueue<>(bufferCount);
+        this.filledChunks = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            freeChunks.add(new Chunk(new byte[bufferSize]));
+        }
+        this.readAheadThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readAhead();
+            }
+        }, "read-ahead");
+        this.readAheadThread.setDaemon(true);
+        this.readAheadThread.start();
+    }
+
+    /**
+     * Body of the read ahead thread.
+     * Fill free buffers until the end of the source, then queue an end of stream marker.
+     */
+    private void readAhead() {
+        try {
+            while (!closed) {
+                Chunk chunk = freeChunks.take();
+                int length = source.read(chunk.data, 0, chunk.data.length);
+                if (length < 0) {
+                    chunk.length = -1;
+                    filledChunks.put(chunk);
+                    return;
+                }
+                chunk.length = length;
+                filledChunks.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            Chunk failure = new Chunk(null);
+            failure.failure = e;
+            filledChunks.offer(failure);
+        }
+    }
+
+    /**
+     * Make sure there is a buffer with unread bytes.
+     * @return false at the end of the stream.
+     * @throws IOException
+     *              Throws when the read ahead thread failed to read the source.
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+        while (current == null || position >= current.length) {
+            if (endOfStream) {
+                return false;
+            }
+            if (current != null) {
+                freeChunks.offer(current);
+                current = null;
+            }
+            Chunk chunk;
+            try {
+                chunk = filledChunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for read ahead.", e);
+            }
+            if (chunk.failure != null) {
+                throw chunk.failure instanceof IOException ? (IOException) chunk.failure
+                        : new IOException(chunk.failure);
+            }
+            if (chunk.length < 0) {
+                endOfStream = true;
+                return false;
+            }
+            current = chunk;
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int length = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        readAheadThread.interrupt();
+        try {
+            readAheadThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+    /**
+     * Reusable buffer.
+     */
+    private static final class Chunk {
+        /**
+         * Buffer bytes.
+         */
+        private final byte[] data;
+
+        /**
+         * Number of valid bytes, -1 marks the end of the stream.
+         */
+        private int length;
+
+        /**
+         * Failure of the read ahead thread.
+         */
+        private Exception failure;
+
+        /**
+         * Constructor.
+         * @param data buffer bytes.
+         */
+        Chunk(final byte[] data) {
+            this.data = data;
+        }
+    }
+}
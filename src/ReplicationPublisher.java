@@ -0,0 +1,361 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Primary side of primary/standby replication.
+ *
+ * <p>Listens for standbys on a TCP port and streams every applied change to them, with the resolved flight
+ * and seat, so a {@link ReplicationReceiver} replays the exact same state without picking seats itself:</p>
+ * <ul>
+ * <li>Changes are encoded by the thread applying them into a pending buffer, which is all the primary pays
+ *     on its own thread</li>
+ * <li>A sender thread swaps the pending buffer with a spare one and writes it to every standby as one
+ *     frame, while the next changes fill the other buffer, so frames grow with the load</li>
+ * <li>When nothing changes, an empty frame is sent every {@link #HEARTBEAT_MILLIS} milliseconds, so
+ *     standbys notice a dead primary within a few heartbeats</li>
+ * </ul>
+ *
+ * <p>Each frame is the payload length, the number of records and the records. A record starts with its
+ * type and the transaction sequence of the primary, followed by the flight number and:</p>
+ * <ul>
+ * <li>{@link #SEAT_SOLD}: passenger name, price, seat number and fare class, empty if none</li>
+ * <li>{@link #SEAT_RELEASED}: passenger name</li>
+ * <li>{@link #PRICE_CHANGED}: new price, price history sequence and time</li>
+ * </ul>
+ *
+ * <p>A standby receives the changes applied after it connected, so standbys should connect before the
+ * primary starts, see {@link #awaitStandbys(int, long)}. Inventory changes, seat maps, fare buckets,
+ * holds and waitlists are not streamed.</p>
+ */
+public class ReplicationPublisher implements ReservationListener, Closeable {
+    /**
+     * Record type of a sold seat.
+     */
+    static final byte SEAT_SOLD = 1;
+
+    /**
+     * Record type of a released seat.
+     */
+    static final byte SEAT_RELEASED = 2;
+
+    /**
+     * Record type of a price change.
+     */
+    static final byte PRICE_CHANGED = 3;
+
+    /**
+     * Interval between heartbeats of an idle primary.
+     */
+    static final long HEARTBEAT_MILLIS = 200;
+
+    /**
+     * Pending bytes above which the applying thread waits for the sender.
+     */
+    static final int MAX_PENDING_BYTES = 8 * 1024 * 1024;
+
+    /**
+     * Replicated system.
+     */
+    private final FlightReservationSystem flightReservationSystem;
+
+    /**
+     * Server socket accepting standbys.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Connected standbys.
+     */
+    private final List<DataOutputStream> standbys;
+
+    /**
+     * Buffer filled by the applying thread.
+     */
+    private ByteArrayOutputStream pending;
+
+    /**
+     * Writer of the pending buffer.
+     */
+    private DataOutputStream pendingOut;
+
+    /**
+     * Buffer written by the sender thread.
+     */
+    private ByteArrayOutputStream spare;
+
+    /**
+     * Writer of the spare buffer.
+     */
+    private DataOutputStream spareOut;
+
+    /**
+     * Number of records in the pending buffer.
+     */
+    private int pendingRecords;
+
+    /**
+     * Number of records sent.
+     */
+    private long sentRecords;
+
+    /**
+     * True once closed.
+     */
+    private boolean closed;
+
+    /**
+     * Thread accepting standbys.
+     */
+    private final Thread acceptor;
+
+    /**
+     * Thread sending frames.
+     */
+    private final Thread sender;
+
+    /**
+     * Constructor, starts listening and registers as a listener of the system.
+     * @param flightReservationSystem replicated system.
+     * @param port TCP port, 0 for any free port.
+     * @throws IOException
+     *              Throws when the port cannot be bound.
+     */
+    public ReplicationPublisher(final FlightReservationSystem flightReservationSystem, final int port)
+            throws IOException {
+        this.flightReservationSystem = flightReservationSystem;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.standbys = new CopyOnWriteArrayList<>();
+        this.pending = new ByteArrayOutputStream();
+        this.pendingOut = new DataOutputStream(pending);
+        this.spare = new ByteArrayOutputStream();
+        this.spareOut = new DataOutputStream(spare);
+        this.acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptStandbys();
+            }
+        }, "replication-acceptor");
+        this.sender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                sendFrames();
+            }
+        }, "replication-sender");
+        acceptor.setDaemon(true);
+        sender.setDaemon(true);
+        acceptor.start();
+        sender.start();
+        flightReservationSystem.addReservationListener(this);
+    }
+
+    /**
+     * Get the port standbys connect to.
+     * @return TCP port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Get number of connected standbys.
+     * @return number of standbys.
+     */
+    public int getStandbyCount() {
+        return standbys.size();
+    }
+
+    /**
+     * Get number of records sent to the standbys.
+     * @return sent records.
+     */
+    public synchronized long getSentRecords() {
+        return sentRecords;
+    }
+
+    /**
+     * Wait until enough standbys are connected.
+     * @param count number of standbys.
+     * @param timeoutMillis maximum time to wait.
+     * @return true if enough standbys are connected.
+     * @throws InterruptedException
+     *              Throws when the thread is interrupted while waiting.
+     */
+    public boolean awaitStandbys(final int count, final long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (standbys.size() < count) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Override
+    public void seatSold(final Flight flight, final ReservationItem item) {
+        synchronized (this) {
+            try {
+                beginRecord(SEAT_SOLD, flight);
+                pendingOut.writeUTF(item.getPassenger().getName());
+                pendingOut.writeInt(item.getPrice());
+                pendingOut.writeInt(item.getSeatNumber());
+                pendingOut.writeUTF(item.getFareClass() == null ? "" : item.getFareClass());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            endRecord();
+        }
+    }
+
+    @Override
+    public void seatReleased(final Flight flight, final ReservationItem item) {
+        synchronized (this) {
+            try {
+                beginRecord(SEAT_RELEASED, flight);
+                pendingOut.writeUTF(item.getPassenger().getName());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            endRecord();
+        }
+    }
+
+    @Override
+    public void priceChanged(final Flight flight, final int oldPrice) {
+        synchronized (this) {
+            try {
+                beginRecord(PRICE_CHANGED, flight);
+                pendingOut.writeInt(flight.getPricePerSeat());
+                pendingOut.writeLong(flight.getPriceHistory().getLastSequence());
+                pendingOut.writeLong(flight.getPriceHistory().getLastTime());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            endRecord();
+        }
+    }
+
+    /**
+     * Write the common fields of a record, waiting first if the sender is too far behind.
+     * The caller holds the lock of this publisher.
+     * @param type record type.
+     * @param flight changed flight.
+     * @throws IOException
+     *              Never thrown by the in-memory buffer.
+     */
+    private void beginRecord(final byte type, final Flight flight) throws IOException {
+        while (pending.size() > MAX_PENDING_BYTES && !closed) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        pendingOut.writeByte(type);
+        pendingOut.writeLong(flightReservationSystem.getTransactionSequence());
+        pendingOut.writeUTF(flight.getFlightNumber());
+    }
+
+    /**
+     * Count a written record and wake up the sender if it waits for one.
+     * The caller holds the lock of this publisher.
+     */
+    private void endRecord() {
+        if (pendingRecords++ == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Accept standbys until closed.
+     */
+    private void acceptStandbys() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                standbys.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024)));
+            } catch (IOException e) {
+                //The server socket was closed.
+                return;
+            }
+        }
+    }
+
+    /**
+     * Send the pending records as one frame each time there are some, or a heartbeat, until closed.
+     */
+    private void sendFrames() {
+        while (true) {
+            int records;
+            boolean last;
+            synchronized (this) {
+                if (pendingRecords == 0 && !closed) {
+                    try {
+                        wait(HEARTBEAT_MILLIS);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                //Swap buffers, the applying thread fills the other one while this one is sent.
+                ByteArrayOutputStream full = pending;
+                DataOutputStream fullOut = pendingOut;
+                pending = spare;
+                pendingOut = spareOut;
+                spare = full;
+                spareOut = fullOut;
+                records = pendingRecords;
+                pendingRecords = 0;
+                sentRecords += records;
+                last = closed;
+                notifyAll();
+            }
+            for (DataOutputStream standby : standbys) {
+                try {
+                    standby.writeInt(spare.size());
+                    standby.writeInt(records);
+                    spare.writeTo(standby);
+                    standby.flush();
+                } catch (IOException e) {
+                    //The standby is gone, the others keep receiving.
+                    standbys.remove(standby);
+                }
+            }
+            spare.reset();
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stop publishing, send the pending records and disconnect the standbys.
+     */
+    @Override
+    public void close() throws IOException {
+        flightReservationSystem.removeReservationListener(this);
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        try {
+            sender.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        serverSocket.close();
+        for (DataOutputStream standby : standbys) {
+            standby.close();
+        }
+        standbys.clear();
+    }
+}
@@ -0,0 +1,195 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+
+/**
+ * Standby side of primary/standby replication.
+ *
+ * <p>Connects to a {@link ReplicationPublisher} and applies its records to a standby system loaded from the
+ * same flight input file, in the order the primary applied them, on one receiver thread. The standby can
+ * serve read queries meanwhile, each change is applied under the lock of its route.</p>
+ *
+ * <p>The primary is considered gone when the stream ends or no frame, not even a heartbeat, arrives for
+ * {@link #FAILURE_TIMEOUT_MILLIS} milliseconds. The standby then only has to stop receiving to take over,
+ * see {@link #promote()}, and {@link #getAppliedSequence()} tells which transaction of the primary was the
+ * last one applied.</p>
+ */
+public class ReplicationReceiver implements Closeable {
+    /**
+     * Time without any frame after which the primary is considered gone.
+     */
+    static final int FAILURE_TIMEOUT_MILLIS = (int) (5 * ReplicationPublisher.HEARTBEAT_MILLIS);
+
+    /**
+     * Standby system.
+     */
+    private final FlightReservationSystem flightReservationSystem;
+
+    /**
+     * Socket connected to the primary.
+     */
+    private final Socket socket;
+
+    /**
+     * Stream from the primary.
+     */
+    private final DataInputStream in;
+
+    /**
+     * Thread applying the records.
+     */
+    private final Thread receiver;
+
+    /**
+     * Transaction sequence of the primary of the last applied record.
+     */
+    private volatile long appliedSequence;
+
+    /**
+     * Number of applied records.
+     */
+    private volatile long appliedRecords;
+
+    /**
+     * True while the primary is streaming.
+     */
+    private volatile boolean primaryAlive;
+
+    /**
+     * Constructor, connects to the primary and starts applying its records.
+     * @param flightReservationSystem standby system, loaded from the flight input file of the primary.
+     * @param host primary host.
+     * @param port primary replication port.
+     * @throws IOException
+     *              Throws when the primary cannot be reached.
+     */
+    public ReplicationReceiver(final FlightReservationSystem flightReservationSystem, final String host,
+            final int port) throws IOException {
+        this.flightReservationSystem = flightReservationSystem;
+        this.socket = new Socket(host, port);
+        socket.setSoTimeout(FAILURE_TIMEOUT_MILLIS);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+        this.primaryAlive = true;
+        this.receiver = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                receive();
+            }
+        }, "replication-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Check if the primary is still streaming.
+     * @return false once the stream ended or timed out.
+     */
+    public boolean isPrimaryAlive() {
+        return primaryAlive;
+    }
+
+    /**
+     * Get transaction sequence of the primary of the last applied record.
+     * @return applied sequence, 0 before the first record.
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * Get number of applied records.
+     * @return applied records.
+     */
+    public long getAppliedRecords() {
+        return appliedRecords;
+    }
+
+    /**
+     * Wait until the primary is gone and all its records are applied.
+     * @param timeoutMillis maximum time to wait, 0 to wait forever.
+     * @return true if the primary is gone.
+     * @throws InterruptedException
+     *              Throws when the thread is interrupted while waiting.
+     */
+    public boolean awaitPrimaryGone(final long timeoutMillis) throws InterruptedException {
+        receiver.join(timeoutMillis);
+        return !receiver.isAlive();
+    }
+
+    /**
+     * Stop receiving and take over, the standby system can then apply transactions itself.
+     * @return transaction sequence of the primary of the last applied record.
+     * @throws IOException
+     *              Throws when the connection cannot be closed.
+     */
+    public long promote() throws IOException {
+        close();
+        try {
+            receiver.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return appliedSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Apply frames until the primary is gone.
+     */
+    private void receive() {
+        try {
+            while (true) {
+                in.readInt();
+                int records = in.readInt();
+                for (int i = 0; i < records; i++) {
+                    applyRecord();
+                }
+            }
+        } catch (EOFException | SocketTimeoutException e) {
+            //The primary closed the stream or stopped sending heartbeats.
+        } catch (IOException e) {
+            //The connection was closed by promote or broke.
+        } finally {
+            primaryAlive = false;
+        }
+    }
+
+    /**
+     * Read and apply one record.
+     * @throws IOException
+     *              Throws when the stream breaks.
+     */
+    private void applyRecord() throws IOException {
+        byte type = in.readByte();
+        long sequence = in.readLong();
+        String flightNumber = in.readUTF();
+        if (type == ReplicationPublisher.SEAT_SOLD) {
+            Passenger passenger = new Passenger(in.readUTF());
+            int price = in.readInt();
+            int seatNumber = in.readInt();
+            String fareClass = in.readUTF();
+            flightReservationSystem.applyReplicatedSale(flightNumber, new ReservationItem(passenger, price,
+                    seatNumber, fareClass.isEmpty() ? null : fareClass));
+        } else if (type == ReplicationPublisher.SEAT_RELEASED) {
+            flightReservationSystem.applyReplicatedRelease(flightNumber, new Passenger(in.readUTF()));
+        } else if (type == ReplicationPublisher.PRICE_CHANGED) {
+            int newPrice = in.readInt();
+            long priceSequence = in.readLong();
+            long timeMillis = in.readLong();
+            flightReservationSystem.applyReplicatedPriceChange(flightNumber, newPrice, priceSequence, timeMillis);
+        } else {
+            throw new IOException("Unknown replication record type " + type);
+        }
+        flightReservationSystem.advanceTransactionSequence(sequence);
+        appliedSequence = sequence;
+        appliedRecords++;
+    }
+}
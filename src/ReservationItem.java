@@ -6,6 +6,7 @@
  * <li>Passenger information</li>
  * <li>Flight price</li>
  * <li>Seat Number</li>
+ * <li>Fare class, optional</li>
  * </ul>
  */
 public class ReservationItem {
@@ -24,13 +25,38 @@ public class ReservationItem {
      */
     private final int seatNumber;
 
+    /**
+     * Fare class of the fare bucket the seat was sold in, null if the flight has no fare buckets.
+     */
+    private final String fareClass;
+
     /**
      * Constructor.
      */
     public ReservationItem(final Passenger passenger, final int price, final int seatNumber) {
+        this(passenger, price, seatNumber, null);
+    }
+
+    /**
+     * Constructor.
+     * @param passenger passenger.
+     * @param price flight price.
+     * @param seatNumber seat number.
+     * @param fareClass fare class, null if the flight has no fare buckets.
+     */
+    public ReservationItem(final Passenger passenger, final int price, final int seatNumber, final String fareClass) {
         this.passenger = passenger;
         this.price = price;
         this.seatNumber = seatNumber;
+        this.fareClass = fareClass;
+    }
+
+    /**
+     * Get fare class.
+     * @return fare class, or null if the seat was not sold in a fare bucket.
+     */
+    public String getFareClass() {
+        return fareClass;
     }
 
     /**
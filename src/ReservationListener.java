@@ -0,0 +1,28 @@
+/**
+ * Listener of reservation changes on flights.
+ *
+ * <p>Listeners are called on the thread applying the change, right after the change takes effect on the
+ * flight, so they should return quickly.</p>
+ */
+public interface ReservationListener {
+    /**
+     * Called after a passenger is booked on a flight.
+     * @param flight flight.
+     * @param item new reservation item.
+     */
+    void seatSold(Flight flight, ReservationItem item);
+
+    /**
+     * Called after a booking on a flight is canceled.
+     * @param flight flight.
+     * @param item canceled reservation item.
+     */
+    void seatReleased(Flight flight, ReservationItem item);
+
+    /**
+     * Called after the price per seat of a flight changed.
+     * @param flight flight.
+     * @param oldPrice price per seat before the change.
+     */
+    void priceChanged(Flight flight, int oldPrice);
+}
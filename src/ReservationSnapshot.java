@@ -0,0 +1,60 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Consistent point in time view of the flights and their reservations,
+ * see {@link FlightReservationSystem#takeReservationSnapshot()}.
+ *
+ * <p>The snapshot holds one {@link FlightVersion} per flight, all as of the same version: every change
+ * with a version up to it is seen, none after it. Taking it does not lock any route, and it stays valid while
+ * transactions go on. Its versions are reclaimed with it.</p>
+ */
+public class ReservationSnapshot {
+    /**
+     * Version of the snapshot.
+     */
+    private final long version;
+
+    /**
+     * Version of each flight.
+     */
+    private final List<FlightVersion> flightVersions;
+
+    /**
+     * Constructor.
+     * @param version version of the snapshot.
+     * @param flightVersions version of each flight.
+     */
+    ReservationSnapshot(final long version, final List<FlightVersion> flightVersions) {
+        this.version = version;
+        this.flightVersions = Collections.unmodifiableList(flightVersions);
+    }
+
+    /**
+     * Get version.
+     * @return version of the snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get flight versions.
+     * @return read only list of the version of each flight.
+     */
+    public List<FlightVersion> getFlightVersions() {
+        return flightVersions;
+    }
+
+    /**
+     * Get total number of sold seats.
+     * @return sold seats.
+     */
+    public int getSoldSeats() {
+        int soldSeats = 0;
+        for (FlightVersion flightVersion : flightVersions) {
+            soldSeats += flightVersion.getSoldSeats();
+        }
+        return soldSeats;
+    }
+}
@@ -0,0 +1,323 @@
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Flat combiner of the bookings and cancels of one route.
+ *
+ * <p>Instead of each caller taking the route lock for its own request:</p>
+ * <ul>
+ * <li>Each thread owns a request slot, linked once into a publication list, and posts its request there</li>
+ * <li>The thread which wins the combiner role takes the route lock once and applies every posted request
+ *     in one pass, handing each caller its result through its slot</li>
+ * <li>The other callers spin on their own slot until it is done, or take the combiner role if it is
+ *     free</li>
+ * </ul>
+ *
+ * <p>A combiner makes at most {@link #MAX_PASSES} passes over the list before giving the role away, so a
+ * posted request waits for at most one batch started after it, and the route lock changes hands once per
+ * batch instead of once per request.</p>
+ *
+ * <p>Every {@link #CLEANUP_PERIOD} batches, the combiner unlinks the idle slots not used for
+ * {@link #MAX_IDLE_BATCHES} batches, so the slots of finished threads do not stay in the list. A thread
+ * finding its slot unlinked links it again.</p>
+ */
+public abstract class RouteCombiner {
+    /**
+     * Maximum number of passes of one combiner over the publication list.
+     */
+    static final int MAX_PASSES = 4;
+
+    /**
+     * Number of batches between two cleanups of the publication list.
+     */
+    static final int CLEANUP_PERIOD = 64;
+
+    /**
+     * Number of batches after which an unused slot is unlinked.
+     */
+    static final int MAX_IDLE_BATCHES = 64;
+
+    /**
+     * Number of spins on a slot before yielding.
+     */
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    /**
+     * Lock of the route.
+     */
+    private final Object routeLock;
+
+    /**
+     * Head of the publication list.
+     */
+    private final AtomicReference<Request> head;
+
+    /**
+     * Combiner role.
+     */
+    private final AtomicBoolean combining;
+
+    /**
+     * Request slot of each thread.
+     */
+    private final ThreadLocal<Request> slot;
+
+    /**
+     * Number of combined requests, updated by combiners only.
+     */
+    private volatile long combinedRequests;
+
+    /**
+     * Number of batches, updated by combiners only.
+     */
+    private volatile long batches;
+
+    /**
+     * Constructor.
+     * @param routeLock lock of the route, held while a batch is applied.
+     */
+    public RouteCombiner(final Object routeLock) {
+        this.routeLock = routeLock;
+        this.head = new AtomicReference<>();
+        this.combining = new AtomicBoolean();
+        this.slot = new ThreadLocal<>();
+    }
+
+    /**
+     * Apply one request, called by the combiner while holding the route lock.
+     * @param type BookPassenger or CancelPassenger.
+     * @param passenger passenger.
+     * @param outcome outcome of the caller, filled with the result of the request.
+     * @return result handed to the caller.
+     */
+    protected abstract ReservationItem apply(TransactionTypeEnum type, Passenger passenger,
+            TransactionOutcome outcome);
+
+    /**
+     * Post a request and wait until it is applied, by this thread or by another combiner.
+     * @param type BookPassenger or CancelPassenger.
+     * @param passenger passenger.
+     * @param outcome outcome of the request, filled by the combiner before the request is done.
+     * @return result of {@link #apply(TransactionTypeEnum, Passenger, TransactionOutcome)}.
+     */
+    public ReservationItem submit(final TransactionTypeEnum type, final Passenger passenger,
+            final TransactionOutcome outcome) {
+        Request request = getSlot();
+        request.type = type;
+        request.passenger = passenger;
+        request.outcome = outcome;
+        request.state = Request.PENDING;
+        int spins = 0;
+        while (request.state != Request.DONE) {
+            if (!request.linked) {
+                //Unlinked by a cleanup racing with the post, no combiner would see the request.
+                link(request);
+            }
+            if (!combining.get() && combining.compareAndSet(false, true)) {
+                try {
+                    combine();
+                } finally {
+                    combining.set(false);
+                }
+            } else if (++spins % SPINS_BEFORE_YIELD == 0) {
+                Thread.yield();
+            }
+        }
+        ReservationItem result = request.result;
+        RuntimeException failure = request.failure;
+        request.result = null;
+        request.failure = null;
+        request.passenger = null;
+        request.outcome = null;
+        request.state = Request.IDLE;
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    /**
+     * Get number of combined requests.
+     * @return combined requests.
+     */
+    public long getCombinedRequests() {
+        return combinedRequests;
+    }
+
+    /**
+     * Get number of batches applied.
+     * @return batches.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Get number of slots in the publication list.
+     * @return linked slots.
+     */
+    int getLinkedSlots() {
+        int linkedSlots = 0;
+        for (Request request = head.get(); request != null; request = request.next) {
+            linkedSlots++;
+        }
+        return linkedSlots;
+    }
+
+    /**
+     * Apply the posted requests under the route lock, the caller holds the combiner role.
+     */
+    private void combine() {
+        long combined = 0;
+        long batch = batches;
+        synchronized (routeLock) {
+            for (int pass = 0; pass < MAX_PASSES; pass++) {
+                int applied = 0;
+                for (Request request = head.get(); request != null; request = request.next) {
+                    if (request.state == Request.PENDING) {
+                        //A failed request is handed back to its caller, the others of the batch go on.
+                        try {
+                            request.result = apply(request.type, request.passenger, request.outcome);
+                        } catch (RuntimeException e) {
+                            request.failure = e;
+                        }
+                        request.lastBatch = batch;
+                        request.state = Request.DONE;
+                        applied++;
+                    }
+                }
+                combined += applied;
+                if (applied == 0) {
+                    break;
+                }
+            }
+        }
+        if (combined > 0) {
+            combinedRequests += combined;
+            batches = batch + 1;
+            if (batch % CLEANUP_PERIOD == 0) {
+                cleanUp(batch);
+            }
+        }
+    }
+
+    /**
+     * Unlink the idle slots unused for {@link #MAX_IDLE_BATCHES} batches, the caller holds the combiner role.
+     * The head slot stays, new slots are linked in front of it. Only the combiner changes the links after the
+     * head, so unlinking needs no CAS.
+     * @param batch current batch.
+     */
+    private void cleanUp(final long batch) {
+        Request previous = head.get();
+        if (previous == null) {
+            return;
+        }
+        Request request = previous.next;
+        while (request != null) {
+            Request next = request.next;
+            if (request.state == Request.IDLE && batch - request.lastBatch > MAX_IDLE_BATCHES) {
+                previous.next = next;
+                //Cleared after the unlink, so a thread linking the slot again does not race with it.
+                request.linked = false;
+            } else {
+                previous = request;
+            }
+            request = next;
+        }
+    }
+
+    /**
+     * Get the request slot of the current thread, linking it into the publication list on first use.
+     * @return request slot.
+     */
+    private Request getSlot() {
+        Request request = slot.get();
+        if (request == null) {
+            request = new Request();
+            slot.set(request);
+        }
+        if (!request.linked) {
+            link(request);
+        }
+        return request;
+    }
+
+    /**
+     * Link a slot at the head of the publication list.
+     * @param request unlinked slot of the current thread.
+     */
+    private void link(final Request request) {
+        request.lastBatch = batches;
+        request.linked = true;
+        Request first;
+        do {
+            first = head.get();
+            request.next = first;
+        } while (!head.compareAndSet(first, request));
+    }
+
+    /**
+     * Request slot of one thread.
+     */
+    private static final class Request {
+        /**
+         * No request posted.
+         */
+        static final int IDLE = 0;
+
+        /**
+         * Request posted, waiting for a combiner.
+         */
+        static final int PENDING = 1;
+
+        /**
+         * Request applied, result available.
+         */
+        static final int DONE = 2;
+
+        /**
+         * State, written last by the caller when posting and by the combiner when done.
+         */
+        volatile int state;
+
+        /**
+         * Request type.
+         */
+        TransactionTypeEnum type;
+
+        /**
+         * Passenger.
+         */
+        Passenger passenger;
+
+        /**
+         * Outcome of the caller.
+         */
+        TransactionOutcome outcome;
+
+        /**
+         * Result.
+         */
+        ReservationItem result;
+
+        /**
+         * Failure thrown while applying the request, rethrown to the caller.
+         */
+        RuntimeException failure;
+
+        /**
+         * Whether the slot is in the publication list, cleared by the cleanup which unlinks it.
+         */
+        volatile boolean linked;
+
+        /**
+         * Last batch which applied a request of the slot.
+         */
+        volatile long lastBatch;
+
+        /**
+         * Next slot of the publication list, set before the slot is published and changed by cleanups.
+         */
+        volatile Request next;
+    }
+}
@@ -0,0 +1,340 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Schedule index of the dated flights of one route.
+ *
+ * <p>Flights are indexed by departure day:</p>
+ * <ul>
+ * <li>Each hot day keeps its flights, and a TreeSet of its available flights ordered by their cheapest open
+ *     fare, see {@link Flight#getCheapestOpenFare()}, then by flight number, so the cheapest available flight
+ *     of a day is the first one. A flight is available while a seat can be sold, a flight with fare buckets
+ *     stops being available when its buckets are all closed</li>
+ * <li>A segment tree over the hot days keeps the cheapest available flight of each range of days, so the
+ *     cheapest flight of a day or of a range of days is found in O(log days)</li>
+ * <li>Days before the first hot day are archived: their flights leave the hot index and the segment tree
+ *     is rebased, so it only covers today and the future</li>
+ * </ul>
+ *
+ * <p>The fare of each available flight is cached, like in {@link FareIndex}, and flights update their index
+ * after every change. The index is not thread safe, the route lock guards it.</p>
+ */
+public class ScheduleIndex {
+    /**
+     * Maximum number of hot days.
+     */
+    static final int MAX_DAYS = 1 << 16;
+
+    /**
+     * Flights of each hot day.
+     */
+    private final TreeMap<Long, List<Flight>> flightsByDay;
+
+    /**
+     * Available flights of each hot day, cheapest first.
+     */
+    private final Map<Long, TreeSet<Flight>> availableByDay;
+
+    /**
+     * Cached cheapest open fare of each available hot flight.
+     */
+    private final Map<Flight, Integer> fares;
+
+    /**
+     * Order of available flights, cheapest open fare first.
+     */
+    private final Comparator<Flight> fareOrder;
+
+    /**
+     * Flights of each archived day.
+     */
+    private final TreeMap<Long, List<Flight>> archivedByDay;
+
+    /**
+     * First hot day, as epoch day, the day of leaf 0.
+     */
+    private long firstDay;
+
+    /**
+     * Number of leaves of the segment tree, a power of two.
+     */
+    private int leaves;
+
+    /**
+     * Cheapest available flight of each node, null if none.
+     */
+    private Flight[] tree;
+
+    /**
+     * Constructor.
+     * @param today first hot day.
+     */
+    public ScheduleIndex(final LocalDate today) {
+        this.flightsByDay = new TreeMap<>();
+        this.availableByDay = new TreeMap<>();
+        this.archivedByDay = new TreeMap<>();
+        this.fares = new HashMap<>();
+        this.fareOrder = new Comparator<Flight>() {
+            @Override
+            public int compare(final Flight a, final Flight b) {
+                int result = Integer.compare(fares.get(a), fares.get(b));
+                if (result == 0) {
+                    result = a.getFlightNumber().compareTo(b.getFlightNumber());
+                }
+                return result;
+            }
+        };
+        this.firstDay = today.toEpochDay();
+        this.leaves = 1;
+        this.tree = new Flight[2];
+    }
+
+    /**
+     * Add a dated flight, a flight departing before the first hot day is archived at once.
+     * @param flight flight with a departure time.
+     */
+    public void add(final Flight flight) {
+        long day = flight.getDepartureTime().toLocalDate().toEpochDay();
+        if (day < firstDay) {
+            dayList(archivedByDay, day).add(flight);
+            return;
+        }
+        if (day - firstDay >= MAX_DAYS) {
+            throw new IllegalArgumentException("Departure is more than " + MAX_DAYS + " days ahead.");
+        }
+        dayList(flightsByDay, day).add(flight);
+        flight.setScheduleIndex(this);
+        update(flight);
+    }
+
+    /**
+     * Remove a flight.
+     * @param flight flight.
+     */
+    public void remove(final Flight flight) {
+        long day = flight.getDepartureTime().toLocalDate().toEpochDay();
+        if (flight.getScheduleIndex() != this) {
+            removeFromDay(archivedByDay, day, flight);
+            return;
+        }
+        removeFromDay(flightsByDay, day, flight);
+        removeAvailable(flight, day);
+        flight.setScheduleIndex(null);
+    }
+
+    /**
+     * Move a flight after its cheapest open fare may have changed, or it became full or available again.
+     * @param flight hot flight.
+     */
+    void update(final Flight flight) {
+        int fare = flight.getCheapestOpenFare();
+        Integer cachedFare = fares.get(flight);
+        if (cachedFare != null && cachedFare == fare) {
+            return;
+        }
+        long day = flight.getDepartureTime().toLocalDate().toEpochDay();
+        removeAvailable(flight, day);
+        if (fare >= 0) {
+            fares.put(flight, fare);
+            addAvailable(flight, day);
+        }
+    }
+
+    /**
+     * Archive all days before a day.
+     * @param today new first hot day, ignored if it is not after the current first hot day.
+     */
+    public void archiveBefore(final LocalDate today) {
+        long day = today.toEpochDay();
+        if (day <= firstDay) {
+            return;
+        }
+        Map<Long, List<Flight>> pastDays = flightsByDay.headMap(day);
+        for (Map.Entry<Long, List<Flight>> entry : pastDays.entrySet()) {
+            for (Flight flight : entry.getValue()) {
+                flight.setScheduleIndex(null);
+                fares.remove(flight);
+            }
+            archivedByDay.put(entry.getKey(), entry.getValue());
+            availableByDay.remove(entry.getKey());
+        }
+        pastDays.clear();
+        firstDay = day;
+        rebuild(leaves);
+    }
+
+    /**
+     * Get the cheapest available flight of a day.
+     * @param date departure date.
+     * @return cheapest available flight, or null if none or the day is archived.
+     */
+    public Flight getCheapestFlight(final LocalDate date) {
+        TreeSet<Flight> available = availableByDay.get(date.toEpochDay());
+        return available == null ? null : available.first();
+    }
+
+    /**
+     * Get the cheapest available flight of a range of days.
+     * @param from first departure date.
+     * @param to last departure date, inclusive.
+     * @return cheapest available flight, or null if none. Archived days are skipped.
+     */
+    public Flight getCheapestFlight(final LocalDate from, final LocalDate to) {
+        long low = Math.max(from.toEpochDay(), firstDay) - firstDay;
+        long high = Math.min(to.toEpochDay(), firstDay + leaves - 1) - firstDay;
+        Flight cheapest = null;
+        if (low > high) {
+            return null;
+        }
+        int left = (int) low + leaves;
+        int right = (int) high + leaves + 1;
+        while (left < right) {
+            if ((left & 1) == 1) {
+                cheapest = cheaper(cheapest, tree[left++]);
+            }
+            if ((right & 1) == 1) {
+                cheapest = cheaper(cheapest, tree[--right]);
+            }
+            left >>>= 1;
+            right >>>= 1;
+        }
+        return cheapest;
+    }
+
+    /**
+     * Get flights of an archived day.
+     * @param date departure date.
+     * @return archived flights of the day.
+     */
+    public List<Flight> getArchivedFlights(final LocalDate date) {
+        List<Flight> flights = archivedByDay.get(date.toEpochDay());
+        return flights == null ? Collections.<Flight>emptyList() : Collections.unmodifiableList(flights);
+    }
+
+    /**
+     * Get number of hot days with at least one flight.
+     * @return number of hot days.
+     */
+    public int getHotDays() {
+        return flightsByDay.size();
+    }
+
+    /**
+     * Add an available flight to its day and update the segment tree.
+     * @param flight available flight, with its fare cached.
+     * @param day departure day.
+     */
+    private void addAvailable(final Flight flight, final long day) {
+        TreeSet<Flight> available = availableByDay.get(day);
+        if (available == null) {
+            available = new TreeSet<>(fareOrder);
+            availableByDay.put(day, available);
+        }
+        available.add(flight);
+        if (day - firstDay >= leaves) {
+            int newLeaves = leaves;
+            while (day - firstDay >= newLeaves) {
+                newLeaves <<= 1;
+            }
+            rebuild(newLeaves);
+        } else {
+            update(day);
+        }
+    }
+
+    /**
+     * Remove a flight from the available flights of its day and its cached fare, and update the segment tree.
+     * @param flight flight.
+     * @param day departure day.
+     */
+    private void removeAvailable(final Flight flight, final long day) {
+        if (!fares.containsKey(flight)) {
+            return;
+        }
+        TreeSet<Flight> available = availableByDay.get(day);
+        available.remove(flight);
+        fares.remove(flight);
+        if (available.isEmpty()) {
+            availableByDay.remove(day);
+        }
+        update(day);
+    }
+
+    /**
+     * Recompute the leaf of a day and its ancestors.
+     * @param day hot day covered by the tree.
+     */
+    private void update(final long day) {
+        int node = (int) (day - firstDay) + leaves;
+        TreeSet<Flight> available = availableByDay.get(day);
+        tree[node] = available == null ? null : available.first();
+        for (node >>>= 1; node >= 1; node >>>= 1) {
+            tree[node] = cheaper(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Rebuild the segment tree from the first hot day.
+     * @param newLeaves number of leaves.
+     */
+    private void rebuild(final int newLeaves) {
+        leaves = newLeaves;
+        tree = new Flight[2 * leaves];
+        for (Map.Entry<Long, TreeSet<Flight>> entry : availableByDay.entrySet()) {
+            tree[(int) (entry.getKey() - firstDay) + leaves] = entry.getValue().first();
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            tree[node] = cheaper(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Get the cheaper of two available flights.
+     * @param a flight or null.
+     * @param b flight or null.
+     * @return cheaper flight, null if both are null.
+     */
+    private Flight cheaper(final Flight a, final Flight b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        return fareOrder.compare(a, b) <= 0 ? a : b;
+    }
+
+    /**
+     * Get the flight list of a day, creating it if needed.
+     * @param days day to flights map.
+     * @param day day.
+     * @return flights of the day.
+     */
+    private static List<Flight> dayList(final Map<Long, List<Flight>> days, final long day) {
+        List<Flight> flights = days.get(day);
+        if (flights == null) {
+            flights = new ArrayList<>();
+            days.put(day, flights);
+        }
+        return flights;
+    }
+
+    /**
+     * Remove a flight from the flight list of a day.
+     * @param days day to flights map.
+     * @param day day.
+     * @param flight flight.
+     */
+    private static void removeFromDay(final Map<Long, List<Flight>> days, final long day, final Flight flight) {
+        List<Flight> flights = days.get(day);
+        if (flights != null && flights.remove(flight) && flights.isEmpty()) {
+            days.remove(day);
+        }
+    }
+}
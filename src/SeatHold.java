@@ -0,0 +1,106 @@
+/**
+ * Seat hold.
+ *
+ * <p>A hold takes a seat out of the flight's seat pool for a limited time, so the passenger can finish
+ * the checkout before the seat is booked. A hold contains:</p>
+ * <ul>
+ * <li>Hold id</li>
+ * <li>Flight</li>
+ * <li>Passenger</li>
+ * <li>Held seat number</li>
+ * <li>Price at the time of the hold</li>
+ * <li>Fare bucket the seat is held in, if the flight has fare buckets</li>
+ * </ul>
+ */
+public class SeatHold extends HierarchicalTimingWheel.Timeout {
+    /**
+     * Hold id.
+     */
+    private final long holdId;
+
+    /**
+     * Flight the seat belongs to.
+     */
+    private final Flight flight;
+
+    /**
+     * Passenger.
+     */
+    private final Passenger passenger;
+
+    /**
+     * Held seat number.
+     */
+    private final int seatNumber;
+
+    /**
+     * Price locked by the hold.
+     */
+    private final int price;
+
+    /**
+     * Fare bucket the seat is held in, null if the flight has no fare buckets.
+     */
+    private final FareBucket fareBucket;
+
+    /**
+     * Constructor.
+     */
+    public SeatHold(final long holdId, final Flight flight, final Passenger passenger, final int seatNumber,
+            final int price, final FareBucket fareBucket) {
+        this.holdId = holdId;
+        this.flight = flight;
+        this.passenger = passenger;
+        this.seatNumber = seatNumber;
+        this.price = price;
+        this.fareBucket = fareBucket;
+    }
+
+    /**
+     * Get hold id.
+     * @return hold id.
+     */
+    public long getHoldId() {
+        return holdId;
+    }
+
+    /**
+     * Get flight.
+     * @return flight.
+     */
+    public Flight getFlight() {
+        return flight;
+    }
+
+    /**
+     * Get passenger.
+     * @return passenger.
+     */
+    public Passenger getPassenger() {
+        return passenger;
+    }
+
+    /**
+     * Get seat number.
+     * @return seat number.
+     */
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+
+    /**
+     * Get price.
+     * @return price.
+     */
+    public int getPrice() {
+        return price;
+    }
+
+    /**
+     * Get fare bucket.
+     * @return fare bucket the seat is held in, or null if the flight has no fare buckets.
+     */
+    public FareBucket getFareBucket() {
+        return fareBucket;
+    }
+}
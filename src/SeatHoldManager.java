@@ -0,0 +1,139 @@
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seat hold manager.
+ *
+ * <p>Keeps all outstanding seat holds and expires them with a {@link HierarchicalTimingWheel}, so a hold
+ * costs O(1) to create, take and expire, and there is no scheduled task per hold.
+ * The wheel is driven by {@link #expireHolds()}, which the reservation system calls before each
+ * transaction.</p>
+ *
+ * <p>The manager only does the bookkeeping of holds. Returning a held seat to its flight is left to the
+ * caller, which does it under the lock of the flight's route. All methods are thread safe.</p>
+ */
+public class SeatHoldManager {
+    /**
+     * Default tick duration in milliseconds.
+     */
+    static final long DEFAULT_TICK_MILLIS = 100;
+
+    /**
+     * Clock used for hold deadlines.
+     */
+    private final Clock clock;
+
+    /**
+     * Timing wheel of outstanding holds.
+     */
+    private final HierarchicalTimingWheel<SeatHold> wheel;
+
+    /**
+     * Hold id to outstanding hold map.
+     */
+    private final Map<Long, SeatHold> holds;
+
+    /**
+     * Handler collecting expired holds into expiredHolds.
+     */
+    private final HierarchicalTimingWheel.ExpiryHandler<SeatHold> expiryHandler;
+
+    /**
+     * Holds expired by the running expireHolds call.
+     */
+    private List<SeatHold> expiredHolds;
+
+    /**
+     * Next hold id.
+     */
+    private long nextHoldId = 1;
+
+    /**
+     * Constructor.
+     * @param clock clock used for hold deadlines.
+     * @param tickMillis expiry granularity in milliseconds.
+     */
+    public SeatHoldManager(final Clock clock, final long tickMillis) {
+        this.clock = clock;
+        this.wheel = new HierarchicalTimingWheel<>(tickMillis, clock.millis());
+        this.holds = new HashMap<>();
+        this.expiryHandler = new HierarchicalTimingWheel.ExpiryHandler<SeatHold>() {
+            @Override
+            public void expire(final SeatHold hold) {
+                holds.remove(hold.getHoldId());
+                if (expiredHolds == null) {
+                    expiredHolds = new ArrayList<>();
+                }
+                expiredHolds.add(hold);
+            }
+        };
+    }
+
+    /**
+     * Hold a seat on a flight.
+     * The caller should hold the lock of the flight's route.
+     * The seat is held at the cheapest open fare, in the cheapest open fare bucket if the flight has fare buckets.
+     * @param flight flight with at least one available seat, and an open fare bucket if it has fare buckets.
+     * @param passenger passenger.
+     * @param ttlMillis time to live of the hold in milliseconds.
+     * @return seat hold.
+     */
+    public synchronized SeatHold hold(final Flight flight, final Passenger passenger, final long ttlMillis) {
+        FareBucket fareBucket = flight.getCheapestOpenFareBucket();
+        int seatNumber = flight.holdSeat(fareBucket);
+        SeatHold hold = new SeatHold(nextHoldId++, flight, passenger, seatNumber,
+                fareBucket == null ? flight.getPricePerSeat() : fareBucket.getFare(), fareBucket);
+        holds.put(hold.getHoldId(), hold);
+        wheel.schedule(hold, clock.millis() + ttlMillis);
+        return hold;
+    }
+
+    /**
+     * Take an outstanding hold out of the manager, to confirm or release it.
+     * @param holdId hold id.
+     * @return seat hold, or null if the hold does not exist or has expired.
+     */
+    public synchronized SeatHold take(final long holdId) {
+        SeatHold hold = holds.remove(holdId);
+        if (hold != null) {
+            wheel.cancel(hold);
+        }
+        return hold;
+    }
+
+    /**
+     * Get an outstanding hold.
+     * @param holdId hold id.
+     * @return seat hold, or null if the hold does not exist or has expired.
+     */
+    public synchronized SeatHold getHold(final long holdId) {
+        return holds.get(holdId);
+    }
+
+    /**
+     * Expire all holds whose deadline has passed.
+     * The seats of the expired holds are still taken, the caller returns them to their flights.
+     * @return expired holds.
+     */
+    public synchronized List<SeatHold> expireHolds() {
+        wheel.advanceTo(clock.millis(), expiryHandler);
+        if (expiredHolds == null) {
+            return Collections.emptyList();
+        }
+        List<SeatHold> expired = expiredHolds;
+        expiredHolds = null;
+        return expired;
+    }
+
+    /**
+     * Get number of outstanding holds.
+     * @return number of outstanding holds.
+     */
+    public synchronized int size() {
+        return holds.size();
+    }
+}
@@ -0,0 +1,416 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Seat map of a flight.
+ *
+ * <p>Seats are laid out in rows of seat letters, for example "ABC DEF" for two blocks of three seats
+ * separated by an aisle, and each row belongs to a {@link CabinZoneEnum}. Seat number n is the n-th seat
+ * counting row by row from the front, so seat 1 is 1A.</p>
+ *
+ * <p>Free seats are indexed by a segment tree over the seat positions. Aisles and row ends are positions
+ * which are never free, so a run of free positions is always a block of adjacent seats of one row. Each
+ * node keeps its free prefix, free suffix and longest free run, which makes taking or releasing a seat,
+ * finding the first block of k adjacent free seats and finding the best free seat of a zone O(log seats).</p>
+ *
+ * <p>The seat map is not thread safe, the flight's route lock guards it.</p>
+ */
+public class SeatMap {
+    /**
+     * Seat letters of a row, a space is an aisle.
+     */
+    private final String seatLetters;
+
+    /**
+     * Layout this seat map was built from.
+     */
+    private final SeatMapBuilder layout;
+
+    /**
+     * Number of seats.
+     */
+    private final int numberOfSeats;
+
+    /**
+     * Number of seats per row.
+     */
+    private final int seatsPerRow;
+
+    /**
+     * Number of positions per row, including aisles and the row end.
+     */
+    private final int positionsPerRow;
+
+    /**
+     * Number of rows.
+     */
+    private final int rows;
+
+    /**
+     * Zone of each row.
+     */
+    private final CabinZoneEnum[] rowZones;
+
+    /**
+     * Position of each seat number, index 0 is unused.
+     */
+    private final int[] seatPositions;
+
+    /**
+     * Seat number of each position, 0 for aisles and row ends.
+     */
+    private final int[] positionSeats;
+
+    /**
+     * Number of leaves of the segment tree, a power of two.
+     */
+    private final int leaves;
+
+    /**
+     * Free prefix length of each node.
+     */
+    private final int[] prefix;
+
+    /**
+     * Free suffix length of each node.
+     */
+    private final int[] suffix;
+
+    /**
+     * Longest free run of each node.
+     */
+    private final int[] longest;
+
+    /**
+     * Number of free seats.
+     */
+    private int freeSeats;
+
+    /**
+     * Constructor, all seats are free.
+     * @param builder SeatMapBuilder instance.
+     * @param numberOfSeats number of seats.
+     */
+    private SeatMap(final SeatMapBuilder builder, final int numberOfSeats) {
+        this.layout = builder;
+        this.seatLetters = builder.seatLetters;
+        this.numberOfSeats = numberOfSeats;
+        this.seatsPerRow = seatLetters.replace(" ", "").length();
+        this.positionsPerRow = seatLetters.length() + 1;
+        this.rows = (numberOfSeats + seatsPerRow - 1) / seatsPerRow;
+        this.rowZones = new CabinZoneEnum[rows];
+        int row = 0;
+        for (int i = 0; i < builder.zones.size(); i++) {
+            for (int j = 0; j < builder.zoneRows.get(i) && row < rows; j++) {
+                rowZones[row++] = builder.zones.get(i);
+            }
+        }
+        while (row < rows) {
+            rowZones[row++] = CabinZoneEnum.ECONOMY;
+        }
+
+        int positions = Math.max(1, rows * positionsPerRow);
+        int size = 1;
+        while (size < positions) {
+            size <<= 1;
+        }
+        this.leaves = size;
+        this.prefix = new int[2 * size];
+        this.suffix = new int[2 * size];
+        this.longest = new int[2 * size];
+        this.seatPositions = new int[numberOfSeats + 1];
+        this.positionSeats = new int[size];
+        int seatNumber = 1;
+        for (int position = 0; position < positions && seatNumber <= numberOfSeats; position++) {
+            int column = position % positionsPerRow;
+            if (column < seatLetters.length() && seatLetters.charAt(column) != ' ') {
+                seatPositions[seatNumber] = position;
+                positionSeats[position] = seatNumber;
+                setLeaf(position, 1);
+                seatNumber++;
+            }
+        }
+        for (int node = size - 1; node >= 1; node--) {
+            pull(node);
+        }
+        this.freeSeats = numberOfSeats;
+    }
+
+    /**
+     * Get number of seats.
+     * @return number of seats.
+     */
+    public int getNumberOfSeats() {
+        return numberOfSeats;
+    }
+
+    /**
+     * Get number of free seats.
+     * @return number of free seats.
+     */
+    public int getFreeSeats() {
+        return freeSeats;
+    }
+
+    /**
+     * Get number of rows.
+     * @return number of rows.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the largest number of adjacent free seats in a row.
+     * @return longest free block.
+     */
+    public int getLongestFreeBlock() {
+        return longest[1];
+    }
+
+    /**
+     * Get the layout this seat map was built from.
+     * @return seat map builder.
+     */
+    public SeatMapBuilder getLayout() {
+        return layout;
+    }
+
+    /**
+     * Get label of a seat, such as "12C".
+     * @param seatNumber seat number.
+     * @return seat label.
+     */
+    public String getSeatLabel(final int seatNumber) {
+        int position = seatPositions[seatNumber];
+        return String.valueOf(position / positionsPerRow + 1) + seatLetters.charAt(position % positionsPerRow);
+    }
+
+    /**
+     * Get zone of a seat.
+     * @param seatNumber seat number.
+     * @return cabin zone.
+     */
+    public CabinZoneEnum getZone(final int seatNumber) {
+        return rowZones[seatPositions[seatNumber] / positionsPerRow];
+    }
+
+    /**
+     * Check if a seat is free.
+     * @param seatNumber seat number.
+     * @return true if the seat is free.
+     */
+    public boolean isFree(final int seatNumber) {
+        return longest[leaves + seatPositions[seatNumber]] == 1;
+    }
+
+    /**
+     * Take a free seat.
+     * @param seatNumber seat number.
+     */
+    public void take(final int seatNumber) {
+        if (!isFree(seatNumber)) {
+            throw new IllegalStateException("Seat " + seatNumber + " is not free.");
+        }
+        update(seatPositions[seatNumber], 0);
+        freeSeats--;
+    }
+
+    /**
+     * Release a taken seat.
+     * @param seatNumber seat number.
+     */
+    public void release(final int seatNumber) {
+        if (isFree(seatNumber)) {
+            throw new IllegalStateException("Seat " + seatNumber + " is already free.");
+        }
+        update(seatPositions[seatNumber], 1);
+        freeSeats++;
+    }
+
+    /**
+     * Find the front most block of adjacent free seats in a row, without taking it.
+     * @param k number of seats.
+     * @return seat numbers of the block, or null if no row has k adjacent free seats.
+     */
+    public int[] findBlock(final int k) {
+        if (k <= 0 || longest[1] < k) {
+            return null;
+        }
+        return blockAt(findRun(1, 0, leaves, k, 0), k);
+    }
+
+    /**
+     * Find the front most block of adjacent free seats in a row of a zone, without taking it.
+     * @param k number of seats.
+     * @param zone cabin zone.
+     * @return seat numbers of the block, or null if no row of the zone has k adjacent free seats.
+     */
+    public int[] findBlock(final int k, final CabinZoneEnum zone) {
+        if (k <= 0 || longest[1] < k) {
+            return null;
+        }
+        int row = 0;
+        while (row < rows) {
+            if (rowZones[row] != zone) {
+                row++;
+                continue;
+            }
+            int endRow = row;
+            while (endRow < rows && rowZones[endRow] == zone) {
+                endRow++;
+            }
+            int start = findRun(1, 0, leaves, k, row * positionsPerRow);
+            if (start >= 0 && start < endRow * positionsPerRow) {
+                return blockAt(start, k);
+            }
+            row = endRow;
+        }
+        return null;
+    }
+
+    /**
+     * Find the best free seat of a zone, the front most seat of the zone with the lowest seat letter.
+     * @param zone cabin zone.
+     * @return seat number, or -1 if the zone has no free seat.
+     */
+    public int findBestSeat(final CabinZoneEnum zone) {
+        int[] block = findBlock(1, zone);
+        return block == null ? -1 : block[0];
+    }
+
+    /**
+     * Get seat numbers of a block.
+     * @param start position of the first seat.
+     * @param k number of seats.
+     * @return seat numbers.
+     */
+    private int[] blockAt(final int start, final int k) {
+        int[] block = new int[k];
+        for (int i = 0; i < k; i++) {
+            block[i] = positionSeats[start + i];
+        }
+        return block;
+    }
+
+    /**
+     * Find the first run of k free positions starting at or after a row start.
+     * Runs never cross rows, so a run starting before the row start cannot reach it.
+     * @param node tree node.
+     * @param low first position of the node.
+     * @param high position after the last position of the node.
+     * @param k run length.
+     * @param from row start position.
+     * @return first position of the run, or -1 if there is none.
+     */
+    private int findRun(final int node, final int low, final int high, final int k, final int from) {
+        if (high <= from || longest[node] < k) {
+            return -1;
+        }
+        if (node >= leaves) {
+            return low;
+        }
+        int middle = (low + high) >>> 1;
+        int left = findRun(2 * node, low, middle, k, from);
+        if (left >= 0) {
+            return left;
+        }
+        int crossing = middle - suffix[2 * node];
+        if (suffix[2 * node] + prefix[2 * node + 1] >= k && crossing >= from) {
+            return crossing;
+        }
+        return findRun(2 * node + 1, middle, high, k, from);
+    }
+
+    /**
+     * Set a leaf and recompute its ancestors.
+     * @param position position.
+     * @param free 1 if the position is free, 0 otherwise.
+     */
+    private void update(final int position, final int free) {
+        setLeaf(position, free);
+        for (int node = (leaves + position) >>> 1; node >= 1; node >>>= 1) {
+            pull(node);
+        }
+    }
+
+    /**
+     * Set a leaf.
+     * @param position position.
+     * @param free 1 if the position is free, 0 otherwise.
+     */
+    private void setLeaf(final int position, final int free) {
+        int node = leaves + position;
+        prefix[node] = free;
+        suffix[node] = free;
+        longest[node] = free;
+    }
+
+    /**
+     * Recompute a node from its children.
+     * @param node tree node.
+     */
+    private void pull(final int node) {
+        int left = 2 * node;
+        int right = left + 1;
+        // Both children cover the same number of positions.
+        int childLength = leaves >>> (31 - Integer.numberOfLeadingZeros(node) + 1);
+        prefix[node] = prefix[left] == childLength ? childLength + prefix[right] : prefix[left];
+        suffix[node] = suffix[right] == childLength ? childLength + suffix[left] : suffix[right];
+        longest[node] = Math.max(Math.max(longest[left], longest[right]), suffix[left] + prefix[right]);
+    }
+
+    /**
+     * Builder of the seat map layout.
+     */
+    public static class SeatMapBuilder {
+        /**
+         * Seat letters of a row.
+         */
+        private String seatLetters = "ABC DEF";
+
+        /**
+         * Zones from the front, indexed like zoneRows.
+         */
+        private final List<CabinZoneEnum> zones = new ArrayList<>();
+
+        /**
+         * Number of rows of each zone.
+         */
+        private final List<Integer> zoneRows = new ArrayList<>();
+
+        /**
+         * Set seat letters of a row, "ABC DEF" by default.
+         * @param seatLetters seat letters, a space is an aisle.
+         * @return SeatMapBuilder.
+         */
+        public SeatMapBuilder withSeatLetters(final String seatLetters) {
+            if (seatLetters.replace(" ", "").isEmpty()) {
+                throw new IllegalArgumentException("A row should have at least one seat.");
+            }
+            this.seatLetters = seatLetters;
+            return this;
+        }
+
+        /**
+         * Add rows of a zone behind the rows added before, the remaining rows are economy.
+         * @param zone cabin zone.
+         * @param numberOfRows number of rows.
+         * @return SeatMapBuilder.
+         */
+        public SeatMapBuilder withZone(final CabinZoneEnum zone, final int numberOfRows) {
+            zones.add(zone);
+            zoneRows.add(numberOfRows);
+            return this;
+        }
+
+        /**
+         * Build a seat map with all seats free.
+         * @param numberOfSeats number of seats, the last row may be partly filled.
+         * @return seat map.
+         */
+        public SeatMap build(final int numberOfSeats) {
+            return new SeatMap(this, numberOfSeats);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version clock and open readers of the flight versions, see {@link FlightVersion}.
+ *
+ * <p>Each change of a flight takes the next version of the clock. A reader opens at the current version
+ * before it reads the flights, and closes once it has collected their versions. Changes keep the versions
+ * an open reader may still need, and drop the older ones as soon as no reader needs them.</p>
+ */
+public class SnapshotRegistry {
+    /**
+     * Version clock, version of the last change.
+     */
+    private final AtomicLong clock = new AtomicLong();
+
+    /**
+     * Number of open readers by version they opened at.
+     */
+    private final TreeMap<Long, Integer> openReaders = new TreeMap<>();
+
+    /**
+     * Oldest version an open reader opened at, Long.MAX_VALUE if no reader is open.
+     */
+    private volatile long oldestOpenVersion = Long.MAX_VALUE;
+
+    /**
+     * Take the version of a new change.
+     * @return new version.
+     */
+    long nextVersion() {
+        return clock.incrementAndGet();
+    }
+
+    /**
+     * Get version of the last change.
+     * @return current version.
+     */
+    public long getCurrentVersion() {
+        return clock.get();
+    }
+
+    /**
+     * Get oldest version an open reader opened at.
+     * @return oldest open version, Long.MAX_VALUE if no reader is open.
+     */
+    long getOldestOpenVersion() {
+        return oldestOpenVersion;
+    }
+
+    /**
+     * Open a reader at the current version.
+     * The reader must read its version from {@link #getCurrentVersion()} after opening, changes made before it
+     * opened may already have dropped the versions older than theirs.
+     * @return version to close the reader with.
+     */
+    public synchronized long open() {
+        long version = clock.get();
+        Integer readers = openReaders.get(version);
+        openReaders.put(version, readers == null ? 1 : readers + 1);
+        oldestOpenVersion = openReaders.firstKey();
+        return version;
+    }
+
+    /**
+     * Close a reader.
+     * @param version version returned by open.
+     */
+    public synchronized void close(final long version) {
+        int readers = openReaders.get(version);
+        if (readers == 1) {
+            openReaders.remove(version);
+        } else {
+            openReaders.put(version, readers - 1);
+        }
+        oldestOpenVersion = openReaders.isEmpty() ? Long.MAX_VALUE : openReaders.firstKey();
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * Read only sorted set view of a list already sorted by a comparator, without duplicates.
+ *
+ * <p>Meant to be passed to {@link java.util.TreeSet#addAll(java.util.Collection)} of an empty set with the same
+ * comparator, which then builds its tree from the sorted elements in linear time instead of inserting them one
+ * by one. Range views are sub lists found by binary search, so the class is a complete sorted set.</p>
+ * @param <E> element type.
+ */
+class SortedListSet<E> extends AbstractSet<E> implements SortedSet<E> {
+    /**
+     * Sorted elements.
+     */
+    private final List<E> elements;
+
+    /**
+     * Comparator the elements are sorted by, null for natural order.
+     */
+    private final Comparator<? super E> comparator;
+
+    /**
+     * Constructor.
+     * @param elements elements sorted by the comparator, without duplicates.
+     * @param comparator comparator the elements are sorted by, null for natural order.
+     */
+    SortedListSet(final List<E> elements, final Comparator<? super E> comparator) {
+        this.elements = elements;
+        this.comparator = comparator;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return Collections.unmodifiableList(elements).iterator();
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(final Object o) {
+        return !elements.isEmpty() && Collections.binarySearch(elements, (E) o, comparator) >= 0;
+    }
+
+    @Override
+    public Comparator<? super E> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public E first() {
+        if (elements.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return elements.get(0);
+    }
+
+    @Override
+    public E last() {
+        if (elements.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return elements.get(elements.size() - 1);
+    }
+
+    @Override
+    public SortedSet<E> subSet(final E fromElement, final E toElement) {
+        if (compare(fromElement, toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SortedListSet<>(elements.subList(indexOf(fromElement), indexOf(toElement)), comparator);
+    }
+
+    @Override
+    public SortedSet<E> headSet(final E toElement) {
+        return new SortedListSet<>(elements.subList(0, indexOf(toElement)), comparator);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(final E fromElement) {
+        return new SortedListSet<>(elements.subList(indexOf(fromElement), elements.size()), comparator);
+    }
+
+    /**
+     * Find the first element not less than an element, by binary search.
+     * @param element element.
+     * @return index of the first element not less than the element, the size if none.
+     */
+    private int indexOf(final E element) {
+        int index = Collections.binarySearch(elements, element, comparator);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Compare two elements by the comparator, or by natural order.
+     * @param first first element.
+     * @param second second element.
+     * @return negative, zero or positive as the first element is less than, equal to or greater than the second.
+     */
+    @SuppressWarnings("unchecked")
+    private int compare(final E first, final E second) {
+        return comparator == null ? ((Comparable<? super E>) first).compareTo(second)
+                : comparator.compare(first, second);
+    }
+}
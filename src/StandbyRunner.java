@@ -0,0 +1,24 @@
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+/**
+ * Run a standby of a primary started with a replication port, for example on localhost:
+ * java SystemRunner ../in/inputfile1.txt ../in/inputfile2.txt ../out/output.txt 7400 1
+ * java StandbyRunner ../in/inputfile1.txt localhost 7400 ../out/standby.txt
+ * The standby applies the changes of the primary until the primary is gone, then writes its output.
+ */
+public class StandbyRunner {
+    public static void main(String[] args) throws FileNotFoundException, IOException, InterruptedException {
+        String inputFile1Path = args[0];
+        String host = args[1];
+        int port = Integer.parseInt(args[2]);
+        String outputFilePath = args[3];
+        FlightReservationSystem flightReservationSystem = new FlightReservationSystem(inputFile1Path);
+        ReplicationReceiver replicationReceiver = new ReplicationReceiver(flightReservationSystem, host, port);
+        replicationReceiver.awaitPrimaryGone(0);
+        long appliedSequence = replicationReceiver.promote();
+        System.out.println("Promoted after transaction " + appliedSequence + ", "
+                + replicationReceiver.getAppliedRecords() + " changes applied.");
+        flightReservationSystem.createOutput(outputFilePath);
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ * State record type Enum.
+ *
+ * State record type, the first column of a line of the system state written with a tail checkpoint, see
+ * {@link FlightReservationSystem#writeState(StateSnapshot, java.io.Writer)}:
+ * <ul>
+ * <li>Sequence, followed by the transaction sequence</li>
+ * <li>PriceChange, followed by the flight number, sequence, time in milliseconds and price of a price history
+ *     entry</li>
+ * <li>Fare, followed by the flight number, fare class and fare of a fare bucket</li>
+ * <li>Seat, followed by the flight number, passenger name, seat number, price and fare class of a
+ *     reservation, the fare class is empty if none</li>
+ * <li>Waitlist, followed by the origin code, destination code, passenger name, fare and request sequence of a
+ *     waiting passenger, in promotion order</li>
+ * </ul>
+ */
+public enum StateRecordTypeEnum {
+    SEQUENCE("Sequence"),
+    PRICE_CHANGE("PriceChange"),
+    FARE("Fare"),
+    SEAT("Seat"),
+    WAITLIST("Waitlist");
+
+    /**
+     * State record type.
+     */
+    private final String recordType;
+
+    /**
+     * Constructor.
+     * @param recordType State record type.
+     */
+    private StateRecordTypeEnum(final String recordType) {
+        this.recordType = recordType;
+    }
+
+    /**
+     * Get state record type.
+     * @return state record type.
+     */
+    public String getRecordType() {
+        return recordType;
+    }
+}
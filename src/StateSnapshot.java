@@ -0,0 +1,66 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Point in time capture of the state changed by transactions, see
+ * {@link FlightReservationSystem#captureState()}, written later by
+ * {@link FlightReservationSystem#writeState(StateSnapshot, java.io.Writer)} on any thread.
+ *
+ * <p>Reservations are held by a {@link ReservationSnapshot}, which shares them with the flights instead of
+ * copying them. Price histories are read when the snapshot is written, up to its transaction sequence, as their
+ * entries never change once recorded. Only bucket fares and waitlists, which change in place, are copied as
+ * state records when the snapshot is taken.</p>
+ */
+public class StateSnapshot {
+    /**
+     * Transaction sequence of the snapshot.
+     */
+    private final long sequence;
+
+    /**
+     * Reservations of the snapshot.
+     */
+    private final ReservationSnapshot reservationSnapshot;
+
+    /**
+     * Fare and waitlist state records, copied when the snapshot was taken.
+     */
+    private final List<String> routeRecords;
+
+    /**
+     * Constructor.
+     * @param sequence transaction sequence of the snapshot.
+     * @param reservationSnapshot reservations of the snapshot.
+     * @param routeRecords fare and waitlist state records.
+     */
+    StateSnapshot(final long sequence, final ReservationSnapshot reservationSnapshot,
+            final List<String> routeRecords) {
+        this.sequence = sequence;
+        this.reservationSnapshot = reservationSnapshot;
+        this.routeRecords = Collections.unmodifiableList(routeRecords);
+    }
+
+    /**
+     * Get transaction sequence.
+     * @return transaction sequence of the snapshot.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get reservation snapshot.
+     * @return reservations of the snapshot.
+     */
+    public ReservationSnapshot getReservationSnapshot() {
+        return reservationSnapshot;
+    }
+
+    /**
+     * Get route records.
+     * @return fare and waitlist state records, without line ends.
+     */
+    public List<String> getRouteRecords() {
+        return routeRecords;
+    }
+}
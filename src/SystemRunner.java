@@ -1,8 +1,14 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class SystemRunner {
-    public static void main(String[] args) throws FileNotFoundException, IOException {
+    public static void main(String[] args) throws FileNotFoundException, IOException, InterruptedException {
+        if (args.length > 0 && "--tail".equals(args[0])) {
+            tail(args);
+            return;
+        }
         String inputFile1Path = "../in/inputfile1.txt";
         String inputFile2Path = "../in/inputfile2.txt";
         String outputFilePath = "../out/output.txt";
@@ -16,7 +22,56 @@ public class SystemRunner {
             outputFilePath = args[2];
         }
         FlightReservationSystem flightReservationSystem = new FlightReservationSystem(inputFile1Path);
+        //Optional JDK Flight Recorder events of slow phases with -Dtrace.jfr=true, see EngineTracer for trace.* settings.
+        if (Boolean.getBoolean("trace.jfr") && JfrTraceSink.isAvailable()) {
+            flightReservationSystem.setEngineTracer(EngineTracer.fromProperties(System.getProperties(),
+                    new JfrTraceSink()));
+        }
+        //Optional replication port and number of standbys to wait for, see StandbyRunner.
+        ReplicationPublisher replicationPublisher = null;
+        if (args.length > 3) {
+            replicationPublisher = new ReplicationPublisher(flightReservationSystem, Integer.parseInt(args[3]));
+            int standbys = args.length > 4 ? Integer.parseInt(args[4]) : 1;
+            if (!replicationPublisher.awaitStandbys(standbys, 60000)) {
+                System.err.println("Only " + replicationPublisher.getStandbyCount() + " standbys connected.");
+            }
+        }
         flightReservationSystem.handleTransactions(inputFile2Path);
+        if (replicationPublisher != null) {
+            replicationPublisher.close();
+        }
         flightReservationSystem.createOutput(outputFilePath);
     }
+
+    /**
+     * Tail mode: --tail inputfile1 transactionDirectory output [checkpoint], follows the transaction files of
+     * the directory until the JVM is stopped, then writes the output.
+     * @param args arguments.
+     * @throws IOException
+     *              Throws when the directory cannot be followed.
+     * @throws InterruptedException
+     *              Throws when the main thread is interrupted.
+     */
+    private static void tail(final String[] args) throws IOException, InterruptedException {
+        final FlightReservationSystem flightReservationSystem = new FlightReservationSystem(args[1]);
+        Path directory = Paths.get(args[2]);
+        final String outputFilePath = args[3];
+        Path checkpointFile = args.length > 4 ? Paths.get(args[4])
+                : directory.toAbsolutePath().resolveSibling(directory.getFileName() + ".checkpoint");
+        final TransactionTailer transactionTailer =
+                new TransactionTailer(flightReservationSystem, directory, checkpointFile);
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    transactionTailer.close();
+                    flightReservationSystem.createOutput(outputFilePath);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }));
+        //The tail thread is a daemon, keep the JVM running until it is stopped.
+        Thread.sleep(Long.MAX_VALUE);
+    }
 }
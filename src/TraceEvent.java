@@ -0,0 +1,132 @@
+/**
+ * A traced phase of the reservation engine, created by {@link EngineTracer} only for the phases it emits.
+ */
+public class TraceEvent {
+    /**
+     * Trace event type.
+     */
+    private final TraceEventTypeEnum type;
+
+    /**
+     * Duration in nanoseconds.
+     */
+    private final long durationNanos;
+
+    /**
+     * Detail of the phase, such as the transaction type or the file path.
+     */
+    private final String detail;
+
+    /**
+     * Route, such as LAS-LAX, null if none.
+     */
+    private final String route;
+
+    /**
+     * Flight number, null if none.
+     */
+    private final String flightNumber;
+
+    /**
+     * Number of flights scanned, -1 if not counted.
+     */
+    private final int flightsScanned;
+
+    /**
+     * Seat number or number of seats, -1 if none.
+     */
+    private final int seats;
+
+    /**
+     * Number of records read or written, -1 if not counted.
+     */
+    private final long records;
+
+    /**
+     * Constructor.
+     * @param type trace event type.
+     * @param durationNanos duration in nanoseconds.
+     * @param detail detail of the phase.
+     * @param route route, null if none.
+     * @param flightNumber flight number, null if none.
+     * @param flightsScanned number of flights scanned, -1 if not counted.
+     * @param seats seat number or number of seats, -1 if none.
+     * @param records number of records read or written, -1 if not counted.
+     */
+    public TraceEvent(final TraceEventTypeEnum type, final long durationNanos, final String detail,
+            final String route, final String flightNumber, final int flightsScanned, final int seats,
+            final long records) {
+        this.type = type;
+        this.durationNanos = durationNanos;
+        this.detail = detail;
+        this.route = route;
+        this.flightNumber = flightNumber;
+        this.flightsScanned = flightsScanned;
+        this.seats = seats;
+        this.records = records;
+    }
+
+    /**
+     * Get trace event type.
+     * @return trace event type.
+     */
+    public TraceEventTypeEnum getType() {
+        return type;
+    }
+
+    /**
+     * Get duration.
+     * @return duration in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Get detail of the phase.
+     * @return detail.
+     */
+    public String getDetail() {
+        return detail;
+    }
+
+    /**
+     * Get route.
+     * @return route, null if none.
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * Get flight number.
+     * @return flight number, null if none.
+     */
+    public String getFlightNumber() {
+        return flightNumber;
+    }
+
+    /**
+     * Get number of flights scanned.
+     * @return flights scanned, -1 if not counted.
+     */
+    public int getFlightsScanned() {
+        return flightsScanned;
+    }
+
+    /**
+     * Get seat number or number of seats.
+     * @return seats, -1 if none.
+     */
+    public int getSeats() {
+        return seats;
+    }
+
+    /**
+     * Get number of records read or written.
+     * @return records, -1 if not counted.
+     */
+    public long getRecords() {
+        return records;
+    }
+}
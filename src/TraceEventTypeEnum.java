@@ -0,0 +1,57 @@
+/**
+ * Trace event type Enum, phase of the reservation engine timed by {@link EngineTracer}.
+ *
+ * Trace event type:
+ * <ul>
+ * <li>TransactionApply: one transaction, from dispatch to outcome</li>
+ * <li>CancelLookup: scan of a route for the reservations of a cancelled passenger</li>
+ * <li>RepriceReorder: reordering of a route after a price change or a price batch</li>
+ * <li>ReportGeneration: summary of a flight, or the whole report</li>
+ * <li>FileIO: reading a transaction or inventory file, writing the report</li>
+ * </ul>
+ *
+ * Each type has a default threshold, only slower phases are traced.
+ */
+public enum TraceEventTypeEnum {
+    TRANSACTION_APPLY("TransactionApply", 1000000L),
+    CANCEL_LOOKUP("CancelLookup", 500000L),
+    REPRICE_REORDER("RepriceReorder", 500000L),
+    REPORT_GENERATION("ReportGeneration", 10000000L),
+    FILE_IO("FileIO", 10000000L);
+
+    /**
+     * Trace event type.
+     */
+    private final String traceEventType;
+
+    /**
+     * Default threshold in nanoseconds.
+     */
+    private final long defaultThresholdNanos;
+
+    /**
+     * Constructor.
+     * @param traceEventType Trace event type.
+     * @param defaultThresholdNanos Default threshold in nanoseconds.
+     */
+    private TraceEventTypeEnum(final String traceEventType, final long defaultThresholdNanos) {
+        this.traceEventType = traceEventType;
+        this.defaultThresholdNanos = defaultThresholdNanos;
+    }
+
+    /**
+     * Get trace event type.
+     * @return trace event type.
+     */
+    public String getTraceEventType() {
+        return traceEventType;
+    }
+
+    /**
+     * Get default threshold.
+     * @return default threshold in nanoseconds.
+     */
+    public long getDefaultThresholdNanos() {
+        return defaultThresholdNanos;
+    }
+}
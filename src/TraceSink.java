@@ -0,0 +1,10 @@
+/**
+ * Receiver of the trace events emitted by an {@link EngineTracer}, called on the thread of the traced phase.
+ */
+public interface TraceSink {
+    /**
+     * Receive a trace event.
+     * @param event trace event.
+     */
+    void emit(TraceEvent event);
+}
@@ -0,0 +1,15 @@
+/**
+ * Traffic key type Enum.
+ *
+ * Key type counted by {@link HeavyHitterTracker}:
+ * <ul>
+ * <li>Route, counted as OriginDestinationPair</li>
+ * <li>Flight, counted by flight number</li>
+ * <li>Passenger</li>
+ * </ul>
+ */
+public enum TrafficKeyTypeEnum {
+    ROUTE,
+    FLIGHT,
+    PASSENGER;
+}
@@ -0,0 +1,336 @@
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalescer of a window of transactions of a transaction file, applied before the window.
+ *
+ * <p>Drops the transactions that provably leave the same flights and report as if they were applied:</p>
+ * <ul>
+ * <li>A BookPassenger then CancelPassenger of a passenger on a route, if the passenger had no reservation on
+ *     the route before the window and has no other transaction on the route in between</li>
+ * <li>A repeated BookPassenger of a passenger on a route, if the passenger has no other transaction on the
+ *     route and no flight of the route changes price in between: the repeat finds the same cheapest flight
+ *     and is already booked on it</li>
+ * <li>A ChangePrice superseded by a later ChangePrice of the same flight, if no booking or cancel of the
+ *     route comes in between to see the superseded price</li>
+ * </ul>
+ *
+ * <p>Bookings are only coalesced on routes where every flight keeps a free seat through all bookings of the
+ * window, nobody is waitlisted and no flight sells through fare buckets: each booking then takes the cheapest
+ * flight of the route whatever other passengers do, and a cancel never promotes anyone.</p>
+ *
+ * <p>Dropped transactions are not applied but still take their transaction sequence in file order and leave a
+ * superseded outcome, and a dropped price change still leaves its price history entry, see
+ * {@link FlightReservationSystem#enableTransactionCoalescing(int)}. The window must be the only writer of its
+ * routes while it is coalesced and applied.</p>
+ */
+public class TransactionCoalescer {
+    /**
+     * Default number of transactions coalesced together.
+     */
+    static final int DEFAULT_WINDOW_SIZE = 1024;
+
+    /**
+     * System the windows are applied to.
+     */
+    private final FlightReservationSystem flightReservationSystem;
+
+    /**
+     * Number of transactions coalesced together.
+     */
+    private final int windowSize;
+
+    /**
+     * Number of dropped bookings.
+     */
+    private final AtomicLong droppedBookings = new AtomicLong();
+
+    /**
+     * Number of dropped cancels.
+     */
+    private final AtomicLong droppedCancels = new AtomicLong();
+
+    /**
+     * Number of dropped price changes.
+     */
+    private final AtomicLong droppedPriceChanges = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param flightReservationSystem system the windows are applied to.
+     * @param windowSize number of transactions coalesced together.
+     */
+    TransactionCoalescer(final FlightReservationSystem flightReservationSystem, final int windowSize) {
+        this.flightReservationSystem = flightReservationSystem;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Get window size.
+     * @return number of transactions coalesced together.
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Get number of dropped bookings.
+     * @return dropped bookings.
+     */
+    public long getDroppedBookings() {
+        return droppedBookings.get();
+    }
+
+    /**
+     * Get number of dropped cancels.
+     * @return dropped cancels.
+     */
+    public long getDroppedCancels() {
+        return droppedCancels.get();
+    }
+
+    /**
+     * Get number of dropped price changes.
+     * @return dropped price changes.
+     */
+    public long getDroppedPriceChanges() {
+        return droppedPriceChanges.get();
+    }
+
+    /**
+     * Coalesce a window of transactions.
+     * @param window transactions, in file order.
+     * @return dropped flag of each transaction of the window.
+     */
+    boolean[] coalesce(final List<String[]> window) {
+        Map<OriginDestinationPair, RouteWindow> routes = new HashMap<>();
+        OriginDestinationPair[] transactionRoutes = new OriginDestinationPair[window.size()];
+        for (int i = 0; i < window.size(); i++) {
+            String[] transactionInfoArr = window.get(i);
+            OriginDestinationPair route = getPassengerRoute(transactionInfoArr);
+            transactionRoutes[i] = route;
+            if (route != null) {
+                RouteWindow routeWindow = getRouteWindow(routes, route);
+                if (isType(transactionInfoArr, TransactionTypeEnum.BOOK_PASSENGER)) {
+                    routeWindow.bookings++;
+                    routeWindow.dated |= transactionInfoArr.length > 4;
+                }
+            }
+        }
+
+        boolean[] dropped = new boolean[window.size()];
+        Map<String, Integer> lastPriceChanges = new HashMap<>();
+        for (int i = 0; i < window.size(); i++) {
+            String[] transactionInfoArr = window.get(i);
+            OriginDestinationPair route = transactionRoutes[i];
+            if (route != null) {
+                RouteWindow routeWindow = routes.get(route);
+                routeWindow.lastBookingOrCancel = i;
+                if (transactionInfoArr.length == 4 && routeWindow.isCoalescable(flightReservationSystem, route)) {
+                    coalescePassenger(transactionInfoArr, i, routeWindow, route, dropped);
+                }
+            } else if (isType(transactionInfoArr, TransactionTypeEnum.CHANGE_PRICE)
+                    && transactionInfoArr.length >= 3) {
+                coalescePriceChange(transactionInfoArr, i, routes, lastPriceChanges, dropped);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Coalesce a booking or cancel of a coalescable route.
+     * @param transactionInfoArr String[] transaction information.
+     * @param index index of the transaction in the window.
+     * @param routeWindow route of the transaction.
+     * @param route origin destination pair of the route.
+     * @param dropped dropped flag of each transaction of the window.
+     */
+    private void coalescePassenger(final String[] transactionInfoArr, final int index,
+            final RouteWindow routeWindow, final OriginDestinationPair route, final boolean[] dropped) {
+        PassengerWindow passengerWindow = routeWindow.passengers.get(transactionInfoArr[1]);
+        if (passengerWindow == null) {
+            passengerWindow = new PassengerWindow(
+                    !flightReservationSystem.hasReservation(new Passenger(transactionInfoArr[1]), route));
+            routeWindow.passengers.put(transactionInfoArr[1], passengerWindow);
+        }
+        boolean booking = isType(transactionInfoArr, TransactionTypeEnum.BOOK_PASSENGER);
+        boolean afterBooking = passengerWindow.lastKept >= 0 && passengerWindow.lastKeptBooking;
+        if (booking && afterBooking && routeWindow.lastPriceChange < passengerWindow.lastKept) {
+            //The repeat finds the flight booked by the kept booking.
+            dropped[index] = true;
+            droppedBookings.incrementAndGet();
+            return;
+        }
+        if (!booking && afterBooking && passengerWindow.clean && passengerWindow.kept == 1) {
+            //The cancel takes back the only reservation of the passenger, the one of the kept booking.
+            dropped[passengerWindow.lastKept] = true;
+            dropped[index] = true;
+            droppedBookings.incrementAndGet();
+            droppedCancels.incrementAndGet();
+            passengerWindow.kept = 0;
+            passengerWindow.lastKept = -1;
+            return;
+        }
+        passengerWindow.kept++;
+        passengerWindow.lastKept = index;
+        passengerWindow.lastKeptBooking = booking;
+    }
+
+    /**
+     * Coalesce a price change, dropping the previous price change of the flight if nothing saw its price.
+     * @param transactionInfoArr String[] transaction information.
+     * @param index index of the transaction in the window.
+     * @param routes routes of the window.
+     * @param lastPriceChanges index of the last kept price change of each flight.
+     * @param dropped dropped flag of each transaction of the window.
+     */
+    private void coalescePriceChange(final String[] transactionInfoArr, final int index,
+            final Map<OriginDestinationPair, RouteWindow> routes, final Map<String, Integer> lastPriceChanges,
+            final boolean[] dropped) {
+        String flightNumber = transactionInfoArr[1];
+        OriginDestinationPair route = flightReservationSystem.getRoute(flightNumber);
+        if (route == null) {
+            return;
+        }
+        RouteWindow routeWindow = getRouteWindow(routes, route);
+        routeWindow.lastPriceChange = index;
+        if (transactionInfoArr.length != 3) {
+            //A fare change is not superseded by a price change, and does not supersede one.
+            lastPriceChanges.remove(flightNumber);
+            return;
+        }
+        Integer previous = lastPriceChanges.put(flightNumber, index);
+        if (previous != null && routeWindow.lastBookingOrCancel < previous) {
+            dropped[previous] = true;
+            droppedPriceChanges.incrementAndGet();
+        }
+    }
+
+    /**
+     * Get route of a booking or cancel.
+     * @param transactionInfoArr String[] transaction information.
+     * @return route, or null if the transaction is not a booking or cancel with a valid route.
+     */
+    private static OriginDestinationPair getPassengerRoute(final String[] transactionInfoArr) {
+        if (transactionInfoArr.length < 4 || !(isType(transactionInfoArr, TransactionTypeEnum.BOOK_PASSENGER)
+                || isType(transactionInfoArr, TransactionTypeEnum.CANCEL_PASSENGER))) {
+            return null;
+        }
+        try {
+            return new OriginDestinationPair(transactionInfoArr[2], transactionInfoArr[3]);
+        } catch (IllegalArgumentException e) {
+            //Left for the engine to reject in order.
+            return null;
+        }
+    }
+
+    /**
+     * Get the window of a route, create it if the route is new.
+     * @param routes routes of the window.
+     * @param route route.
+     * @return route window.
+     */
+    private static RouteWindow getRouteWindow(final Map<OriginDestinationPair, RouteWindow> routes,
+            final OriginDestinationPair route) {
+        RouteWindow routeWindow = routes.get(route);
+        if (routeWindow == null) {
+            routeWindow = new RouteWindow();
+            routes.put(route, routeWindow);
+        }
+        return routeWindow;
+    }
+
+    /**
+     * Check the type of a transaction.
+     * @param transactionInfoArr String[] transaction information.
+     * @param type transaction type.
+     * @return true if the transaction is of the type.
+     */
+    private static boolean isType(final String[] transactionInfoArr, final TransactionTypeEnum type) {
+        return type.getTransactionType().equals(transactionInfoArr[0]);
+    }
+
+    /**
+     * Transactions of a window on a route.
+     */
+    private static final class RouteWindow {
+        /**
+         * Number of bookings of the route in the window.
+         */
+        int bookings;
+
+        /**
+         * True if a booking of the route in the window is on a departure date.
+         */
+        boolean dated;
+
+        /**
+         * True if bookings and cancels of the route can be coalesced, null until checked.
+         */
+        Boolean coalescable;
+
+        /**
+         * Index of the last booking or cancel of the route seen, -1 if none.
+         */
+        int lastBookingOrCancel = -1;
+
+        /**
+         * Index of the last price change of a flight of the route seen, -1 if none.
+         */
+        int lastPriceChange = -1;
+
+        /**
+         * Transactions of each passenger on the route, by passenger name.
+         */
+        final Map<String, PassengerWindow> passengers = new HashMap<>();
+
+        /**
+         * Check if bookings and cancels of the route can be coalesced, from the state before the window.
+         * @param flightReservationSystem system the window is applied to.
+         * @param route origin destination pair of the route.
+         * @return true if the route has room for all its bookings of the window.
+         */
+        boolean isCoalescable(final FlightReservationSystem flightReservationSystem,
+                final OriginDestinationPair route) {
+            if (coalescable == null) {
+                coalescable = !dated && flightReservationSystem.hasRoomForBookings(route, bookings);
+            }
+            return coalescable;
+        }
+    }
+
+    /**
+     * Transactions of a window of a passenger on a route.
+     */
+    private static final class PassengerWindow {
+        /**
+         * True if the passenger had no reservation on the route before the window.
+         */
+        final boolean clean;
+
+        /**
+         * Number of kept transactions since the start of the window or the last dropped pair.
+         */
+        int kept;
+
+        /**
+         * Index of the last kept transaction, -1 if none since the last dropped pair.
+         */
+        int lastKept = -1;
+
+        /**
+         * True if the last kept transaction is a booking.
+         */
+        boolean lastKeptBooking;
+
+        /**
+         * Constructor.
+         * @param clean true if the passenger had no reservation on the route before the window.
+         */
+        PassengerWindow(final boolean clean) {
+            this.clean = clean;
+        }
+    }
+}
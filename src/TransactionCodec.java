@@ -0,0 +1,305 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Codec of the binary transaction format.
+ *
+ * <p>Each record has a fixed width header followed by the passenger name:</p>
+ * <ul>
+ * <li>Byte 0: transaction type tag, see {@link TransactionTypeEnum#getTag()}, with the extended flag
+ *     {@link #EXTENDED_FLAG} set for a dated BookPassenger or a fare bucket ChangePrice</li>
+ * <li>Bytes 1-4: packed route, 5 bits per letter of the origin and destination codes, 0 for ChangePrice</li>
+ * <li>Bytes 5-8: packed flight number, base 37 of up to 6 letters or digits, 0 for BookPassenger and
+ *     CancelPassenger</li>
+ * <li>Bytes 9-12: price, or departure date as epoch day for an extended BookPassenger, else 0</li>
+ * <li>Byte 13: passenger name length in bytes, or fare class length for an extended ChangePrice, else 0</li>
+ * <li>Bytes 14-: passenger name or fare class, UTF-8</li>
+ * </ul>
+ *
+ * <p>Numbers are big endian. The packed route only covers upper case airport/city codes. Records without the
+ * extended flag are the same as before it existed, so older files still decode.</p>
+ */
+public final class TransactionCodec {
+    /**
+     * Header length in bytes.
+     */
+    static final int HEADER_LENGTH = 14;
+
+    /**
+     * Maximum passenger name length in bytes.
+     */
+    static final int MAX_NAME_LENGTH = 255;
+
+    /**
+     * Maximum record length in bytes.
+     */
+    static final int MAX_RECORD_LENGTH = HEADER_LENGTH + MAX_NAME_LENGTH;
+
+    /**
+     * Flag of the type tag of an extended record.
+     */
+    static final byte EXTENDED_FLAG = (byte) 0x80;
+
+    /**
+     * Offset of the name length in the header.
+     */
+    private static final int NAME_LENGTH_OFFSET = 13;
+
+    /**
+     * Bits per letter of a packed airport/city code.
+     */
+    private static final int BITS_PER_LETTER = 5;
+
+    /**
+     * Bits per packed airport/city code.
+     */
+    private static final int BITS_PER_CODE = 3 * BITS_PER_LETTER;
+
+    /**
+     * Radix of a packed flight number, 10 digits, 26 letters and 0 for no character.
+     */
+    private static final int FLIGHT_NUMBER_RADIX = 37;
+
+    /**
+     * Maximum flight number length.
+     */
+    private static final int MAX_FLIGHT_NUMBER_LENGTH = 6;
+
+    /**
+     * Private constructor.
+     */
+    private TransactionCodec() {
+    }
+
+    /**
+     * Encode a transaction in text format.
+     * A BookPassenger with a departure date and a ChangePrice with a fare class are encoded as extended records.
+     * @param transactionInfoArr String[] transaction information, as split from a line of inputfile2.txt.
+     * @param out buffer with at least {@link #MAX_RECORD_LENGTH} bytes remaining.
+     * @return false if the transaction type is unknown and nothing was written.
+     * @throws IllegalArgumentException if the transaction has a number of fields the format cannot carry.
+     */
+    public static boolean encode(final String[] transactionInfoArr, final ByteBuffer out) {
+        TransactionTypeEnum type = TransactionTypeEnum.fromTransactionType(transactionInfoArr[0]);
+        if (type == null) {
+            return false;
+        }
+        int fields = transactionInfoArr.length;
+        if (type == TransactionTypeEnum.CHANGE_PRICE) {
+            checkFields(transactionInfoArr, 3, 4);
+            int flightId = packFlightNumber(transactionInfoArr[1]);
+            int price = Integer.parseInt(transactionInfoArr[2]);
+            byte[] fareClass = fields == 4 ? transactionInfoArr[3].getBytes(StandardCharsets.UTF_8) : new byte[0];
+            encode(type, fields == 4, 0, flightId, price, fareClass, fareClass.length, out);
+        } else {
+            checkFields(transactionInfoArr, 4, type == TransactionTypeEnum.BOOK_PASSENGER ? 5 : 4);
+            byte[] name = transactionInfoArr[1].getBytes(StandardCharsets.UTF_8);
+            int route = packRoute(transactionInfoArr[2], transactionInfoArr[3]);
+            int departureDate = fields == 5 ? Math.toIntExact(LocalDate.parse(transactionInfoArr[4]).toEpochDay()) : 0;
+            encode(type, fields == 5, route, 0, departureDate, name, name.length, out);
+        }
+        return true;
+    }
+
+    /**
+     * Check the number of fields of a transaction.
+     * @param transactionInfoArr String[] transaction information.
+     * @param min minimum number of fields.
+     * @param max maximum number of fields.
+     * @throws IllegalArgumentException if the transaction has fewer or more fields.
+     */
+    private static void checkFields(final String[] transactionInfoArr, final int min, final int max) {
+        if (transactionInfoArr.length < min || transactionInfoArr.length > max) {
+            throw new IllegalArgumentException(transactionInfoArr[0] + " should have " + min
+                    + (min == max ? "" : " or " + max) + " fields in binary transaction format: "
+                    + String.join(",", transactionInfoArr));
+        }
+    }
+
+    /**
+     * Encode a transaction record.
+     * @param record transaction record.
+     * @param out buffer with at least {@link #MAX_RECORD_LENGTH} bytes remaining.
+     */
+    public static void encode(final TransactionRecord record, final ByteBuffer out) {
+        encode(record.getType(), record.isExtended(), record.getRoute(), record.getFlightId(), record.getPrice(),
+                record.getNameBytes(), record.getNameLength(), out);
+    }
+
+    /**
+     * Encode a transaction.
+     */
+    private static void encode(final TransactionTypeEnum type, final boolean extended, final int route,
+            final int flightId, final int price, final byte[] name, final int nameLength, final ByteBuffer out) {
+        if (nameLength > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Passenger name should be at most " + MAX_NAME_LENGTH + " bytes.");
+        }
+        out.put(extended ? (byte) (type.getTag() | EXTENDED_FLAG) : type.getTag())
+           .putInt(route)
+           .putInt(flightId)
+           .putInt(price)
+           .put((byte) nameLength)
+           .put(name, 0, nameLength);
+    }
+
+    /**
+     * Decode the next transaction into a reusable record.
+     * The buffer position only moves if a complete record was decoded.
+     * @param in buffer in read mode.
+     * @param record record overwritten with the decoded transaction.
+     * @return false if the buffer does not hold a complete record.
+     */
+    public static boolean decode(final ByteBuffer in, final TransactionRecord record) {
+        int position = in.position();
+        if (in.remaining() < HEADER_LENGTH) {
+            return false;
+        }
+        int nameLength = in.get(position + NAME_LENGTH_OFFSET) & 0xFF;
+        if (in.remaining() < HEADER_LENGTH + nameLength) {
+            return false;
+        }
+        byte tag = in.get();
+        TransactionTypeEnum type = TransactionTypeEnum.fromTag((byte) (tag & ~EXTENDED_FLAG));
+        if (type == null) {
+            in.position(position);
+            throw new IllegalArgumentException("Unknown transaction tag " + tag + " at " + position);
+        }
+        int route = in.getInt();
+        int flightId = in.getInt();
+        int price = in.getInt();
+        in.get();
+        in.get(record.getNameBytes(), 0, nameLength);
+        record.setDecoded(type, (tag & EXTENDED_FLAG) != 0, route, flightId, price, nameLength);
+        return true;
+    }
+
+    /**
+     * Convert a record back to text format.
+     * @param record transaction record.
+     * @return String[] transaction information.
+     */
+    public static String[] toTransactionInfoArr(final TransactionRecord record) {
+        if (record.getType() == TransactionTypeEnum.CHANGE_PRICE) {
+            if (record.getFareClass() != null) {
+                return new String[] {record.getType().getTransactionType(), record.getFlightNumber(),
+                                     String.valueOf(record.getPrice()), record.getFareClass()};
+            }
+            return new String[] {record.getType().getTransactionType(), record.getFlightNumber(),
+                                 String.valueOf(record.getPrice())};
+        }
+        if (record.getDepartureDate() != null) {
+            return new String[] {record.getType().getTransactionType(), record.getPassengerName(),
+                                 unpackOriginCode(record.getRoute()), unpackDestinationCode(record.getRoute()),
+                                 record.getDepartureDate().toString()};
+        }
+        return new String[] {record.getType().getTransactionType(), record.getPassengerName(),
+                             unpackOriginCode(record.getRoute()), unpackDestinationCode(record.getRoute())};
+    }
+
+    /**
+     * Pack a route.
+     * @param originCode origin code, 3 upper case letters.
+     * @param destinationCode destination code, 3 upper case letters.
+     * @return packed route.
+     */
+    public static int packRoute(final String originCode, final String destinationCode) {
+        return (packCode(originCode) << BITS_PER_CODE) | packCode(destinationCode);
+    }
+
+    /**
+     * Get origin code of a packed route.
+     * @param route packed route.
+     * @return origin code.
+     */
+    public static String unpackOriginCode(final int route) {
+        return unpackCode(route >>> BITS_PER_CODE);
+    }
+
+    /**
+     * Get destination code of a packed route.
+     * @param route packed route.
+     * @return destination code.
+     */
+    public static String unpackDestinationCode(final int route) {
+        return unpackCode(route & ((1 << BITS_PER_CODE) - 1));
+    }
+
+    /**
+     * Pack a flight number.
+     * @param flightNumber flight number, up to 6 digits or upper case letters.
+     * @return packed flight number, an unsigned 32 bit value.
+     */
+    public static int packFlightNumber(final String flightNumber) {
+        if (flightNumber.isEmpty() || flightNumber.length() > MAX_FLIGHT_NUMBER_LENGTH) {
+            throw new IllegalArgumentException("Flight number should have 1 to " + MAX_FLIGHT_NUMBER_LENGTH
+                    + " characters: " + flightNumber);
+        }
+        long packed = 0;
+        for (int i = 0; i < flightNumber.length(); i++) {
+            char c = flightNumber.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0' + 1;
+            } else if (c >= 'A' && c <= 'Z') {
+                digit = c - 'A' + 11;
+            } else {
+                throw new IllegalArgumentException("Flight number should only contain digits and upper case letters: "
+                        + flightNumber);
+            }
+            packed = packed * FLIGHT_NUMBER_RADIX + digit;
+        }
+        return (int) packed;
+    }
+
+    /**
+     * Unpack a flight number.
+     * @param flightId packed flight number.
+     * @return flight number.
+     */
+    public static String unpackFlightNumber(final int flightId) {
+        long packed = flightId & 0xFFFFFFFFL;
+        char[] chars = new char[MAX_FLIGHT_NUMBER_LENGTH];
+        int start = chars.length;
+        while (packed > 0) {
+            int digit = (int) (packed % FLIGHT_NUMBER_RADIX);
+            chars[--start] = digit <= 10 ? (char) ('0' + digit - 1) : (char) ('A' + digit - 11);
+            packed /= FLIGHT_NUMBER_RADIX;
+        }
+        return new String(chars, start, chars.length - start);
+    }
+
+    /**
+     * Pack an airport/city code.
+     * @param code 3 upper case letters.
+     * @return packed code, 5 bits per letter.
+     */
+    private static int packCode(final String code) {
+        if (code.length() != 3) {
+            throw new IllegalArgumentException("Airport/city code should have 3 letters: " + code);
+        }
+        int packed = 0;
+        for (int i = 0; i < 3; i++) {
+            char c = code.charAt(i);
+            if (c < 'A' || c > 'Z') {
+                throw new IllegalArgumentException("Binary format only supports upper case airport/city codes: "
+                        + code);
+            }
+            packed = (packed << BITS_PER_LETTER) | (c - 'A' + 1);
+        }
+        return packed;
+    }
+
+    /**
+     * Unpack an airport/city code.
+     * @param packed packed code.
+     * @return 3 letter code.
+     */
+    private static String unpackCode(final int packed) {
+        char[] chars = new char[3];
+        for (int i = 2, value = packed; i >= 0; i--, value >>>= BITS_PER_LETTER) {
+            chars[i] = (char) ('A' + (value & ((1 << BITS_PER_LETTER) - 1)) - 1);
+        }
+        return new String(chars);
+    }
+}
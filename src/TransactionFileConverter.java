@@ -0,0 +1,129 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+
+/**
+ * Convert transaction files between text format (inputfile2.txt) and binary transaction format.
+ *
+ * <p>Usage:</p>
+ * <ul>
+ * <li>java TransactionFileConverter toBinary ./in/inputfile2.txt ./in/inputfile2.bin</li>
+ * <li>java TransactionFileConverter toText ./in/inputfile2.bin ./in/inputfile2.txt</li>
+ * </ul>
+ *
+ * <p>Lines with an unknown transaction type are skipped, the same way handleTransactions ignores them. A line
+ * the binary format cannot carry fails the conversion, rather than being converted to another transaction.</p>
+ */
+public class TransactionFileConverter {
+    /**
+     * Buffer size.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: java TransactionFileConverter toBinary|toText <input file> <output file>");
+            System.exit(1);
+        }
+        if ("toBinary".equals(args[0])) {
+            System.out.println(toBinary(args[1], args[2]) + " transactions converted.");
+        } else if ("toText".equals(args[0])) {
+            System.out.println(toText(args[1], args[2]) + " transactions converted.");
+        } else {
+            System.err.println("Unknown conversion " + args[0] + ", should be toBinary or toText.");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Convert a text transaction file to binary transaction format.
+     * @param textFilePath text transaction file path.
+     * @param binaryFilePath binary transaction file path.
+     * @return number of converted transactions.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens, or a line cannot be encoded.
+     */
+    public static int toBinary(final String textFilePath, final String binaryFilePath) throws IOException {
+        int count = 0;
+        int lineNumber = 0;
+        try (BufferedReader br = new BufferedReader(new FileReader(textFilePath));
+             FileChannel channel = FileChannel.open(Paths.get(binaryFilePath), StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            String line = br.readLine();
+            while (line != null) {
+                if (buffer.remaining() < TransactionCodec.MAX_RECORD_LENGTH) {
+                    flush(buffer, channel);
+                }
+                lineNumber++;
+                try {
+                    if (TransactionCodec.encode(line.replaceAll("\\s", "").split(","), buffer)) {
+                        count++;
+                    }
+                } catch (IllegalArgumentException | DateTimeException e) {
+                    throw new IOException("Cannot encode line " + lineNumber + " of " + textFilePath + ": "
+                            + e.getMessage(), e);
+                }
+                line = br.readLine();
+            }
+            flush(buffer, channel);
+        }
+        return count;
+    }
+
+    /**
+     * Convert a binary transaction file to text format.
+     * @param binaryFilePath binary transaction file path.
+     * @param textFilePath text transaction file path.
+     * @return number of converted transactions.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens, or the file ends with
+     *              a truncated record.
+     */
+    public static int toText(final String binaryFilePath, final String textFilePath) throws IOException {
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(binaryFilePath), StandardOpenOption.READ);
+             BufferedWriter bw = new BufferedWriter(new FileWriter(textFilePath))) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            TransactionRecord record = new TransactionRecord();
+            while (true) {
+                int read = channel.read(buffer);
+                buffer.flip();
+                while (TransactionCodec.decode(buffer, record)) {
+                    bw.write(String.join(",", TransactionCodec.toTransactionInfoArr(record)));
+                    bw.write("\n");
+                    count++;
+                }
+                buffer.compact();
+                if (read == -1) {
+                    if (buffer.position() > 0) {
+                        throw new IOException("Truncated transaction record at the end of " + binaryFilePath);
+                    }
+                    return count;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write buffered bytes to the channel.
+     * @param buffer buffer in write mode.
+     * @param channel output channel.
+     * @throws IOException
+     *              Throws when failed or interrupted I/O operations happens.
+     */
+    private static void flush(final ByteBuffer buffer, final FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Outcome of one transaction: sequence, type, status, flight, seat and price.
+ *
+ * <p>Each thread applying transactions reuses one instance, filled while the transaction is applied and
+ * copied into the {@link OutcomeLog} once it is done, so recording an outcome does not allocate.</p>
+ */
+public class TransactionOutcome {
+    /**
+     * Transaction sequence.
+     */
+    private long sequence;
+
+    /**
+     * Transaction type, null if the transaction type is unknown.
+     */
+    private TransactionTypeEnum type;
+
+    /**
+     * Transaction status.
+     */
+    private TransactionStatusEnum status;
+
+    /**
+     * Flight number, null if no flight was resolved.
+     */
+    private String flightNumber;
+
+    /**
+     * Seat number, -1 if no seat was taken or released.
+     */
+    private int seatNumber;
+
+    /**
+     * Price paid, refunded or set, -1 if none.
+     */
+    private int price;
+
+    /**
+     * Number of flights scanned to apply the transaction, 0 if none or looked up in an index.
+     */
+    private int flightsScanned;
+
+    /**
+     * Start the outcome of a new transaction.
+     * @param sequence transaction sequence.
+     * @param type transaction type.
+     */
+    void begin(final long sequence, final TransactionTypeEnum type) {
+        this.sequence = sequence;
+        this.type = type;
+        this.status = null;
+        this.flightNumber = null;
+        this.seatNumber = -1;
+        this.price = -1;
+        this.flightsScanned = 0;
+    }
+
+    /**
+     * Set the result of the transaction.
+     * @param status transaction status.
+     * @param flightNumber flight number, null if none.
+     * @param seatNumber seat number, -1 if none.
+     * @param price price, -1 if none.
+     */
+    void set(final TransactionStatusEnum status, final String flightNumber, final int seatNumber, final int price) {
+        this.status = status;
+        this.flightNumber = flightNumber;
+        this.seatNumber = seatNumber;
+        this.price = price;
+    }
+
+    /**
+     * Set number of flights scanned.
+     * @param flightsScanned flights scanned.
+     */
+    void setFlightsScanned(final int flightsScanned) {
+        this.flightsScanned = flightsScanned;
+    }
+
+    /**
+     * Get transaction sequence.
+     * @return transaction sequence.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get transaction type.
+     * @return transaction type, null if unknown.
+     */
+    public TransactionTypeEnum getType() {
+        return type;
+    }
+
+    /**
+     * Get transaction status.
+     * @return transaction status.
+     */
+    public TransactionStatusEnum getStatus() {
+        return status;
+    }
+
+    /**
+     * Get flight number.
+     * @return flight number, null if none.
+     */
+    public String getFlightNumber() {
+        return flightNumber;
+    }
+
+    /**
+     * Get seat number.
+     * @return seat number, -1 if none.
+     */
+    public int getSeatNumber() {
+        return seatNumber;
+    }
+
+    /**
+     * Get price.
+     * @return price, -1 if none.
+     */
+    public int getPrice() {
+        return price;
+    }
+
+    /**
+     * Get number of flights scanned, not written to the outcome log, see {@link EngineTracer}.
+     * @return flights scanned.
+     */
+    public int getFlightsScanned() {
+        return flightsScanned;
+    }
+}
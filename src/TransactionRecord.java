@@ -0,0 +1,220 @@
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Transaction record.
+ *
+ * <p>Reusable flyweight holding one transaction of the binary transaction format, see
+ * {@link TransactionCodec}. Decoding overwrites the fields in place, so one record serves a whole stream.
+ * Each record contains:</p>
+ * <ul>
+ * <li>Transaction type</li>
+ * <li>Packed route, for BookPassenger and CancelPassenger</li>
+ * <li>Packed flight number, for ChangePrice</li>
+ * <li>Price, for ChangePrice, or departure date as epoch day, for a dated BookPassenger</li>
+ * <li>Passenger name as UTF-8 bytes, for BookPassenger and CancelPassenger, or fare class, for a fare bucket
+ *     ChangePrice</li>
+ * </ul>
+ *
+ * <p>Routes and flight numbers repeat a lot in a stream, so their unpacked forms are cached per record.</p>
+ */
+public class TransactionRecord {
+    /**
+     * Transaction type.
+     */
+    private TransactionTypeEnum type;
+
+    /**
+     * True for a dated BookPassenger or a fare bucket ChangePrice.
+     */
+    private boolean extended;
+
+    /**
+     * Packed route.
+     */
+    private int route;
+
+    /**
+     * Packed flight number.
+     */
+    private int flightId;
+
+    /**
+     * Price.
+     */
+    private int price;
+
+    /**
+     * Passenger name bytes, only the first nameLength bytes are valid.
+     */
+    private final byte[] nameBytes = new byte[TransactionCodec.MAX_NAME_LENGTH];
+
+    /**
+     * Passenger name length in bytes.
+     */
+    private int nameLength;
+
+    /**
+     * Packed route to OriginDestinationPair cache.
+     */
+    private final Map<Integer, OriginDestinationPair> routeCache = new HashMap<>();
+
+    /**
+     * Packed flight number to flight number cache.
+     */
+    private final Map<Integer, String> flightNumberCache = new HashMap<>();
+
+    /**
+     * Set all fields.
+     * @param type transaction type.
+     * @param extended true for a dated BookPassenger or a fare bucket ChangePrice.
+     * @param route packed route.
+     * @param flightId packed flight number.
+     * @param price price.
+     * @param name passenger name bytes.
+     * @param nameOffset offset of the name in name.
+     * @param nameLength passenger name length in bytes.
+     */
+    void set(final TransactionTypeEnum type, final boolean extended, final int route, final int flightId,
+            final int price, final byte[] name, final int nameOffset, final int nameLength) {
+        if (nameLength > TransactionCodec.MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Passenger name should be at most "
+                    + TransactionCodec.MAX_NAME_LENGTH + " bytes.");
+        }
+        this.type = type;
+        this.extended = extended;
+        this.route = route;
+        this.flightId = flightId;
+        this.price = price;
+        this.nameLength = nameLength;
+        System.arraycopy(name, nameOffset, nameBytes, 0, nameLength);
+    }
+
+    /**
+     * Get name buffer, used by the codec to decode the name in place.
+     * @return name buffer.
+     */
+    byte[] getNameBytes() {
+        return nameBytes;
+    }
+
+    /**
+     * Set fields decoded by the codec, the name bytes are already in the name buffer.
+     */
+    void setDecoded(final TransactionTypeEnum type, final boolean extended, final int route, final int flightId,
+            final int price, final int nameLength) {
+        this.type = type;
+        this.extended = extended;
+        this.route = route;
+        this.flightId = flightId;
+        this.price = price;
+        this.nameLength = nameLength;
+    }
+
+    /**
+     * Get transaction type.
+     * @return transaction type.
+     */
+    public TransactionTypeEnum getType() {
+        return type;
+    }
+
+    /**
+     * Check if the record is extended.
+     * @return true for a dated BookPassenger or a fare bucket ChangePrice.
+     */
+    public boolean isExtended() {
+        return extended;
+    }
+
+    /**
+     * Get departure date of a dated BookPassenger.
+     * @return departure date, or null if the record is not a dated BookPassenger.
+     */
+    public LocalDate getDepartureDate() {
+        if (!extended || type != TransactionTypeEnum.BOOK_PASSENGER) {
+            return null;
+        }
+        return LocalDate.ofEpochDay(price);
+    }
+
+    /**
+     * Get fare class of a fare bucket ChangePrice.
+     * @return fare class, or null if the record is not a fare bucket ChangePrice.
+     */
+    public String getFareClass() {
+        if (!extended || type != TransactionTypeEnum.CHANGE_PRICE) {
+            return null;
+        }
+        return new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get packed route.
+     * @return packed route.
+     */
+    public int getRoute() {
+        return route;
+    }
+
+    /**
+     * Get packed flight number.
+     * @return packed flight number.
+     */
+    public int getFlightId() {
+        return flightId;
+    }
+
+    /**
+     * Get price.
+     * @return price.
+     */
+    public int getPrice() {
+        return price;
+    }
+
+    /**
+     * Get passenger name length in bytes.
+     * @return passenger name length.
+     */
+    public int getNameLength() {
+        return nameLength;
+    }
+
+    /**
+     * Get passenger name.
+     * @return passenger name.
+     */
+    public String getPassengerName() {
+        return new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get OriginDestinationPair.
+     * @return origin destination pair.
+     */
+    public OriginDestinationPair getOriginDestinationPair() {
+        OriginDestinationPair originDestinationPair = routeCache.get(route);
+        if (originDestinationPair == null) {
+            originDestinationPair = new OriginDestinationPair(TransactionCodec.unpackOriginCode(route),
+                    TransactionCodec.unpackDestinationCode(route));
+            routeCache.put(route, originDestinationPair);
+        }
+        return originDestinationPair;
+    }
+
+    /**
+     * Get flight number.
+     * @return flight number.
+     */
+    public String getFlightNumber() {
+        String flightNumber = flightNumberCache.get(flightId);
+        if (flightNumber == null) {
+            flightNumber = TransactionCodec.unpackFlightNumber(flightId);
+            flightNumberCache.put(flightId, flightNumber);
+        }
+        return flightNumber;
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Transaction status Enum, outcome of a transaction.
+ *
+ * Each status has a one byte code used by the binary outcome log, see {@link OutcomeLog}.
+ */
+public enum TransactionStatusEnum {
+    BOOKED("Booked", (byte) 0),
+    WAITLISTED("Waitlisted", (byte) 1),
+    ALREADY_BOOKED("AlreadyBooked", (byte) 2),
+    NO_FLIGHT_ON_DATE("NoFlightOnDate", (byte) 3),
+    CANCELLED("Cancelled", (byte) 4),
+    LEFT_WAITLIST("LeftWaitlist", (byte) 5),
+    NO_RESERVATION("NoReservation", (byte) 6),
+    PRICE_CHANGED("PriceChanged", (byte) 7),
+    PRICE_SUPERSEDED("PriceSuperseded", (byte) 8),
+    FARE_CHANGED("FareChanged", (byte) 9),
+    UNKNOWN_FARE_CLASS("UnknownFareClass", (byte) 10),
+    UNKNOWN_ROUTE("UnknownRoute", (byte) 11),
+    UNKNOWN_FLIGHT("UnknownFlight", (byte) 12),
+    UNKNOWN_TRANSACTION("UnknownTransaction", (byte) 13),
+    SUPERSEDED("Superseded", (byte) 14);
+
+    /**
+     * Transaction statuses indexed by code.
+     */
+    private static final TransactionStatusEnum[] STATUSES_BY_CODE = new TransactionStatusEnum[values().length];
+
+    static {
+        for (TransactionStatusEnum status : values()) {
+            STATUSES_BY_CODE[status.code] = status;
+        }
+    }
+
+    /**
+     * Transaction status.
+     */
+    private final String status;
+
+    /**
+     * Code in binary outcome log.
+     */
+    private final byte code;
+
+    /**
+     * Constructor.
+     * @param status Transaction status.
+     * @param code Code in binary outcome log.
+     */
+    private TransactionStatusEnum(final String status, final byte code) {
+        this.status = status;
+        this.code = code;
+    }
+
+    /**
+     * Get transaction status.
+     * @return transaction status.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Get code in binary outcome log.
+     * @return code.
+     */
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Get transaction status by code.
+     * @param code code in binary outcome log.
+     * @return transaction status, or null if the code is unknown.
+     */
+    public static TransactionStatusEnum fromCode(final byte code) {
+        return code < 0 || code >= STATUSES_BY_CODE.length ? null : STATUSES_BY_CODE[code];
+    }
+}
@@ -0,0 +1,635 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuous tail mode, follows a directory of growing transaction files.
+ *
+ * <p>A tail thread watches the directory with a {@link WatchService} and applies the bytes appended to each
+ * file, and the files created in it, as soon as they are written:</p>
+ * <ul>
+ * <li>Each file is read through one open channel from where the last read stopped, so no byte is read
+ *     twice. A partial last line stays in the file's buffer until its end is written</li>
+ * <li>Lines are applied like {@link FlightReservationSystem#handleTransactions(String)} does, consecutive
+ *     ChangePrice lines as one price batch</li>
+ * <li>The byte offset after the last applied line of each file is checkpointed together with the system
+ *     state, at most every {@link #CHECKPOINT_INTERVAL_MILLIS} milliseconds and on close. Both are written to
+ *     one file moved over the checkpoint file, so a restart restores the state and resumes where it was
+ *     taken. After a crash, the lines applied since the last checkpoint are applied again on the state of
+ *     that checkpoint</li>
+ * <li>The tail thread only captures the offsets and a {@link StateSnapshot} between two lines, see
+ *     {@link FlightReservationSystem#captureState()}. A checkpoint thread writes it while lines go on being
+ *     applied, and the next capture waits until it is done, so a large state spaces checkpoints out instead
+ *     of holding up the lines</li>
+ * </ul>
+ *
+ * <p>A checkpoint without its state, such as one written before the state was checkpointed, is ignored and
+ * the files are applied again from their start.</p>
+ *
+ * <p>On start, files already in the directory are caught up in name order, so rolling segments named in
+ * sequence are applied in order. The tail thread also checks its files every {@link #POLL_MILLIS}
+ * milliseconds, in case the file system reports changes late.</p>
+ */
+public class TransactionTailer implements Closeable {
+    /**
+     * Minimum interval between two checkpoint writes.
+     */
+    static final long CHECKPOINT_INTERVAL_MILLIS = 100;
+
+    /**
+     * Maximum wait for a file system event before checking the files anyway.
+     */
+    static final long POLL_MILLIS = 50;
+
+    /**
+     * Line starting the system state in the checkpoint file.
+     */
+    static final String STATE_START = "#State";
+
+    /**
+     * Line ending the system state in the checkpoint file.
+     */
+    static final String STATE_END = "#EndState";
+
+    /**
+     * Initial read buffer size of a file.
+     */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * System applying the transactions.
+     */
+    private final FlightReservationSystem flightReservationSystem;
+
+    /**
+     * Followed directory.
+     */
+    private final Path directory;
+
+    /**
+     * Checkpoint file, one file name,offset line per file, then the system state between the
+     * {@link #STATE_START} and {@link #STATE_END} lines.
+     */
+    private final Path checkpointFile;
+
+    /**
+     * Watch service of the directory.
+     */
+    private final WatchService watchService;
+
+    /**
+     * Followed files by file name, used by the tail thread only.
+     */
+    private final Map<String, TailedFile> tailedFiles;
+
+    /**
+     * Offset after the last applied line of each file, by file name.
+     */
+    private final Map<String, Long> appliedOffsets;
+
+    /**
+     * Pending price batch.
+     */
+    private final PriceBatch priceBatch;
+
+    /**
+     * Thread following the directory.
+     */
+    private final Thread tailer;
+
+    /**
+     * Thread writing the checkpoints captured by the tail thread.
+     */
+    private final Thread checkpointer;
+
+    /**
+     * Checkpoint handed to the checkpoint thread, null while it is idle. Guarded by this tailer.
+     */
+    private Checkpoint nextCheckpoint;
+
+    /**
+     * True once the checkpoint thread is told to stop. Guarded by this tailer.
+     */
+    private boolean checkpointerStopped;
+
+    /**
+     * Number of applied lines.
+     */
+    private volatile long appliedLines;
+
+    /**
+     * Failure of the tail thread, null if none.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Time of the last checkpoint capture, used by the tail thread only.
+     */
+    private long lastCheckpointMillis;
+
+    /**
+     * True if offsets moved since the last checkpoint capture, used by the tail thread only.
+     */
+    private boolean checkpointDirty;
+
+    /**
+     * Constructor, loads the checkpoint and starts following the directory.
+     * @param flightReservationSystem system applying the transactions, freshly loaded from its flight input file
+     *                                and without transactions, the checkpointed state is restored into it.
+     * @param directory directory of transaction files.
+     * @param checkpointFile checkpoint file, created if missing, better kept out of the directory.
+     * @throws IOException
+     *              Throws when the directory cannot be watched or the checkpoint cannot be read.
+     */
+    public TransactionTailer(final FlightReservationSystem flightReservationSystem, final Path directory,
+            final Path checkpointFile) throws IOException {
+        this.flightReservationSystem = flightReservationSystem;
+        this.directory = directory;
+        this.checkpointFile = checkpointFile;
+        this.tailedFiles = new HashMap<>();
+        this.appliedOffsets = new ConcurrentHashMap<>();
+        this.priceBatch = new PriceBatch();
+        loadCheckpoint();
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.tailer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                tail();
+            }
+        }, "transaction-tailer");
+        tailer.setDaemon(true);
+        this.checkpointer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeCheckpoints();
+            }
+        }, "transaction-checkpointer");
+        checkpointer.setDaemon(true);
+        checkpointer.start();
+        tailer.start();
+    }
+
+    /**
+     * Get number of lines applied since start.
+     * @return applied lines.
+     */
+    public long getAppliedLines() {
+        return appliedLines;
+    }
+
+    /**
+     * Get the offset after the last applied line of a file.
+     * @param fileName file name in the directory.
+     * @return applied offset, 0 if the file was never read.
+     */
+    public long getAppliedOffset(final String fileName) {
+        Long offset = appliedOffsets.get(fileName);
+        return offset == null ? 0 : offset;
+    }
+
+    /**
+     * Wait until a number of lines was applied since start.
+     * @param lines number of lines.
+     * @param timeoutMillis maximum time to wait.
+     * @return true if the lines were applied.
+     * @throws InterruptedException
+     *              Throws when the thread is interrupted while waiting.
+     */
+    public boolean awaitAppliedLines(final long lines, final long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (appliedLines < lines) {
+            if (System.currentTimeMillis() >= deadline || !tailer.isAlive()) {
+                return appliedLines >= lines;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    /**
+     * Stop following the directory and write the final checkpoint.
+     * @throws IOException
+     *              Throws when the tail thread failed or the checkpoint cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        try {
+            tailer.join();
+            checkpointer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Follow the directory until closed.
+     */
+    private void tail() {
+        try {
+            try {
+                catchUp();
+                while (true) {
+                    WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (key == null) {
+                        for (TailedFile tailedFile : tailedFiles.values()) {
+                            readAppended(tailedFile);
+                        }
+                    } else {
+                        for (WatchEvent<?> event : key.pollEvents()) {
+                            handleEvent(event);
+                        }
+                        if (!key.reset()) {
+                            break;
+                        }
+                    }
+                    if (checkpointDirty
+                            && System.currentTimeMillis() - lastCheckpointMillis >= CHECKPOINT_INTERVAL_MILLIS) {
+                        submitCheckpoint();
+                    }
+                }
+            } catch (ClosedWatchServiceException e) {
+                //Closed by close.
+            } finally {
+                try {
+                    for (TailedFile tailedFile : tailedFiles.values()) {
+                        tailedFile.channel.close();
+                    }
+                    awaitCheckpointWritten();
+                    if (checkpointDirty) {
+                        writeCheckpoint(takeCheckpoint());
+                    }
+                } finally {
+                    stopCheckpointer();
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply what the files of the directory hold beyond their checkpoint, in name order.
+     * @throws IOException
+     *              Throws when a file cannot be read.
+     */
+    private void catchUp() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        for (Path file : files) {
+            TailedFile tailedFile = getTailedFile(file.getFileName().toString());
+            if (tailedFile != null) {
+                readAppended(tailedFile);
+            }
+        }
+    }
+
+    /**
+     * Handle one event of the directory.
+     * @param event watch event.
+     * @throws IOException
+     *              Throws when a file cannot be read.
+     */
+    private void handleEvent(final WatchEvent<?> event) throws IOException {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            catchUp();
+            return;
+        }
+        String fileName = event.context().toString();
+        if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+            TailedFile tailedFile = tailedFiles.remove(fileName);
+            if (tailedFile != null) {
+                tailedFile.channel.close();
+                appliedOffsets.remove(fileName);
+                checkpointDirty = true;
+            }
+            return;
+        }
+        TailedFile tailedFile = getTailedFile(fileName);
+        if (tailedFile != null) {
+            readAppended(tailedFile);
+        }
+    }
+
+    /**
+     * Get a followed file, opening it at its checkpoint offset on first use.
+     * @param fileName file name in the directory.
+     * @return followed file, or null if it is not a transaction file.
+     * @throws IOException
+     *              Throws when the file cannot be opened.
+     */
+    private TailedFile getTailedFile(final String fileName) throws IOException {
+        TailedFile tailedFile = tailedFiles.get(fileName);
+        if (tailedFile != null) {
+            return tailedFile;
+        }
+        Path file = directory.resolve(fileName);
+        if (!Files.isRegularFile(file) || file.equals(checkpointFile) || file.equals(getCheckpointTempFile())) {
+            return null;
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(getAppliedOffset(fileName));
+        tailedFile = new TailedFile(fileName, channel);
+        tailedFiles.put(fileName, tailedFile);
+        return tailedFile;
+    }
+
+    /**
+     * Apply the complete lines appended to a file since it was last read.
+     * @param tailedFile followed file.
+     * @throws IOException
+     *              Throws when the file cannot be read.
+     */
+    private void readAppended(final TailedFile tailedFile) throws IOException {
+        FileChannel channel = tailedFile.channel;
+        if (channel.size() < channel.position()) {
+            //The file was truncated, follow it from its start again.
+            channel.position(0);
+            tailedFile.buffer.clear();
+        }
+        long lines = 0;
+        while (true) {
+            if (!tailedFile.buffer.hasRemaining()) {
+                //A line longer than the buffer.
+                ByteBuffer larger = ByteBuffer.allocate(tailedFile.buffer.capacity() * 2);
+                tailedFile.buffer.flip();
+                larger.put(tailedFile.buffer);
+                tailedFile.buffer = larger;
+            }
+            if (channel.read(tailedFile.buffer) <= 0) {
+                break;
+            }
+            lines += applyLines(tailedFile.buffer);
+        }
+        long appliedOffset = channel.position() - tailedFile.buffer.position();
+        if (appliedOffset != getAppliedOffset(tailedFile.fileName)) {
+            flightReservationSystem.applyPriceBatch(priceBatch);
+            appliedOffsets.put(tailedFile.fileName, appliedOffset);
+            appliedLines += lines;
+            checkpointDirty = true;
+        }
+    }
+
+    /**
+     * Apply the complete lines of a buffer and keep the partial last line at its start.
+     * Lines end with \n, \r or \r\n like for {@link java.io.BufferedReader#readLine()}, empty lines are skipped.
+     * @param buffer buffer in write mode.
+     * @return number of applied lines.
+     */
+    private long applyLines(final ByteBuffer buffer) {
+        byte[] bytes = buffer.array();
+        int end = buffer.position();
+        int lineStart = 0;
+        long lines = 0;
+        for (int i = 0; i < end; i++) {
+            if (bytes[i] == '\n' || bytes[i] == '\r') {
+                //The empty line between the two bytes of a \r\n is skipped.
+                if (i > lineStart) {
+                    flightReservationSystem.handleTransactionLine(
+                            new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8), priceBatch);
+                    lines++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        buffer.flip();
+        buffer.position(lineStart);
+        buffer.compact();
+        return lines;
+    }
+
+    /**
+     * Load the applied offsets of the checkpoint file and restore its system state, if it exists.
+     * Offsets without a complete state are ignored, the files are then applied from their start.
+     * @throws IOException
+     *              Throws when the checkpoint cannot be read.
+     */
+    private void loadCheckpoint() throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        Map<String, Long> offsets = new HashMap<>();
+        List<String> stateLines = new ArrayList<>();
+        boolean stateStarted = false;
+        boolean stateEnded = false;
+        try (BufferedReader br = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            String line = br.readLine();
+            while (line != null && !stateEnded) {
+                if (STATE_START.equals(line)) {
+                    stateStarted = true;
+                } else if (STATE_END.equals(line)) {
+                    stateEnded = stateStarted;
+                } else if (stateStarted) {
+                    stateLines.add(line);
+                } else {
+                    int comma = line.lastIndexOf(',');
+                    offsets.put(line.substring(0, comma), Long.parseLong(line.substring(comma + 1)));
+                }
+                line = br.readLine();
+            }
+        }
+        if (!stateEnded) {
+            return;
+        }
+        for (String stateLine : stateLines) {
+            flightReservationSystem.restoreState(stateLine.split(",", -1));
+        }
+        appliedOffsets.putAll(offsets);
+    }
+
+    /**
+     * Capture the applied offsets and the system state.
+     * Called by the tail thread between two lines, with no pending price batch, so the state matches the offsets.
+     * @return checkpoint to write.
+     */
+    private Checkpoint takeCheckpoint() {
+        Checkpoint checkpoint = new Checkpoint(new HashMap<>(appliedOffsets), flightReservationSystem.captureState());
+        lastCheckpointMillis = System.currentTimeMillis();
+        checkpointDirty = false;
+        return checkpoint;
+    }
+
+    /**
+     * Hand a checkpoint to the checkpoint thread, unless it is still writing the previous one, the offsets then
+     * stay dirty until a later call.
+     * @throws IOException
+     *              Throws when the checkpoint thread failed to write a checkpoint.
+     */
+    private synchronized void submitCheckpoint() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        if (nextCheckpoint == null) {
+            nextCheckpoint = takeCheckpoint();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Wait until the checkpoint thread has written the checkpoint handed to it, if any.
+     * @throws InterruptedException
+     *              Throws when the thread is interrupted while waiting.
+     */
+    private synchronized void awaitCheckpointWritten() throws InterruptedException {
+        while (nextCheckpoint != null) {
+            wait();
+        }
+    }
+
+    /**
+     * Tell the checkpoint thread to stop once idle.
+     */
+    private synchronized void stopCheckpointer() {
+        checkpointerStopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Write the checkpoints handed by the tail thread until stopped or a write fails.
+     */
+    private void writeCheckpoints() {
+        try {
+            while (true) {
+                Checkpoint checkpoint;
+                synchronized (this) {
+                    while (nextCheckpoint == null && !checkpointerStopped) {
+                        wait();
+                    }
+                    if (nextCheckpoint == null) {
+                        return;
+                    }
+                    checkpoint = nextCheckpoint;
+                }
+                try {
+                    writeCheckpoint(checkpoint);
+                } catch (IOException e) {
+                    failure = e;
+                    return;
+                } finally {
+                    synchronized (this) {
+                        nextCheckpoint = null;
+                        notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write a checkpoint to a temporary file and move it over the checkpoint file.
+     * @param checkpoint captured offsets and system state.
+     * @throws IOException
+     *              Throws when the checkpoint cannot be written.
+     */
+    private void writeCheckpoint(final Checkpoint checkpoint) throws IOException {
+        Path tempFile = getCheckpointTempFile();
+        try (BufferedWriter bw = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Long> entry : checkpoint.offsets.entrySet()) {
+                bw.write(entry.getKey() + "," + entry.getValue() + "\n");
+            }
+            bw.write(STATE_START + "\n");
+            flightReservationSystem.writeState(checkpoint.stateSnapshot, bw);
+            bw.write(STATE_END + "\n");
+        }
+        Files.move(tempFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Get the temporary file the checkpoint is written to before it replaces the checkpoint file.
+     * @return temporary checkpoint file.
+     */
+    private Path getCheckpointTempFile() {
+        return checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+    }
+
+    /**
+     * Applied offsets and system state captured together.
+     */
+    private static final class Checkpoint {
+        /**
+         * Offset after the last applied line of each file, by file name.
+         */
+        final Map<String, Long> offsets;
+
+        /**
+         * System state after the last applied line.
+         */
+        final StateSnapshot stateSnapshot;
+
+        /**
+         * Constructor.
+         * @param offsets applied offsets.
+         * @param stateSnapshot system state.
+         */
+        Checkpoint(final Map<String, Long> offsets, final StateSnapshot stateSnapshot) {
+            this.offsets = offsets;
+            this.stateSnapshot = stateSnapshot;
+        }
+    }
+
+    /**
+     * A followed file.
+     */
+    private static final class TailedFile {
+        /**
+         * File name in the directory.
+         */
+        final String fileName;
+
+        /**
+         * Open channel, positioned after the last read byte.
+         */
+        final FileChannel channel;
+
+        /**
+         * Read bytes not applied yet, a partial last line, in write mode.
+         */
+        ByteBuffer buffer;
+
+        /**
+         * Constructor.
+         * @param fileName file name in the directory.
+         * @param channel open channel.
+         */
+        TailedFile(final String fileName, final FileChannel channel) {
+            this.fileName = fileName;
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        }
+    }
+}
@@ -7,23 +7,43 @@
  * <li>ChangePrice</li>
  * <li>CancelPassenger</li>
  * </ul>
+ *
+ * Each transaction type has a one byte tag used by the binary transaction format.
  */
 public enum TransactionTypeEnum {
-    BOOK_PASSENGER("BookPassenger"),
-    CHANGE_PRICE("ChangePrice"),
-    CANCEL_PASSENGER("CancelPassenger");
+    BOOK_PASSENGER("BookPassenger", (byte) 1),
+    CHANGE_PRICE("ChangePrice", (byte) 2),
+    CANCEL_PASSENGER("CancelPassenger", (byte) 3);
+
+    /**
+     * Transaction types indexed by tag.
+     */
+    private static final TransactionTypeEnum[] TYPES_BY_TAG = new TransactionTypeEnum[Byte.MAX_VALUE + 1];
+
+    static {
+        for (TransactionTypeEnum type : values()) {
+            TYPES_BY_TAG[type.tag] = type;
+        }
+    }
 
     /**
      * Transaction type.
      */
     private final String transactionType;
 
+    /**
+     * Tag in binary transaction format.
+     */
+    private final byte tag;
+
     /**
      * Constructor.
      * @param transactionType Transaction type.
+     * @param tag Tag in binary transaction format.
      */
-    private TransactionTypeEnum(final String transactionType) {
+    private TransactionTypeEnum(final String transactionType, final byte tag) {
         this.transactionType = transactionType;
+        this.tag = tag;
     }
 
     /**
@@ -33,4 +53,35 @@ public enum TransactionTypeEnum {
     public String getTransactionType() {
         return transactionType;
     }
+
+    /**
+     * Get tag in binary transaction format.
+     * @return tag.
+     */
+    public byte getTag() {
+        return tag;
+    }
+
+    /**
+     * Get transaction type by tag.
+     * @param tag tag in binary transaction format.
+     * @return transaction type, or null if the tag is unknown.
+     */
+    public static TransactionTypeEnum fromTag(final byte tag) {
+        return tag < 0 ? null : TYPES_BY_TAG[tag];
+    }
+
+    /**
+     * Get transaction type by name.
+     * @param transactionType transaction type, for example "BookPassenger".
+     * @return transaction type, or null if the name is unknown.
+     */
+    public static TransactionTypeEnum fromTransactionType(final String transactionType) {
+        for (TransactionTypeEnum type : values()) {
+            if (type.transactionType.equals(transactionType)) {
+                return type;
+            }
+        }
+        return null;
+    }
 }
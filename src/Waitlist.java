@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Waitlist of one origin destination pair.
+ *
+ * <p>Passengers wait in an {@link OrderStatisticTree} ordered by fare and request sequence, so joining,
+ * leaving, promoting the head of the waitlist and finding a passenger's position are O(log n). A HashMap from
+ * passenger to entry finds a passenger's entry.</p>
+ *
+ * <p>A passenger can only book a same flight once, so a waiting passenger who already holds a seat on a
+ * flight is skipped when that flight frees a seat. The waitlist is told of the seats its passengers take and
+ * release, and keeps these passengers in a second tree per flight, so finding the first passenger who can
+ * take a freed seat stays O(log n * log n) however many are skipped.</p>
+ */
+public class Waitlist {
+    /**
+     * Waiting passengers, in promotion order.
+     */
+    private final OrderStatisticTree<WaitlistEntry> entries;
+
+    /**
+     * Passenger to waitlist entry map.
+     */
+    private final Map<Passenger, WaitlistEntry> passengerToEntryMap;
+
+    /**
+     * Waiting passengers holding a seat on a flight, in promotion order, by flight.
+     */
+    private final Map<Flight, OrderStatisticTree<WaitlistEntry>> bookedEntriesMap;
+
+    /**
+     * Flights on which a waiting passenger holds a seat, by passenger.
+     */
+    private final Map<Passenger, List<Flight>> bookedFlightsMap;
+
+    /**
+     * Constructor.
+     */
+    public Waitlist() {
+        this.entries = new OrderStatisticTree<>();
+        this.passengerToEntryMap = new HashMap<>();
+        this.bookedEntriesMap = new HashMap<>();
+        this.bookedFlightsMap = new HashMap<>();
+    }
+
+    /**
+     * Add a passenger to the waitlist.
+     * A passenger can only wait once, joining again keeps the original entry.
+     * @param entry waitlist entry.
+     * @return entry of the passenger in the waitlist.
+     */
+    public WaitlistEntry add(final WaitlistEntry entry) {
+        WaitlistEntry existing = passengerToEntryMap.get(entry.getPassenger());
+        if (existing != null) {
+            return existing;
+        }
+        passengerToEntryMap.put(entry.getPassenger(), entry);
+        entries.add(entry);
+        return entry;
+    }
+
+    /**
+     * Remove a passenger from the waitlist.
+     * @param passenger passenger.
+     * @return true if the passenger was waiting.
+     */
+    public boolean remove(final Passenger passenger) {
+        WaitlistEntry entry = passengerToEntryMap.remove(passenger);
+        if (entry == null) {
+            return false;
+        }
+        entries.remove(entry);
+        List<Flight> bookedFlights = bookedFlightsMap.remove(passenger);
+        if (bookedFlights != null) {
+            for (Flight flight : bookedFlights) {
+                removeBookedEntry(flight, entry);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a passenger is waiting.
+     * @param passenger passenger.
+     * @return true if the passenger is waiting.
+     */
+    public boolean contains(final Passenger passenger) {
+        return passengerToEntryMap.containsKey(passenger);
+    }
+
+    /**
+     * Get position of a passenger in the waitlist.
+     * @param passenger passenger.
+     * @return 1 based position, or -1 if the passenger is not waiting.
+     */
+    public int getPosition(final Passenger passenger) {
+        WaitlistEntry entry = passengerToEntryMap.get(passenger);
+        if (entry == null) {
+            return -1;
+        }
+        return entries.indexOf(entry) + 1;
+    }
+
+    /**
+     * Get the entry at a position of the waitlist.
+     * @param index 0 based position.
+     * @return waitlist entry, or null if the position is out of the waitlist.
+     */
+    public WaitlistEntry get(final int index) {
+        return entries.get(index);
+    }
+
+    /**
+     * Remove and return the first entry whose passenger has no reservation on the given flight.
+     * A passenger can only book a same flight once, so such passengers keep waiting for another flight.
+     * @param flight flight with a free seat.
+     * @return promoted waitlist entry, or null if nobody can be promoted.
+     */
+    public WaitlistEntry pollFor(final Flight flight) {
+        OrderStatisticTree<WaitlistEntry> bookedEntries = bookedEntriesMap.get(flight);
+        int skipped = 0;
+        if (bookedEntries != null) {
+            //The booked entries heading the waitlist are the first ones whose position is their index among the
+            //booked entries, binary search the last of them.
+            int low = 0;
+            int high = bookedEntries.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (entries.indexOf(bookedEntries.get(mid)) == mid) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            skipped = low;
+        }
+        WaitlistEntry entry = entries.get(skipped);
+        if (entry != null) {
+            remove(entry.getPassenger());
+        }
+        return entry;
+    }
+
+    /**
+     * Record a seat taken by a passenger on a flight of the route, if the passenger is waiting.
+     * @param flight flight.
+     * @param passenger passenger.
+     */
+    public void seatTaken(final Flight flight, final Passenger passenger) {
+        WaitlistEntry entry = passengerToEntryMap.get(passenger);
+        if (entry == null) {
+            return;
+        }
+        OrderStatisticTree<WaitlistEntry> bookedEntries = bookedEntriesMap.get(flight);
+        if (bookedEntries == null) {
+            bookedEntries = new OrderStatisticTree<>();
+            bookedEntriesMap.put(flight, bookedEntries);
+        }
+        if (bookedEntries.add(entry)) {
+            List<Flight> bookedFlights = bookedFlightsMap.get(passenger);
+            if (bookedFlights == null) {
+                bookedFlights = new ArrayList<>(1);
+                bookedFlightsMap.put(passenger, bookedFlights);
+            }
+            bookedFlights.add(flight);
+        }
+    }
+
+    /**
+     * Record a seat released by a passenger on a flight of the route, if the passenger is waiting.
+     * @param flight flight.
+     * @param passenger passenger.
+     */
+    public void seatReleased(final Flight flight, final Passenger passenger) {
+        WaitlistEntry entry = passengerToEntryMap.get(passenger);
+        List<Flight> bookedFlights = bookedFlightsMap.get(passenger);
+        if (entry == null || bookedFlights == null || !bookedFlights.remove(flight)) {
+            return;
+        }
+        if (bookedFlights.isEmpty()) {
+            bookedFlightsMap.remove(passenger);
+        }
+        removeBookedEntry(flight, entry);
+    }
+
+    /**
+     * Forget the seats held on a retired flight.
+     * @param flight retired flight.
+     */
+    public void removeFlight(final Flight flight) {
+        OrderStatisticTree<WaitlistEntry> bookedEntries = bookedEntriesMap.remove(flight);
+        if (bookedEntries == null) {
+            return;
+        }
+        for (int i = 0; i < bookedEntries.size(); i++) {
+            Passenger passenger = bookedEntries.get(i).getPassenger();
+            List<Flight> bookedFlights = bookedFlightsMap.get(passenger);
+            bookedFlights.remove(flight);
+            if (bookedFlights.isEmpty()) {
+                bookedFlightsMap.remove(passenger);
+            }
+        }
+    }
+
+    /**
+     * Remove an entry from the booked entries of a flight.
+     * @param flight flight.
+     * @param entry waitlist entry.
+     */
+    private void removeBookedEntry(final Flight flight, final WaitlistEntry entry) {
+        OrderStatisticTree<WaitlistEntry> bookedEntries = bookedEntriesMap.get(flight);
+        bookedEntries.remove(entry);
+        if (bookedEntries.isEmpty()) {
+            bookedEntriesMap.remove(flight);
+        }
+    }
+
+    /**
+     * Get number of waiting passengers.
+     * @return waitlist size.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Check if waitlist is empty.
+     * @return true if nobody is waiting.
+     */
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+}
@@ -0,0 +1,69 @@
+/**
+ * Waitlist entry.
+ *
+ * <p>Each waitlist entry contains:</p>
+ * <ul>
+ * <li>Passenger information</li>
+ * <li>Fare the passenger pays</li>
+ * <li>Request sequence, the order in which the passenger joined the waitlist</li>
+ * </ul>
+ *
+ * <p>Entries are ordered by fare, highest first, then by request sequence, earliest first.</p>
+ */
+public class WaitlistEntry implements Comparable<WaitlistEntry> {
+    /**
+     * Passenger.
+     */
+    private final Passenger passenger;
+
+    /**
+     * Fare the passenger pays.
+     */
+    private final int fare;
+
+    /**
+     * Request sequence.
+     */
+    private final long requestSequence;
+
+    /**
+     * Constructor.
+     */
+    public WaitlistEntry(final Passenger passenger, final int fare, final long requestSequence) {
+        this.passenger = passenger;
+        this.fare = fare;
+        this.requestSequence = requestSequence;
+    }
+
+    /**
+     * Get passenger.
+     * @return passenger.
+     */
+    public Passenger getPassenger() {
+        return passenger;
+    }
+
+    /**
+     * Get fare.
+     * @return fare.
+     */
+    public int getFare() {
+        return fare;
+    }
+
+    /**
+     * Get request sequence.
+     * @return request sequence.
+     */
+    public long getRequestSequence() {
+        return requestSequence;
+    }
+
+    @Override
+    public int compareTo(WaitlistEntry o) {
+        if (this.fare != o.fare) {
+            return this.fare > o.fare ? -1 : 1;
+        }
+        return Long.compare(this.requestSequence, o.requestSequence);
+    }
+}
@@ -0,0 +1,122 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for analytics snapshot.
+ */
+public class AnalyticsSnapshotTest {
+    private FlightReservationSystem flightReservationSystem;
+
+    private File testFlightInfoFile;
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("K792,4,130,CHI,DFW\n");
+            bw.write("A792,10,140,CHI,DFW\n");
+            bw.write("A124,10,150,LAS,LAX\n");
+            bw.write("B353,10,90,LAS,SFO");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+    }
+
+    @After
+    public void afterTest() {
+        testFlightInfoFile.deleteOnExit();
+    }
+
+    private void book(final int count, final String origin, final String destination) {
+        for (int i = 0; i < count; i++) {
+            flightReservationSystem.processBookPassenger(new String[] {"BookPassenger",
+                    origin + destination + i, origin, destination});
+        }
+    }
+
+    @Test
+    public void testAggregate() {
+        //4 seats on K792 at 130, 2 on A792 at 140.
+        book(6, "CHI", "DFW");
+        book(5, "LAS", "LAX");
+        book(1, "LAS", "SFO");
+        AnalyticsSnapshot snapshot = flightReservationSystem.takeAnalyticsSnapshot();
+        assertTrue(snapshot.getFlightCount() == 4);
+        assertTrue(snapshot.getReservationCount() == 12);
+
+        AnalyticsResult revenue = snapshot.aggregate(AnalyticsDimensionEnum.ORIGIN, AnalyticsAggregateEnum.SUM);
+        assertTrue(revenue.getValue("CHI") == 4 * 130 + 2 * 140);
+        assertTrue(revenue.getValue("LAS") == 5 * 150 + 90);
+        assertTrue(Double.isNaN(revenue.getValue("DFW")));
+
+        AnalyticsResult averageFare = snapshot.aggregate(AnalyticsDimensionEnum.ROUTE,
+                AnalyticsAggregateEnum.AVERAGE);
+        assertTrue(averageFare.getValue("CHI-DFW") == (4 * 130 + 2 * 140) / 6.0);
+        assertTrue(averageFare.size() == 3);
+
+        AnalyticsResult maxFare = snapshot.aggregate(AnalyticsDimensionEnum.DESTINATION,
+                AnalyticsAggregateEnum.MAX);
+        assertTrue(maxFare.getValue("DFW") == 140);
+
+        List<String> topLoadFactor = snapshot.loadFactor(AnalyticsDimensionEnum.FLIGHT).topK(2);
+        assertTrue(topLoadFactor.size() == 2);
+        assertTrue("K792".equals(topLoadFactor.get(0)));
+        assertTrue("A124".equals(topLoadFactor.get(1)));
+        assertTrue(snapshot.loadFactor(AnalyticsDimensionEnum.ROUTE).getValue("LAS-SFO") == 0.1);
+    }
+
+    @Test
+    public void testFilterAndSnapshotIsolation() {
+        book(6, "CHI", "DFW");
+        final AnalyticsSnapshot snapshot = flightReservationSystem.takeAnalyticsSnapshot();
+        final int chicago = snapshot.getAirportId("CHI");
+        IntPredicate expensiveFromChicago = new IntPredicate() {
+            @Override
+            public boolean test(final int row) {
+                return snapshot.getFlightOrigin(snapshot.getReservationFlight(row)) == chicago
+                        && snapshot.getReservationPrice(row) > 135;
+            }
+        };
+        AnalyticsResult count = snapshot.aggregate(AnalyticsDimensionEnum.FLIGHT, AnalyticsAggregateEnum.COUNT,
+                expensiveFromChicago);
+        assertTrue(count.size() == 1);
+        assertTrue(count.getValue("A792") == 2);
+
+        //Later transactions do not change the snapshot.
+        book(3, "LAS", "LAX");
+        assertTrue(snapshot.getReservationCount() == 6);
+    }
+
+    @Test
+    public void testManyReservationsSplitAcrossTasks() {
+        AnalyticsSnapshot.SnapshotBuilder builder = new AnalyticsSnapshot.SnapshotBuilder();
+        Flight flight = new Flight.FlightBuilder()
+                                  .withFlightNumber("A124")
+                                  .withNumberOfSeats(300000)
+                                  .withPricePerSeat(100)
+                                  .withOriginCode("LAS")
+                                  .withDestinationCode("LAX")
+                                  .build();
+        long expected = 0;
+        for (int i = 0; i < 300000; i++) {
+            flight.bookPassenger(new ReservationItem(new Passenger("P" + i), 100 + i % 50, i + 1));
+            expected += 100 + i % 50;
+        }
+        AnalyticsSnapshot snapshot = builder.addFlight(flight).build();
+        assertTrue(snapshot.aggregate(AnalyticsDimensionEnum.ROUTE, AnalyticsAggregateEnum.SUM)
+                .getValue("LAS-LAX") == expected);
+        assertTrue(snapshot.aggregate(AnalyticsDimensionEnum.ROUTE, AnalyticsAggregateEnum.MIN)
+                .getValue("LAS-LAX") == 100);
+        assertTrue(snapshot.aggregate(AnalyticsDimensionEnum.ROUTE, AnalyticsAggregateEnum.COUNT)
+                .getValue("LAS-LAX") == 300000);
+    }
+}
@@ -0,0 +1,155 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for availability feed.
+ */
+public class AvailabilityFeedTest {
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private FlightReservationSystem flightReservationSystem;
+
+    private AvailabilityFeed feed;
+
+    private File testFlightInfoFile;
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("K792,26,130,CHI,DFW\n");
+            bw.write("A792,56,140,CHI,DFW");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        feed = new AvailabilityFeed(DIRECT_EXECUTOR);
+        flightReservationSystem.addReservationListener(feed);
+    }
+
+    @After
+    public void afterTest() {
+        testFlightInfoFile.deleteOnExit();
+    }
+
+    @Test
+    public void testPublishDeltas() {
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+        feed.subscribe(subscriber);
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "KenHatch", "CHI", "DFW"});
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A792", "120"});
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "KenHatch", "CHI", "DFW"});
+        //A repeated cancel does not take effect and publishes nothing.
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "KenHatch", "CHI", "DFW"});
+
+        assertTrue(subscriber.deltas.size() == 3);
+        AvailabilityDelta sold = subscriber.deltas.get(0);
+        assertTrue(sold.getType() == AvailabilityDeltaTypeEnum.SEAT_SOLD);
+        assertTrue(sold.getSequence() == 1);
+        assertTrue("K792".equals(sold.getFlightNumber()));
+        assertTrue("CHI".equals(sold.getOriginCode()) && "DFW".equals(sold.getDestinationCode()));
+        assertTrue(sold.getAvailableSeats() == 25);
+        AvailabilityDelta priceChanged = subscriber.deltas.get(1);
+        assertTrue(priceChanged.getType() == AvailabilityDeltaTypeEnum.PRICE_CHANGED);
+        assertTrue(priceChanged.getPricePerSeat() == 120);
+        AvailabilityDelta released = subscriber.deltas.get(2);
+        assertTrue(released.getType() == AvailabilityDeltaTypeEnum.SEAT_RELEASED);
+        assertTrue(released.getAvailableSeats() == 26);
+        assertTrue(released.getSequence() == 3);
+    }
+
+    @Test
+    public void testBackpressureDropNewest() {
+        TestSubscriber subscriber = new TestSubscriber(0);
+        feed.subscribe(subscriber, FeedOverflowStrategyEnum.DROP_NEWEST, 2);
+        for (int i = 0; i < 5; i++) {
+            flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A792", String.valueOf(100 + i)});
+        }
+        assertTrue(subscriber.deltas.isEmpty());
+        subscriber.subscription.request(10);
+        assertTrue(subscriber.deltas.size() == 2);
+        assertTrue(subscriber.deltas.get(0).getPricePerSeat() == 100);
+        assertTrue(subscriber.deltas.get(1).getPricePerSeat() == 101);
+        assertTrue(subscriber.subscription.getDroppedCount() == 3);
+    }
+
+    @Test
+    public void testBackpressureConflate() {
+        TestSubscriber subscriber = new TestSubscriber(0);
+        feed.subscribe(subscriber, FeedOverflowStrategyEnum.CONFLATE, 1);
+        for (int i = 0; i < 5; i++) {
+            flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A792", String.valueOf(200 + i)});
+        }
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "KenHatch", "CHI", "DFW"});
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.deltas.size() == 1);
+        assertTrue(subscriber.deltas.get(0).getPricePerSeat() == 204);
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.deltas.size() == 2);
+        assertTrue("K792".equals(subscriber.deltas.get(1).getFlightNumber()));
+    }
+
+    @Test
+    public void testCloseCompletesSubscribers() {
+        TestSubscriber subscriber = new TestSubscriber(0);
+        feed.subscribe(subscriber);
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A792", "120"});
+        feed.close();
+        assertTrue(!subscriber.completed);
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.deltas.size() == 1);
+        assertTrue(subscriber.completed);
+        assertTrue(feed.getSubscriptionCount() == 0);
+    }
+
+    private static class TestSubscriber implements AvailabilityFeed.Subscriber {
+        private final long initialRequest;
+
+        private final List<AvailabilityDelta> deltas = new ArrayList<>();
+
+        private AvailabilityFeed.Subscription subscription;
+
+        private boolean completed;
+
+        TestSubscriber(final long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(AvailabilityFeed.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(AvailabilityDelta delta) {
+            deltas.add(delta);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
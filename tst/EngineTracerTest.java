@@ -0,0 +1,150 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for engine tracer.
+ */
+public class EngineTracerTest {
+    private File testFlightInfoFile;
+
+    private final List<TraceEvent> events = new ArrayList<>();
+
+    private final TraceSink sink = new TraceSink() {
+        @Override
+        public void emit(final TraceEvent event) {
+            events.add(event);
+        }
+    };
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,1,150,LAS,LAX\n");
+            bw.write("A125,30,160,LAS,LAX\n");
+        }
+    }
+
+    @After
+    public void afterTest() {
+        testFlightInfoFile.deleteOnExit();
+    }
+
+    @Test
+    public void testThresholdAndSampling() throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        EngineTracer tracer = new EngineTracer(sink);
+        tracer.setThresholdNanos(TraceEventTypeEnum.TRANSACTION_APPLY, 0);
+        tracer.setSampleEvery(TraceEventTypeEnum.TRANSACTION_APPLY, 3);
+        tracer.setThresholdNanos(TraceEventTypeEnum.REPRICE_REORDER, Long.MAX_VALUE);
+        flightReservationSystem.setEngineTracer(tracer);
+        for (int i = 0; i < 9; i++) {
+            flightReservationSystem.processTransaction(new String[] {"BookPassenger", "Passenger" + i, "LAS", "LAX"});
+        }
+        flightReservationSystem.processTransaction(new String[] {"ChangePrice", "A125", "120"});
+        assertTrue(tracer.getOverThreshold(TraceEventTypeEnum.TRANSACTION_APPLY) == 10);
+        assertTrue(tracer.getEmitted(TraceEventTypeEnum.TRANSACTION_APPLY) == 4);
+        assertTrue(tracer.getEmitted(TraceEventTypeEnum.REPRICE_REORDER) == 0);
+        assertTrue(events.size() == 4);
+
+        //The first booking takes the cheap flight, the fourth one scans past it.
+        TraceEvent first = events.get(0);
+        assertTrue(first.getType() == TraceEventTypeEnum.TRANSACTION_APPLY);
+        assertTrue(first.getDetail().equals("BookPassenger"));
+        assertTrue(first.getRoute().equals("LAS-LAX"));
+        assertTrue(first.getFlightNumber().equals("A124"));
+        assertTrue(first.getFlightsScanned() == 1);
+        assertTrue(first.getSeats() == 1);
+        assertTrue(first.getDurationNanos() >= 0);
+        assertTrue(events.get(1).getFlightNumber().equals("A125"));
+        assertTrue(events.get(1).getFlightsScanned() == 2);
+        TraceEvent changePrice = events.get(3);
+        assertTrue(changePrice.getDetail().equals("ChangePrice"));
+        assertTrue(changePrice.getRoute() == null);
+        assertTrue(changePrice.getFlightNumber().equals("A125"));
+    }
+
+    @Test
+    public void testEnginePhases() throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        EngineTracer tracer = new EngineTracer(sink);
+        for (TraceEventTypeEnum type : TraceEventTypeEnum.values()) {
+            tracer.setThresholdNanos(type, 0);
+        }
+        tracer.setEnabled(TraceEventTypeEnum.TRANSACTION_APPLY, false);
+        assertTrue(tracer.begin(TraceEventTypeEnum.TRANSACTION_APPLY) == 0);
+        flightReservationSystem.setEngineTracer(tracer);
+        flightReservationSystem.processTransaction(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        flightReservationSystem.processTransaction(new String[] {"CancelPassenger", "GeorgeWashington", "LAS", "LAX"});
+        flightReservationSystem.processTransaction(new String[] {"ChangePrice", "A125", "120"});
+        File outputFile = File.createTempFile("TestOutput", ".txt");
+        outputFile.deleteOnExit();
+        flightReservationSystem.createOutput(outputFile.getAbsolutePath());
+
+        assertTrue(tracer.getEmitted(TraceEventTypeEnum.TRANSACTION_APPLY) == 0);
+        TraceEvent cancelLookup = events.get(0);
+        assertTrue(cancelLookup.getType() == TraceEventTypeEnum.CANCEL_LOOKUP);
+        assertTrue(cancelLookup.getRoute().equals("LAS-LAX"));
+        assertTrue(cancelLookup.getFlightNumber().equals("A124"));
+        assertTrue(cancelLookup.getFlightsScanned() == 2);
+        assertTrue(cancelLookup.getRecords() == 1);
+        TraceEvent reorder = events.get(1);
+        assertTrue(reorder.getType() == TraceEventTypeEnum.REPRICE_REORDER);
+        assertTrue(reorder.getFlightNumber().equals("A125"));
+        assertTrue(reorder.getFlightsScanned() == 2);
+        //One summary per flight, the whole report, then writing it.
+        assertTrue(tracer.getEmitted(TraceEventTypeEnum.REPORT_GENERATION) == 3);
+        assertTrue(events.get(4).getDetail().equals("createOutput"));
+        assertTrue(events.get(4).getRecords() == 2);
+        assertTrue(events.get(5).getType() == TraceEventTypeEnum.FILE_IO);
+        assertTrue(events.get(5).getDetail().equals(outputFile.getAbsolutePath()));
+        assertTrue(events.get(5).getRecords() == outputFile.length());
+    }
+
+    @Test
+    public void testFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("trace.TransactionApply.thresholdMicros", "250");
+        properties.setProperty("trace.TransactionApply.sampleEvery", "100");
+        properties.setProperty("trace.FileIO.enabled", "false");
+        EngineTracer tracer = EngineTracer.fromProperties(properties, sink);
+        assertTrue(tracer.getThresholdNanos(TraceEventTypeEnum.TRANSACTION_APPLY) == 250000);
+        assertTrue(tracer.getSampleEvery(TraceEventTypeEnum.TRANSACTION_APPLY) == 100);
+        assertTrue(!tracer.isEnabled(TraceEventTypeEnum.FILE_IO));
+        assertTrue(tracer.getThresholdNanos(TraceEventTypeEnum.CANCEL_LOOKUP)
+                == TraceEventTypeEnum.CANCEL_LOOKUP.getDefaultThresholdNanos());
+        assertTrue(tracer.getSampleEvery(TraceEventTypeEnum.CANCEL_LOOKUP) == 1);
+    }
+
+    @Test
+    public void testJfrTraceSink() throws ReflectiveOperationException {
+        if (!JfrTraceSink.isAvailable()) {
+            return;
+        }
+        JfrTraceSink jfrTraceSink = new JfrTraceSink();
+        jfrTraceSink.emit(new TraceEvent(TraceEventTypeEnum.CANCEL_LOOKUP, 1000, "GeorgeWashington", "LAS-LAX",
+                "A124", 2, -1, 1));
+        Object flightRecorder = Class.forName("jdk.jfr.FlightRecorder").getMethod("getFlightRecorder").invoke(null);
+        List<?> eventTypes = (List<?>) flightRecorder.getClass().getMethod("getEventTypes").invoke(flightRecorder);
+        List<String> names = new ArrayList<>();
+        for (Object eventType : eventTypes) {
+            names.add((String) eventType.getClass().getMethod("getName").invoke(eventType));
+        }
+        for (TraceEventTypeEnum type : TraceEventTypeEnum.values()) {
+            assertTrue(names.contains(JfrTraceSink.EVENT_NAME_PREFIX + type.getTraceEventType()));
+        }
+    }
+}
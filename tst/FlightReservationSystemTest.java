@@ -1,9 +1,21 @@
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.After;
 import org.junit.Before;
@@ -46,6 +58,7 @@ public class FlightReservationSystemTest {
         assertNotNull(flights);
         assertTrue("K792".equals(flights.first().getFlightNumber()));
         assertTrue("A792".equals(flights.last().getFlightNumber()));
+        assertTrue(!flights.first().isMaterialized());
     }
 
     @Test
@@ -103,4 +116,750 @@ public class FlightReservationSystemTest {
         assertTrue(flight.getAvailableSeats() == 54);
         assertNull(flight.getReservationByPassenger(new Passenger("GeorgeWashington")));
     }
+
+    @Test
+    public void testHoldSeatExpires() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,1,150,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        TestClock clock = new TestClock();
+        flightReservationSystem.seatHoldManager = new SeatHoldManager(clock, 100);
+        Flight flight = flightReservationSystem.flightNumberToFlightMap.get("A124");
+
+        SeatHold hold = flightReservationSystem.holdSeat("GeorgeWashington", "LAS", "LAX", 60000);
+        assertNotNull(hold);
+        assertTrue(flight.isFull());
+        assertTrue(flight.getAvailableSeats() == 0);
+
+        //Flight is full while the seat is held.
+        String[] transactionInfoArr = {"BookPassenger", "MikeSmith", "LAS", "LAX"};
+        flightReservationSystem.processBookPassenger(transactionInfoArr);
+        assertNull(flight.getReservationByPassenger(new Passenger("MikeSmith")));
+
+        clock.millis = 60000;
+        flightReservationSystem.processTransaction(transactionInfoArr);
+        assertNotNull(flight.getReservationByPassenger(new Passenger("MikeSmith")));
+        assertNull(flightReservationSystem.confirmHold(hold.getHoldId()));
+        assertTrue(flight.getHeldSeats() == 0);
+    }
+
+    @Test
+    public void testConfirmHold() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        Flight flight = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        SeatHold hold = flightReservationSystem.holdSeat("GeorgeWashington", "LAS", "LAX", 60000);
+        assertTrue(flight.getAvailableSeats() == 54 - 1);
+
+        //The held price is kept even if the flight changes price.
+        String[] changePriceInfoArr = {"ChangePrice", "A124", "200"};
+        flightReservationSystem.processChangePrice(changePriceInfoArr);
+        ReservationItem item = flightReservationSystem.confirmHold(hold.getHoldId());
+        assertNotNull(item);
+        assertTrue(item.getPrice() == 150);
+        assertTrue(item.getSeatNumber() == hold.getSeatNumber());
+        assertTrue(flight.getAvailableSeats() == 54 - 1);
+        assertTrue(flight.getHeldSeats() == 0);
+        assertTrue(flight.seatsPool.size() == 54 - 1);
+
+        SeatHold anotherHold = flightReservationSystem.holdSeat("KenHatch", "LAS", "LAX", 60000);
+        assertTrue(flightReservationSystem.releaseHold(anotherHold.getHoldId()));
+        assertTrue(flight.getAvailableSeats() == 54 - 1);
+        assertTrue(flight.seatsPool.size() == 54 - 1);
+    }
+
+    @Test
+    public void testWaitlistPromotedOnCancel() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,1,150,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        Flight flight = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "KenHatch", "LAS", "LAX"});
+        assertTrue(flightReservationSystem.joinWaitlist("LindaHenry", "LAS", "LAX", 300) == 1);
+        assertTrue(flightReservationSystem.getWaitlistPosition("MikeSmith", "LAS", "LAX") == 2);
+        assertTrue(flightReservationSystem.getWaitlistPosition("KenHatch", "LAS", "LAX") == 3);
+        assertTrue(flightReservationSystem.getWaitlistPosition("GeorgeWashington", "LAS", "LAX") == -1);
+
+        assertTrue(flightReservationSystem.leaveWaitlist("LindaHenry", "LAS", "LAX"));
+        assertTrue(flightReservationSystem.getWaitlistPosition("KenHatch", "LAS", "LAX") == 2);
+
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "GeorgeWashington", "LAS", "LAX"});
+        assertNull(flight.getReservationByPassenger(new Passenger("GeorgeWashington")));
+        assertNotNull(flight.getReservationByPassenger(new Passenger("MikeSmith")));
+        assertTrue(flight.isFull());
+        assertTrue(flightReservationSystem.getWaitlistPosition("MikeSmith", "LAS", "LAX") == -1);
+        assertTrue(flightReservationSystem.getWaitlistPosition("KenHatch", "LAS", "LAX") == 1);
+
+        //Cancel without reservation leaves the waitlist.
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "KenHatch", "LAS", "LAX"});
+        assertTrue(flightReservationSystem.getWaitlistPosition("KenHatch", "LAS", "LAX") == -1);
+    }
+
+    @Test
+    public void testWaitlistSkipsBookedPassengersAndKeepsFare() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,4,150,LAS,LAX\n");
+            bw.write("B124,1,160,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        for (String name : new String[] {"P1", "P2", "P3", "MikeSmith", "LindaHenry"}) {
+            flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", name, "LAS", "LAX"});
+        }
+        //P1 to P3 already hold a seat on A124 and wait for another flight, ahead of KenHatch.
+        for (String name : new String[] {"P1", "P2", "P3", "KenHatch"}) {
+            flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", name, "LAS", "LAX"});
+        }
+        assertTrue(flightReservationSystem.getWaitlistPosition("KenHatch", "LAS", "LAX") == 4);
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A124", "400"});
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "B124", "500"});
+
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "MikeSmith", "LAS", "LAX"});
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        assertTrue(a124.getReservationByPassenger(new Passenger("KenHatch")).getPrice() == 150);
+        assertTrue(flightReservationSystem.getWaitlistPosition("KenHatch", "LAS", "LAX") == -1);
+        assertTrue(flightReservationSystem.getWaitlistPosition("P1", "LAS", "LAX") == 1);
+
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "LindaHenry", "LAS", "LAX"});
+        Flight b124 = flightReservationSystem.flightNumberToFlightMap.get("B124");
+        assertTrue(b124.getReservationByPassenger(new Passenger("P1")).getPrice() == 150);
+        assertTrue(flightReservationSystem.getWaitlistPosition("P1", "LAS", "LAX") == -1);
+        assertTrue(flightReservationSystem.getWaitlistPosition("P2", "LAS", "LAX") == 1);
+        assertTrue(flightReservationSystem.getWaitlistPosition("P3", "LAS", "LAX") == 2);
+
+        //Once P2 gives up the A124 seat, P2 can be promoted on it.
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "P2", "LAS", "LAX"});
+        assertNotNull(a124.getReservationByPassenger(new Passenger("P2")));
+        assertTrue(flightReservationSystem.getWaitlistPosition("P3", "LAS", "LAX") == 1);
+    }
+
+    @Test
+    public void testCompressedInputs() throws IOException {
+        File flightInfoFile = File.createTempFile("TestFlightInfo", ".txt.gz");
+        //Detected by magic bytes, not by extension.
+        File transactionFile = File.createTempFile("TestTransactions", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(flightInfoFile))))) {
+            bw.write("K792,26,130,CHI,DFW\n");
+            bw.write("A792,56,140,CHI,DFW");
+        }
+        try (BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(transactionFile))))) {
+            for (int i = 0; i < 20000; i++) {
+                bw.write("BookPassenger,Passenger" + i + ",CHI,DFW\n");
+            }
+            bw.write("ChangePrice,A792,120\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(flightInfoFile.getAbsolutePath());
+        flightReservationSystem.handleTransactions(transactionFile.getAbsolutePath());
+        Flight k792 = flightReservationSystem.flightNumberToFlightMap.get("K792");
+        Flight a792 = flightReservationSystem.flightNumberToFlightMap.get("A792");
+        assertTrue(k792.isFull());
+        assertTrue(a792.isFull());
+        assertTrue(a792.getPricePerSeat() == 120);
+        assertTrue(flightReservationSystem.getWaitlistPosition("Passenger19999", "CHI", "DFW") == 20000 - 26 - 56);
+        flightInfoFile.deleteOnExit();
+        transactionFile.deleteOnExit();
+    }
+
+    @Test
+    public void testPriceHistory() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        TestClock clock = new TestClock();
+        flightReservationSystem.clock = clock;
+        Flight flight = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        assertTrue(flight.getPriceHistory() == null);
+
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        clock.millis = 1000;
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A124", "170"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX"});
+        clock.millis = 2000;
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A124", "120"});
+        assertTrue(flightReservationSystem.getTransactionSequence() == 4);
+        assertTrue(flight.getPriceAt(1) == 150);
+        assertTrue(flight.getPriceAt(2) == 170);
+        assertTrue(flight.getPriceAt(3) == 170);
+        assertTrue(flight.getPriceAt(4) == 120);
+        assertTrue(flight.getReservationByPassenger(new Passenger("MikeSmith")).getPrice() == flight.getPriceAt(3));
+        assertTrue(flight.getPriceHistory().getChanges(1000, 2001).size() == 2);
+    }
+
+    @Test
+    public void testHeavyHitters() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+            bw.write("K792,26,130,CHI,DFW");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        HeavyHitterTracker tracker = new HeavyHitterTracker(1, 256);
+        flightReservationSystem.setHeavyHitterTracker(tracker);
+        for (int i = 0; i < 5; i++) {
+            flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "P" + i, "LAS", "LAX"});
+        }
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "P0", "CHI", "DFW"});
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "P0", "CHI", "DFW"});
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "K792", "120"});
+
+        List<HeavyHitter> routes = tracker.getHeavyHitters(TransactionTypeEnum.BOOK_PASSENGER,
+                TrafficKeyTypeEnum.ROUTE);
+        assertTrue(new OriginDestinationPair("LAS", "LAX").equals(routes.get(0).getKey()));
+        assertTrue(routes.get(0).getEstimatedCount() == 5);
+        assertTrue(tracker.getHeavyHitters(TransactionTypeEnum.BOOK_PASSENGER, TrafficKeyTypeEnum.PASSENGER)
+                .get(0).getKey().equals(new Passenger("P0")));
+        assertTrue("A124".equals(tracker.getHeavyHitters(TransactionTypeEnum.BOOK_PASSENGER,
+                TrafficKeyTypeEnum.FLIGHT).get(0).getKey()));
+        assertTrue("K792".equals(tracker.getHeavyHitters(TransactionTypeEnum.CANCEL_PASSENGER,
+                TrafficKeyTypeEnum.FLIGHT).get(0).getKey()));
+        assertTrue(tracker.estimate(TransactionTypeEnum.CHANGE_PRICE, TrafficKeyTypeEnum.FLIGHT, "K792") == 1);
+        assertTrue(tracker.getTotal(TransactionTypeEnum.CANCEL_PASSENGER, TrafficKeyTypeEnum.ROUTE) == 1);
+    }
+
+    @Test
+    public void testBookParty() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,6,150,LAS,LAX\n");
+            bw.write("B352,12,180,LAS,LAX");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        Flight b352 = flightReservationSystem.flightNumberToFlightMap.get("B352");
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        assertTrue(flightReservationSystem.installSeatMap("A124", new SeatMap.SeatMapBuilder()));
+        assertTrue(flightReservationSystem.installSeatMap("B352", new SeatMap.SeatMapBuilder()));
+        assertTrue(a124.getSeatMap().getFreeSeats() == 5);
+
+        //A124 has at most 2 adjacent free seats left, so the party goes to B352.
+        int booked = a124.getReservationByPassenger(new Passenger("GeorgeWashington")).getSeatNumber();
+        int blocker = booked <= 3 ? 5 : 2;
+        a124.seatsPool.remove(Integer.valueOf(blocker));
+        a124.getSeatMap().take(blocker);
+        a124.bookPassenger(new ReservationItem(new Passenger("Blocker"), 150, blocker));
+        List<ReservationItem> party = flightReservationSystem.bookParty(
+                Arrays.asList("MikeSmith", "KenHatch", "LindaHenry"), "LAS", "LAX", null);
+        assertTrue(party.size() == 3);
+        assertNotNull(b352.getReservationByPassenger(new Passenger("KenHatch")));
+        assertTrue(party.get(0).getSeatNumber() == 1 && party.get(2).getSeatNumber() == 3);
+        assertTrue(party.get(0).getPrice() == 180);
+        assertTrue(b352.seatsPool.size() == 9);
+        assertTrue(b352.getSeatMap().getFreeSeats() == 9);
+
+        //No row half has 4 seats, the party is booked on the cheapest flight with 4 available seats.
+        List<ReservationItem> scattered = flightReservationSystem.bookParty(
+                Arrays.asList("JohnDoe", "JaneDoe", "AmyLee", "TomLee"), "LAS", "LAX", null);
+        assertTrue(scattered.size() == 4);
+        assertTrue(scattered.get(0).getPrice() == 150);
+        assertTrue(a124.isFull());
+        assertTrue(a124.getSeatMap().getFreeSeats() == 0);
+
+        //Flights already booked by a party member are skipped.
+        party = flightReservationSystem.bookParty(Arrays.asList("JohnDoe", "BobRoss"), "LAS", "LAX",
+                CabinZoneEnum.ECONOMY);
+        assertTrue(party.get(0).getSeatNumber() == 4 && party.get(1).getSeatNumber() == 5);
+        assertNull(flightReservationSystem.bookParty(Arrays.asList("SamHill", "SamHill"), "LAS", "LAX", null));
+    }
+
+    @Test
+    public void testApplyInventoryDiff() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,1,150,LAS,LAX\n");
+            bw.write("B352,2,180,LAS,LAX");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        String[] names = {"GeorgeWashington", "MikeSmith", "KenHatch", "LindaHenry"};
+        for (String name : names) {
+            flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", name, "LAS", "LAX"});
+        }
+        assertTrue(flightReservationSystem.getWaitlistPosition("LindaHenry", "LAS", "LAX") == 1);
+
+        File diffFile = File.createTempFile("TestInventoryDiff", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(diffFile))) {
+            bw.write("RetireFlight,B352\n");
+            bw.write("AddFlight,A124,9,100,LAS,LAX\n");
+            bw.write("ChangeSeats,A124,3\n");
+            bw.write("AddFlight,C100,5,90,LAS,SFO\n");
+            bw.write("ChangeSeats,C100,0\n");
+        }
+        //Adding an existing flight number is rejected.
+        assertTrue(flightReservationSystem.applyInventoryDiff(diffFile.getAbsolutePath()) == 4);
+        diffFile.deleteOnExit();
+
+        assertNull(flightReservationSystem.flightNumberToFlightMap.get("B352"));
+        assertTrue(flightReservationSystem.flightsMap.get(new OriginDestinationPair("LAS", "LAX")).size() == 1);
+        //The reservation on the unchanged flight is kept and the waitlist fills the new seats.
+        assertTrue(flightReservationSystem.flightNumberToFlightMap.get("A124") == a124);
+        assertNotNull(a124.getReservationByPassenger(new Passenger("GeorgeWashington")));
+        assertNotNull(a124.getReservationByPassenger(new Passenger("LindaHenry")));
+        assertTrue(a124.getAvailableSeats() == 1);
+        assertTrue(flightReservationSystem.getWaitlistPosition("LindaHenry", "LAS", "LAX") == -1);
+
+        Flight c100 = flightReservationSystem.flightNumberToFlightMap.get("C100");
+        assertTrue(c100.getNumberOfSeats() == 0);
+        assertTrue(c100.isFull());
+
+        //Cannot shrink below booked seats.
+        assertTrue(!flightReservationSystem.applyInventoryChange(new String[] {"ChangeSeats", "A124", "1"}));
+    }
+
+    @Test
+    public void testReloadWhileBooking() throws Exception {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,20000,150,LAS,LAX\n");
+            bw.write("K792,10,130,CHI,DFW");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        Thread reloader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 2000; i++) {
+                    flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "X" + i, "1", "90",
+                            "LAS", "LAX"});
+                    flightReservationSystem.applyInventoryChange(new String[] {"RetireFlight", "X" + i});
+                    flightReservationSystem.applyInventoryChange(new String[] {"ChangeSeats", "K792",
+                            String.valueOf(10 + i % 5)});
+                }
+            }
+        });
+        reloader.start();
+        for (int i = 0; i < 10000; i++) {
+            flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "Passenger" + i, "LAS",
+                    "LAX"});
+        }
+        reloader.join();
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        int booked = 0;
+        for (int i = 0; i < 10000; i++) {
+            Passenger passenger = new Passenger("Passenger" + i);
+            if (a124.getReservationByPassenger(passenger) != null) {
+                booked++;
+            }
+        }
+        //Passengers booked on a retired flight are dropped with it, the others are all on A124.
+        assertTrue(a124.getAvailableSeats() == 20000 - booked);
+        assertTrue(a124.seatsPool.size() == 20000 - booked);
+        assertTrue(flightReservationSystem.flightsMap.get(new OriginDestinationPair("LAS", "LAX")).size() == 1);
+    }
+
+    @Test
+    public void testBookOnDepartureDate() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        TestClock clock = new TestClock();
+        clock.millis = LocalDate.of(2026, 10, 19).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        flightReservationSystem.clock = clock;
+        flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "D1", "1", "170", "LAS", "LAX",
+                "2026-10-20T08:30"});
+        flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "D2", "5", "190", "LAS", "LAX",
+                "2026-10-20T18:00"});
+        flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "D3", "5", "110", "LAS", "LAX",
+                "2026-10-22T08:30"});
+        assertTrue(flightReservationSystem.getCheapestFlight("LAS", "LAX", LocalDate.of(2026, 10, 20))
+                .getFlightNumber().equals("D1"));
+
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX",
+                "2026-10-20"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX",
+                "2026-10-20"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "JohnDoe", "LAS", "LAX",
+                "2026-10-21"});
+        assertNotNull(flightReservationSystem.flightNumberToFlightMap.get("D1")
+                .getReservationByPassenger(new Passenger("GeorgeWashington")));
+        assertNotNull(flightReservationSystem.flightNumberToFlightMap.get("D2")
+                .getReservationByPassenger(new Passenger("MikeSmith")));
+        assertTrue(flightReservationSystem.getTransactionSequence() == 3);
+        assertTrue(flightReservationSystem.getCheapestFlight("LAS", "LAX", LocalDate.of(2026, 10, 19),
+                LocalDate.of(2026, 10, 31)).getFlightNumber().equals("D3"));
+
+        //Undated bookings still go to the cheapest flight of the route.
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "JaneDoe", "LAS", "LAX"});
+        assertNotNull(flightReservationSystem.flightNumberToFlightMap.get("D3")
+                .getReservationByPassenger(new Passenger("JaneDoe")));
+
+        clock.millis += 2 * 24 * 3600 * 1000L;
+        assertNull(flightReservationSystem.getCheapestFlight("LAS", "LAX", LocalDate.of(2026, 10, 20)));
+        flightReservationSystem.applyInventoryChange(new String[] {"RetireFlight", "D3"});
+        assertNull(flightReservationSystem.getCheapestFlight("LAS", "LAX", LocalDate.of(2026, 10, 19),
+                LocalDate.of(2026, 10, 31)));
+    }
+
+    @Test
+    public void testFareBucketsOnDepartureDate() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        TestClock clock = new TestClock();
+        clock.millis = LocalDate.of(2026, 10, 19).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        flightReservationSystem.clock = clock;
+        flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "D1", "5", "170", "LAS", "LAX",
+                "2026-10-20T08:30"});
+        flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "D2", "5", "200", "LAS", "LAX",
+                "2026-10-20T18:00"});
+        //Only 3 seats of D1 are sold, 1 of them in M.
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"SetFareBuckets", "D1", "Y:300:3",
+                "M:120:1"}));
+        Flight d1 = flightReservationSystem.flightNumberToFlightMap.get("D1");
+        Flight d2 = flightReservationSystem.flightNumberToFlightMap.get("D2");
+
+        String[] passengers = {"P1", "P2", "P3", "P4", "P5", "P6", "P7", "P8"};
+        Flight[] bookedFlights = {d1, d2, d2, d1, d1, d2, d2, d2};
+        for (int i = 0; i < passengers.length; i++) {
+            if (i == 3) {
+                flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "D1", "150", "Y"});
+            }
+            assertTrue(flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", passengers[i],
+                    "LAS", "LAX", "2026-10-20"}) == TransactionStatusEnum.BOOKED);
+            assertNotNull(bookedFlights[i].getReservationByPassenger(new Passenger(passengers[i])));
+        }
+        assertTrue(d1.getReservationByPassenger(new Passenger("P1")).getFareClass().equals("M"));
+        assertTrue(d1.getReservationByPassenger(new Passenger("P4")).getPrice() == 150);
+        for (ReservationItem item : d1.getReservations()) {
+            assertNotNull(item.getFareClass());
+        }
+        //D1 still has 2 free seats, but its buckets are closed.
+        assertTrue(d1.getAvailableSeats() == 2 && d1.getSellableSeats() == 0);
+        assertTrue(flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "P9", "LAS", "LAX",
+                "2026-10-20"}) == TransactionStatusEnum.NO_FLIGHT_ON_DATE);
+        assertTrue(d1.getReservations().size() == 3);
+    }
+
+    @Test
+    public void testFareBuckets() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,4,170,LAS,LAX\n");
+            bw.write("A125,4,160,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"SetFareBuckets", "A124", "Y:300:4",
+                "M:120:1"}));
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        Flight a125 = flightReservationSystem.flightNumberToFlightMap.get("A125");
+
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        ReservationItem item = a124.getReservationByPassenger(new Passenger("GeorgeWashington"));
+        assertTrue(item.getPrice() == 120 && item.getFareClass().equals("M"));
+        //M is sold out, A125 at its price per seat is cheaper than Y.
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX"});
+        assertNotNull(a125.getReservationByPassenger(new Passenger("MikeSmith")));
+        flightReservationSystem.processChangePrice(new String[] {"ChangePrice", "A124", "150", "Y"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "JohnDoe", "LAS", "LAX"});
+        assertTrue(a124.getReservationByPassenger(new Passenger("JohnDoe")).getPrice() == 150);
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "GeorgeWashington", "LAS",
+                "LAX"});
+        assertTrue(a124.getFareBucket("M").getSold() == 0);
+
+        //A flight added to the route joins its fare index.
+        flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "A126", "1", "90", "LAS", "LAX"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "JaneDoe", "LAS", "LAX"});
+        assertNotNull(flightReservationSystem.flightNumberToFlightMap.get("A126")
+                .getReservationByPassenger(new Passenger("JaneDoe")));
+        assertTrue(flightReservationSystem.fareIndexMap.get(new OriginDestinationPair("LAS", "LAX")).size() == 2);
+        assertTrue(flightReservationSystem.fareIndexMap.get(new OriginDestinationPair("LAS", "LAX"))
+                .getCheapestFlight() == a124);
+    }
+
+    @Test
+    public void testFareBucketsOfPartiesHoldsAndWaitlist() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,6,170,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"SetFareBuckets", "A124", "Y:300:6",
+                "B:200:5", "M:120:2"}));
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX"});
+        assertTrue(a124.getFareBucket("M").getSold() == 2);
+
+        //M is full, the party is sold in B.
+        List<ReservationItem> party = flightReservationSystem.bookParty(Arrays.asList("P1", "P2", "P3"), "LAS", "LAX",
+                null);
+        for (ReservationItem item : party) {
+            assertTrue(item.getPrice() == 200 && "B".equals(item.getFareClass()));
+        }
+        assertTrue(a124.getFareBucket("M").getSold() == 2);
+        assertTrue(a124.getFareBucket("B").getSold() == 3);
+        //B is closed too, only one seat is left within the booking limits.
+        assertTrue(a124.getSellableSeats() == 1);
+        assertNull(flightReservationSystem.bookParty(Arrays.asList("P4", "P5"), "LAS", "LAX", null));
+
+        //A held seat counts in its bucket until it is released or confirmed.
+        SeatHold hold = flightReservationSystem.holdSeat("JohnDoe", "LAS", "LAX", 60000);
+        assertTrue(hold.getPrice() == 300 && a124.getFareBucket("Y").getSold() == 1);
+        assertTrue(flightReservationSystem.releaseHold(hold.getHoldId()));
+        assertTrue(a124.getFareBucket("Y").getSold() == 0);
+        hold = flightReservationSystem.holdSeat("JohnDoe", "LAS", "LAX", 60000);
+        ReservationItem confirmed = flightReservationSystem.confirmHold(hold.getHoldId());
+        assertTrue(confirmed.getPrice() == 300 && "Y".equals(confirmed.getFareClass()));
+        assertTrue(a124.getFareBucket("Y").getSold() == 1);
+        assertTrue(a124.isFull());
+
+        //The promoted passenger takes the freed M seat, at the waitlisted fare.
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "KenHatch", "LAS", "LAX"});
+        assertTrue(flightReservationSystem.getWaitlistPosition("KenHatch", "LAS", "LAX") == 1);
+        flightReservationSystem.processCancelPassenger(new String[] {"CancelPassenger", "MikeSmith", "LAS", "LAX"});
+        ReservationItem promoted = a124.getReservationByPassenger(new Passenger("KenHatch"));
+        assertTrue(promoted.getPrice() == 170 && "M".equals(promoted.getFareClass()));
+        assertTrue(a124.getFareBucket("M").getSold() == 2);
+    }
+
+    @Test
+    public void testFlatCombining() throws IOException, InterruptedException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,500,150,LAS,LAX\n");
+            bw.write("A125,300,140,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(flightReservationSystem.enableFlatCombining("LAS", "LAX"));
+        assertTrue(!flightReservationSystem.enableFlatCombining("CHI", "DFW"));
+        final OriginDestinationPair route = new OriginDestinationPair("LAS", "LAX");
+        final AtomicInteger cancels = new AtomicInteger();
+        Thread[] threads = new Thread[6];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 300; j++) {
+                        Passenger passenger = new Passenger("Passenger" + thread + "-" + j);
+                        ReservationItem booked = flightReservationSystem.processBookPassenger(passenger, route);
+                        if (j % 3 == 0 && booked != null) {
+                            ReservationItem canceled = flightReservationSystem.processCancelPassenger(passenger,
+                                    route);
+                            assertTrue(canceled == booked);
+                            cancels.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        Flight a125 = flightReservationSystem.flightNumberToFlightMap.get("A125");
+        //At least 1200 passengers never cancel, more than the 800 seats, so freed seats go to the waitlist.
+        assertTrue(a124.isFull() && a125.isFull());
+        assertTrue(a124.seatsPool.isEmpty() && a125.seatsPool.isEmpty());
+        assertTrue(a124.getReservations().size() + a125.getReservations().size()
+                + flightReservationSystem.waitlistMap.get(route).size() == 1800 - cancels.get());
+        assertTrue(flightReservationSystem.getRouteCombiner("LAS", "LAX").getCombinedRequests()
+                == 1800 + cancels.get());
+    }
+
+    @Test
+    public void testApplyPriceBatch() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+            bw.write("A125,30,140,LAS,LAX\n");
+            bw.write("A126,30,160,LAS,LAX\n");
+            bw.write("A127,30,170,LAS,LAX\n");
+            bw.write("A128,30,180,LAS,LAX\n");
+            bw.write("K792,26,130,CHI,DFW\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        PriceBatch priceBatch = new PriceBatch();
+        priceBatch.add("A124", 200);
+        priceBatch.add("K792", 90);
+        priceBatch.add("A124", 110);
+        priceBatch.add("Z999", 100);
+        assertTrue(priceBatch.size() == 4);
+        assertTrue(flightReservationSystem.applyPriceBatch(priceBatch) == 2);
+        assertTrue(priceBatch.isEmpty());
+        //Updates take their sequences in batch order, every price is recorded.
+        assertTrue(flightReservationSystem.getTransactionSequence() == 4);
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        assertTrue(a124.getPricePerSeat() == 110);
+        assertTrue(a124.getPriceHistory().size() == 3);
+        assertTrue(a124.getPriceAt(1) == 200);
+        assertTrue(a124.getPriceAt(2) == 200);
+        assertTrue(a124.getPriceAt(3) == 110);
+        assertTrue(flightReservationSystem.flightNumberToFlightMap.get("K792").getPriceAt(2) == 90);
+        TreeSet<Flight> lasLax = flightReservationSystem.flightsMap.get(new OriginDestinationPair("LAS", "LAX"));
+        assertTrue(lasLax.first() == a124);
+
+        //Most of the route repriced, the route is rebuilt.
+        priceBatch.add("A124", 190);
+        priceBatch.add("A125", 185);
+        priceBatch.add("A127", 100);
+        assertTrue(flightReservationSystem.applyPriceBatch(priceBatch) == 3);
+        assertTrue(lasLax.size() == 5);
+        String[] expected = {"A127", "A126", "A128", "A125", "A124"};
+        int i = 0;
+        for (Flight flight : lasLax) {
+            assertTrue(expected[i++].equals(flight.getFlightNumber()));
+        }
+        assertTrue(lasLax.contains(a124));
+        flightReservationSystem.processBookPassenger(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        assertTrue(flightReservationSystem.flightNumberToFlightMap.get("A127")
+                .getReservationByPassenger(new Passenger("GeorgeWashington")).getPrice() == 100);
+        assertTrue(flightReservationSystem.applyPriceBatch(priceBatch) == 0);
+
+        //A change with a later sequence applied first, as by another thread, supersedes the older change.
+        Flight k792 = flightReservationSystem.flightNumberToFlightMap.get("K792");
+        k792.changePrice(95, 100, 0);
+        assertTrue(flightReservationSystem.processChangePrice("K792", 80) == TransactionStatusEnum.PRICE_SUPERSEDED);
+        assertTrue(k792.getPricePerSeat() == 95);
+    }
+
+    @Test
+    public void testPriceBatchFromTransactionFile() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+            bw.write("A125,30,140,LAS,LAX\n");
+            bw.write("K792,26,130,CHI,DFW\n");
+        }
+        File transactionFile = File.createTempFile("TestTransactions", ".txt");
+        transactionFile.deleteOnExit();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(transactionFile))) {
+            bw.write("ChangePrice,A125,170\n");
+            bw.write("ChangePrice,A124,160\n");
+            bw.write("BookPassenger,GeorgeWashington,LAS,LAX\n");
+            bw.write("ChangePrice,A124,100\n");
+            bw.write("ChangePrice,K792,110\n");
+            bw.write("ChangePrice,Z999,100\n");
+            bw.write("ChangePrice,A124,180\n");
+            bw.write("BookPassenger,MikeSmith,LAS,LAX\n");
+        }
+        FlightReservationSystem oneByOne = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        oneByOne.handleTransactions(transactionFile.getAbsolutePath());
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(!flightReservationSystem.isPriceBatching());
+        flightReservationSystem.enablePriceBatching(true);
+        flightReservationSystem.handleTransactions(transactionFile.getAbsolutePath());
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        Flight a125 = flightReservationSystem.flightNumberToFlightMap.get("A125");
+        //Bookings see the prices of the batch before them.
+        assertTrue(a124.getReservationByPassenger(new Passenger("GeorgeWashington")).getPrice() == 160);
+        assertTrue(a125.getReservationByPassenger(new Passenger("MikeSmith")).getPrice() == 170);
+        assertTrue(flightReservationSystem.getTransactionSequence() == 8);
+        assertTrue(a124.getPriceAt(4) == 100);
+        assertTrue(a124.getPriceAt(6) == 100);
+        assertTrue(a124.getPriceAt(7) == 180);
+        //Batching leaves the same sequences and price histories as applying the updates one by one.
+        assertTrue(oneByOne.getTransactionSequence() == flightReservationSystem.getTransactionSequence());
+        for (String flightNumber : new String[] {"A124", "A125", "K792"}) {
+            Flight batched = flightReservationSystem.flightNumberToFlightMap.get(flightNumber);
+            Flight applied = oneByOne.flightNumberToFlightMap.get(flightNumber);
+            assertTrue(batched.getPriceHistory().size() == applied.getPriceHistory().size());
+            for (long sequence = 0; sequence <= 8; sequence++) {
+                assertTrue(batched.getPriceAt(sequence) == applied.getPriceAt(sequence));
+            }
+        }
+    }
+
+    @Test
+    public void testRouteSnapshotFollowsInventoryChanges() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,20,150,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(flightReservationSystem.getCheapestFare("LAS", "LAX") == 150);
+        //Several changes in a row, the next read republishes the route once.
+        for (int i = 0; i < 10; i++) {
+            assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "X" + i, "5",
+                    String.valueOf(130 - i), "LAS", "LAX"}));
+        }
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"AddFlight", "D1", "5", "90", "CHI",
+                "DFW"}));
+        assertTrue(flightReservationSystem.getCheapestFare("LAS", "LAX") == 121);
+        assertTrue(flightReservationSystem.getCheapestFare("CHI", "DFW") == 90);
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"RetireFlight", "X9"}));
+        assertTrue(flightReservationSystem.getCheapestFare("LAS", "LAX") == 122);
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"RetireFlight", "D1"}));
+        assertTrue(flightReservationSystem.isSoldOut("CHI", "DFW"));
+    }
+
+    @Test
+    public void testOptimisticReads() throws IOException, InterruptedException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,20,150,LAS,LAX\n");
+            bw.write("A125,10,140,LAS,LAX\n");
+        }
+        flightReservationSystem = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(flightReservationSystem.getCheapestFare("LAS", "LAX") == 140);
+        assertTrue(flightReservationSystem.getCheapestFare("CHI", "DFW") == -1);
+        assertTrue(flightReservationSystem.getAvailableSeats("K792") == -1);
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger badReads = new AtomicInteger();
+        Thread[] readers = new Thread[3];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    while (!done.get()) {
+                        int a124Seats = flightReservationSystem.getAvailableSeats("A124");
+                        int a125Price = flightReservationSystem.getPricePerSeat("A125");
+                        int fare = flightReservationSystem.getCheapestFare("LAS", "LAX");
+                        //Prices only move between 100 and 199, seats never go below zero.
+                        if (a124Seats < 0 || a124Seats > 20 || a125Price < 100 || a125Price > 199
+                                || (fare != -1 && (fare < 100 || fare > 199))) {
+                            badReads.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            readers[i].start();
+        }
+        OriginDestinationPair route = new OriginDestinationPair("LAS", "LAX");
+        for (int i = 0; i < 20000; i++) {
+            Passenger passenger = new Passenger("Passenger" + (i % 40));
+            if (i % 3 == 2) {
+                flightReservationSystem.processCancelPassenger(passenger, route);
+            } else {
+                flightReservationSystem.processBookPassenger(passenger, route);
+            }
+            if (i % 100 == 0) {
+                flightReservationSystem.processChangePrice(i % 200 == 0 ? "A124" : "A125", 100 + i % 97);
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertTrue(badReads.get() == 0);
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        Flight a125 = flightReservationSystem.flightNumberToFlightMap.get("A125");
+        assertTrue(flightReservationSystem.isSoldOut("LAS", "LAX") == (a124.isFull() && a125.isFull()));
+        assertTrue(flightReservationSystem.getAvailableSeats("A124") == 20 - a124.getReservations().size());
+    }
+
+    /**
+     * Clock moved by hand.
+     */
+    private static class TestClock extends Clock {
+        private long millis;
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
 }
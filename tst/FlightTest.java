@@ -1,3 +1,7 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -119,4 +123,103 @@ public class FlightTest {
         assertTrue(flight.seatsPool.size() == 2);
         flight.cancelPassenger(testReservationItem);
     }
+
+    @Test
+    public void testMaterializedOnFirstUse() {
+        Flight lazyFlight = new Flight.FlightBuilder()
+                                      .withFlightNumber("B352")
+                                      .withNumberOfSeats(300)
+                                      .withPricePerSeat(pricePerSeat)
+                                      .withOriginCode(ORIGIN_CODE)
+                                      .withDestinationCode(DESTINATION_CODE)
+                                      .build();
+        assertFalse(lazyFlight.isMaterialized());
+        assertTrue(lazyFlight.getAvailableSeats() == 300);
+        assertFalse(lazyFlight.isFull());
+        assertNull(lazyFlight.getReservationByPassenger(TEST_PASSENGER));
+        lazyFlight.cancelPassenger(testReservationItem);
+        assertTrue(lazyFlight.changeNumberOfSeats(200));
+        assertTrue(lazyFlight.summaryFlight().getSoldSeats() == 0);
+        assertFalse(lazyFlight.isMaterialized());
+
+        int seatNumber = lazyFlight.generateRandomSeatNumber();
+        assertTrue(lazyFlight.isMaterialized());
+        assertTrue(seatNumber >= 1 && seatNumber <= 200);
+        assertTrue(lazyFlight.seatsPool.size() == 199);
+        assertFalse(lazyFlight.seatsPool.contains(seatNumber));
+    }
+
+    @Test
+    public void testNestedFareBuckets() {
+        Flight bucketFlight = new Flight.FlightBuilder()
+                                        .withFlightNumber("B100")
+                                        .withNumberOfSeats(10)
+                                        .withPricePerSeat(300)
+                                        .withOriginCode(ORIGIN_CODE)
+                                        .withDestinationCode(DESTINATION_CODE)
+                                        .build();
+        assertTrue(bucketFlight.getCheapestOpenFare() == 300);
+        assertNull(bucketFlight.getCheapestOpenFareBucket());
+        bucketFlight.installFareBuckets(Arrays.asList(new FareBucket("Y", 300, 10), new FareBucket("B", 200, 6),
+                new FareBucket("M", 150, 2)));
+        assertTrue(bucketFlight.getCheapestOpenFare() == 150);
+        for (int i = 0; i < 2; i++) {
+            bucketFlight.bookPassenger(new ReservationItem(new Passenger("M" + i), 150,
+                    bucketFlight.generateRandomSeatNumber(), "M"));
+        }
+        //M is closed by its own limit, B still has 4 of its 6 seats.
+        assertTrue(bucketFlight.getCheapestOpenFareBucket().getFareClass().equals("B"));
+        for (int i = 0; i < 4; i++) {
+            bucketFlight.bookPassenger(new ReservationItem(new Passenger("B" + i), 200,
+                    bucketFlight.generateRandomSeatNumber(), "B"));
+        }
+        assertTrue(bucketFlight.getCheapestOpenFare() == 300);
+        //A cancelled M seat reopens M and B.
+        ReservationItem cancelled = bucketFlight.getReservationByPassenger(new Passenger("M0"));
+        bucketFlight.cancelPassenger(cancelled);
+        bucketFlight.recoverSeat(cancelled.getSeatNumber());
+        assertTrue(bucketFlight.getCheapestOpenFare() == 150);
+        assertTrue(bucketFlight.getFareBucket("M").getSold() == 1);
+        assertTrue(bucketFlight.changeFare("Y", 100));
+        assertTrue(bucketFlight.getCheapestOpenFareBucket().getFareClass().equals("Y"));
+        assertFalse(bucketFlight.changeFare("Q", 100));
+        for (int i = 0; i < 5; i++) {
+            bucketFlight.bookPassenger(new ReservationItem(new Passenger("Y" + i), 100,
+                    bucketFlight.generateRandomSeatNumber(), "Y"));
+        }
+        assertTrue(bucketFlight.isFull());
+        assertTrue(bucketFlight.getCheapestOpenFare() == -1);
+    }
+
+    @Test
+    public void testShrinkThenGrowKeepsSeatsUnique() {
+        Flight resizedFlight = new Flight.FlightBuilder()
+                                         .withFlightNumber("B200")
+                                         .withNumberOfSeats(10)
+                                         .withPricePerSeat(pricePerSeat)
+                                         .withOriginCode(ORIGIN_CODE)
+                                         .withDestinationCode(DESTINATION_CODE)
+                                         .build();
+        assertTrue(resizedFlight.takeSeat(9));
+        resizedFlight.bookPassenger(new ReservationItem(TEST_PASSENGER, pricePerSeat, 9));
+        int heldSeat = resizedFlight.holdSeat(null);
+        //Shrinking keeps the booked seat 9 and the held seat, whatever their numbers.
+        assertTrue(resizedFlight.changeNumberOfSeats(3));
+        assertTrue(resizedFlight.getAvailableSeats() == 1);
+        assertTrue(resizedFlight.changeNumberOfSeats(10));
+        assertTrue(resizedFlight.getAvailableSeats() == 8);
+
+        Set<Integer> seatNumbers = new HashSet<>();
+        seatNumbers.add(9);
+        seatNumbers.add(heldSeat);
+        int passenger = 0;
+        while (!resizedFlight.isFull()) {
+            int seatNumber = resizedFlight.generateRandomSeatNumber();
+            resizedFlight.bookPassenger(new ReservationItem(new Passenger("P" + passenger++), pricePerSeat,
+                    seatNumber));
+            assertTrue(seatNumbers.add(seatNumber));
+        }
+        assertTrue(seatNumbers.size() == 10);
+        assertTrue(resizedFlight.seatsPool.isEmpty());
+    }
 }
@@ -0,0 +1,155 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Heap footprint of the core data structures.
+ *
+ * <p>Builds systems at several scales and measures the retained heap per flight (with its share of the route
+ * keys, route sets and indexes), per seat of a materialized seat pool and per reservation (passenger, name,
+ * reservation item and reservation map nodes), as the used heap after full collections before and after each
+ * step. Seat counts are those of real aircraft, mostly above the cached Integer range, so the boxing cost of
+ * the seat pool is measured. Prints a table and fails when the largest scale is over a budget. Budgets in
+ * bytes can be set with -Dfootprint.maxBytesPerFlight, -Dfootprint.maxBytesPerSeat and
+ * -Dfootprint.maxBytesPerReservation.</p>
+ */
+public class HeapFootprintTest {
+    private static final int[] FLIGHT_COUNTS = {1000, 4000, 16000};
+
+    private static final int[] SEAT_COUNTS = {150, 200, 300};
+
+    private static final int RESERVATIONS_PER_FLIGHT = 10;
+
+    private static final int FLIGHTS_PER_ROUTE = 4;
+
+    private static final long MAX_BYTES_PER_FLIGHT = Long.getLong("footprint.maxBytesPerFlight", 640);
+
+    private static final long MAX_BYTES_PER_SEAT = Long.getLong("footprint.maxBytesPerSeat", 16);
+
+    private static final long MAX_BYTES_PER_RESERVATION = Long.getLong("footprint.maxBytesPerReservation", 256);
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * Footprint of one scale.
+     */
+    private static final class Footprint {
+        private final long bytesPerFlight;
+
+        private final long bytesPerSeat;
+
+        private final long bytesPerReservation;
+
+        Footprint(final long bytesPerFlight, final long bytesPerSeat,
+                final long bytesPerReservation) {
+            this.bytesPerFlight = bytesPerFlight;
+            this.bytesPerSeat = bytesPerSeat;
+            this.bytesPerReservation = bytesPerReservation;
+        }
+    }
+
+    /**
+     * Get the used heap once full collections stop freeing memory.
+     * Background threads, such as read-ahead threads of closed files, may release memory a little later,
+     * so the used heap must be stable over a few collections.
+     * @return used heap in bytes.
+     */
+    private static long usedHeap() {
+        long used = Long.MAX_VALUE;
+        int stable = 0;
+        for (int i = 0; i < 20 && stable < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            long now = MEMORY.getHeapMemoryUsage().getUsed();
+            stable = now >= used ? stable + 1 : 0;
+            used = Math.min(used, now);
+        }
+        return used;
+    }
+
+    private static String originCode(final int route) {
+        return "" + (char) ('A' + route / 676) + (char) ('A' + route / 26 % 26) + (char) ('A' + route % 26);
+    }
+
+    private static String destinationCode(final int route) {
+        return originCode(26 * 26 * 26 - 1 - route);
+    }
+
+    private static File writeFlights(final int flights, final int seats) throws IOException {
+        File file = File.createTempFile("FootprintFlights", ".txt");
+        file.deleteOnExit();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < flights; i++) {
+                int route = i / FLIGHTS_PER_ROUTE;
+                bw.write("F" + i + "," + seats + "," + (100 + i % 97) + "," + originCode(route) + ","
+                        + destinationCode(route) + "\n");
+            }
+        }
+        return file;
+    }
+
+    private static Footprint measure(final int flights, final int seats) throws IOException {
+        File file = writeFlights(flights, seats);
+        int routes = (flights + FLIGHTS_PER_ROUTE - 1) / FLIGHTS_PER_ROUTE;
+        String[] originCodes = new String[routes];
+        String[] destinationCodes = new String[routes];
+        for (int route = 0; route < routes; route++) {
+            originCodes[route] = originCode(route);
+            destinationCodes[route] = destinationCode(route);
+        }
+        int reservations = flights * RESERVATIONS_PER_FLIGHT;
+
+        long beforeFlights = usedHeap();
+        FlightReservationSystem flightReservationSystem = new FlightReservationSystem(file.getAbsolutePath());
+        long afterFlights = usedHeap();
+
+        //Taking and returning a seat builds the seat pool of a flight without booking it.
+        for (Flight flight : flightReservationSystem.flightNumberToFlightMap.values()) {
+            flight.recoverSeat(flight.generateRandomSeatNumber());
+        }
+        long afterSeats = usedHeap();
+
+        //Passenger names are created with the bookings, like when they are read from a transaction file.
+        for (int i = 0; i < reservations; i++) {
+            int route = (i % flights) / FLIGHTS_PER_ROUTE;
+            flightReservationSystem.processTransaction(new String[] {"BookPassenger", "Passenger" + i,
+                    originCodes[route], destinationCodes[route]});
+        }
+        long afterReservations = usedHeap();
+        assertTrue(flightReservationSystem.takeReservationSnapshot().getSoldSeats() == reservations);
+        return new Footprint((afterFlights - beforeFlights) / flights,
+                (afterSeats - afterFlights) / ((long) flights * seats),
+                (afterReservations - afterSeats) / reservations);
+    }
+
+    @Test
+    public void testFootprintWithinBudget() throws IOException {
+        //Warm up, so class loading and compiled code are not measured.
+        measure(FLIGHT_COUNTS[0], SEAT_COUNTS[0]);
+        Footprint largest = null;
+        System.out.println(String.format("%-10s %-10s %-10s %-14s %-14s %-14s", "Flights", "Seats/flt", "Seats",
+                "Bytes/flight", "Bytes/seat", "Bytes/reservation"));
+        for (int i = 0; i < FLIGHT_COUNTS.length; i++) {
+            int flights = FLIGHT_COUNTS[i];
+            largest = measure(flights, SEAT_COUNTS[i]);
+            System.out.println(String.format("%-10d %-10d %-10d %-14d %-14d %-14d", flights, SEAT_COUNTS[i],
+                    flights * SEAT_COUNTS[i], largest.bytesPerFlight, largest.bytesPerSeat,
+                    largest.bytesPerReservation));
+        }
+        assertTrue("bytes per flight " + largest.bytesPerFlight, largest.bytesPerFlight <= MAX_BYTES_PER_FLIGHT);
+        assertTrue("bytes per seat " + largest.bytesPerSeat, largest.bytesPerSeat <= MAX_BYTES_PER_SEAT);
+        assertTrue("bytes per reservation " + largest.bytesPerReservation,
+                largest.bytesPerReservation <= MAX_BYTES_PER_RESERVATION);
+    }
+}
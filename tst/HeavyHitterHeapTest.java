@@ -0,0 +1,54 @@
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for heavy hitter heap.
+ */
+public class HeavyHitterHeapTest {
+    @Test
+    public void testFindsHeavyHitters() {
+        HeavyHitterHeap heap = new HeavyHitterHeap(5, 1024);
+        Random random = new Random(11);
+        int[] counts = new int[10000];
+        for (int i = 0; i < 200000; i++) {
+            //Keys 0 to 4 take half of the stream.
+            int key = random.nextBoolean() ? random.nextInt(5) : 5 + random.nextInt(counts.length - 5);
+            counts[key]++;
+            heap.add("Key" + key);
+        }
+        List<HeavyHitter> heavyHitters = heap.getHeavyHitters();
+        assertTrue(heavyHitters.size() == 5);
+        for (int i = 0; i < heavyHitters.size(); i++) {
+            String key = (String) heavyHitters.get(i).getKey();
+            int index = Integer.parseInt(key.substring(3));
+            assertTrue(index < 5);
+            assertTrue(heavyHitters.get(i).getEstimatedCount() >= counts[index]);
+            if (i > 0) {
+                assertTrue(heavyHitters.get(i - 1).getEstimatedCount() >= heavyHitters.get(i).getEstimatedCount());
+            }
+        }
+        assertTrue(heap.getTotal() == 200000);
+        assertTrue(heap.estimate("Key9999") >= counts[9999]);
+    }
+
+    @Test
+    public void testReplacesMinimum() {
+        HeavyHitterHeap heap = new HeavyHitterHeap(2, 256);
+        heap.add("A");
+        heap.add("B");
+        heap.add("C");
+        for (int i = 0; i < 3; i++) {
+            heap.add("C");
+        }
+        heap.add("A");
+        List<HeavyHitter> heavyHitters = heap.getHeavyHitters();
+        assertTrue(heavyHitters.size() == 2);
+        assertTrue("C".equals(heavyHitters.get(0).getKey()));
+        assertTrue(heavyHitters.get(0).getEstimatedCount() == 4);
+        assertTrue("A".equals(heavyHitters.get(1).getKey()));
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for hierarchical timing wheel.
+ */
+public class HierarchicalTimingWheelTest {
+    private static final long TICK_MILLIS = 10;
+
+    private HierarchicalTimingWheel<TestTimeout> wheel;
+
+    private List<TestTimeout> expired;
+
+    private HierarchicalTimingWheel.ExpiryHandler<TestTimeout> handler;
+
+    @Before
+    public void initialize() {
+        wheel = new HierarchicalTimingWheel<>(TICK_MILLIS, 0);
+        expired = new ArrayList<>();
+        handler = new HierarchicalTimingWheel.ExpiryHandler<TestTimeout>() {
+            @Override
+            public void expire(TestTimeout timeout) {
+                expired.add(timeout);
+            }
+        };
+    }
+
+    @Test
+    public void testExpireAtDeadline() {
+        TestTimeout timeout = new TestTimeout(50);
+        wheel.schedule(timeout, 50);
+        assertTrue(wheel.advanceTo(40, handler) == 0);
+        assertTrue(timeout.isScheduled());
+        assertTrue(wheel.advanceTo(50, handler) == 1);
+        assertFalse(timeout.isScheduled());
+        assertTrue(wheel.size() == 0);
+    }
+
+    @Test
+    public void testCascadeAcrossLevels() {
+        long[] deadlines = {30, 2570, 700000, 1000000000L, 5000, 2560, 655360};
+        for (long deadline : deadlines) {
+            wheel.schedule(new TestTimeout(deadline), deadline);
+        }
+        long now = 0;
+        while (wheel.size() > 0) {
+            now += 100000;
+            wheel.advanceTo(now, handler);
+        }
+        assertTrue(expired.size() == deadlines.length);
+        for (int i = 1; i < expired.size(); i++) {
+            assertTrue(expired.get(i - 1).deadline <= expired.get(i).deadline);
+        }
+    }
+
+    @Test
+    public void testNeverFiresEarly() {
+        for (long deadline = 5; deadline < 200000; deadline += 997) {
+            wheel.schedule(new TestTimeout(deadline), deadline);
+        }
+        for (long now = 0; now <= 200000; now += TICK_MILLIS) {
+            int before = expired.size();
+            wheel.advanceTo(now, handler);
+            for (int i = before; i < expired.size(); i++) {
+                assertTrue(expired.get(i).deadline <= now);
+                assertTrue(expired.get(i).deadline > now - TICK_MILLIS * 2);
+            }
+        }
+        assertTrue(wheel.size() == 0);
+    }
+
+    @Test
+    public void testCancel() {
+        TestTimeout first = new TestTimeout(100);
+        TestTimeout second = new TestTimeout(100);
+        wheel.schedule(first, 100);
+        wheel.schedule(second, 100);
+        assertTrue(wheel.cancel(first));
+        assertFalse(wheel.cancel(first));
+        wheel.advanceTo(100, handler);
+        assertTrue(expired.size() == 1);
+        assertTrue(expired.get(0) == second);
+    }
+
+    @Test
+    public void testScheduleInThePast() {
+        wheel.advanceTo(1000, handler);
+        wheel.schedule(new TestTimeout(500), 500);
+        assertTrue(wheel.advanceTo(1000, handler) == 1);
+    }
+
+    private static class TestTimeout extends HierarchicalTimingWheel.Timeout {
+        private final long deadline;
+
+        TestTimeout(final long deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for order statistic tree.
+ */
+public class OrderStatisticTreeTest {
+    @Test
+    public void testSameAsTreeSet() {
+        Random random = new Random(11);
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            int value = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                assertTrue(tree.remove(value) == expected.remove(value));
+            } else {
+                assertTrue(tree.add(value) == expected.add(value));
+            }
+            assertTrue(tree.size() == expected.size());
+            int probe = random.nextInt(2000);
+            assertTrue(tree.contains(probe) == expected.contains(probe));
+            assertTrue(tree.indexOf(probe) == expected.headSet(probe).size());
+        }
+        List<Integer> sorted = new ArrayList<>(expected);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertTrue(tree.get(i).equals(sorted.get(i)));
+            assertTrue(tree.indexOf(sorted.get(i)) == i);
+        }
+        assertNull(tree.get(sorted.size()));
+        assertNull(tree.get(-1));
+    }
+
+    @Test
+    public void testEmpty() {
+        OrderStatisticTree<Integer> tree = new OrderStatisticTree<>();
+        assertTrue(tree.isEmpty());
+        assertNull(tree.get(0));
+        assertTrue(tree.indexOf(5) == 0);
+        assertTrue(!tree.remove(5));
+        assertTrue(tree.add(5));
+        assertTrue(!tree.add(5));
+        assertTrue(tree.remove(5));
+        assertTrue(tree.isEmpty());
+    }
+}
@@ -0,0 +1,173 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for transaction outcome log.
+ */
+public class OutcomeLogTest {
+    private File testFlightInfoFile;
+
+    private File testOutcomeLogFile;
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        testOutcomeLogFile = File.createTempFile("TestOutcomeLog", ".log");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,2,150,LAS,LAX\n");
+            bw.write("K792,26,130,CHI,DFW\n");
+        }
+    }
+
+    @After
+    public void afterTest() {
+        testFlightInfoFile.deleteOnExit();
+        testOutcomeLogFile.deleteOnExit();
+    }
+
+    @Test
+    public void testEveryTransactionLogged() throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        OutcomeLog outcomeLog = new OutcomeLog(testOutcomeLogFile.getAbsolutePath(), OutcomeLogFormatEnum.CSV);
+        flightReservationSystem.setOutcomeLog(outcomeLog);
+        String[][] transactions = {
+            {"BookPassenger", "GeorgeWashington", "LAS", "LAX"},
+            {"BookPassenger", "GeorgeWashington", "LAS", "LAX"},
+            {"BookPassenger", "MikeSmith", "LAS", "LAX"},
+            {"BookPassenger", "AnnaLee", "LAS", "LAX"},
+            {"CancelPassenger", "AnnaLee", "LAS", "LAX"},
+            {"CancelPassenger", "AnnaLee", "LAS", "LAX"},
+            {"BookPassenger", "AnnaLee", "SFO", "JFK"},
+            {"ChangePrice", "K792", "120"},
+            {"ChangePrice", "Z999", "120"},
+            {"ChangePrice", "K792", "90", "Y"},
+            {"CancelPassenger", "GeorgeWashington", "LAS", "LAX"},
+            {"RefundPassenger", "GeorgeWashington", "LAS", "LAX"},
+        };
+        TransactionStatusEnum[] expected = {
+            TransactionStatusEnum.BOOKED,
+            TransactionStatusEnum.ALREADY_BOOKED,
+            TransactionStatusEnum.BOOKED,
+            TransactionStatusEnum.WAITLISTED,
+            TransactionStatusEnum.LEFT_WAITLIST,
+            TransactionStatusEnum.NO_RESERVATION,
+            TransactionStatusEnum.UNKNOWN_ROUTE,
+            TransactionStatusEnum.PRICE_CHANGED,
+            TransactionStatusEnum.UNKNOWN_FLIGHT,
+            TransactionStatusEnum.UNKNOWN_FARE_CLASS,
+            TransactionStatusEnum.CANCELLED,
+            TransactionStatusEnum.UNKNOWN_TRANSACTION,
+        };
+        for (int i = 0; i < transactions.length; i++) {
+            assertTrue(flightReservationSystem.processTransaction(transactions[i]) == expected[i]);
+        }
+        outcomeLog.close();
+        assertTrue(outcomeLog.getWrittenRecords() == transactions.length);
+
+        List<String> lines = Files.readAllLines(testOutcomeLogFile.toPath());
+        assertTrue(lines.size() == transactions.length);
+        //Every transaction takes a sequence, rejected ones included.
+        for (int i = 0; i < lines.size(); i++) {
+            assertTrue(lines.get(i).split(",", -1)[0].equals(String.valueOf(i + 1)));
+            assertTrue(lines.get(i).split(",", -1)[2].equals(expected[i].getStatus()));
+        }
+        String[] booked = lines.get(0).split(",", -1);
+        assertTrue(booked[0].equals("1"));
+        assertTrue(booked[1].equals("BookPassenger"));
+        assertTrue(booked[3].equals("A124"));
+        assertTrue(booked[4].equals("1") || booked[4].equals("2"));
+        assertTrue(booked[5].equals("150"));
+        //A repeated booking points at the existing reservation.
+        assertTrue(lines.get(1).equals("2,BookPassenger,AlreadyBooked,A124," + booked[4] + ",150"));
+        assertTrue(lines.get(3).equals("4,BookPassenger,Waitlisted,,-1,150"));
+        assertTrue(lines.get(7).equals("8,ChangePrice,PriceChanged,K792,-1,120"));
+        assertTrue(lines.get(8).equals("9,ChangePrice,UnknownFlight,Z999,-1,120"));
+        assertTrue(lines.get(10).equals("11,CancelPassenger,Cancelled,A124," + booked[4] + ",150"));
+        assertTrue(lines.get(11).equals("12,,UnknownTransaction,,-1,-1"));
+    }
+
+    @Test
+    public void testPriceBatchOutcomes() throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        OutcomeLog outcomeLog = new OutcomeLog(testOutcomeLogFile.getAbsolutePath(), OutcomeLogFormatEnum.CSV);
+        flightReservationSystem.setOutcomeLog(outcomeLog);
+        PriceBatch priceBatch = new PriceBatch();
+        priceBatch.add("K792", 100);
+        priceBatch.add("Z999", 100);
+        priceBatch.add("K792", 110);
+        flightReservationSystem.applyPriceBatch(priceBatch);
+        outcomeLog.close();
+        List<String> lines = Files.readAllLines(testOutcomeLogFile.toPath());
+        //Outcomes follow the batch order, each update with its own sequence.
+        assertTrue(lines.size() == 3);
+        assertTrue(lines.get(0).equals("1,ChangePrice,PriceChanged,K792,-1,100"));
+        assertTrue(lines.get(1).equals("2,ChangePrice,UnknownFlight,Z999,-1,100"));
+        assertTrue(lines.get(2).equals("3,ChangePrice,PriceChanged,K792,-1,110"));
+    }
+
+    @Test
+    public void testBinaryLogFromManyThreads() throws IOException, InterruptedException {
+        //A ring of 8 slots makes the applying threads wrap around and wait for the writer.
+        final OutcomeLog outcomeLog = new OutcomeLog(testOutcomeLogFile.getAbsolutePath(),
+                OutcomeLogFormatEnum.BINARY, 8);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    TransactionOutcome outcome = new TransactionOutcome();
+                    for (int j = 1; j <= 5000; j++) {
+                        outcome.begin(thread * 5000 + j, TransactionTypeEnum.BOOK_PASSENGER);
+                        outcome.set(TransactionStatusEnum.BOOKED, "A124", j % 54, 150);
+                        outcomeLog.append(outcome);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        outcomeLog.close();
+        assertTrue(outcomeLog.getWrittenRecords() == 20000);
+
+        Set<Long> sequences = new HashSet<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(testOutcomeLogFile)))) {
+            while (true) {
+                long sequence;
+                try {
+                    sequence = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                assertTrue(TransactionTypeEnum.fromTag(in.readByte()) == TransactionTypeEnum.BOOK_PASSENGER);
+                assertTrue(TransactionStatusEnum.fromCode(in.readByte()) == TransactionStatusEnum.BOOKED);
+                assertTrue(in.readUTF().equals("A124"));
+                assertTrue(in.readInt() == (sequence % 5000 == 0 ? 5000 : sequence % 5000) % 54);
+                assertTrue(in.readInt() == 150);
+                sequences.add(sequence);
+            }
+        }
+        assertTrue(sequences.size() == 20000);
+    }
+}
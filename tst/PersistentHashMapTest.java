@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for persistent hash map.
+ */
+public class PersistentHashMapTest {
+    /**
+     * Key with a chosen hash, to force collisions.
+     */
+    private static final class Key {
+        private final int id;
+
+        private final int hash;
+
+        Key(final int id, final int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Key && ((Key) obj).id == id;
+        }
+    }
+
+    private static void assertSameContent(final Map<Key, Integer> expected,
+            final PersistentHashMap<Key, Integer> map) {
+        assertTrue(map.size() == expected.size());
+        for (Map.Entry<Key, Integer> entry : expected.entrySet()) {
+            assertTrue(map.get(entry.getKey()).equals(entry.getValue()));
+        }
+        long sum = 0;
+        int count = 0;
+        for (int value : map.values()) {
+            sum += value;
+            count++;
+        }
+        long expectedSum = 0;
+        for (int value : expected.values()) {
+            expectedSum += value;
+        }
+        assertTrue(count == expected.size());
+        assertTrue(sum == expectedSum);
+    }
+
+    @Test
+    public void testMatchesHashMap() {
+        Random random = new Random(42);
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            //Few distinct hashes give full collisions, many ids give deep tries.
+            int id = random.nextInt(2000);
+            Key key = new Key(id, id % 7 == 0 ? 12345 : id * 0x9E3779B9);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertSameContent(expected, map);
+        for (Key key : new ArrayList<>(expected.keySet())) {
+            map = map.minus(key);
+        }
+        assertTrue(map.isEmpty());
+        assertTrue(!map.values().iterator().hasNext());
+    }
+
+    @Test
+    public void testOldVersionsUnchanged() {
+        List<PersistentHashMap<Key, Integer>> versions = new ArrayList<>();
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 100; i++) {
+            versions.add(map);
+            map = map.plus(new Key(i, i), i);
+        }
+        map = map.minus(new Key(50, 50));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(versions.get(i).size() == i);
+            assertTrue(versions.get(i).containsKey(new Key(i - 1, i - 1)) == (i > 0));
+            assertNull(versions.get(i).get(new Key(i, i)));
+        }
+        assertTrue(map.size() == 99);
+        assertTrue(versions.get(99).get(new Key(50, 50)) == 50);
+    }
+}
@@ -0,0 +1,87 @@
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for price history.
+ */
+public class PriceHistoryTest {
+    private PriceHistory priceHistory;
+
+    @Before
+    public void initialize() {
+        priceHistory = new PriceHistory();
+    }
+
+    @Test
+    public void testPriceAt() {
+        priceHistory.record(0, 0, 150);
+        priceHistory.record(5, 1000, 140);
+        priceHistory.record(9, 2000, 180);
+        assertTrue(priceHistory.getPriceAt(0) == 150);
+        assertTrue(priceHistory.getPriceAt(4) == 150);
+        assertTrue(priceHistory.getPriceAt(5) == 140);
+        assertTrue(priceHistory.getPriceAt(100) == 180);
+        assertTrue(priceHistory.getPriceAtTime(1999) == 140);
+        assertTrue(priceHistory.getPriceAtTime(-1) == -1);
+        assertTrue(new PriceHistory().getPriceAt(1) == -1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSequenceShouldIncrease() {
+        priceHistory.record(3, 0, 150);
+        priceHistory.record(3, 0, 160);
+    }
+
+    @Test
+    public void testManyChunks() {
+        Random random = new Random(7);
+        int count = 100000;
+        int[] prices = new int[count];
+        long[] times = new long[count];
+        long time = 1500000000000L;
+        int price = 200;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(5000);
+            price = Math.max(1, price + random.nextInt(41) - 20);
+            prices[i] = price;
+            times[i] = time;
+            priceHistory.record(2L * i + 1, time, price);
+        }
+        assertTrue(priceHistory.size() == count);
+        for (int i = 0; i < count; i += 97) {
+            assertTrue(priceHistory.getPriceAt(2L * i + 1) == prices[i]);
+            assertTrue(priceHistory.getPriceAt(2L * i + 2) == prices[i]);
+        }
+        //A few bytes per change.
+        assertTrue(priceHistory.getAllocatedBytes() < count * 6L);
+
+        List<PriceChange> changes = priceHistory.getChanges(times[500], times[900]);
+        int first = 500;
+        while (first > 0 && times[first - 1] == times[500]) {
+            first--;
+        }
+        int end = 900;
+        while (times[end - 1] == times[900]) {
+            end--;
+        }
+        assertTrue(changes.size() == end - first);
+        for (int i = 0; i < changes.size(); i++) {
+            assertTrue(changes.get(i).getSequence() == 2L * (first + i) + 1);
+            assertTrue(changes.get(i).getPrice() == prices[first + i]);
+        }
+    }
+
+    @Test
+    public void testTimeGoingBackwards() {
+        priceHistory.record(1, 1000, 150);
+        priceHistory.record(2, 900, 160);
+        List<PriceChange> changes = priceHistory.getChanges(1000, 1001);
+        assertTrue(changes.size() == 2);
+        assertTrue(changes.get(1).getTimeMillis() == 1000);
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for primary/standby replication.
+ */
+public class ReplicationTest {
+    private File testFlightInfoFile;
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+            bw.write("A125,30,140,LAS,LAX\n");
+            bw.write("K792,26,130,CHI,DFW\n");
+            bw.write("K793,10,160,CHI,DFW\n");
+        }
+    }
+
+    @After
+    public void afterTest() {
+        testFlightInfoFile.deleteOnExit();
+    }
+
+    @Test
+    public void testStandbysMirrorPrimary() throws IOException, InterruptedException {
+        FlightReservationSystem primary = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        FlightReservationSystem standby1 = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        FlightReservationSystem standby2 = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        ReplicationPublisher publisher = new ReplicationPublisher(primary, 0);
+        ReplicationReceiver receiver1 = new ReplicationReceiver(standby1, "localhost", publisher.getPort());
+        ReplicationReceiver receiver2 = new ReplicationReceiver(standby2, "localhost", publisher.getPort());
+        assertTrue(publisher.awaitStandbys(2, 10000));
+
+        Random random = new Random(11);
+        String[][] routes = {{"LAS", "LAX"}, {"CHI", "DFW"}};
+        String[] flightNumbers = {"A124", "A125", "K792", "K793"};
+        for (int i = 0; i < 20000; i++) {
+            String[] route = routes[random.nextInt(routes.length)];
+            String passenger = "Passenger" + random.nextInt(300);
+            int operation = random.nextInt(10);
+            if (operation < 6) {
+                primary.processTransaction(new String[] {"BookPassenger", passenger, route[0], route[1]});
+            } else if (operation < 9) {
+                primary.processTransaction(new String[] {"CancelPassenger", passenger, route[0], route[1]});
+            } else {
+                primary.processTransaction(new String[] {"ChangePrice", flightNumbers[random.nextInt(4)],
+                        String.valueOf(100 + random.nextInt(100))});
+            }
+        }
+        publisher.close();
+        assertTrue(receiver1.awaitPrimaryGone(10000));
+        assertTrue(receiver2.awaitPrimaryGone(10000));
+        assertFalse(receiver1.isPrimaryAlive());
+        assertTrue(receiver1.getAppliedRecords() == publisher.getSentRecords());
+        long appliedSequence = receiver1.promote();
+        assertTrue(appliedSequence == receiver2.promote());
+        assertTrue(appliedSequence > 0 && appliedSequence <= primary.getTransactionSequence());
+
+        for (String flightNumber : flightNumbers) {
+            Flight expected = primary.flightNumberToFlightMap.get(flightNumber);
+            for (FlightReservationSystem standby : new FlightReservationSystem[] {standby1, standby2}) {
+                Flight actual = standby.flightNumberToFlightMap.get(flightNumber);
+                assertTrue(actual.getPricePerSeat() == expected.getPricePerSeat());
+                assertTrue(actual.getAvailableSeats() == expected.getAvailableSeats());
+                assertTrue(actual.getReservations().size() == expected.getReservations().size());
+                for (ReservationItem item : expected.getReservations()) {
+                    ReservationItem replica = actual.getReservationByPassenger(item.getPassenger());
+                    assertTrue(replica.getSeatNumber() == item.getSeatNumber());
+                    assertTrue(replica.getPrice() == item.getPrice());
+                }
+            }
+        }
+        //The promoted standby applies transactions itself.
+        standby1.processTransaction(new String[] {"ChangePrice", "A124", "99"});
+        assertTrue(standby1.getTransactionSequence() == appliedSequence + 1);
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for reservation snapshots and flight versions.
+ */
+public class ReservationSnapshotTest {
+    private File testFlightInfoFile;
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,100000,150,LAS,LAX\n");
+            bw.write("K792,100000,130,CHI,DFW\n");
+            bw.write("B300,100000,120,SFO,JFK\n");
+            bw.write("C400,2,90,SEA,BOS\n");
+        }
+    }
+
+    @After
+    public void afterTest() {
+        testFlightInfoFile.deleteOnExit();
+    }
+
+    private Flight createVersionedFlight(final SnapshotRegistry snapshotRegistry) {
+        Flight flight = new Flight.FlightBuilder()
+                                  .withFlightNumber("A124")
+                                  .withNumberOfSeats(10)
+                                  .withPricePerSeat(150)
+                                  .withOriginCode("LAS")
+                                  .withDestinationCode("LAX")
+                                  .build();
+        flight.setSnapshotRegistry(snapshotRegistry);
+        return flight;
+    }
+
+    @Test
+    public void testSnapshotUnchangedByLaterTransactions() throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        flightReservationSystem.processTransaction(new String[] {"BookPassenger", "GeorgeWashington", "SEA", "BOS"});
+        ReservationSnapshot snapshot = flightReservationSystem.takeReservationSnapshot();
+        flightReservationSystem.processTransaction(new String[] {"BookPassenger", "MikeSmith", "SEA", "BOS"});
+        flightReservationSystem.processTransaction(new String[] {"ChangePrice", "C400", "80"});
+        flightReservationSystem.processTransaction(
+                new String[] {"CancelPassenger", "GeorgeWashington", "SEA", "BOS"});
+        for (FlightVersion flight : snapshot.getFlightVersions()) {
+            if (flight.getFlightNumber().equals("C400")) {
+                assertTrue(flight.getSoldSeats() == 1);
+                assertTrue(flight.getAvailableSeats() == 1);
+                assertTrue(flight.getPricePerSeat() == 90);
+                assertTrue(flight.getReservationByPassenger(new Passenger("GeorgeWashington")) != null);
+            }
+        }
+        assertTrue(snapshot.getSoldSeats() == 1);
+        assertTrue(flightReservationSystem.takeReservationSnapshot().getSoldSeats() == 1);
+        assertTrue(flightReservationSystem.getPricePerSeat("C400") == 80);
+    }
+
+    @Test
+    public void testVersionsReclaimedWithoutReaders() {
+        SnapshotRegistry snapshotRegistry = new SnapshotRegistry();
+        Flight flight = createVersionedFlight(snapshotRegistry);
+        flight.bookPassenger(new ReservationItem(new Passenger("GeorgeWashington"), 150, 1));
+        long openVersion = snapshotRegistry.open();
+        long version = snapshotRegistry.getCurrentVersion();
+        flight.bookPassenger(new ReservationItem(new Passenger("MikeSmith"), 150, 2));
+        flight.changePrice(120);
+        //The open reader keeps the version it needs.
+        assertTrue(flight.getVersion(version).getSoldSeats() == 1);
+        assertTrue(flight.getVersion(version).getPricePerSeat() == 150);
+        snapshotRegistry.close(openVersion);
+
+        //The next change unlinks the versions no reader needs.
+        flight.bookPassenger(new ReservationItem(new Passenger("AnnaLee"), 120, 3));
+        FlightVersion oldest = flight.getVersion(0);
+        assertTrue(oldest.getVersion() == snapshotRegistry.getCurrentVersion());
+        assertTrue(oldest.getSoldSeats() == 3);
+        assertTrue(flight.summaryFlight().getSoldSeats() == 3);
+    }
+
+    @Test
+    public void testConcurrentSnapshotsConsistent() throws IOException, InterruptedException {
+        final FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        final String[][] routes = {{"LAS", "LAX"}, {"CHI", "DFW"}, {"SFO", "JFK"}};
+        final AtomicBoolean stop = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < routes.length; t++) {
+            final int route = t;
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; !stop.get() && i < 50000; i++) {
+                        flightReservationSystem.processTransaction(new String[] {"BookPassenger",
+                                "Passenger" + route + "-" + i, routes[route][0], routes[route][1]});
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        //Each booking is one change, so a consistent snapshot sold exactly as many seats as its version.
+        int previousSold = 0;
+        for (int i = 0; i < 200; i++) {
+            ReservationSnapshot snapshot = flightReservationSystem.takeReservationSnapshot();
+            assertTrue(snapshot.getSoldSeats() == snapshot.getVersion());
+            assertTrue(snapshot.getSoldSeats() >= previousSold);
+            previousSold = snapshot.getSoldSeats();
+        }
+        stop.set(true);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
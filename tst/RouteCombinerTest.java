@@ -0,0 +1,104 @@
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for route combiner.
+ */
+public class RouteCombinerTest {
+    private int counter;
+
+    @Test
+    public void testEachRequestAppliedOnce() throws InterruptedException {
+        final Object routeLock = new Object();
+        final RouteCombiner routeCombiner = new RouteCombiner(routeLock) {
+            @Override
+            protected ReservationItem apply(final TransactionTypeEnum type, final Passenger passenger,
+                    final TransactionOutcome outcome) {
+                assertTrue(Thread.holdsLock(routeLock));
+                return new ReservationItem(passenger, 0, ++counter);
+            }
+        };
+        final List<Integer> seatNumbers = new CopyOnWriteArrayList<>();
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final int thread = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    TransactionOutcome outcome = new TransactionOutcome();
+                    for (int j = 0; j < 5000; j++) {
+                        Passenger passenger = new Passenger("Passenger" + thread + "-" + j);
+                        ReservationItem result = routeCombiner.submit(TransactionTypeEnum.BOOK_PASSENGER, passenger,
+                                outcome);
+                        assertTrue(result.getPassenger() == passenger);
+                        seatNumbers.add(result.getSeatNumber());
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Set<Integer> distinct = new HashSet<>(seatNumbers);
+        assertTrue(counter == 40000);
+        assertTrue(distinct.size() == 40000);
+        assertTrue(routeCombiner.getCombinedRequests() == 40000);
+        assertTrue(routeCombiner.getBatches() > 0 && routeCombiner.getBatches() <= 40000);
+    }
+
+    @Test
+    public void testIdleSlotsUnlinked() throws InterruptedException {
+        final RouteCombiner routeCombiner = new RouteCombiner(new Object()) {
+            @Override
+            protected ReservationItem apply(final TransactionTypeEnum type, final Passenger passenger,
+                    final TransactionOutcome outcome) {
+                return null;
+            }
+        };
+        for (int i = 0; i < 100; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    routeCombiner.submit(TransactionTypeEnum.BOOK_PASSENGER, new Passenger("Passenger"), null);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+        assertTrue(routeCombiner.getLinkedSlots() == 100);
+        for (int i = 0; i < RouteCombiner.CLEANUP_PERIOD + RouteCombiner.MAX_IDLE_BATCHES + 100; i++) {
+            routeCombiner.submit(TransactionTypeEnum.BOOK_PASSENGER, new Passenger("Passenger"), null);
+        }
+        //Only the slot of this thread is left.
+        assertTrue(routeCombiner.getLinkedSlots() == 1);
+    }
+
+    @Test
+    public void testFailureHandedToCaller() {
+        RouteCombiner routeCombiner = new RouteCombiner(new Object()) {
+            @Override
+            protected ReservationItem apply(final TransactionTypeEnum type, final Passenger passenger,
+                    final TransactionOutcome outcome) {
+                if (passenger.getName().equals("Bad")) {
+                    throw new IllegalStateException("Bad passenger");
+                }
+                return null;
+            }
+        };
+        boolean failed = false;
+        try {
+            routeCombiner.submit(TransactionTypeEnum.BOOK_PASSENGER, new Passenger("Bad"), null);
+        } catch (IllegalStateException e) {
+            failed = true;
+        }
+        assertTrue(failed);
+        assertTrue(routeCombiner.submit(TransactionTypeEnum.BOOK_PASSENGER, new Passenger("Good"), null) == null);
+    }
+}
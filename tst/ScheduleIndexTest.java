@@ -0,0 +1,112 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for schedule index.
+ */
+public class ScheduleIndexTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 19);
+
+    private ScheduleIndex scheduleIndex;
+
+    @Before
+    public void initialize() {
+        scheduleIndex = new ScheduleIndex(TODAY);
+    }
+
+    @Test
+    public void testCheapestFlight() {
+        Flight morning = dated("A1", 2, 150, TODAY.atTime(8, 30));
+        Flight evening = dated("A2", 2, 120, TODAY.atTime(19, 0));
+        Flight tomorrow = dated("A3", 2, 90, TODAY.plusDays(1).atTime(8, 30));
+        scheduleIndex.add(morning);
+        scheduleIndex.add(evening);
+        scheduleIndex.add(tomorrow);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY) == evening);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY.plusDays(2)) == null);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY, TODAY.plusDays(30)) == tomorrow);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY.minusDays(3), TODAY) == evening);
+
+        evening.bookPassenger(new ReservationItem(new Passenger("P1"), 120, evening.generateRandomSeatNumber()));
+        evening.bookPassenger(new ReservationItem(new Passenger("P2"), 120, evening.generateRandomSeatNumber()));
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY) == morning);
+        evening.cancelPassenger(evening.getReservationByPassenger(new Passenger("P2")));
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY) == evening);
+
+        morning.changePrice(100);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY) == morning);
+        tomorrow.changePrice(200);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY, TODAY.plusDays(1)) == morning);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY.plusDays(1), TODAY.plusDays(1)) == tomorrow);
+
+        scheduleIndex.remove(morning);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY) == evening);
+        assertTrue(morning.getScheduleIndex() == null);
+    }
+
+    @Test
+    public void testArchive() {
+        Flight today = dated("A1", 2, 150, TODAY.atTime(8, 30));
+        Flight nextWeek = dated("A2", 2, 170, TODAY.plusDays(7).atTime(8, 30));
+        Flight yesterday = dated("A3", 2, 90, TODAY.minusDays(1).atTime(8, 30));
+        scheduleIndex.add(today);
+        scheduleIndex.add(nextWeek);
+        scheduleIndex.add(yesterday);
+        assertTrue(scheduleIndex.getArchivedFlights(TODAY.minusDays(1)).contains(yesterday));
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY.minusDays(1), TODAY.plusDays(7)) == today);
+
+        scheduleIndex.archiveBefore(TODAY.plusDays(1));
+        assertTrue(scheduleIndex.getHotDays() == 1);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY) == null);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY, TODAY.plusDays(7)) == nextWeek);
+        assertTrue(scheduleIndex.getArchivedFlights(TODAY).contains(today));
+        //An archived flight no longer updates the index.
+        today.changePrice(10);
+        assertTrue(scheduleIndex.getCheapestFlight(TODAY, TODAY.plusDays(7)) == nextWeek);
+        scheduleIndex.remove(today);
+        assertTrue(scheduleIndex.getArchivedFlights(TODAY).isEmpty());
+    }
+
+    @Test
+    public void testRangeMatchesScan() {
+        Random random = new Random(7);
+        Flight[] flights = new Flight[500];
+        for (int i = 0; i < flights.length; i++) {
+            flights[i] = dated("F" + i, 1, 50 + random.nextInt(500), TODAY.plusDays(random.nextInt(365)).atTime(9, 0));
+            scheduleIndex.add(flights[i]);
+        }
+        for (int i = 0; i < 200; i++) {
+            flights[random.nextInt(flights.length)].changePrice(50 + random.nextInt(500));
+        }
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = TODAY.plusDays(random.nextInt(365));
+            LocalDate to = from.plusDays(random.nextInt(60));
+            Flight expected = null;
+            for (Flight flight : flights) {
+                LocalDate day = flight.getDepartureTime().toLocalDate();
+                if (!day.isBefore(from) && !day.isAfter(to) && (expected == null || flight.compareTo(expected) < 0)) {
+                    expected = flight;
+                }
+            }
+            assertTrue(scheduleIndex.getCheapestFlight(from, to) == expected);
+        }
+    }
+
+    private static Flight dated(final String flightNumber, final int numberOfSeats, final int pricePerSeat,
+            final LocalDateTime departureTime) {
+        return new Flight.FlightBuilder()
+                .withFlightNumber(flightNumber)
+                .withNumberOfSeats(numberOfSeats)
+                .withPricePerSeat(pricePerSeat)
+                .withOriginCode("LAS")
+                .withDestinationCode("LAX")
+                .withDepartureTime(departureTime)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for seat map.
+ */
+public class SeatMapTest {
+    @Test
+    public void testLayout() {
+        SeatMap seatMap = new SeatMap.SeatMapBuilder()
+                                     .withSeatLetters("AB CD")
+                                     .withZone(CabinZoneEnum.BUSINESS, 2)
+                                     .build(10);
+        assertTrue(seatMap.getRows() == 3);
+        assertTrue("1A".equals(seatMap.getSeatLabel(1)));
+        assertTrue("2C".equals(seatMap.getSeatLabel(7)));
+        assertTrue("3B".equals(seatMap.getSeatLabel(10)));
+        assertTrue(seatMap.getZone(8) == CabinZoneEnum.BUSINESS);
+        assertTrue(seatMap.getZone(9) == CabinZoneEnum.ECONOMY);
+        //Blocks never cross the aisle or the row end.
+        assertTrue(seatMap.getLongestFreeBlock() == 2);
+        assertNull(seatMap.findBlock(3));
+    }
+
+    @Test
+    public void testFindBlock() {
+        SeatMap seatMap = new SeatMap.SeatMapBuilder()
+                                     .withSeatLetters("ABC DEF")
+                                     .withZone(CabinZoneEnum.FIRST, 1)
+                                     .build(18);
+        seatMap.take(2);
+        seatMap.take(10);
+        int[] block = seatMap.findBlock(3);
+        assertTrue(block[0] == 4 && block[2] == 6);
+        block = seatMap.findBlock(3, CabinZoneEnum.ECONOMY);
+        assertTrue(block[0] == 7 && block[2] == 9);
+        assertTrue(seatMap.findBlock(2, CabinZoneEnum.FIRST)[0] == 4);
+        assertTrue(seatMap.findBestSeat(CabinZoneEnum.FIRST) == 1);
+        assertTrue(seatMap.findBestSeat(CabinZoneEnum.BUSINESS) == -1);
+
+        seatMap.release(2);
+        assertTrue(seatMap.findBlock(3)[0] == 1);
+        assertTrue(seatMap.getFreeSeats() == 17);
+        assertFalse(seatMap.isFree(10));
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        SeatMap seatMap = new SeatMap.SeatMapBuilder()
+                                     .withSeatLetters("ABC DEFG HJK")
+                                     .build(500);
+        Random random = new Random(3);
+        boolean[] taken = new boolean[501];
+        for (int i = 0; i < 20000; i++) {
+            int seatNumber = 1 + random.nextInt(500);
+            if (taken[seatNumber]) {
+                seatMap.release(seatNumber);
+            } else {
+                seatMap.take(seatNumber);
+            }
+            taken[seatNumber] = !taken[seatNumber];
+            int k = 1 + random.nextInt(4);
+            int[] block = seatMap.findBlock(k);
+            int expected = -1;
+            for (int first = 1; first + k - 1 <= 500 && expected < 0; first++) {
+                boolean free = true;
+                for (int j = 0; j < k && free; j++) {
+                    int seat = first + j;
+                    free = !taken[seat] && (j == 0 || sameBlock(seatMap, first, seat));
+                }
+                if (free) {
+                    expected = first;
+                }
+            }
+            assertTrue(block == null ? expected == -1 : block[0] == expected);
+        }
+    }
+
+    private static boolean sameBlock(final SeatMap seatMap, final int first, final int seat) {
+        String firstLabel = seatMap.getSeatLabel(first);
+        String label = seatMap.getSeatLabel(seat);
+        String row = firstLabel.substring(0, firstLabel.length() - 1);
+        if (!row.equals(label.substring(0, label.length() - 1))) {
+            return false;
+        }
+        char a = firstLabel.charAt(firstLabel.length() - 1);
+        char b = label.charAt(label.length() - 1);
+        return (a <= 'C') == (b <= 'C') && (a >= 'H') == (b >= 'H');
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for sorted list set.
+ */
+public class SortedListSetTest {
+    @Test
+    public void testRangeViews() {
+        SortedListSet<Integer> set = new SortedListSet<>(Arrays.asList(10, 20, 30, 40), null);
+        assertTrue(set.comparator() == null);
+        assertTrue(set.contains(30));
+        assertTrue(!set.contains(35));
+        assertTrue(set.subSet(20, 40).equals(new TreeSet<>(Arrays.asList(20, 30))));
+        assertTrue(set.subSet(15, 35).equals(new TreeSet<>(Arrays.asList(20, 30))));
+        assertTrue(set.subSet(25, 25).isEmpty());
+        assertTrue(set.headSet(30).equals(new TreeSet<>(Arrays.asList(10, 20))));
+        assertTrue(set.headSet(5).isEmpty());
+        assertTrue(set.tailSet(30).equals(new TreeSet<>(Arrays.asList(30, 40))));
+        assertTrue(set.tailSet(45).isEmpty());
+        SortedSet<Integer> nested = set.tailSet(15).headSet(40);
+        assertTrue(nested.first() == 20);
+        assertTrue(nested.last() == 30);
+        boolean rejected = false;
+        try {
+            set.subSet(30, 20);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        assertTrue(rejected);
+    }
+
+    @Test
+    public void testComparatorOrder() {
+        Comparator<Integer> reverse = Collections.reverseOrder();
+        List<Integer> elements = new ArrayList<>(Arrays.asList(1, 4, 2, 5, 3));
+        elements.sort(reverse);
+        SortedListSet<Integer> set = new SortedListSet<>(elements, reverse);
+        assertTrue(set.comparator() == reverse);
+        assertTrue(set.headSet(3).equals(new TreeSet<>(Arrays.asList(5, 4))));
+        assertTrue(set.tailSet(3).equals(new TreeSet<>(Arrays.asList(3, 2, 1))));
+        assertTrue(set.contains(2));
+
+        TreeSet<Integer> tree = new TreeSet<>(reverse);
+        tree.addAll(set);
+        assertTrue(tree.size() == 5);
+        assertTrue(tree.first() == 5);
+        assertTrue(tree.last() == 1);
+        assertTrue(tree.headSet(3).equals(set.headSet(3)));
+    }
+}
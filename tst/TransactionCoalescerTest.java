@@ -0,0 +1,252 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for transaction coalescing.
+ */
+public class TransactionCoalescerTest {
+    private File testFlightInfoFile;
+
+    private File testTransactionFile;
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        testTransactionFile = File.createTempFile("TestTransactions", ".txt");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,200,150,LAS,LAX\n");
+            bw.write("B124,200,160,LAS,LAX\n");
+            bw.write("K792,200,130,CHI,DFW\n");
+            bw.write("A792,200,140,CHI,DFW\n");
+            //Too small for coalescing, fills up and waitlists.
+            bw.write("S100,3,90,SEA,BOS\n");
+            bw.write("S200,2,95,SEA,BOS\n");
+        }
+    }
+
+    @After
+    public void afterTest() {
+        testFlightInfoFile.deleteOnExit();
+        testTransactionFile.deleteOnExit();
+    }
+
+    private FlightReservationSystem apply(final int windowSize) throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        flightReservationSystem.enableTransactionCoalescing(windowSize);
+        flightReservationSystem.handleTransactions(testTransactionFile.getAbsolutePath());
+        return flightReservationSystem;
+    }
+
+    private FlightReservationSystem apply(final int windowSize, final File outcomeLogFile) throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        OutcomeLog outcomeLog = new OutcomeLog(outcomeLogFile.getAbsolutePath(), OutcomeLogFormatEnum.CSV);
+        flightReservationSystem.setOutcomeLog(outcomeLog);
+        flightReservationSystem.enableTransactionCoalescing(windowSize);
+        flightReservationSystem.handleTransactions(testTransactionFile.getAbsolutePath());
+        outcomeLog.close();
+        return flightReservationSystem;
+    }
+
+    private static void assertSameSequences(final FlightReservationSystem expected,
+            final FlightReservationSystem actual) {
+        long sequence = expected.getTransactionSequence();
+        assertTrue(actual.getTransactionSequence() == sequence);
+        for (Flight flight : expected.flightNumberToFlightMap.values()) {
+            Flight other = actual.flightNumberToFlightMap.get(flight.getFlightNumber());
+            for (long i = 0; i <= sequence; i++) {
+                assertTrue(flight.getPriceAt(i) == other.getPriceAt(i));
+            }
+        }
+    }
+
+    private static Map<String, Integer> reservations(final FlightVersion flight) {
+        Map<String, Integer> prices = new HashMap<>();
+        for (ReservationItem item : flight.getReservations()) {
+            prices.put(item.getPassenger().getName(), item.getPrice());
+        }
+        return prices;
+    }
+
+    private static void assertSameState(final FlightReservationSystem expected,
+            final FlightReservationSystem actual) {
+        Map<String, FlightVersion> actualFlights = new HashMap<>();
+        for (FlightVersion flight : actual.takeReservationSnapshot().getFlightVersions()) {
+            actualFlights.put(flight.getFlightNumber(), flight);
+        }
+        for (FlightVersion flight : expected.takeReservationSnapshot().getFlightVersions()) {
+            FlightVersion other = actualFlights.get(flight.getFlightNumber());
+            assertTrue(flight.getAvailableSeats() == other.getAvailableSeats());
+            assertTrue(flight.getPricePerSeat() == other.getPricePerSeat());
+            assertTrue(flight.summaryFlight().getTotalAvenue() == other.summaryFlight().getTotalAvenue());
+            assertTrue(reservations(flight).equals(reservations(other)));
+        }
+        for (int i = 0; i < 20; i++) {
+            assertTrue(expected.getWaitlistPosition("P" + i, "SEA", "BOS")
+                    == actual.getWaitlistPosition("P" + i, "SEA", "BOS"));
+        }
+    }
+
+    @Test
+    public void testChurnCoalesced() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testTransactionFile))) {
+            bw.write("BookPassenger,GeorgeWashington,LAS,LAX\n");
+            bw.write("BookPassenger,MikeSmith,LAS,LAX\n");
+            bw.write("BookPassenger,GeorgeWashington,LAS,LAX\n");
+            bw.write("CancelPassenger,MikeSmith,LAS,LAX\n");
+            bw.write("ChangePrice,K792,120\n");
+            bw.write("BookPassenger,AnnaLee,SEA,BOS\n");
+            bw.write("ChangePrice,K792,110\n");
+            bw.write("ChangePrice,A792,100\n");
+            bw.write("BookPassenger,KennethHarris,CHI,DFW\n");
+        }
+        FlightReservationSystem coalesced = apply(TransactionCoalescer.DEFAULT_WINDOW_SIZE);
+        TransactionCoalescer coalescer = coalesced.getTransactionCoalescer();
+        assertTrue(coalescer.getDroppedBookings() == 2);
+        assertTrue(coalescer.getDroppedCancels() == 1);
+        assertTrue(coalescer.getDroppedPriceChanges() == 1);
+        assertTrue(coalesced.getPricePerSeat("K792") == 110);
+        assertTrue(coalesced.getAvailableSeats("A124") == 199);
+        assertTrue(coalesced.getAvailableSeats("A792") == 199);
+        FlightReservationSystem expected = apply(0);
+        assertSameState(expected, coalesced);
+        assertSameSequences(expected, coalesced);
+    }
+
+    @Test
+    public void testDroppedTransactionsKeepTheirSequences() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testTransactionFile))) {
+            bw.write("BookPassenger,MikeSmith,LAS,LAX\n");
+            bw.write("ChangePrice,K792,120\n");
+            bw.write("BookPassenger,MikeSmith,LAS,LAX\n");
+            bw.write("ChangePrice,K792,110\n");
+            bw.write("CancelPassenger,MikeSmith,LAS,LAX\n");
+            bw.write("BookPassenger,AnnaLee,CHI,DFW\n");
+        }
+        File expectedLogFile = File.createTempFile("TestOutcomeLog", ".log");
+        File coalescedLogFile = File.createTempFile("TestOutcomeLog", ".log");
+        expectedLogFile.deleteOnExit();
+        coalescedLogFile.deleteOnExit();
+        FlightReservationSystem expected = apply(0, expectedLogFile);
+        FlightReservationSystem coalesced = apply(TransactionCoalescer.DEFAULT_WINDOW_SIZE, coalescedLogFile);
+        assertTrue(coalesced.getTransactionCoalescer().getDroppedPriceChanges() == 1);
+        assertSameState(expected, coalesced);
+        assertSameSequences(expected, coalesced);
+        Flight k792 = coalesced.flightNumberToFlightMap.get("K792");
+        assertTrue(k792.getPriceAt(2) == 120 && k792.getPriceAt(4) == 110);
+
+        //Dropped lines leave a superseded outcome at the sequence they would have taken.
+        List<String> expectedLines = Files.readAllLines(expectedLogFile.toPath());
+        List<String> coalescedLines = Files.readAllLines(coalescedLogFile.toPath());
+        assertTrue(coalescedLines.size() == 6 && expectedLines.size() == 6);
+        assertTrue(coalescedLines.get(0).equals("1,BookPassenger,Superseded,,-1,-1"));
+        assertTrue(coalescedLines.get(1).equals("2,ChangePrice,PriceSuperseded,K792,-1,-1"));
+        assertTrue(coalescedLines.get(2).equals("3,BookPassenger,Superseded,,-1,-1"));
+        assertTrue(coalescedLines.get(3).equals(expectedLines.get(3)));
+        assertTrue(coalescedLines.get(4).equals("5,CancelPassenger,Superseded,,-1,-1"));
+        //Seats are picked at random, the booking takes the same flight and fare.
+        assertTrue(coalescedLines.get(5).startsWith("6,BookPassenger,Booked,K792,")
+                && coalescedLines.get(5).endsWith(",110"));
+        assertTrue(expectedLines.get(5).startsWith("6,BookPassenger,Booked,K792,"));
+    }
+
+    @Test
+    public void testDroppedTransactionsJoinPriceBatch() throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testTransactionFile))) {
+            bw.write("ChangePrice,A124,140\n");
+            bw.write("ChangePrice,K792,120\n");
+            bw.write("BookPassenger,MikeSmith,LAS,LAX\n");
+            bw.write("CancelPassenger,MikeSmith,LAS,LAX\n");
+            bw.write("ChangePrice,K792,110\n");
+            bw.write("BookPassenger,AnnaLee,CHI,DFW\n");
+        }
+        File logFile = File.createTempFile("TestOutcomeLog", ".log");
+        logFile.deleteOnExit();
+        FlightReservationSystem batched = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        OutcomeLog outcomeLog = new OutcomeLog(logFile.getAbsolutePath(), OutcomeLogFormatEnum.CSV);
+        batched.setOutcomeLog(outcomeLog);
+        batched.enablePriceBatching(true);
+        batched.enableTransactionCoalescing(TransactionCoalescer.DEFAULT_WINDOW_SIZE);
+        batched.handleTransactions(testTransactionFile.getAbsolutePath());
+        outcomeLog.close();
+        FlightReservationSystem expected = apply(0);
+        assertSameState(expected, batched);
+        assertSameSequences(expected, batched);
+
+        //The dropped lines wait in the batch, which the kept booking of AnnaLee applies at once.
+        List<String> lines = Files.readAllLines(logFile.toPath());
+        assertTrue(lines.size() == 6);
+        assertTrue(lines.get(0).equals("1,ChangePrice,PriceChanged,A124,-1,140"));
+        assertTrue(lines.get(1).equals("2,ChangePrice,PriceSuperseded,K792,-1,-1"));
+        assertTrue(lines.get(2).equals("3,BookPassenger,Superseded,,-1,-1"));
+        assertTrue(lines.get(3).equals("4,CancelPassenger,Superseded,,-1,-1"));
+        assertTrue(lines.get(4).equals("5,ChangePrice,PriceChanged,K792,-1,110"));
+        assertTrue(lines.get(5).startsWith("6,BookPassenger,Booked,K792,"));
+    }
+
+    @Test
+    public void testDroppedPriceChangeOfRetiredFlight() throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        Flight k792 = flightReservationSystem.flightNumberToFlightMap.get("K792");
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"RetireFlight", "K792"}));
+        assertTrue(flightReservationSystem.processCoalescedTransaction(new String[] {"ChangePrice", "K792", "120"})
+                == TransactionStatusEnum.UNKNOWN_FLIGHT);
+
+        PriceBatch priceBatch = new PriceBatch();
+        priceBatch.addCoalesced(TransactionTypeEnum.CHANGE_PRICE, "K792", 110);
+        priceBatch.addCoalesced(TransactionTypeEnum.CHANGE_PRICE, "A792", 100);
+        assertTrue(flightReservationSystem.applyPriceBatch(priceBatch) == 0);
+        assertTrue(flightReservationSystem.getTransactionSequence() == 3);
+        assertTrue(k792.getPriceHistory() == null);
+        Flight a792 = flightReservationSystem.flightNumberToFlightMap.get("A792");
+        assertTrue(a792.getPriceAt(3) == 100 && a792.getPricePerSeat() == 140);
+    }
+
+    @Test
+    public void testSameStateAsApplyingEveryTransaction() throws IOException {
+        Random random = new Random(7);
+        String[][] routes = {{"LAS", "LAX"}, {"CHI", "DFW"}, {"SEA", "BOS"}};
+        String[] flightNumbers = {"A124", "B124", "K792", "A792", "S100", "S200"};
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testTransactionFile))) {
+            for (int i = 0; i < 5000; i++) {
+                int kind = random.nextInt(10);
+                String[] route = routes[random.nextInt(routes.length)];
+                String passenger = "P" + random.nextInt(20);
+                if (kind < 5) {
+                    bw.write("BookPassenger," + passenger + "," + route[0] + "," + route[1] + "\n");
+                } else if (kind < 8) {
+                    bw.write("CancelPassenger," + passenger + "," + route[0] + "," + route[1] + "\n");
+                } else {
+                    bw.write("ChangePrice," + flightNumbers[random.nextInt(flightNumbers.length)] + ","
+                            + (80 + random.nextInt(100)) + "\n");
+                }
+            }
+        }
+        FlightReservationSystem expected = apply(0);
+        for (int windowSize : new int[] {1, 16, 256}) {
+            FlightReservationSystem coalesced = apply(windowSize);
+            assertSameState(expected, coalesced);
+            assertSameSequences(expected, coalesced);
+            TransactionCoalescer coalescer = coalesced.getTransactionCoalescer();
+            if (windowSize > 1) {
+                assertTrue(coalescer.getDroppedBookings() + coalescer.getDroppedCancels()
+                        + coalescer.getDroppedPriceChanges() > 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for transaction codec.
+ */
+public class TransactionCodecTest {
+    @Test
+    public void testRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        assertTrue(TransactionCodec.encode(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX"}, buffer));
+        assertTrue(TransactionCodec.encode(new String[] {"ChangePrice", "A124", "130"}, buffer));
+        assertTrue(TransactionCodec.encode(new String[] {"CancelPassenger", "KenHatch", "CHI", "DTW"}, buffer));
+        assertFalse(TransactionCodec.encode(new String[] {"Unknown", "KenHatch"}, buffer));
+        assertTrue(buffer.position() == 3 * TransactionCodec.HEADER_LENGTH + "MikeSmith".length()
+                + "KenHatch".length());
+        buffer.flip();
+
+        TransactionRecord record = new TransactionRecord();
+        assertTrue(TransactionCodec.decode(buffer, record));
+        assertTrue(record.getType() == TransactionTypeEnum.BOOK_PASSENGER);
+        assertTrue("MikeSmith".equals(record.getPassengerName()));
+        assertTrue(new OriginDestinationPair("LAS", "LAX").equals(record.getOriginDestinationPair()));
+
+        assertTrue(TransactionCodec.decode(buffer, record));
+        assertTrue(record.getType() == TransactionTypeEnum.CHANGE_PRICE);
+        assertTrue("A124".equals(record.getFlightNumber()));
+        assertTrue(record.getPrice() == 130);
+
+        assertTrue(TransactionCodec.decode(buffer, record));
+        assertTrue(record.getType() == TransactionTypeEnum.CANCEL_PASSENGER);
+        assertTrue("CancelPassenger,KenHatch,CHI,DTW".equals(
+                String.join(",", TransactionCodec.toTransactionInfoArr(record))));
+        assertFalse(TransactionCodec.decode(buffer, record));
+    }
+
+    @Test
+    public void testExtendedRoundTrip() {
+        String[][] lines = {
+            {"BookPassenger", "MikeSmith", "LAS", "LAX", "2026-10-20"},
+            {"BookPassenger", "MikeSmith", "LAS", "LAX"},
+            {"ChangePrice", "A124", "180", "B"},
+            {"ChangePrice", "A124", "130"},
+            {"CancelPassenger", "KenHatch", "CHI", "DTW"},
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (String[] line : lines) {
+            assertTrue(TransactionCodec.encode(line, buffer));
+        }
+        buffer.flip();
+        TransactionRecord record = new TransactionRecord();
+        for (String[] line : lines) {
+            assertTrue(TransactionCodec.decode(buffer, record));
+            assertTrue(String.join(",", line).equals(String.join(",", TransactionCodec.toTransactionInfoArr(record))));
+        }
+        assertFalse(TransactionCodec.decode(buffer, record));
+    }
+
+    @Test
+    public void testEncodeRejectsUnsupportedFields() {
+        String[][] lines = {
+            {"CancelPassenger", "KenHatch", "CHI", "DTW", "2026-10-20"},
+            {"BookPassenger", "MikeSmith", "LAS", "LAX", "2026-10-20", "Y"},
+            {"ChangePrice", "A124", "180", "B", "Y"},
+            {"ChangePrice", "A124"},
+        };
+        for (String[] line : lines) {
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            try {
+                TransactionCodec.encode(line, buffer);
+                assertTrue(String.join(",", line), false);
+            } catch (IllegalArgumentException e) {
+                assertTrue(buffer.position() == 0);
+            }
+        }
+    }
+
+    @Test
+    public void testConvertRejectsUnsupportedLine() throws IOException {
+        File textFile = File.createTempFile("TestTransactions", ".txt");
+        File binaryFile = File.createTempFile("TestTransactions", ".bin");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(textFile))) {
+            bw.write("BookPassenger,KennethHarris,CHI,DFW\n");
+            bw.write("CancelPassenger,KennethHarris,CHI,DFW,2026-10-20\n");
+        }
+        try {
+            TransactionFileConverter.toBinary(textFile.getAbsolutePath(), binaryFile.getAbsolutePath());
+            assertTrue(false);
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("line 2"));
+        }
+        textFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+    }
+
+    @Test
+    public void testDecodePartialRecord() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        TransactionCodec.encode(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX"}, buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        TransactionRecord record = new TransactionRecord();
+        assertFalse(TransactionCodec.decode(buffer, record));
+        assertTrue(buffer.position() == 0);
+        buffer.limit(buffer.limit() + 1);
+        assertTrue(TransactionCodec.decode(buffer, record));
+    }
+
+    @Test
+    public void testPackFlightNumber() {
+        String[] flightNumbers = {"A124", "K792", "ZZZZZZ", "0", "999999", "B4"};
+        for (String flightNumber : flightNumbers) {
+            int packed = TransactionCodec.packFlightNumber(flightNumber);
+            assertTrue(flightNumber.equals(TransactionCodec.unpackFlightNumber(packed)));
+        }
+        int route = TransactionCodec.packRoute("ZZZ", "ABC");
+        assertTrue("ZZZ".equals(TransactionCodec.unpackOriginCode(route)));
+        assertTrue("ABC".equals(TransactionCodec.unpackDestinationCode(route)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPackLowerCaseRoute() {
+        TransactionCodec.packRoute("las", "LAX");
+    }
+
+    @Test
+    public void testHandleBinaryTransactions() throws IOException {
+        File flightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        File textFile = File.createTempFile("TestTransactions", ".txt");
+        File binaryFile = File.createTempFile("TestTransactions", ".bin");
+        LocalDate departure = LocalDate.now().plusDays(30);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(flightInfoFile))) {
+            bw.write("K792,26,130,CHI,DFW\n");
+            bw.write("A792,56,140,CHI,DFW\n");
+            bw.write("D100,10,200,LAS,LAX," + departure + "T08:30");
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(textFile))) {
+            bw.write("BookPassenger,KennethHarris,CHI,DFW\n");
+            bw.write("ChangePrice,A792,120\n");
+            bw.write("BookPassenger, CaroleHarris,CHI,DFW\n");
+            bw.write("BookPassenger,JamesHarris,CHI,DFW\n");
+            bw.write("CancelPassenger,JamesHarris,CHI,DFW\n");
+            bw.write("BookPassenger,MikeSmith,LAS,LAX," + departure + "\n");
+            bw.write("ChangePrice,D100,250,Y\n");
+        }
+        assertTrue(TransactionFileConverter.toBinary(textFile.getAbsolutePath(), binaryFile.getAbsolutePath()) == 7);
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(flightInfoFile.getAbsolutePath());
+        flightReservationSystem.installFareBuckets("D100", Arrays.asList(new FareBucket("Y", 300, 10),
+                new FareBucket("M", 150, 5)));
+        flightReservationSystem.handleBinaryTransactions(binaryFile.getAbsolutePath());
+        Flight d100 = flightReservationSystem.flightNumberToFlightMap.get("D100");
+        assertNotNull(d100.getReservationByPassenger(new Passenger("MikeSmith")));
+        assertTrue(d100.getFareBucket("Y").getFare() == 250);
+
+        Flight k792 = flightReservationSystem.flightNumberToFlightMap.get("K792");
+        Flight a792 = flightReservationSystem.flightNumberToFlightMap.get("A792");
+        assertNotNull(k792.getReservationByPassenger(new Passenger("KennethHarris")));
+        assertNotNull(a792.getReservationByPassenger(new Passenger("CaroleHarris")));
+        assertTrue(a792.getPricePerSeat() == 120);
+        assertTrue(a792.getAvailableSeats() == 55);
+        flightInfoFile.deleteOnExit();
+        textFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+    }
+}
@@ -0,0 +1,186 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for transaction tail mode.
+ */
+public class TransactionTailerTest {
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    private File testFlightInfoFile;
+
+    private Path testDirectory;
+
+    private Path testCheckpointFile;
+
+    @Before
+    public void setup() throws IOException {
+        testFlightInfoFile = File.createTempFile("TestFlightInfo", ".txt");
+        testDirectory = Files.createTempDirectory("TestTransactions");
+        testCheckpointFile = testDirectory.resolveSibling(testDirectory.getFileName() + ".checkpoint");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile))) {
+            bw.write("A124,54,150,LAS,LAX\n");
+            bw.write("K792,26,130,CHI,DFW\n");
+        }
+    }
+
+    @After
+    public void afterTest() throws IOException {
+        testFlightInfoFile.deleteOnExit();
+        for (File file : testDirectory.toFile().listFiles()) {
+            file.delete();
+        }
+        Files.deleteIfExists(testDirectory);
+        Files.deleteIfExists(testCheckpointFile);
+    }
+
+    private void append(final String fileName, final String text) throws IOException {
+        try (BufferedWriter bw = new BufferedWriter(
+                new FileWriter(testDirectory.resolve(fileName).toFile(), true))) {
+            bw.write(text);
+        }
+    }
+
+    @Test
+    public void testAppendedLinesAndNewSegmentsApplied() throws IOException, InterruptedException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        append("segment-0001.txt", "BookPassenger,GeorgeWashington,LAS,LAX\n");
+        try (TransactionTailer transactionTailer =
+                new TransactionTailer(flightReservationSystem, testDirectory, testCheckpointFile)) {
+            assertTrue(transactionTailer.awaitAppliedLines(1, TIMEOUT_MILLIS));
+            assertTrue(flightReservationSystem.getAvailableSeats("A124") == 53);
+
+            append("segment-0001.txt", "BookPassenger,MikeSmith,LAS,LAX\n");
+            assertTrue(transactionTailer.awaitAppliedLines(2, TIMEOUT_MILLIS));
+            assertTrue(flightReservationSystem.getAvailableSeats("A124") == 52);
+
+            append("segment-0002.txt", "BookPassenger,AnnaLee,CHI,DFW\nChangePrice,K792,120\n");
+            assertTrue(transactionTailer.awaitAppliedLines(4, TIMEOUT_MILLIS));
+            assertTrue(flightReservationSystem.getAvailableSeats("K792") == 25);
+            assertTrue(flightReservationSystem.getPricePerSeat("K792") == 120);
+            assertTrue(transactionTailer.getAppliedOffset("segment-0001.txt")
+                    == Files.size(testDirectory.resolve("segment-0001.txt")));
+        }
+    }
+
+    @Test
+    public void testPartialLineWaitsForItsEnd() throws IOException, InterruptedException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        try (TransactionTailer transactionTailer =
+                new TransactionTailer(flightReservationSystem, testDirectory, testCheckpointFile)) {
+            append("segment-0001.txt", "BookPassenger,GeorgeWashington,LAS,LAX\nBookPassenger,Mike");
+            assertTrue(transactionTailer.awaitAppliedLines(1, TIMEOUT_MILLIS));
+            Thread.sleep(3 * TransactionTailer.POLL_MILLIS);
+            assertTrue(transactionTailer.getAppliedLines() == 1);
+            assertTrue(transactionTailer.getAppliedOffset("segment-0001.txt")
+                    == "BookPassenger,GeorgeWashington,LAS,LAX\n".length());
+
+            append("segment-0001.txt", "Smith,LAS,LAX\n");
+            assertTrue(transactionTailer.awaitAppliedLines(2, TIMEOUT_MILLIS));
+            assertTrue(flightReservationSystem.getAvailableSeats("A124") == 52);
+        }
+    }
+
+    @Test
+    public void testRestartResumesFromCheckpoint() throws IOException, InterruptedException {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testFlightInfoFile, true))) {
+            bw.write("B353,1,90,CHI,DFW\n");
+        }
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(flightReservationSystem.applyInventoryChange(new String[] {"ChangeSeats", "K792", "0"}));
+        append("segment-0001.txt", "BookPassenger,GeorgeWashington,LAS,LAX\nBookPassenger,MikeSmith,LAS,LAX\n"
+                + "ChangePrice,A124,170\nBookPassenger,AnnaLee,CHI,DFW\nBookPassenger,JohnDoe,CHI,DFW\n");
+        try (TransactionTailer transactionTailer =
+                new TransactionTailer(flightReservationSystem, testDirectory, testCheckpointFile)) {
+            assertTrue(transactionTailer.awaitAppliedLines(5, TIMEOUT_MILLIS));
+        }
+        assertTrue(Files.exists(testCheckpointFile));
+        long sequence = flightReservationSystem.getTransactionSequence();
+        Flight a124 = flightReservationSystem.flightNumberToFlightMap.get("A124");
+        ReservationItem george = a124.getReservationByPassenger(new Passenger("GeorgeWashington"));
+
+        //The restarted system is loaded from the flight file again, the checkpoint brings its state back.
+        //Lines written while stopped are applied on restart, the ones already applied are not.
+        append("segment-0001.txt", "BookPassenger,KenHatch,LAS,LAX\nBookPassenger,JaneRoe,CHI,DFW\n");
+        FlightReservationSystem restarted = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        assertTrue(restarted.applyInventoryChange(new String[] {"ChangeSeats", "K792", "0"}));
+        try (TransactionTailer transactionTailer =
+                new TransactionTailer(restarted, testDirectory, testCheckpointFile)) {
+            assertTrue(transactionTailer.awaitAppliedLines(2, TIMEOUT_MILLIS));
+            Thread.sleep(3 * TransactionTailer.POLL_MILLIS);
+            assertTrue(transactionTailer.getAppliedLines() == 2);
+        }
+        Flight restartedA124 = restarted.flightNumberToFlightMap.get("A124");
+        assertTrue(restarted.getAvailableSeats("A124") == 51);
+        assertTrue(restarted.getTransactionSequence() == sequence + 2);
+        assertTrue(restartedA124.getReservationByPassenger(new Passenger("GeorgeWashington")).getSeatNumber()
+                == george.getSeatNumber());
+        assertTrue(restartedA124.getReservationByPassenger(new Passenger("KenHatch")).getPrice() == 170);
+        assertTrue(restartedA124.getPriceAt(3) == 170 && restartedA124.getPriceAt(2) == 150);
+        //JohnDoe kept his place on the waitlist, ahead of JaneRoe.
+        Waitlist waitlist = restarted.waitlistMap.get(new OriginDestinationPair("CHI", "DFW"));
+        assertTrue(waitlist.size() == 2);
+        assertTrue(restarted.getAvailableSeats("B353") == 0);
+        assertTrue(restarted.getWaitlistPosition("JohnDoe", "CHI", "DFW") == 1);
+        assertTrue(restarted.getWaitlistPosition("JaneRoe", "CHI", "DFW") == 2);
+        assertTrue(restarted.flightNumberToFlightMap.get("B353")
+                .getReservationByPassenger(new Passenger("AnnaLee")) != null);
+    }
+
+    @Test
+    public void testCheckpointWithoutStateReplaysFromStart() throws IOException, InterruptedException {
+        append("segment-0001.txt", "BookPassenger,GeorgeWashington,LAS,LAX\nBookPassenger,MikeSmith,LAS,LAX\n");
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(testCheckpointFile.toFile()))) {
+            bw.write("segment-0001.txt," + Files.size(testDirectory.resolve("segment-0001.txt")) + "\n");
+        }
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        try (TransactionTailer transactionTailer =
+                new TransactionTailer(flightReservationSystem, testDirectory, testCheckpointFile)) {
+            assertTrue(transactionTailer.awaitAppliedLines(2, TIMEOUT_MILLIS));
+        }
+        assertTrue(flightReservationSystem.getAvailableSeats("A124") == 52);
+        assertTrue(flightReservationSystem.getTransactionSequence() == 2);
+    }
+
+    @Test
+    public void testStateWrittenAsCaptured() throws IOException {
+        FlightReservationSystem flightReservationSystem =
+                new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        flightReservationSystem.processTransaction(new String[] {"BookPassenger", "GeorgeWashington", "LAS", "LAX"});
+        flightReservationSystem.processTransaction(new String[] {"ChangePrice", "A124", "170"});
+        StateSnapshot stateSnapshot = flightReservationSystem.captureState();
+
+        //Changes made after the capture, while the checkpoint thread writes it, are not written.
+        flightReservationSystem.processTransaction(new String[] {"BookPassenger", "MikeSmith", "LAS", "LAX"});
+        flightReservationSystem.processTransaction(new String[] {"ChangePrice", "A124", "180"});
+        StringWriter writer = new StringWriter();
+        flightReservationSystem.writeState(stateSnapshot, writer);
+        String state = writer.toString();
+        assertTrue(state.startsWith("Sequence,2\n"));
+        assertTrue(state.contains("GeorgeWashington") && !state.contains("MikeSmith"));
+        assertTrue(state.contains("PriceChange,A124,2,") && !state.contains("PriceChange,A124,4,"));
+
+        FlightReservationSystem restored = new FlightReservationSystem(testFlightInfoFile.getAbsolutePath());
+        for (String stateLine : state.split("\n")) {
+            restored.restoreState(stateLine.split(",", -1));
+        }
+        assertTrue(restored.getTransactionSequence() == 2);
+        assertTrue(restored.getAvailableSeats("A124") == 53);
+        assertTrue(restored.getPricePerSeat("A124") == 170);
+    }
+}